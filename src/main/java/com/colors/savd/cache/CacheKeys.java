@@ -1,6 +1,8 @@
 package com.colors.savd.cache;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public final class CacheKeys {
   private CacheKeys() {}
@@ -12,18 +14,29 @@ public final class CacheKeys {
     return (dt == null) ? null : dt.toLocalDate().atTime(23,59,59);
   }
 
-  public static String top15(LocalDateTime desde, LocalDateTime hasta, Long canalId) {
-    return dayStart(desde) + "|" + dayEnd(hasta) + "|" + String.valueOf(canalId);
+  public static ClaveReporte top15(LocalDateTime desde, LocalDateTime hasta, Long canalId) {
+    return new ClaveReporte(dayStart(desde), dayEnd(hasta), canalId, null, null, null, null);
   }
 
-  public static String kpiKey(LocalDateTime d, LocalDateTime h,
-                              Long canal, Long temp, Long cat, Long talla, Long color) {
-    return dayStart(d) + "|" + dayEnd(h) + "|" +
-           String.valueOf(canal) + "|" + String.valueOf(temp) + "|" +
-           String.valueOf(cat) + "|" + String.valueOf(talla) + "|" + String.valueOf(color);
+  public static ClaveReporte kpiKey(LocalDateTime d, LocalDateTime h,
+                                    Long canal, Long temp, Long cat, Long talla, Long color) {
+    return new ClaveReporte(dayStart(d), dayEnd(h), canal, temp, cat, talla, color);
   }
 
-  public static String alertas(LocalDateTime corte) {
-    return (corte == null ? "now" : String.valueOf(dayEnd(corte)));
+  /**
+   * KPI totales: además del rango leen el período anterior de igual duración [d - (h - d), d] y el mismo
+   * rango del año previo, de donde salen las variaciones; la clave los lleva para invalidarse también por ellos.
+   */
+  public static ClaveReporte kpiTotalKey(LocalDateTime d, LocalDateTime h,
+                                         Long canal, Long temp, Long cat, Long talla, Long color) {
+    List<ClaveReporte.Rango> comparados = (d == null || h == null) ? List.of() : List.of(
+        new ClaveReporte.Rango(dayStart(d.minus(Duration.between(d, h))), dayEnd(d)),
+        new ClaveReporte.Rango(dayStart(d.minusYears(1)), dayEnd(h.minusYears(1))));
+    return new ClaveReporte(dayStart(d), dayEnd(h), canal, temp, cat, talla, color, comparados);
+  }
+
+  /** Las alertas dependen de todo lo anterior al corte: rango abierto hacia atrás (corte null = ahora) */
+  public static ClaveReporte alertas(LocalDateTime corte) {
+    return new ClaveReporte(null, dayEnd(corte), null, null, null, null, null);
   }
 }
@@ -0,0 +1,67 @@
+package com.colors.savd.cache;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Evento que publican las escrituras que alteran los datos de los reportes; lo atiende
+ * {@link InvalidadorCacheReportes} después del commit. Límites y conjuntos en null = sin restricción.
+ *
+ * @param ventas true si cambian ventas (todas las cachés de reportes); false si solo cambia stock o
+ *               parámetros de reposición (solo alertasStock)
+ * @param desde  primera fecha_hora afectada
+ * @param hasta  última fecha_hora afectada
+ * @param canalIds canales afectados
+ * @param skuIds SKUs afectados
+ */
+public record CambioDatosReporte(boolean ventas, LocalDateTime desde, LocalDateTime hasta, Set<Long> canalIds,
+    Set<Long> skuIds) {
+
+  /** Alta o anulación de una venta */
+  public static CambioDatosReporte ventas(LocalDateTime fechaHora, Long canalId, Collection<Long> skuIds) {
+    return new CambioDatosReporte(true, fechaHora, fechaHora, Set.of(canalId), Set.copyOf(skuIds));
+  }
+
+  /** Reconstrucción de datos derivados de las ventas (resumen mensual): todas las entradas */
+  public static CambioDatosReporte todasLasVentas() {
+    return new CambioDatosReporte(true, null, null, null, null);
+  }
+
+  /** Movimiento de kardex que no es venta (stock inicial, ingresos) */
+  public static CambioDatosReporte stock(LocalDateTime fechaHora, Long skuId) {
+    return new CambioDatosReporte(false, fechaHora, fechaHora, null, Set.of(skuId));
+  }
+
+  /** Parámetros de reposición: las alertas no filtran por SKU, se invalidan todas */
+  public static CambioDatosReporte parametros() {
+    return new CambioDatosReporte(false, null, null, null, null);
+  }
+
+  /** Junta fechas, canales y SKUs de una carga masiva para publicar un solo evento al final */
+  public static class Acumulador {
+    private LocalDateTime min, max;
+    private final Set<Long> canalIds = new HashSet<>();
+    private final Set<Long> skuIds = new HashSet<>();
+
+    public void registrar(LocalDateTime fechaHora, Long canalId, Long skuId) {
+      if (min == null || fechaHora.isBefore(min)) min = fechaHora;
+      if (max == null || fechaHora.isAfter(max)) max = fechaHora;
+      if (canalId != null) canalIds.add(canalId);
+      skuIds.add(skuId);
+    }
+
+    public boolean isVacio() {
+      return min == null;
+    }
+
+    public CambioDatosReporte ventas() {
+      return new CambioDatosReporte(true, min, max, Set.copyOf(canalIds), Set.copyOf(skuIds));
+    }
+
+    public CambioDatosReporte stock() {
+      return new CambioDatosReporte(false, min, max, null, Set.copyOf(skuIds));
+    }
+  }
+}
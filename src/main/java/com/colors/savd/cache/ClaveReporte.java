@@ -0,0 +1,50 @@
+package com.colors.savd.cache;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Clave de las cachés de reportes (ver {@link CacheKeys}). Se guarda estructurada, no como texto, para que
+ * {@link InvalidadorCacheReportes} pueda decidir qué entradas toca un cambio sin parsear la clave.
+ * Un límite de fecha o un filtro en null significa "sin restricción".
+ *
+ * @param comparados otros rangos que también lee el reporte (período anterior y año previo de los KPI
+ *                   totales); un cambio en cualquiera de ellos afecta la entrada
+ */
+public record ClaveReporte(LocalDateTime desde, LocalDateTime hasta, Long canalId, Long temporadaId,
+    Long categoriaId, Long tallaId, Long colorId, List<Rango> comparados) {
+
+  public record Rango(LocalDateTime desde, LocalDateTime hasta) {
+  }
+
+  public ClaveReporte(LocalDateTime desde, LocalDateTime hasta, Long canalId, Long temporadaId,
+      Long categoriaId, Long tallaId, Long colorId) {
+    this(desde, hasta, canalId, temporadaId, categoriaId, tallaId, colorId, List.of());
+  }
+
+  /** true si el rango [desde, hasta] de la clave, o alguno de los comparados, se cruza con [d, h] (null = abierto) */
+  public boolean solapa(LocalDateTime d, LocalDateTime h) {
+    if (cruza(desde, hasta, d, h)) return true;
+    for (Rango r : comparados) {
+      if (cruza(r.desde(), r.hasta(), d, h)) return true;
+    }
+    return false;
+  }
+
+  private static boolean cruza(LocalDateTime desde, LocalDateTime hasta, LocalDateTime d, LocalDateTime h) {
+    boolean antes = (hasta != null && d != null && d.isAfter(hasta));
+    boolean despues = (desde != null && h != null && h.isBefore(desde));
+    return !antes && !despues;
+  }
+
+  public boolean filtraAtributosSku() {
+    return categoriaId != null || tallaId != null || colorId != null;
+  }
+
+  /** true si un SKU con estos atributos entra en los filtros de categoría/talla/color de la clave */
+  public boolean aceptaSku(Long categoria, Long talla, Long color) {
+    return (categoriaId == null || categoriaId.equals(categoria))
+        && (tallaId == null || tallaId.equals(talla))
+        && (colorId == null || colorId.equals(color));
+  }
+}
@@ -0,0 +1,613 @@
+package com.colors.savd.cache;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.colors.savd.model.Venta;
+import com.colors.savd.model.VentaDetalle;
+import com.colors.savd.repository.CuboVentasRepository;
+import com.colors.savd.repository.projection.KpiAggComparado;
+import com.colors.savd.repository.projection.KpiAggMes;
+import com.colors.savd.repository.projection.TopProductoFila;
+import com.colors.savd.util.ConsultaKpi.Nivel;
+import com.colors.savd.util.TramosMensuales;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cubo de ventas en memoria para los KPI y el top de {@code ReporteService} sin ir a la base
+ * ({@code savd.kpi.cubo.habilitado}, apagado por defecto). Cada línea de venta ACTIVA es una fila de
+ * columnas primitivas: segundo (desde 2000-01-01), mes yyyymm, SKU, canal y temporada codificados como
+ * índice de diccionario, cantidad e importe en centavos. Producto, categoría, talla y color se resuelven
+ * una sola vez por SKU al cargar; los filtros de atributos se convierten en un arreglo de SKUs aceptados.
+ * Las consultas recorren las columnas por bloques en paralelo y suman en {@link SumasPorGrupo}.
+ * <p>
+ * Igual que {@code ResumenVentaMensualRepository}: el alta manual, la importación y las anulaciones le
+ * pasan sus deltas ({@link #sumar}, {@link #restar}, {@link #restarVentasActivas}), que se aplican tras el
+ * commit como filas nuevas (las anulaciones con signo negativo). La carga completa se hace en la primera
+ * consulta y se repite tras {@code savd.kpi.cubo.recarga-minutos} (compacta los deltas y toma cambios del
+ * catálogo) o tras {@link #recargar()}.
+ *
+ * @see com.colors.savd.repository.ResumenVentaMensualRepository
+ */
+@Component
+@Slf4j
+public class CuboVentas {
+
+  private static final long BASE_SEGUNDOS = LocalDateTime.of(2000, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+
+  // Filas por tarea del escaneo paralelo
+  private static final int BLOQUE = 1 << 16;
+
+  // Recargas seguidas si entran deltas mientras se carga (no se sabe si la carga ya los vio)
+  private static final int INTENTOS_CARGA = 3;
+
+  private final CuboVentasRepository repo;
+
+  @Value("${savd.kpi.cubo.habilitado:false}")
+  private boolean habilitado;
+
+  @Value("${savd.kpi.cubo.recarga-minutos:60}")
+  private long recargaMinutos;
+
+  /** Lo que ven las consultas; null = hay que (re)cargar */
+  private volatile Vista vista;
+
+  // Lado escritor (bajo el monitor de this): se publican en vista tras cada cambio
+  private Diccionarios diccionarios;
+  private Columnas columnas;
+  private volatile boolean cargando;
+  private boolean cambiosDuranteCarga;
+
+  private final Object cargaLock = new Object();
+
+  public CuboVentas(CuboVentasRepository repo) {
+    this.repo = repo;
+  }
+
+  // ================= Consultas =================
+
+  /** Unidades e ingresos por mes y clave del nivel; mismas filas y orden que {@code KpiRepository} */
+  public List<KpiAggMes> kpiMensual(Nivel nivel, TramosMensuales rango, Long canalId, Long temporadaId,
+      Long categoriaId, Long tallaId, Long colorId) {
+    Vista v = vigente();
+    Filtro f = Filtro.de(v.dim(), canalId, temporadaId, categoriaId, tallaId, colorId);
+    if (f == null) return List.of();
+    int[] claves = v.dim().claves(nivel);
+    int a = desde(rango.desde()), b = hasta(rango.hasta());
+
+    SumasPorGrupo sumas = escanear(v.hechos(), 2, (h, ini, fin, s) -> {
+      int[] seg = h.segundo(), mes = h.mes(), sku = h.sku(), tem = h.temporada(), cant = h.cantidad();
+      short[] can = h.canal();
+      long[] cent = h.centavos();
+      for (int i = ini; i < fin; i++) {
+        int t = seg[i];
+        if (t < a || t > b) continue;
+        if (!f.acepta(can[i], tem[i], sku[i])) continue;
+        int g = s.grupo(((long) mes[i] << 32) | claves[sku[i]]);
+        s.sumar(g, 0, cant[i]);
+        s.sumar(g, 1, cent[i]);
+      }
+    });
+
+    List<KpiAggMes> out = new ArrayList<>();
+    for (int g = 0; g < sumas.capacidad(); g++) {
+      if (!sumas.ocupada(g) || sumas.suma(g, 0) <= 0) continue;
+      long k = sumas.clave(g);
+      int periodo = (int) (k >>> 32);
+      Etiqueta e = v.dim().etiqueta(nivel, (int) k);
+      out.add(new KpiAggMes(periodo / 100, periodo % 100, e.id(), e.nombre(), e.producto(), e.talla(), e.color(),
+          sumas.suma(g, 0), centavos(sumas.suma(g, 1))));
+    }
+    out.sort(Comparator.comparing(KpiAggMes::anio).thenComparing(KpiAggMes::mes)
+        .thenComparing(KpiAggMes::ingresos, Comparator.reverseOrder()));
+    return out;
+  }
+
+  /** Totales del período actual con los ingresos del anterior y del año previo, en un solo recorrido */
+  public List<KpiAggComparado> kpiComparado(Nivel nivel, TramosMensuales actual, TramosMensuales anterior,
+      TramosMensuales yoy, Long canalId, Long temporadaId, Long categoriaId, Long tallaId, Long colorId) {
+    Vista v = vigente();
+    Filtro f = Filtro.de(v.dim(), canalId, temporadaId, categoriaId, tallaId, colorId);
+    if (f == null) return List.of();
+    int[] claves = v.dim().claves(nivel);
+    int aDesde = desde(actual.desde()), aHasta = hasta(actual.hasta());
+    int pDesde = desde(anterior.desde()), pHasta = hasta(anterior.hasta());
+    int yDesde = desde(yoy.desde()), yHasta = hasta(yoy.hasta());
+
+    // Columnas: unidades actual, centavos actual, centavos anterior, centavos año previo
+    SumasPorGrupo sumas = escanear(v.hechos(), 4, (h, ini, fin, s) -> {
+      int[] seg = h.segundo(), sku = h.sku(), tem = h.temporada(), cant = h.cantidad();
+      short[] can = h.canal();
+      long[] cent = h.centavos();
+      for (int i = ini; i < fin; i++) {
+        int t = seg[i];
+        boolean enA = t >= aDesde && t <= aHasta;
+        boolean enP = t >= pDesde && t <= pHasta;
+        boolean enY = t >= yDesde && t <= yHasta;
+        if (!(enA || enP || enY)) continue;
+        if (!f.acepta(can[i], tem[i], sku[i])) continue;
+        int g = s.grupo(claves[sku[i]]);
+        if (enA) {
+          s.sumar(g, 0, cant[i]);
+          s.sumar(g, 1, cent[i]);
+        }
+        if (enP) s.sumar(g, 2, cent[i]);
+        if (enY) s.sumar(g, 3, cent[i]);
+      }
+    });
+
+    List<KpiAggComparado> out = new ArrayList<>();
+    for (int g = 0; g < sumas.capacidad(); g++) {
+      if (!sumas.ocupada(g) || sumas.suma(g, 0) <= 0) continue;
+      Etiqueta e = v.dim().etiqueta(nivel, (int) sumas.clave(g));
+      out.add(new KpiAggComparado(e.id(), e.nombre(), nivel == Nivel.SKU ? e.producto() : null, e.talla(), e.color(),
+          sumas.suma(g, 0), centavos(sumas.suma(g, 1)), centavos(sumas.suma(g, 2)), centavos(sumas.suma(g, 3))));
+    }
+    out.sort(Comparator.comparing(KpiAggComparado::ingresos, Comparator.reverseOrder()));
+    return out;
+  }
+
+  /** SKUs más vendidos del rango: más unidades primero, luego más ingresos */
+  public List<TopProductoFila> top(LocalDateTime desdeFecha, LocalDateTime hastaFecha, Long canalId, int limite) {
+    Vista v = vigente();
+    Filtro f = Filtro.de(v.dim(), canalId, null, null, null, null);
+    if (f == null) return List.of();
+    int a = desde(desdeFecha), b = hasta(hastaFecha);
+
+    SumasPorGrupo sumas = escanear(v.hechos(), 2, (h, ini, fin, s) -> {
+      int[] seg = h.segundo(), sku = h.sku(), tem = h.temporada(), cant = h.cantidad();
+      short[] can = h.canal();
+      long[] cent = h.centavos();
+      for (int i = ini; i < fin; i++) {
+        int t = seg[i];
+        if (t < a || t > b) continue;
+        if (!f.acepta(can[i], tem[i], sku[i])) continue;
+        int g = s.grupo(sku[i]);
+        s.sumar(g, 0, cant[i]);
+        s.sumar(g, 1, cent[i]);
+      }
+    });
+
+    List<TopProductoFila> out = new ArrayList<>();
+    for (int g = 0; g < sumas.capacidad(); g++) {
+      if (!sumas.ocupada(g) || sumas.suma(g, 0) <= 0) continue;
+      out.add(new TopProductoFila(v.dim().skus()[(int) sumas.clave(g)].id(), sumas.suma(g, 0),
+          centavos(sumas.suma(g, 1))));
+    }
+    out.sort(Comparator.comparing(TopProductoFila::unidades, Comparator.reverseOrder())
+        .thenComparing(TopProductoFila::ingresos, Comparator.reverseOrder()));
+    return out.size() > limite ? out.subList(0, limite) : out;
+  }
+
+  // ================= Deltas (mismos puntos que el resumen mensual) =================
+
+  /** Suma las líneas de ventas nuevas tras el commit (la venta de cada línea debe tener fecha, canal y temporada) */
+  public void sumar(Collection<VentaDetalle> detalles) {
+    registrar(detalles, 1);
+  }
+
+  /** Resta tras el commit las líneas de una venta que se anula */
+  public void restar(Collection<VentaDetalle> detalles) {
+    registrar(detalles, -1);
+  }
+
+  /** Resta tras el commit las ventas de la lista que siguen ACTIVAS: debe correr antes de marcarlas ANULADAS */
+  public void restarVentasActivas(List<Long> ventaIds) {
+    if (!habilitado || ventaIds.isEmpty()) return;
+    if (!activo()) {
+      despuesDelCommit(this::sinDelta);
+      return;
+    }
+    List<Linea> lineas = new ArrayList<>();
+    repo.recorrerLineasActivas(ventaIds, rs -> lineas.add(Linea.de(rs, -1)));
+    alConfirmar(lineas);
+  }
+
+  /** Descarta el cubo tras el commit: la siguiente consulta lo vuelve a cargar (p. ej. al reconstruir el resumen) */
+  public void recargar() {
+    if (!habilitado) return;
+    despuesDelCommit(() -> {
+      synchronized (this) {
+        if (cargando) cambiosDuranteCarga = true;
+        vista = null;
+      }
+    });
+  }
+
+  /** Hay un cubo cargado o cargándose que debe enterarse del cambio */
+  private boolean activo() {
+    return habilitado && (vista != null || cargando);
+  }
+
+  private void registrar(Collection<VentaDetalle> detalles, int signo) {
+    if (!habilitado || detalles.isEmpty()) return;
+    if (!activo()) {
+      despuesDelCommit(this::sinDelta);
+      return;
+    }
+    // Los valores se copian ahora: la entidad puede cambiar antes del commit
+    List<Linea> lineas = new ArrayList<>(detalles.size());
+    for (VentaDetalle d : detalles) lineas.add(Linea.de(d, signo));
+    alConfirmar(lineas);
+  }
+
+  private void alConfirmar(List<Linea> lineas) {
+    if (lineas.isEmpty()) return;
+    // SKUs que el cubo aún no conoce (creados después de la carga): se leen dentro de la transacción
+    Vista v = vista;
+    Set<Long> nuevos = new HashSet<>();
+    for (Linea l : lineas) {
+      if (v == null || !v.dim().conoce(l.skuId())) nuevos.add(l.skuId());
+    }
+    List<SkuLeido> skus = new ArrayList<>(nuevos.size());
+    repo.recorrerSkus(nuevos, rs -> skus.add(SkuLeido.de(rs)));
+    despuesDelCommit(() -> aplicar(skus, lineas));
+  }
+
+  private synchronized void aplicar(List<SkuLeido> skus, List<Linea> lineas) {
+    if (cargando) {
+      cambiosDuranteCarga = true;
+      return;
+    }
+    if (vista == null) return; // la próxima carga ya lo incluye
+    skus.forEach(diccionarios::agregar);
+    for (Linea l : lineas) columnas.agregar(diccionarios, l);
+    vista = new Vista(diccionarios.vista(), columnas.vista(), vista.cargadoEnMillis());
+  }
+
+  /**
+   * Commit de un cambio escrito sin cubo (no se leyó su delta). Una carga que arrancó después de la
+   * escritura no lo vio: si sigue en curso se repite, y si ya terminó el cubo queda vencido.
+   */
+  private synchronized void sinDelta() {
+    if (cargando) {
+      cambiosDuranteCarga = true;
+    } else if (vista != null) {
+      vista = new Vista(vista.dim(), vista.hechos(), 0L);
+    }
+  }
+
+  private static void despuesDelCommit(Runnable accion) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      accion.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        accion.run();
+      }
+    });
+  }
+
+  // ================= Carga =================
+
+  private Vista vigente() {
+    Vista v = vista;
+    if (v != null && System.currentTimeMillis() - v.cargadoEnMillis() < recargaMinutos * 60_000) return v;
+    synchronized (cargaLock) {
+      v = vista;
+      if (v != null && System.currentTimeMillis() - v.cargadoEnMillis() < recargaMinutos * 60_000) return v;
+      for (int intento = 1; ; intento++) {
+        synchronized (this) {
+          cargando = true;
+          cambiosDuranteCarga = false;
+        }
+        Diccionarios d = new Diccionarios();
+        Columnas c = new Columnas();
+        long inicio = System.currentTimeMillis();
+        try {
+          repo.recorrerSkus(rs -> d.agregar(SkuLeido.de(rs)));
+          repo.recorrerLineasActivas(rs -> c.agregar(d, Linea.de(rs, 1)));
+        } catch (RuntimeException | Error ex) {
+          synchronized (this) {
+            cargando = false;
+          }
+          throw ex;
+        }
+        synchronized (this) {
+          cargando = false;
+          boolean repetir = cambiosDuranteCarga && intento < INTENTOS_CARGA;
+          if (!repetir) {
+            diccionarios = d;
+            columnas = c;
+            // Con deltas sin aplicar se marca vencido: la siguiente consulta vuelve a cargar
+            v = new Vista(d.vista(), c.vista(), cambiosDuranteCarga ? 0L : System.currentTimeMillis());
+            vista = v;
+            log.info("Cubo de ventas cargado: {} líneas, {} SKUs en {} ms", c.n, d.skus.size(),
+                System.currentTimeMillis() - inicio);
+            return v;
+          }
+        }
+        log.debug("Cubo de ventas: hubo cambios durante la carga {}, se repite", intento);
+      }
+    }
+  }
+
+  private static SumasPorGrupo escanear(Hechos h, int ancho, Escaneo escaneo) {
+    int bloques = (h.n() + BLOQUE - 1) / BLOQUE;
+    return IntStream.range(0, bloques).parallel()
+        .mapToObj(b -> {
+          SumasPorGrupo s = new SumasPorGrupo(ancho);
+          escaneo.bloque(h, b * BLOQUE, Math.min(h.n(), (b + 1) * BLOQUE), s);
+          return s;
+        })
+        .reduce(SumasPorGrupo::unir)
+        .orElseGet(() -> new SumasPorGrupo(ancho));
+  }
+
+  @FunctionalInterface
+  private interface Escaneo {
+    void bloque(Hechos h, int desde, int hasta, SumasPorGrupo sumas);
+  }
+
+  /** Segundo del inicio del rango, redondeado hacia arriba (fecha_hora se guarda al segundo) */
+  private static int desde(LocalDateTime t) {
+    return segundo(t) + (t.getNano() > 0 ? 1 : 0);
+  }
+
+  private static int hasta(LocalDateTime t) {
+    return segundo(t);
+  }
+
+  private static int segundo(LocalDateTime t) {
+    return (int) (t.toEpochSecond(ZoneOffset.UTC) - BASE_SEGUNDOS);
+  }
+
+  private static BigDecimal centavos(long c) {
+    return BigDecimal.valueOf(c, 2);
+  }
+
+  // ================= Estructuras =================
+
+  /** Línea de venta tal como entra al cubo (carga, alta o anulación) */
+  private record Linea(LocalDateTime fechaHora, long canalId, long temporadaId, long skuId, int cantidad,
+      long centavos) {
+
+    static Linea de(ResultSet rs, int signo) throws SQLException {
+      return new Linea(rs.getObject(1, LocalDateTime.class), rs.getLong(2), rs.getLong(3), rs.getLong(4),
+          signo * rs.getInt(5), signo * aCentavos(rs.getBigDecimal(6)));
+    }
+
+    static Linea de(VentaDetalle d, int signo) {
+      Venta v = d.getVenta();
+      return new Linea(v.getFechaHora(), v.getCanal().getId(), v.getTemporada() != null ? v.getTemporada().getId() : 0L,
+          d.getSku().getId(), signo * d.getCantidad(), signo * aCentavos(d.getImporte()));
+    }
+
+    private static long aCentavos(BigDecimal importe) {
+      return importe == null ? 0L : importe.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+  }
+
+  // Columnas de CuboVentasRepository: sku_id, sku, producto_id, producto, categoria_id, categoria,
+  // talla_id, talla, color_id, color (talla y color pueden faltar: id 0)
+  private record SkuLeido(long id, String codigo, long productoId, String producto, long categoriaId,
+      String categoria, long tallaId, String talla, long colorId, String color) {
+
+    static SkuLeido de(ResultSet rs) throws SQLException {
+      return new SkuLeido(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getString(4), rs.getLong(5),
+          rs.getString(6), rs.getLong(7), rs.getString(8), rs.getLong(9), rs.getString(10));
+    }
+  }
+
+  /** SKU ya unido con sus dimensiones: producto y categoría como índices de diccionario */
+  private record Sku(long id, String codigo, int producto, int categoria, long tallaId, long colorId, String talla,
+      String color) {
+  }
+
+  private record Entidad(long id, String nombre) {
+  }
+
+  /** id / nombre (y en SKU: producto, talla, color) de una clave del nivel */
+  private record Etiqueta(Long id, String nombre, String producto, String talla, String color) {
+  }
+
+  /** Vista inmutable de los diccionarios (se copian solo cuando se agrega algo) */
+  private record Dimensiones(Sku[] skus, Entidad[] productos, Entidad[] categorias, Map<Long, Integer> skuPorId,
+      Map<Long, Integer> canalPorId, Map<Long, Integer> temporadaPorId) {
+
+    boolean conoce(long skuId) {
+      return skuPorId.containsKey(skuId);
+    }
+
+    /** Clave de agrupación de cada SKU según el nivel */
+    int[] claves(Nivel nivel) {
+      int[] k = new int[skus.length];
+      for (int s = 0; s < skus.length; s++) {
+        k[s] = switch (nivel) {
+          case CATEGORIA -> skus[s].categoria();
+          case PRODUCTO -> skus[s].producto();
+          case SKU -> s;
+        };
+      }
+      return k;
+    }
+
+    Etiqueta etiqueta(Nivel nivel, int clave) {
+      return switch (nivel) {
+        case CATEGORIA -> new Etiqueta(categorias[clave].id(), categorias[clave].nombre(), null, null, null);
+        case PRODUCTO -> new Etiqueta(productos[clave].id(), productos[clave].nombre(), productos[clave].nombre(),
+            null, null);
+        case SKU -> {
+          Sku s = skus[clave];
+          yield new Etiqueta(s.id(), s.codigo(), productos[s.producto()].nombre(), s.talla(), s.color());
+        }
+      };
+    }
+  }
+
+  /** Filtros traducidos a índices: -1 = sin filtro; skus null = todos */
+  private record Filtro(int canal, int temporada, boolean[] skus) {
+
+    /** null si algún id filtrado no aparece en el cubo (no hay ventas que lo cumplan) */
+    static Filtro de(Dimensiones d, Long canalId, Long temporadaId, Long categoriaId, Long tallaId, Long colorId) {
+      int canal = -1, temporada = -1;
+      if (canalId != null) {
+        Integer i = d.canalPorId().get(canalId);
+        if (i == null) return null;
+        canal = i;
+      }
+      if (temporadaId != null) {
+        Integer i = d.temporadaPorId().get(temporadaId);
+        if (i == null) return null;
+        temporada = i;
+      }
+      boolean[] skus = null;
+      if (categoriaId != null || tallaId != null || colorId != null) {
+        skus = new boolean[d.skus().length];
+        for (int s = 0; s < skus.length; s++) {
+          Sku k = d.skus()[s];
+          skus[s] = (categoriaId == null || d.categorias()[k.categoria()].id() == categoriaId)
+              && (tallaId == null || k.tallaId() == tallaId)
+              && (colorId == null || k.colorId() == colorId);
+        }
+      }
+      return new Filtro(canal, temporada, skus);
+    }
+
+    boolean acepta(short canal, int temporada, int sku) {
+      return (this.canal < 0 || canal == this.canal)
+          && (this.temporada < 0 || temporada == this.temporada)
+          && (skus == null || skus[sku]);
+    }
+  }
+
+  /** Diccionarios del lado escritor: id → índice, en orden de aparición */
+  private static final class Diccionarios {
+    private final List<Sku> skus = new ArrayList<>();
+    private final List<Entidad> productos = new ArrayList<>();
+    private final List<Entidad> categorias = new ArrayList<>();
+    private final Map<Long, Integer> skuPorId = new HashMap<>();
+    private final Map<Long, Integer> productoPorId = new HashMap<>();
+    private final Map<Long, Integer> categoriaPorId = new HashMap<>();
+    private final Map<Long, Integer> canalPorId = new HashMap<>();
+    private final Map<Long, Integer> temporadaPorId = new HashMap<>();
+    private Dimensiones vista;
+
+    void agregar(SkuLeido r) {
+      if (skuPorId.containsKey(r.id())) return;
+      int p = indice(productoPorId, productos, r.productoId(), r.producto());
+      int c = indice(categoriaPorId, categorias, r.categoriaId(), r.categoria());
+      skuPorId.put(r.id(), skus.size());
+      skus.add(new Sku(r.id(), r.codigo(), p, c, r.tallaId(), r.colorId(), r.talla(), r.color()));
+      vista = null;
+    }
+
+    /** Índice del SKU; uno que no se leyó del catálogo (no debería pasar) queda sin producto ni categoría */
+    int sku(long id) {
+      Integer i = skuPorId.get(id);
+      if (i != null) return i;
+      agregar(new SkuLeido(id, "SKU-" + id, 0L, "(sin producto)", 0L, "(sin categoría)", 0L, null, 0L, null));
+      return skuPorId.get(id);
+    }
+
+    short canal(long id) {
+      Integer i = canalPorId.get(id);
+      if (i == null) {
+        if (canalPorId.size() == Short.MAX_VALUE) throw new IllegalStateException("Demasiados canales para el cubo");
+        i = canalPorId.size();
+        canalPorId.put(id, i);
+        vista = null;
+      }
+      return (short) i.intValue();
+    }
+
+    int temporada(long id) {
+      Integer i = temporadaPorId.get(id);
+      if (i == null) {
+        i = temporadaPorId.size();
+        temporadaPorId.put(id, i);
+        vista = null;
+      }
+      return i;
+    }
+
+    Dimensiones vista() {
+      if (vista == null) {
+        vista = new Dimensiones(skus.toArray(Sku[]::new), productos.toArray(Entidad[]::new),
+            categorias.toArray(Entidad[]::new), Map.copyOf(skuPorId), Map.copyOf(canalPorId),
+            Map.copyOf(temporadaPorId));
+      }
+      return vista;
+    }
+
+    private static int indice(Map<Long, Integer> porId, List<Entidad> lista, long id, String nombre) {
+      Integer i = porId.get(id);
+      if (i != null) return i;
+      porId.put(id, lista.size());
+      lista.add(new Entidad(id, nombre));
+      return lista.size() - 1;
+    }
+  }
+
+  /**
+   * Columnas de hechos del lado escritor. Solo se agregan filas: las posiciones menores que el n de una
+   * vista publicada no vuelven a escribirse, así los arreglos se comparten entre vistas sin copiar.
+   */
+  private static final class Columnas {
+    private int[] segundo = new int[BLOQUE];
+    private int[] mes = new int[BLOQUE];
+    private int[] sku = new int[BLOQUE];
+    private short[] canal = new short[BLOQUE];
+    private int[] temporada = new int[BLOQUE];
+    private int[] cantidad = new int[BLOQUE];
+    private long[] centavos = new long[BLOQUE];
+    private int n;
+
+    void agregar(Diccionarios d, Linea l) {
+      if (n == segundo.length) crecer();
+      LocalDateTime t = l.fechaHora();
+      segundo[n] = segundo(t);
+      mes[n] = t.getYear() * 100 + t.getMonthValue();
+      sku[n] = d.sku(l.skuId());
+      canal[n] = d.canal(l.canalId());
+      temporada[n] = d.temporada(l.temporadaId());
+      cantidad[n] = l.cantidad();
+      centavos[n] = l.centavos();
+      n++;
+    }
+
+    Hechos vista() {
+      return new Hechos(n, segundo, mes, sku, canal, temporada, cantidad, centavos);
+    }
+
+    private void crecer() {
+      int cap = segundo.length * 2;
+      segundo = Arrays.copyOf(segundo, cap);
+      mes = Arrays.copyOf(mes, cap);
+      sku = Arrays.copyOf(sku, cap);
+      canal = Arrays.copyOf(canal, cap);
+      temporada = Arrays.copyOf(temporada, cap);
+      cantidad = Arrays.copyOf(cantidad, cap);
+      centavos = Arrays.copyOf(centavos, cap);
+    }
+  }
+
+  private record Hechos(int n, int[] segundo, int[] mes, int[] sku, short[] canal, int[] temporada, int[] cantidad,
+      long[] centavos) {
+  }
+
+  private record Vista(Dimensiones dim, Hechos hechos, long cargadoEnMillis) {
+  }
+}
@@ -0,0 +1,194 @@
+package com.colors.savd.cache;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.colors.savd.repository.ColorAliasRepository;
+import com.colors.savd.repository.TallaAliasRepository;
+import com.colors.savd.repository.VarianteSkuRepository;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Índice en memoria para resolver una variante por atributos (nombre de producto × talla × color) en lugar
+ * del código SKU, con la semántica de {@link VarianteSkuRepository#findByProducto_IdAndTalla_IdAndColor_Id}.
+ * Talla y color se reconocen por código, por cualquiera de sus alias visibles ({@code TallaAlias},
+ * {@code ColorAlias}) o por nombre, en ese orden de preferencia. Los textos se comparan normalizados
+ * (sin acentos, mayúsculas, espacios colapsados), así una fila se resuelve con tres búsquedas en HashMap.
+ * <p>
+ * El nombre de producto es único solo dentro de su categoría: si varios productos se llaman igual y más
+ * de uno tiene la combinación pedida, la fila se rechaza como ambigua.
+ * <p>
+ * Igual que {@link IndiceTemporadas}: se recarga en la siguiente consulta después de que cambie por JPA
+ * una entidad del catálogo (tras el commit; este bean es su entity listener) o tras
+ * {@code savd.skus.indice.recarga-segundos}, y un catálogo construido mientras llegaba una invalidación
+ * no se usa.
+ */
+@Component
+@Slf4j
+public class IndiceSkus {
+
+  private final VarianteSkuRepository skuRepo;
+  private final TallaAliasRepository tallaAliasRepo;
+  private final ColorAliasRepository colorAliasRepo;
+
+  @Value("${savd.skus.indice.recarga-segundos:300}")
+  private long recargaSegundos;
+
+  /** null = aún no se cargó */
+  private volatile Catalogo catalogo;
+
+  /** Sube en cada invalidación; un catálogo de una generación anterior ya no sirve */
+  private final AtomicLong generacion = new AtomicLong();
+
+  /** Variante resuelta o motivo del rechazo ({@code campo}: Producto, Talla o Color) */
+  public record Resolucion(Long skuId, String sku, String campo, String error) {
+
+    public boolean encontrada() {
+      return skuId != null;
+    }
+
+    private static Resolucion rechazo(String campo, String error) {
+      return new Resolucion(null, null, campo, error);
+    }
+  }
+
+  private record Combinacion(long productoId, long tallaId, long colorId) {
+  }
+
+  private record Variante(long id, String sku) {
+  }
+
+  private record Catalogo(Map<String, long[]> productos, Map<String, Long> tallas, Map<String, Long> colores,
+      Map<Combinacion, Variante> variantes, long generacion, long cargadoEnMillis) {
+  }
+
+  // @Lazy: como entity listener se crea junto con el EntityManagerFactory, antes que los repositorios
+  public IndiceSkus(@Lazy VarianteSkuRepository skuRepo, @Lazy TallaAliasRepository tallaAliasRepo,
+      @Lazy ColorAliasRepository colorAliasRepo) {
+    this.skuRepo = skuRepo;
+    this.tallaAliasRepo = tallaAliasRepo;
+    this.colorAliasRepo = colorAliasRepo;
+  }
+
+  public Resolucion resolver(String producto, String talla, String color) {
+    Catalogo c = vigente();
+    long[] productoIds = c.productos().get(normalizar(producto));
+    if (productoIds == null) return Resolucion.rechazo("Producto", "Producto no encontrado: " + producto);
+    Long tallaId = c.tallas().get(normalizar(talla));
+    if (tallaId == null) return Resolucion.rechazo("Talla", "Talla no reconocida: " + talla);
+    Long colorId = c.colores().get(normalizar(color));
+    if (colorId == null) return Resolucion.rechazo("Color", "Color no reconocido: " + color);
+
+    Variante encontrada = null;
+    for (long productoId : productoIds) {
+      Variante v = c.variantes().get(new Combinacion(productoId, tallaId, colorId));
+      if (v == null) continue;
+      if (encontrada != null) {
+        return Resolucion.rechazo("Producto", "Producto ambiguo (existe en varias categorías): " + producto);
+      }
+      encontrada = v;
+    }
+    if (encontrada == null) {
+      return Resolucion.rechazo("Producto",
+          "No existe variante para " + producto + " / " + talla + " / " + color);
+    }
+    return new Resolucion(encontrada.id(), encontrada.sku(), null, null);
+  }
+
+  public void invalidar() {
+    generacion.incrementAndGet();
+  }
+
+  /** Listener de VarianteSku, Producto, Talla, Color y sus alias */
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  void alCambiarCatalogo(Object entidad) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      invalidar();
+      return;
+    }
+    // Antes del commit otra consulta recargaría los datos viejos
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        invalidar();
+      }
+    });
+  }
+
+  private Catalogo vigente() {
+    Catalogo c = catalogo;
+    if (esVigente(c)) return c;
+    synchronized (this) {
+      c = catalogo;
+      if (!esVigente(c)) {
+        c = construir(generacion.get()); // tomada antes de leer: un commit durante la lectura lo deja viejo
+        catalogo = c;
+      }
+      return c;
+    }
+  }
+
+  private boolean esVigente(Catalogo c) {
+    return c != null && c.generacion() == generacion.get()
+        && System.currentTimeMillis() - c.cargadoEnMillis() < recargaSegundos * 1000;
+  }
+
+  private Catalogo construir(long generacion) {
+    Map<String, List<Long>> porNombre = new HashMap<>();
+    Map<Combinacion, Variante> variantes = new HashMap<>();
+    for (Object[] r : skuRepo.catalogoAtributos()) {
+      long productoId = ((Number) r[2]).longValue();
+      List<Long> ids = porNombre.computeIfAbsent(normalizar((String) r[3]), k -> new ArrayList<>(1));
+      if (!ids.contains(productoId)) ids.add(productoId);
+      variantes.put(new Combinacion(productoId, ((Number) r[4]).longValue(), ((Number) r[5]).longValue()),
+          new Variante(((Number) r[0]).longValue(), (String) r[1]));
+    }
+    Map<String, long[]> productos = new HashMap<>();
+    porNombre.forEach((k, ids) -> productos.put(k, ids.stream().mapToLong(Long::longValue).toArray()));
+
+    Map<String, Long> tallas = claves(tallaAliasRepo.tallasVisibles(), tallaAliasRepo.aliasVisibles());
+    Map<String, Long> colores = claves(colorAliasRepo.coloresVisibles(), colorAliasRepo.aliasVisibles());
+    log.debug("Índice de SKUs: {} variantes, {} productos, {} claves de talla, {} claves de color",
+        variantes.size(), productos.size(), tallas.size(), colores.size());
+    return new Catalogo(productos, tallas, colores, variantes, generacion, System.currentTimeMillis());
+  }
+
+  /** código → id, luego alias → id, luego nombre → id; una clave ya tomada no se pisa */
+  private static Map<String, Long> claves(List<Object[]> entidades, List<Object[]> alias) {
+    Map<String, Long> m = new HashMap<>();
+    entidades.forEach(r -> agregar(m, r[1], r[0]));
+    alias.forEach(r -> agregar(m, r[1], r[0]));
+    entidades.forEach(r -> agregar(m, r[2], r[0]));
+    return m;
+  }
+
+  private static void agregar(Map<String, Long> m, Object texto, Object id) {
+    String k = normalizar((String) texto);
+    if (k != null) m.putIfAbsent(k, ((Number) id).longValue());
+  }
+
+  /** Misma normalización que ExcelUtil.normalizar (encabezados) */
+  static String normalizar(String s) {
+    if (s == null) return null;
+    String t = Normalizer.normalize(s.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    t = t.toUpperCase(Locale.ROOT).replaceAll("\\s+", " ");
+    return t.isEmpty() ? null : t;
+  }
+}
@@ -0,0 +1,149 @@
+package com.colors.savd.cache;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.colors.savd.model.Temporada;
+import com.colors.savd.model.enums.EstadoTemporada;
+import com.colors.savd.repository.TemporadaRepository;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Índice en memoria de las temporadas ACTIVAS: responde "qué temporada contiene esta fecha" sin ir a la BD,
+ * con las reglas de {@link TemporadaRepository#findActivaQueContenga} (mayor prioridad; a igual prioridad,
+ * intervalo más corto; luego menor id). Los inicios y fines de todas las temporadas parten el calendario en
+ * tramos y cada tramo guarda su ganadora precalculada, así la consulta es una búsqueda binaria.
+ * <p>
+ * Se recarga en la siguiente consulta después de que una Temporada cambie por JPA (tras el commit; este
+ * bean es su entity listener) o de que pasen {@code savd.temporadas.indice.recarga-segundos} desde la
+ * última carga, para cambios hechos directamente en la BD. Cada carga queda marcada con la generación
+ * vigente al empezar a leer: si una invalidación llega mientras se construye, el resultado nace viejo y la
+ * siguiente consulta vuelve a cargar.
+ */
+@Component
+@Slf4j
+public class IndiceTemporadas {
+
+  /** Mismo orden que el ORDER BY de findActivaQueContenga */
+  private static final Comparator<Temporada> PREFERENCIA = Comparator
+      .comparing(Temporada::getPrioridad, Comparator.reverseOrder())
+      .thenComparingLong(t -> t.getFechaFin().toEpochDay() - t.getFechaInicio().toEpochDay())
+      .thenComparing(Temporada::getId);
+
+  private final TemporadaRepository temporadaRepo;
+
+  @Value("${savd.temporadas.indice.recarga-segundos:300}")
+  private long recargaSegundos;
+
+  /** null = aún no se cargó */
+  private volatile Tramos tramos;
+
+  /** Sube en cada invalidación; unos tramos de una generación anterior ya no sirven */
+  private final AtomicLong generacion = new AtomicLong();
+
+  /**
+   * tramos[i] va desde inicios[i] (epochDay) hasta el siguiente inicio; ganadoras[i] es null si ninguna
+   * temporada lo cubre.
+   */
+  private record Tramos(long[] inicios, Long[] ganadoras, Set<Long> activas, long generacion,
+      long cargadoEnMillis) {
+  }
+
+  // @Lazy: como entity listener se crea junto con el EntityManagerFactory, antes que los repositorios
+  public IndiceTemporadas(@Lazy TemporadaRepository temporadaRepo) {
+    this.temporadaRepo = temporadaRepo;
+  }
+
+  /** Id de la temporada ACTIVA que corresponde a la fecha, si la hay */
+  public Optional<Long> idQueContenga(LocalDate fecha) {
+    Tramos t = vigentes();
+    int i = Arrays.binarySearch(t.inicios(), fecha.toEpochDay());
+    if (i < 0) i = -i - 2; // tramo que empieza antes de la fecha
+    return (i < 0) ? Optional.empty() : Optional.ofNullable(t.ganadoras()[i]);
+  }
+
+  public boolean esActiva(Long temporadaId) {
+    return temporadaId != null && vigentes().activas().contains(temporadaId);
+  }
+
+  public void invalidar() {
+    generacion.incrementAndGet();
+  }
+
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  void alCambiarTemporada(Temporada temporada) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      invalidar();
+      return;
+    }
+    // Antes del commit otra consulta recargaría los datos viejos
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        invalidar();
+      }
+    });
+  }
+
+  private Tramos vigentes() {
+    Tramos t = tramos;
+    if (esVigente(t)) return t;
+    synchronized (this) {
+      t = tramos;
+      if (!esVigente(t)) {
+        // La generación se toma antes de leer: un commit durante la lectura deja estos tramos viejos
+        long gen = generacion.get();
+        t = construir(temporadaRepo.findByEstadoNegocio(EstadoTemporada.ACTIVA), gen);
+        tramos = t;
+      }
+      return t;
+    }
+  }
+
+  private boolean esVigente(Tramos t) {
+    return t != null && t.generacion() == generacion.get()
+        && System.currentTimeMillis() - t.cargadoEnMillis() < recargaSegundos * 1000;
+  }
+
+  /** O(tramos × temporadas): se hace solo al recargar, y las temporadas activas son pocas */
+  private static Tramos construir(List<Temporada> activas, long generacion) {
+    TreeSet<Long> cortes = new TreeSet<>();
+    Set<Long> ids = new HashSet<>();
+    for (Temporada t : activas) {
+      cortes.add(t.getFechaInicio().toEpochDay());
+      cortes.add(t.getFechaFin().toEpochDay() + 1); // fecha_fin es inclusiva
+      ids.add(t.getId());
+    }
+    long[] inicios = cortes.stream().mapToLong(Long::longValue).toArray();
+    Long[] ganadoras = new Long[inicios.length];
+    for (int i = 0; i < inicios.length; i++) {
+      long dia = inicios[i];
+      ganadoras[i] = activas.stream()
+          .filter(t -> t.getFechaInicio().toEpochDay() <= dia && dia <= t.getFechaFin().toEpochDay())
+          .min(PREFERENCIA)
+          .map(Temporada::getId)
+          .orElse(null);
+    }
+    log.debug("Índice de temporadas: {} activas en {} tramos", activas.size(), inicios.length);
+    return new Tramos(inicios, ganadoras, ids, generacion, System.currentTimeMillis());
+  }
+}
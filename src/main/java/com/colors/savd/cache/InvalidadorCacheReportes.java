@@ -0,0 +1,90 @@
+package com.colors.savd.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.colors.savd.repository.VarianteSkuRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Invalida solo las entradas de las cachés de reportes que un {@link CambioDatosReporte} puede alterar:
+ * rango de fechas que se cruza, canal entre los afectados y filtros de categoría/talla/color que alguno de los
+ * SKUs afectados cumple. El filtro de temporada no se evalúa (la temporada sale de la fecha, ya cubierta
+ * por el rango). Corre después del commit, o en el acto si se publica fuera de una transacción.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvalidadorCacheReportes {
+
+  static final List<String> CACHES_VENTAS = List.of("top15", "kpiCategoriaMensual", "kpiProductoMensual",
+      "kpiSkuMensual", "kpiCategoriaTotal", "kpiProductoTotal", "kpiSkuTotal", "alertasStock");
+  static final List<String> CACHES_STOCK = List.of("alertasStock");
+
+  private final CacheManager cacheManager;
+  private final VarianteSkuRepository skuRepo;
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void alCambiar(CambioDatosReporte cambio) {
+    AtributosSku atributos = new AtributosSku(cambio);
+    int evictadas = 0;
+    for (String nombre : cambio.ventas() ? CACHES_VENTAS : CACHES_STOCK) {
+      Cache cache = cacheManager.getCache(nombre);
+      if (cache != null) evictadas += evictar(cache, k -> afecta(k, cambio, atributos));
+    }
+    log.debug("Cachés de reportes: {} entradas invalidadas por {}", evictadas, cambio);
+  }
+
+  private static int evictar(Cache cache, Predicate<Object> afectada) {
+    Map<?, ?> entradas = switch (cache.getNativeCache()) {
+      case com.github.benmanes.caffeine.cache.Cache<?, ?> c -> c.asMap();
+      case Map<?, ?> m -> m;
+      default -> null;
+    };
+    if (entradas == null) {
+      cache.clear();
+      return 0;
+    }
+    int antes = entradas.size();
+    entradas.keySet().removeIf(afectada);
+    return antes - entradas.size();
+  }
+
+  private static boolean afecta(Object clave, CambioDatosReporte cambio, AtributosSku atributos) {
+    if (!(clave instanceof ClaveReporte c)) return true; // clave desconocida: no arriesgar datos viejos
+    if (!c.solapa(cambio.desde(), cambio.hasta())) return false;
+    if (c.canalId() != null && cambio.canalIds() != null && !cambio.canalIds().contains(c.canalId())) return false;
+    if (c.filtraAtributosSku() && cambio.skuIds() != null) return atributos.algunoCumple(c);
+    return true;
+  }
+
+  /** [categoriaId, tallaId, colorId] de los SKUs del cambio; se consultan solo si alguna clave filtra por ellos */
+  private final class AtributosSku {
+    private final CambioDatosReporte cambio;
+    private List<Object[]> filas;
+
+    AtributosSku(CambioDatosReporte cambio) {
+      this.cambio = cambio;
+    }
+
+    boolean algunoCumple(ClaveReporte c) {
+      if (filas == null) filas = cambio.skuIds().isEmpty() ? List.of() : skuRepo.atributosPorId(cambio.skuIds());
+      for (Object[] f : filas) {
+        if (c.aceptaSku(id(f[0]), id(f[1]), id(f[2]))) return true;
+      }
+      return false;
+    }
+
+    private static Long id(Object o) {
+      return (o == null) ? null : ((Number) o).longValue();
+    }
+  }
+}
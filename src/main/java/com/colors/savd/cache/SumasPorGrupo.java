@@ -0,0 +1,91 @@
+package com.colors.savd.cache;
+
+import java.util.Arrays;
+
+/**
+ * Tabla hash de direccionamiento abierto clave (long) → {@code ancho} sumas (long), sin objetos por grupo.
+ * La usa {@link CuboVentas}: cada bloque del escaneo paralelo acumula en la suya y al final se unen.
+ */
+final class SumasPorGrupo {
+
+  private static final long VACIA = Long.MIN_VALUE;
+
+  private final int ancho;
+  private long[] claves;
+  private long[] sumas;
+  private int grupos;
+
+  SumasPorGrupo(int ancho) {
+    this.ancho = ancho;
+    this.claves = new long[1024];
+    this.sumas = new long[1024 * ancho];
+    Arrays.fill(claves, VACIA);
+  }
+
+  /** Posición del grupo (lo crea en cero si no existe); vale hasta la siguiente llamada */
+  int grupo(long clave) {
+    int mascara = claves.length - 1;
+    int i = mezclar(clave) & mascara;
+    while (claves[i] != VACIA) {
+      if (claves[i] == clave) return i;
+      i = (i + 1) & mascara;
+    }
+    if ((grupos + 1) * 2 > claves.length) {
+      crecer();
+      return grupo(clave);
+    }
+    claves[i] = clave;
+    grupos++;
+    return i;
+  }
+
+  void sumar(int grupo, int columna, long valor) {
+    sumas[grupo * ancho + columna] += valor;
+  }
+
+  /** Recorrido: posiciones 0..capacidad()-1, las vacías con {@link #ocupada} false */
+  int capacidad() {
+    return claves.length;
+  }
+
+  boolean ocupada(int i) {
+    return claves[i] != VACIA;
+  }
+
+  long clave(int i) {
+    return claves[i];
+  }
+
+  long suma(int i, int columna) {
+    return sumas[i * ancho + columna];
+  }
+
+  /** Suma la otra tabla en esta (unión de bloques) */
+  SumasPorGrupo unir(SumasPorGrupo otra) {
+    for (int i = 0; i < otra.claves.length; i++) {
+      if (otra.claves[i] == VACIA) continue;
+      int g = grupo(otra.claves[i]);
+      for (int c = 0; c < ancho; c++) sumas[g * ancho + c] += otra.sumas[i * ancho + c];
+    }
+    return this;
+  }
+
+  private void crecer() {
+    long[] clavesViejas = claves;
+    long[] sumasViejas = sumas;
+    claves = new long[clavesViejas.length * 2];
+    sumas = new long[claves.length * ancho];
+    Arrays.fill(claves, VACIA);
+    grupos = 0;
+    for (int i = 0; i < clavesViejas.length; i++) {
+      if (clavesViejas[i] == VACIA) continue;
+      int g = grupo(clavesViejas[i]);
+      System.arraycopy(sumasViejas, i * ancho, sumas, g * ancho, ancho);
+    }
+  }
+
+  private static int mezclar(long clave) {
+    long h = clave * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
@@ -0,0 +1,80 @@
+package com.colors.savd.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Pool acotado para importaciones asíncronas: pocos hilos (cada carga ya es intensiva en BD)
+ * y cola limitada; si la cola está llena la petición se rechaza en vez de acumular archivos en disco.
+ * Aparte, un pool por núcleos para la pre-validación (soloValidar), que es solo CPU, y otro para las
+ * etapas productoras del pipeline de cada carga (lectura del archivo, agrupación de cabeceras).
+ * Las partes de una importación por lote (hojas o archivos de un ZIP) corren en su propio pool.
+ */
+@Configuration
+public class ImportacionAsyncConfig {
+
+  @Bean(name = "importacionExecutor")
+  public ThreadPoolTaskExecutor importacionExecutor(
+      @Value("${savd.importacion.async.hilos:2}") int hilos,
+      @Value("${savd.importacion.async.cola:10}") int cola) {
+    ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+    ex.setCorePoolSize(hilos);
+    ex.setMaxPoolSize(hilos);
+    ex.setQueueCapacity(cola);
+    ex.setThreadNamePrefix("importacion-");
+    // Al apagar: dejar terminar el tramo en curso (el checkpoint permite reanudar el resto)
+    ex.setWaitForTasksToCompleteOnShutdown(true);
+    ex.setAwaitTerminationSeconds(30);
+    ex.initialize();
+    return ex;
+  }
+
+  /** Hilos que parsean/validan bloques de filas en paralelo en soloValidar (0 = núcleos disponibles) */
+  @Bean(name = "validacionExecutor")
+  public ThreadPoolTaskExecutor validacionExecutor(
+      @Value("${savd.importacion.validacion.hilos:0}") int hilos) {
+    int n = (hilos > 0) ? hilos : Runtime.getRuntime().availableProcessors();
+    ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+    ex.setCorePoolSize(n);
+    ex.setMaxPoolSize(n);
+    ex.setThreadNamePrefix("validacion-");
+    ex.initialize();
+    return ex;
+  }
+
+  /**
+   * Partes de una importación por lote en paralelo. Cada parte es una carga completa (con su pipeline y su
+   * conexión por tramo), así que el tope de hilos es también el de cargas simultáneas del lote; las demás
+   * partes esperan en la cola.
+   */
+  @Bean(name = "lotesExecutor")
+  public ThreadPoolTaskExecutor lotesExecutor(
+      @Value("${savd.importacion.lote.hilos:4}") int hilos) {
+    ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+    ex.setCorePoolSize(Math.max(1, hilos));
+    ex.setMaxPoolSize(Math.max(1, hilos));
+    ex.setAllowCoreThreadTimeOut(true);
+    ex.setThreadNamePrefix("lote-importacion-");
+    ex.initialize();
+    return ex;
+  }
+
+  /**
+   * Hilos de las etapas productoras (dos por carga en curso). Sin cola: si no hay hilo libre la carga
+   * corre esa etapa en su propio hilo, como sin pipeline.
+   */
+  @Bean(name = "etapasExecutor")
+  public ThreadPoolTaskExecutor etapasExecutor(
+      @Value("${savd.importacion.pipeline.hilos:8}") int hilos) {
+    ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+    ex.setCorePoolSize(Math.max(1, hilos));
+    ex.setMaxPoolSize(Math.max(1, hilos));
+    ex.setQueueCapacity(0);
+    ex.setAllowCoreThreadTimeOut(true);
+    ex.setThreadNamePrefix("etapa-importacion-");
+    ex.initialize();
+    return ex;
+  }
+}
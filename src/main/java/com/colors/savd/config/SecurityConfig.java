@@ -30,9 +30,14 @@ public class SecurityConfig {
                 .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
                 // Ventas
                 .requestMatchers(HttpMethod.POST, "/api/ventas/*/anular").hasRole("ADMIN")
+                .requestMatchers(HttpMethod.POST, "/api/ventas/anular").hasRole("ADMIN")
                 .requestMatchers(HttpMethod.POST, "/api/ventas/**").hasAnyRole("ADMIN", "VENDEDOR")
                 // Importaciones
                 .requestMatchers(HttpMethod.POST, "/api/importaciones/ventas").hasAnyRole("ADMIN", "ANALISTA")
+                .requestMatchers(HttpMethod.POST, "/api/importaciones/ventas/async").hasRole("ADMIN")
+                .requestMatchers(HttpMethod.POST, "/api/importaciones/ventas/lote").hasAnyRole("ADMIN", "ANALISTA")
+                .requestMatchers(HttpMethod.GET, "/api/importaciones/*").hasAnyRole("ADMIN", "ANALISTA")
+                .requestMatchers(HttpMethod.DELETE, "/api/importaciones/*").hasRole("ADMIN")
                 // inventario
                 .requestMatchers(HttpMethod.POST, "/api/inventario/**").hasAnyRole("ADMIN", "ANALISTA")
                 // parámetros reposición
@@ -44,6 +49,7 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.GET, "/api/bitacoras/*/log").hasRole("ADMIN")
                 .requestMatchers(HttpMethod.GET, "/api/bitacoras/**").hasAnyRole("ADMIN", "ANALISTA")
                 // Reportes
+                .requestMatchers(HttpMethod.POST, "/api/reportes/resumen-mensual/reconstruir").hasRole("ADMIN")
                 .requestMatchers("/api/reportes/**").authenticated()
                 //todo lo demas: autenticado
                 .anyRequest().authenticated()
@@ -52,6 +52,8 @@ public class BitacoraController {
         .filasOk(b.getFilasOk())
         .filasError(b.getFilasError())
         .rutaLog(b.getRutaLog())
+        .estado(b.getEstado())
+        .gruposConfirmados(b.getGruposConfirmados())
         .build());
     }
 
@@ -71,6 +73,8 @@ public class BitacoraController {
             .filasOk(b.getFilasOk())
             .filasError(b.getFilasError())
             .rutaLog(b.getRutaLog())
+            .estado(b.getEstado())
+            .gruposConfirmados(b.getGruposConfirmados())
         .build();
     }
 
@@ -2,9 +2,14 @@ package com.colors.savd.controller;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import com.colors.savd.dto.ImportJobDTO;
+import com.colors.savd.dto.ImportLoteResultadoDTO;
 import com.colors.savd.dto.ImportOpcionesDTO;
 import com.colors.savd.dto.ImportResultadoDTO;
 import com.colors.savd.exception.BusinessException;
+import com.colors.savd.model.enums.TipoCarga;
+import com.colors.savd.service.ImportacionInventarioService;
+import com.colors.savd.service.ImportacionParametrosService;
 import com.colors.savd.service.ImportacionService;
 
 import lombok.RequiredArgsConstructor;
@@ -12,6 +17,7 @@ import lombok.RequiredArgsConstructor;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
@@ -24,9 +30,12 @@ import org.springframework.web.bind.annotation.*;
 public class ImportacionController {
 
     private final ImportacionService importacionService;
+    private final ImportacionInventarioService importacionInventarioService;
+    private final ImportacionParametrosService importacionParametrosService;
     /**
-     * Sube un Excel de ventas (XLSX) y lo procesa agrupando por cabecera.
-     * @param file archivo Excel
+     * Sube un archivo de ventas (XLSX, XLS, CSV o CSV.gz) y lo procesa agrupando por cabecera.
+     * El formato se detecta por contenido; para texto plano, por extensión o content type.
+     * @param file archivo de ventas
      * @param usuarioId responsable de la carga (por ahora como param; en prod vendrá del token)
     */
     @PreAuthorize("hasAnyRole('ADMIN','ANALISTA')")
@@ -37,7 +46,7 @@ public class ImportacionController {
         @RequestPart(name = "opciones", required = false) ImportOpcionesDTO opciones
     ) {
         if (file == null || file.isEmpty()) {
-            throw new BusinessException("Debe adjuntar un archivo Excel (.xlsx).");
+            throw new BusinessException("Debe adjuntar un archivo de ventas (.xlsx, .csv o .csv.gz).");
         }
         if (usuarioId == null) {
             throw new BusinessException("usuarioId es obligatorio.");
@@ -46,13 +55,179 @@ public class ImportacionController {
             opciones = ImportOpcionesDTO.builder().build();
         } 
 
-        String nombre = (file.getOriginalFilename() != null) ? file.getOriginalFilename() : "ventas.xlsx";
+        String nombre = nombreArchivo(file);
         
         try(InputStream in = file.getInputStream()){
             return importacionService.importarVentasExcel(in, nombre, usuarioId, opciones);
         } catch (IOException e) {
             // Lo dejamos subir como Runtime para que GlobalExceptionHandler lo pinte como 500
-            throw new RuntimeException("Error leyendo el archivo Excel", e);
+            throw new RuntimeException("Error leyendo el archivo de ventas", e);
         }
     }
+
+    /**
+     * Importa un lote de ventas: un libro con una hoja por tienda/día o un ZIP con varios archivos.
+     * Cada hoja/archivo se procesa en paralelo como una carga propia (bitácora hija del lote).
+     * Con soloValidar=true solo pre-valida cada parte.
+     */
+    @PreAuthorize("hasAnyRole('ADMIN','ANALISTA')")
+    @PostMapping(path="/ventas/lote", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ImportLoteResultadoDTO importarVentasLote(
+        @RequestPart("file") MultipartFile file,
+        @RequestParam("usuarioId") Long usuarioId,
+        @RequestPart(name = "opciones", required = false) ImportOpcionesDTO opciones
+    ) {
+        if (file == null || file.isEmpty()) {
+            throw new BusinessException("Debe adjuntar un libro de ventas (.xlsx/.xls) o un .zip de archivos de ventas.");
+        }
+        if (usuarioId == null) {
+            throw new BusinessException("usuarioId es obligatorio.");
+        }
+        if (opciones == null){
+            opciones = ImportOpcionesDTO.builder().build();
+        }
+
+        String nombre = nombreArchivo(file);
+
+        try(InputStream in = file.getInputStream()){
+            return importacionService.importarVentasLote(in, nombre, usuarioId, opciones);
+        } catch (IOException e) {
+            throw new RuntimeException("Error leyendo el archivo de ventas", e);
+        }
+    }
+
+    /**
+     * Igual que /ventas pero asíncrono: responde 202 con el jobId y procesa en el pool de importaciones.
+     * Consultar avance con GET /api/importaciones/{jobId}.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(path="/ventas/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ImportJobDTO encolarVentasExcel(
+        @RequestPart("file") MultipartFile file,
+        @RequestParam("usuarioId") Long usuarioId,
+        @RequestPart(name = "opciones", required = false) ImportOpcionesDTO opciones
+    ) {
+        if (file == null || file.isEmpty()) {
+            throw new BusinessException("Debe adjuntar un archivo de ventas (.xlsx, .csv o .csv.gz).");
+        }
+        if (usuarioId == null) {
+            throw new BusinessException("usuarioId es obligatorio.");
+        }
+        if (opciones == null){
+            opciones = ImportOpcionesDTO.builder().build();
+        }
+
+        String nombre = nombreArchivo(file);
+
+        try(InputStream in = file.getInputStream()){
+            return importacionService.encolarVentasExcel(in, nombre, usuarioId, opciones);
+        } catch (IOException e) {
+            throw new RuntimeException("Error leyendo el archivo de ventas", e);
+        }
+    }
+
+    /**
+     * Progreso de una importación (filas leídas, grupos persistidos, velocidad, ETA, errores).
+     */
+    @PreAuthorize("hasAnyRole('ADMIN','ANALISTA')")
+    @GetMapping(path="/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ImportJobDTO estadoImportacion(@PathVariable Long jobId) {
+        return importacionService.estadoImportacion(jobId);
+    }
+
+    /**
+     * Cancela una importación en cola o en curso (los tramos ya confirmados se conservan).
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @DeleteMapping(path="/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ImportJobDTO cancelarImportacion(@PathVariable Long jobId) {
+        return importacionService.cancelarImportacion(jobId);
+    }
+
+    /**
+     * Sube un archivo de stock inicial (SKU, Cantidad; opcionales FechaHora, Referencia, Observacion).
+     * Roles: ADMIN o ANALISTA (como el alta individual en /api/inventario).
+     */
+    @PreAuthorize("hasAnyRole('ADMIN','ANALISTA')")
+    @PostMapping(path="/inventario/inicial", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ImportResultadoDTO importarStockInicial(
+        @RequestPart("file") MultipartFile file,
+        @RequestParam("usuarioId") Long usuarioId,
+        @RequestPart(name = "opciones", required = false) ImportOpcionesDTO opciones
+    ) {
+        return importarInventario(file, usuarioId, TipoCarga.INICIAL, opciones);
+    }
+
+    /**
+     * Sube un archivo de ingresos de inventario (mismas columnas que /inventario/inicial más CanalCodigo opcional).
+     * Roles: ADMIN o ANALISTA.
+     */
+    @PreAuthorize("hasAnyRole('ADMIN','ANALISTA')")
+    @PostMapping(path="/inventario/ingresos", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ImportResultadoDTO importarIngresos(
+        @RequestPart("file") MultipartFile file,
+        @RequestParam("usuarioId") Long usuarioId,
+        @RequestPart(name = "opciones", required = false) ImportOpcionesDTO opciones
+    ) {
+        return importarInventario(file, usuarioId, TipoCarga.INGRESOS, opciones);
+    }
+
+    private ImportResultadoDTO importarInventario(MultipartFile file, Long usuarioId, TipoCarga tipoCarga,
+        ImportOpcionesDTO opciones) {
+        if (file == null || file.isEmpty()) {
+            throw new BusinessException("Debe adjuntar un archivo de inventario (.xlsx, .csv o .csv.gz).");
+        }
+        if (usuarioId == null) {
+            throw new BusinessException("usuarioId es obligatorio.");
+        }
+        if (opciones == null){
+            opciones = ImportOpcionesDTO.builder().build();
+        }
+
+        try(InputStream in = file.getInputStream()){
+            return importacionInventarioService.importarMovimientos(in, nombreArchivo(file), usuarioId, tipoCarga, opciones);
+        } catch (IOException e) {
+            throw new RuntimeException("Error leyendo el archivo de inventario", e);
+        }
+    }
+
+    /**
+     * Sube parámetros de reposición por SKU (SKU, MinStock, LeadTimeDias, StockSeguridad): crea los que faltan
+     * y actualiza los existentes. Roles: ADMIN (como el alta individual en /api/parametros).
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(path="/parametros", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ImportResultadoDTO importarParametros(
+        @RequestPart("file") MultipartFile file,
+        @RequestParam("usuarioId") Long usuarioId,
+        @RequestPart(name = "opciones", required = false) ImportOpcionesDTO opciones
+    ) {
+        if (file == null || file.isEmpty()) {
+            throw new BusinessException("Debe adjuntar un archivo de parámetros (.xlsx, .csv o .csv.gz).");
+        }
+        if (usuarioId == null) {
+            throw new BusinessException("usuarioId es obligatorio.");
+        }
+        if (opciones == null){
+            opciones = ImportOpcionesDTO.builder().build();
+        }
+
+        try(InputStream in = file.getInputStream()){
+            return importacionParametrosService.importarParametros(in, nombreArchivo(file), usuarioId, opciones);
+        } catch (IOException e) {
+            throw new RuntimeException("Error leyendo el archivo de parámetros", e);
+        }
+    }
+
+    /** Nombre para bitácora; sin nombre original se deriva del content type (CSV / gzip) */
+    private String nombreArchivo(MultipartFile file) {
+        if (file.getOriginalFilename() != null) {
+            return file.getOriginalFilename();
+        }
+        String ct = file.getContentType() != null ? file.getContentType() : "";
+        if (ct.startsWith("text/csv") || ct.startsWith("text/plain")) return "ventas.csv";
+        if (ct.contains("gzip")) return "ventas.csv.gz";
+        return "ventas.xlsx";
+    }
 }
@@ -17,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/reportes")
@@ -141,5 +142,13 @@ public class ReporteController {
   ) {
     return reporteService.kpiCategoriaMensual(desde, hasta, canalId, temporadaId, categoriaId, tallaId, colorId);
   }
-}
 
+  /**
+   * Recalcula el resumen mensual de ventas desde venta / venta_detalle (solo ADMIN).
+   * Necesario una vez al habilitarlo, o si se cargaron ventas por fuera de la aplicación.
+   */
+  @PostMapping(path = "/resumen-mensual/reconstruir", produces = MediaType.APPLICATION_JSON_VALUE)
+  public Map<String, Integer> reconstruirResumenMensual() {
+    return Map.of("filas", reporteService.reconstruirResumenMensual());
+  }
+}
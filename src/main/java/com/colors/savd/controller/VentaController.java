@@ -12,6 +12,8 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.colors.savd.dto.AnulacionMasivaDTO;
+import com.colors.savd.dto.AnulacionMasivaResultadoDTO;
 import com.colors.savd.dto.LineaVentaRespDTO;
 import com.colors.savd.dto.VentaManualDTO;
 import com.colors.savd.dto.VentaRespuestaDTO;
@@ -85,6 +87,19 @@ public class VentaController {
         return ResponseEntity.ok(resp);
     }
 
+    /**
+     * Anula varias ventas en una sola transacción.
+     * - Body: AnulacionMasivaDTO (ventaIds, motivo opcional)
+     * - Query params: usuarioId
+     * Respuesta: 200 OK + AnulacionMasivaResultadoDTO (las ya anuladas o inexistentes se cuentan como omitidas)
+     */
+    @PostMapping(path = "/anular", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AnulacionMasivaResultadoDTO> anularVentas(
+            @Valid @RequestBody AnulacionMasivaDTO dto,
+            @RequestParam("usuarioId") Long usuarioId) {
+        return ResponseEntity.ok(ventaService.anularVentas(dto, usuarioId));
+    }
+
     /**
      * Obtiene una venta por id (para UI o verificación).
      */
@@ -0,0 +1,20 @@
+package com.colors.savd.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnulacionMasivaDTO {
+
+  @NotEmpty(message = "Debe indicar al menos una venta")
+  @Size(max = 10000, message = "No se pueden anular más de 10000 ventas por solicitud")
+  private List<@NotNull Long> ventaIds;
+
+  @Size(max = 255, message = "El motivo no debe exceder 255 caracteres")
+  private String motivo;
+}
@@ -0,0 +1,18 @@
+package com.colors.savd.dto;
+
+import lombok.*;
+
+/**
+ * Resultado de una anulación masiva.
+ * - anuladas: ventas que estaban ACTIVAS y quedaron ANULADAS
+ * - omitidas: ids repetidos, inexistentes o ya anulados
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnulacionMasivaResultadoDTO {
+  private Integer solicitadas;
+  private Integer anuladas;
+  private Integer omitidas;
+}
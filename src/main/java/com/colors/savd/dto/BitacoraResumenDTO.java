@@ -2,6 +2,7 @@ package com.colors.savd.dto;
 
 import java.time.LocalDateTime;
 
+import com.colors.savd.model.enums.EstadoCarga;
 import com.colors.savd.model.enums.TipoCarga;
 
 import lombok.AllArgsConstructor;
@@ -19,4 +20,6 @@ public class BitacoraResumenDTO {
     private Integer filasOk;
     private Integer filasError;
     private String rutaLog; // puede ser null si no se seteó
+    private EstadoCarga estado;
+    private Integer gruposConfirmados;
 }
@@ -0,0 +1,22 @@
+package com.colors.savd.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Rendimiento de una etapa del pipeline de importación (lectura, parseo, agrupacion, escritura).
+ * - porSegundo: elementos por segundo de trabajo propio (sin contar la espera)
+ * - esperaMs: tiempo bloqueado por la etapa vecina (cola llena o vacía)
+ * - ocupacion: fracción del tiempo de la etapa que fue trabajo propio (0..1)
+ */
+@Data @NoArgsConstructor @AllArgsConstructor @Builder
+public class EtapaImportacionDTO {
+    private String nombre;
+    private Long elementos;
+    private Double porSegundo;
+    private Long esperaMs;
+    private Double ocupacion;
+    private Boolean finalizada;
+}
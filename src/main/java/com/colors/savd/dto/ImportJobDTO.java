@@ -0,0 +1,38 @@
+package com.colors.savd.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.colors.savd.model.enums.EstadoCarga;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estado/progreso de una importación asíncrona. jobId = id de la bitácora de carga.
+ * - fase: EN_COLA | LEYENDO | VALIDANDO | PERSISTIENDO | FINALIZADA
+ * - filasPorSegundo / gruposPorSegundo: velocidad medida desde el inicio de la fase correspondiente
+ * - etaSegundos: estimado para terminar la fase en curso (null si aún no se puede estimar)
+ * - etapas: rendimiento por etapa del pipeline (lectura, parseo, agrupacion, escritura)
+ */
+@Data @NoArgsConstructor @AllArgsConstructor @Builder
+public class ImportJobDTO {
+    private Long jobId;
+    private EstadoCarga estado;
+    private String fase;
+    private Integer filasLeidas;
+    private Integer filasOk;
+    private Integer filasError;
+    private Integer gruposTotales;
+    private Integer gruposPersistidos;
+    private Double filasPorSegundo;
+    private Double gruposPorSegundo;
+    private Long etaSegundos;
+    private LocalDateTime iniciadoEn;
+    private LocalDateTime finalizadoEn;
+    private String mensaje;
+    private List<String> erroresMuestra; // primeros errores conocidos
+    private List<EtapaImportacionDTO> etapas;
+}
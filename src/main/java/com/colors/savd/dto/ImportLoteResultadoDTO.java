@@ -0,0 +1,29 @@
+package com.colors.savd.dto;
+
+import java.util.List;
+
+import com.colors.savd.model.enums.EstadoCarga;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de una importación por lote (libro con varias hojas o ZIP con varios archivos).
+ * - bitacoraId: bitácora del lote; cada parte tiene la suya como hija
+ * - estado: COMPLETADA si todas las partes lo están; si no, INTERRUMPIDA (las completas se conservan)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportLoteResultadoDTO {
+  private Long bitacoraId;
+  private EstadoCarga estado;
+  private Integer filasOk;
+  private Integer filasError;
+  private List<ImportParteResultadoDTO> partes;
+  private Long duplicadoDeBitacoraId;
+  private String mensaje;
+}
@@ -1,6 +1,7 @@
 package com.colors.savd.dto;
 
 import com.colors.savd.model.enums.AsignacionTemporadaModo;
+import com.colors.savd.model.enums.ModoLectura;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,6 +14,10 @@ import lombok.NoArgsConstructor;
  * - temporadaId: requerido si modo = FIJAR (de lo contrario, ignorado)
  * - observacionGeneral: texto opcional que se agregará a la observación de Kardex por fila
  * - soloValidar: si true, no inserta en BD (dry-run); si false, ejecuta alta normal
+ * - modoLectura: AUTOMATICO | COMPLETO | STREAMING (AUTOMATICO elige por tamaño de archivo)
+ * - commitCadaCabeceras: confirma cada N cabeceras (0 = una sola transacción; null = valor configurado)
+ * - reanudarBitacoraId: reanuda una carga INTERRUMPIDA desde su checkpoint (mismo archivo)
+ * - permitirArchivoRepetido: procesa el archivo aunque su contenido (SHA-256) ya se haya importado
  */
 @Data @Builder
 @NoArgsConstructor @AllArgsConstructor
@@ -30,4 +35,18 @@ public class ImportOpcionesDTO {
     /* Si true, solo valida y reporta errores; no persiste */
     @Builder.Default
     private boolean soloValidar = false;
+
+    /* Estrategia de lectura del Excel; STREAMING (SAX) mantiene memoria acotada en archivos grandes */
+    @Builder.Default
+    private ModoLectura modoLectura = ModoLectura.AUTOMATICO;
+
+    /* Tamaño de tramo por transacción; null usa savd.importacion.commit-cada */
+    private Integer commitCadaCabeceras;
+
+    /* Bitácora de una carga interrumpida a reanudar */
+    private Long reanudarBitacoraId;
+
+    /* Si false, un archivo idéntico a una carga previa se responde con esa bitácora sin reprocesarlo */
+    @Builder.Default
+    private boolean permitirArchivoRepetido = false;
 }
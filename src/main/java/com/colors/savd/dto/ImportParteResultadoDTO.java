@@ -0,0 +1,30 @@
+package com.colors.savd.dto;
+
+import java.util.List;
+
+import com.colors.savd.model.enums.EstadoCarga;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de una hoja o archivo dentro de una importación por lote.
+ * - bitacoraId: bitácora hija de la parte (null en soloValidar)
+ * - duplicadoDeBitacoraId: la parte ya se había importado en esa carga y no se reprocesó
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportParteResultadoDTO {
+  private String nombre;
+  private Long bitacoraId;
+  private EstadoCarga estado;
+  private Integer filasOk;
+  private Integer filasError;
+  private List<String> erroresMuestra;
+  private Long duplicadoDeBitacoraId;
+  private String mensaje;
+}
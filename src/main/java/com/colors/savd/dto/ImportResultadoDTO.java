@@ -13,4 +13,7 @@ public class ImportResultadoDTO {
   private Integer filasOk;
   private Integer filasError;
   private List<String> erroresMuestra; // primeros N errores para mostrar en UI
+  private Integer gruposConfirmados; // cabeceras del archivo ya confirmadas (checkpoint)
+  private Long duplicadoDeBitacoraId; // archivo idéntico a esa carga: no se reprocesó
+  private String mensaje;
 }
@@ -2,6 +2,7 @@ package com.colors.savd.model;
 
 import java.time.LocalDateTime;
 
+import com.colors.savd.model.enums.EstadoCarga;
 import com.colors.savd.model.enums.TipoCarga;
 
 import jakarta.persistence.*;
@@ -38,6 +39,28 @@ public class BitacoraCarga {
   @Column(name = "ruta_log", length = 255)
   private String rutaLog;
 
+  // ==== Checkpoint de cargas por tramos (commit cada N cabeceras) ====
+  @Enumerated(EnumType.STRING)
+  @Column(name = "estado", length = 15)
+  private EstadoCarga estado; // null en bitácoras anteriores al checkpoint
+
+  /** Cantidad de grupos (cabeceras) del archivo ya confirmados; una reanudación parte desde aquí */
+  @Column(name = "grupos_confirmados", nullable = false)
+  private Integer gruposConfirmados = 0;
+
+  /** Clave del último grupo confirmado (fecha|canalId|referencia), para verificar que se reanuda el mismo archivo */
+  @Column(name = "ultimo_grupo", length = 200)
+  private String ultimoGrupo;
+
+  /** SHA-256 (hex) del archivo subido: una re-subida idéntica se responde con esta bitácora */
+  @Column(name = "hash_archivo", length = 64)
+  private String hashArchivo;
+
+  /** Carga por lote a la que pertenece esta hoja/archivo (null en cargas sueltas y en la propia del lote) */
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "bitacora_padre_id", foreignKey = @ForeignKey(name = "fk_bitacora_carga__padre"))
+  private BitacoraCarga padre;
+
   @PrePersist
   void prePersist() {
     if (fechaHora == null) fechaHora = LocalDateTime.now();
@@ -3,12 +3,14 @@ package com.colors.savd.model;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import com.colors.savd.cache.IndiceSkus;
 import com.colors.savd.model.enums.EstatusRegistro;
 
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity @Table(name = "color")
+@EntityListeners(IndiceSkus.class)
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor
 public class Color {
 
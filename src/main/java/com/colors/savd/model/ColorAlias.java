@@ -2,12 +2,14 @@ package com.colors.savd.model;
 
 import java.time.LocalDateTime;
 
+import com.colors.savd.cache.IndiceSkus;
 import com.colors.savd.model.enums.EstatusRegistro;
 
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity @Table(name = "color_alias")
+@EntityListeners(IndiceSkus.class)
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor
 public class ColorAlias {
 
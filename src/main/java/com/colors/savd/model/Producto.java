@@ -3,6 +3,7 @@ package com.colors.savd.model;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import com.colors.savd.cache.IndiceSkus;
 import com.colors.savd.model.enums.EstatusRegistro;
 
 import jakarta.persistence.*;
@@ -12,6 +13,7 @@ import lombok.*;
 @Table(name = "producto", uniqueConstraints = {
   @UniqueConstraint(name = "uq_producto__nombre_categoria", columnNames = {"nombre", "categoria_id"})
 })
+@EntityListeners(IndiceSkus.class)
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor
 public class Producto {
 
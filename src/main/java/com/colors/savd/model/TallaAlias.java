@@ -2,6 +2,7 @@ package com.colors.savd.model;
 
 import java.time.LocalDateTime;
 
+import com.colors.savd.cache.IndiceSkus;
 import com.colors.savd.model.enums.EstatusRegistro;
 
 import jakarta.persistence.*;
@@ -9,6 +10,7 @@ import lombok.*;
 
 
 @Entity @Table(name = "talla_alias")
+@EntityListeners(IndiceSkus.class)
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor
 public class TallaAlias {
 
@@ -1,5 +1,6 @@
 package com.colors.savd.model;
 
+import com.colors.savd.cache.IndiceTemporadas;
 import com.colors.savd.model.enums.EstatusRegistro;
 import com.colors.savd.model.enums.EstadoTemporada;
 import jakarta.persistence.*;
@@ -9,6 +10,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity @Table(name = "temporada")
+@EntityListeners(IndiceTemporadas.class)
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor
 public class Temporada {
 
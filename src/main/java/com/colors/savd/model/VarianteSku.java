@@ -3,6 +3,7 @@ package com.colors.savd.model;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+import com.colors.savd.cache.IndiceSkus;
 import com.colors.savd.model.enums.EstatusRegistro;
 
 import jakarta.persistence.*;
@@ -12,6 +13,7 @@ import lombok.*;
     @UniqueConstraint(name = "uq_variante_sku__sku", columnNames = "sku"),
     @UniqueConstraint(name = "uq_variante_sku__prod_talla_color", columnNames = {"producto_id", "talla_id", "color_id"})
 })
+@EntityListeners(IndiceSkus.class)
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor
 public class VarianteSku {
 
@@ -0,0 +1,11 @@
+package com.colors.savd.model.enums;
+
+/**
+ * Estado de una carga masiva.
+ * EN_COLA: aceptada, esperando hilo del pool de importaciones; EN_PROCESO: leyendo/persistiendo tramos;
+ * INTERRUMPIDA: falló (reanudable); CANCELADA: cancelada por el usuario (reanudable);
+ * COMPLETADA: todos los grupos confirmados.
+ */
+public enum EstadoCarga {
+    EN_COLA,EN_PROCESO,INTERRUMPIDA,CANCELADA,COMPLETADA
+}
@@ -0,0 +1,13 @@
+package com.colors.savd.model.enums;
+
+/**
+ * Define cómo se lee el archivo XLSX de una importación.
+ * - AUTOMATICO: se elige STREAMING si el archivo supera el umbral configurado, COMPLETO en otro caso.
+ * - COMPLETO: se carga el libro entero en memoria (modelo DOM de POI).
+ * - STREAMING: se recorre la hoja con el modelo SAX de POI, fila por fila y con memoria casi constante.
+ */
+public enum ModoLectura {
+    AUTOMATICO,
+    COMPLETO,
+    STREAMING
+}
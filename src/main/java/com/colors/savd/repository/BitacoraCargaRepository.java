@@ -1,15 +1,21 @@
 package com.colors.savd.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.colors.savd.model.BitacoraCarga;
+import com.colors.savd.model.enums.EstadoCarga;
 import com.colors.savd.model.enums.TipoCarga;
 
 @Repository
@@ -24,4 +30,16 @@ public interface BitacoraCargaRepository extends JpaRepository<BitacoraCarga, Lo
     Page<BitacoraCarga> findAllByOrderByFechaHoraDesc(Pageable pageable);
 
     Page<BitacoraCarga> findByTipoCargaOrderByFechaHoraDesc(TipoCarga tipo, Pageable pageable);
+
+    // Re-subida del mismo archivo (mismo SHA-256)
+    Optional<BitacoraCarga> findFirstByHashArchivoAndTipoCargaAndEstadoInOrderByIdDesc(String hashArchivo, TipoCarga tipoCarga,
+                                                                                     Collection<EstadoCarga> estados);
+
+    // Partes de una carga por lote
+    List<BitacoraCarga> findByPadre_IdOrderByIdAsc(Long padreId);
+
+    // Checkpoint de carga por tramos: se ejecuta dentro de la misma transacción que el tramo
+    @Modifying
+    @Query("update BitacoraCarga b set b.gruposConfirmados = :grupos, b.ultimoGrupo = :ultimo where b.id = :id")
+    int actualizarCheckpoint(@Param("id") Long id, @Param("grupos") int grupos, @Param("ultimo") String ultimo);
 }
@@ -5,9 +5,11 @@ import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.colors.savd.model.BitacoraError;
 
@@ -32,4 +34,10 @@ public interface BitacoraErrorRepository extends JpaRepository<BitacoraError, Lo
   Page<BitacoraError> findByBitacora_IdOrderByFilaOrigenAsc(Long bitacoraId, Pageable pageable);
 
   List<BitacoraError> findTop50ByBitacora_IdOrderByFilaOrigenAsc(Long bitacoraId);
+
+  // Al reanudar una carga que no llegó a terminar el parseo, los errores se vuelven a registrar
+  @Transactional
+  @Modifying
+  @Query("delete from BitacoraError b where b.bitacora.id = :bitacoraId")
+  int eliminarPorBitacora(@Param("bitacoraId") Long bitacoraId);
 }
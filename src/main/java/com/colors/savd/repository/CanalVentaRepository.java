@@ -1,5 +1,7 @@
 package com.colors.savd.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,4 +12,6 @@ import com.colors.savd.model.CanalVenta;
 @Repository
 public interface CanalVentaRepository extends JpaRepository<CanalVenta, Long> {
     Optional<CanalVenta> findByCodigo(String codigo);
+
+    List<CanalVenta> findByCodigoIn(Collection<String> codigos); // resolución en bloque (importaciones)
 }
\ No newline at end of file
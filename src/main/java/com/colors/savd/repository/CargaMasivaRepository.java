@@ -0,0 +1,262 @@
+package com.colors.savd.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import com.colors.savd.model.BitacoraError;
+import com.colors.savd.model.KardexMovimiento;
+import com.colors.savd.model.ParametroReposicion;
+import com.colors.savd.model.Venta;
+import com.colors.savd.model.VentaDetalle;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Escritura masiva por JDBC de venta / venta_detalle / kardex_movimiento (y bitacora_error, parametro_reposicion),
+ * más la anulación masiva de ventas, sin pasar por el contexto de persistencia.
+ * Con IDENTITY Hibernate no puede agrupar INSERTs; aquí se envían en lotes de {@code batchSize}
+ * y los ids generados se asignan de vuelta a las entidades, de modo que el siguiente nivel
+ * (detalle → venta_id, kardex → venta_detalle_id) ya encuentra sus FKs resueltas.
+ * Participa en la transacción JPA en curso (misma conexión).
+ * Para que MySQL reciba INSERTs multi-fila conviene rewriteBatchedStatements=true en la URL.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CargaMasivaRepository {
+
+  private static final String SQL_VENTA = """
+      INSERT INTO venta (fecha_hora, canal_id, referencia_origen, temporada_id, estado, total,
+                         created_by, updated_by, created_at, updated_at)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+      """;
+
+  private static final String SQL_DETALLE = """
+      INSERT INTO venta_detalle (venta_id, sku_id, cantidad, precio_unitario, precio_lista, importe)
+      VALUES (?, ?, ?, ?, ?, ?)
+      """;
+
+  // Sin no-op por idempotency_key: los llamadores descartan antes las claves ya registradas, y un choque
+  // residual (carga concurrente) debe revertir la transacción en vez de dejar ventas sin su kardex
+  private static final String SQL_KARDEX = """
+      INSERT INTO kardex_movimiento (fecha_hora, sku_id, tipo_mov_id, cantidad, signo, canal_id, venta_id,
+                                     venta_detalle_id, referencia, observacion, idempotency_key, usuario_id, created_at)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+      """;
+
+  // Upsert por la clave única sku_id: una sentencia por fila en lote, sin leer la fila existente
+  private static final String SQL_PARAMETRO = """
+      INSERT INTO parametro_reposicion (sku_id, min_stock, lead_time_dias, stock_seguridad, ultima_actualizacion,
+                                        estatus_registro, created_at, updated_at)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+      ON DUPLICATE KEY UPDATE min_stock = VALUES(min_stock), lead_time_dias = VALUES(lead_time_dias),
+                              stock_seguridad = VALUES(stock_seguridad),
+                              ultima_actualizacion = VALUES(ultima_actualizacion), updated_at = VALUES(updated_at)
+      """;
+
+  // Reverso de kardex de cada línea de las ventas activas; misma referencia y clave que VentaServiceImpl.anularVenta
+  private static final String SQL_KARDEX_ANULACION = """
+      INSERT INTO kardex_movimiento (fecha_hora, sku_id, tipo_mov_id, cantidad, signo, canal_id, venta_id,
+                                     venta_detalle_id, referencia, observacion, idempotency_key, usuario_id, created_at)
+      SELECT v.fecha_hora, d.sku_id, ?, d.cantidad, 1, v.canal_id, v.id, d.id,
+             CONCAT('ANUL-', CASE WHEN TRIM(COALESCE(v.referencia_origen, '')) = '' THEN v.id ELSE v.referencia_origen END),
+             ?, CONCAT('ANUL|', v.id, '|', d.id), ?, ?
+      FROM venta v
+      JOIN venta_detalle d ON d.venta_id = v.id
+      WHERE v.id IN (%s) AND v.estado = 'ACTIVA'
+      ON DUPLICATE KEY UPDATE id = id
+      """;
+
+  // Bloquea las cabeceras que siguen ACTIVAS; una anulación concurrente de las mismas ventas espera el commit
+  private static final String SQL_BLOQUEAR_ACTIVAS = """
+      SELECT id FROM venta WHERE id IN (%s) AND estado = 'ACTIVA' ORDER BY id FOR UPDATE
+      """;
+
+  private static final String SQL_VENTA_ANULADA = """
+      UPDATE venta SET estado = 'ANULADA', anulada_at = ?, anulada_por = ?, updated_at = ?
+      WHERE id IN (%s) AND estado = 'ACTIVA'
+      """;
+
+  private static final String SQL_ERROR = """
+      INSERT INTO bitacora_error (bitacora_id, fila_origen, campo, mensaje_error, valor_original, fecha_hora_registro)
+      VALUES (?, ?, ?, ?, ?, ?)
+      """;
+
+  private final JdbcTemplate jdbc;
+
+  @Value("${savd.importacion.batch-size:500}")
+  private int batchSize;
+
+  /** Inserta cabeceras y asigna sus ids generados. */
+  public void insertarVentas(List<Venta> ventas) {
+    for (int desde = 0; desde < ventas.size(); desde += batchSize) {
+      List<Venta> lote = ventas.subList(desde, Math.min(desde + batchSize, ventas.size()));
+      List<Long> ids = insertarConIds(SQL_VENTA, lote, (ps, v) -> {
+        ps.setTimestamp(1, Timestamp.valueOf(v.getFechaHora()));
+        ps.setLong(2, v.getCanal().getId());
+        ps.setString(3, v.getReferenciaOrigen());
+        setLongNullable(ps, 4, v.getTemporada() != null ? v.getTemporada().getId() : null);
+        ps.setString(5, v.getEstado().name());
+        ps.setBigDecimal(6, v.getTotal());
+        setLongNullable(ps, 7, v.getCreatedBy() != null ? v.getCreatedBy().getId() : null);
+        setLongNullable(ps, 8, v.getUpdatedBy() != null ? v.getUpdatedBy().getId() : null);
+        ps.setTimestamp(9, Timestamp.valueOf(v.getCreatedAt()));
+        ps.setTimestamp(10, Timestamp.valueOf(v.getUpdatedAt()));
+      });
+      for (int i = 0; i < lote.size(); i++) lote.get(i).setId(ids.get(i));
+    }
+  }
+
+  /** Inserta detalles (la venta ya debe tener id) y asigna sus ids generados. */
+  public void insertarDetalles(List<VentaDetalle> detalles) {
+    for (int desde = 0; desde < detalles.size(); desde += batchSize) {
+      List<VentaDetalle> lote = detalles.subList(desde, Math.min(desde + batchSize, detalles.size()));
+      List<Long> ids = insertarConIds(SQL_DETALLE, lote, (ps, d) -> {
+        ps.setLong(1, d.getVenta().getId());
+        ps.setLong(2, d.getSku().getId());
+        ps.setInt(3, d.getCantidad());
+        ps.setBigDecimal(4, d.getPrecioUnitario());
+        ps.setBigDecimal(5, d.getPrecioLista());
+        ps.setBigDecimal(6, d.getImporte());
+      });
+      for (int i = 0; i < lote.size(); i++) lote.get(i).setId(ids.get(i));
+    }
+  }
+
+  /**
+   * Inserta movimientos de kardex. Las claves ya registradas se filtran antes
+   * ({@code KardexRepository.idempotencyKeysExistentes}); un choque lanza DuplicateKeyException.
+   */
+  public void insertarKardex(List<KardexMovimiento> movimientos) {
+    jdbc.batchUpdate(SQL_KARDEX, movimientos, batchSize, (ps, k) -> {
+      ps.setTimestamp(1, Timestamp.valueOf(k.getFechaHora()));
+      ps.setLong(2, k.getSku().getId());
+      ps.setLong(3, k.getTipo().getId());
+      ps.setInt(4, k.getCantidad());
+      ps.setInt(5, k.getSigno());
+      setLongNullable(ps, 6, k.getCanal() != null ? k.getCanal().getId() : null);
+      setLongNullable(ps, 7, k.getVenta() != null ? k.getVenta().getId() : null);
+      setLongNullable(ps, 8, k.getVentaDetalle() != null ? k.getVentaDetalle().getId() : null);
+      ps.setString(9, k.getReferencia());
+      ps.setString(10, k.getObservacion());
+      ps.setString(11, k.getIdempotencyKey());
+      ps.setLong(12, k.getUsuario().getId());
+      ps.setTimestamp(13, Timestamp.valueOf(k.getCreatedAt()));
+    });
+  }
+
+  /**
+   * Crea o actualiza parámetros de reposición por SKU (clave única sku_id). En una actualización solo
+   * cambian los tres valores y las fechas; estatus_registro y created_at se conservan.
+   */
+  public void upsertParametros(List<ParametroReposicion> parametros) {
+    jdbc.batchUpdate(SQL_PARAMETRO, parametros, batchSize, (ps, p) -> {
+      ps.setLong(1, p.getSku().getId());
+      ps.setInt(2, p.getMinStock());
+      ps.setInt(3, p.getLeadTimeDias());
+      ps.setInt(4, p.getStockSeguridad());
+      ps.setTimestamp(5, Timestamp.valueOf(p.getUltimaActualizacion()));
+      ps.setString(6, p.getEstatusRegistro().name());
+      ps.setTimestamp(7, Timestamp.valueOf(p.getCreatedAt()));
+      ps.setTimestamp(8, Timestamp.valueOf(p.getUpdatedAt()));
+    });
+  }
+
+  /**
+   * Bloquea (FOR UPDATE) las ventas de la lista que siguen ACTIVAS, en orden de id para que dos anulaciones
+   * no se crucen. Otra anulación de las mismas ventas espera al commit y ya no las ve ACTIVAS: solo una
+   * descuenta sus líneas del resumen y del cubo.
+   * @return ids bloqueados, en orden ascendente
+   */
+  public List<Long> bloquearVentasActivas(Collection<Long> ventaIds) {
+    List<Long> orden = ventaIds.stream().sorted().toList();
+    List<Long> activas = new ArrayList<>(orden.size());
+    for (int desde = 0; desde < orden.size(); desde += batchSize) {
+      List<Long> lote = orden.subList(desde, Math.min(desde + batchSize, orden.size()));
+      String marcas = String.join(",", Collections.nCopies(lote.size(), "?"));
+      activas.addAll(jdbc.queryForList(SQL_BLOQUEAR_ACTIVAS.formatted(marcas), Long.class, lote.toArray()));
+    }
+    return activas;
+  }
+
+  /**
+   * Anula las ventas ACTIVAS de la lista: un INSERT ... SELECT con el reverso de kardex de todas sus líneas y
+   * un UPDATE de las cabeceras por cada lote de {@code batchSize} ids. Las ya anuladas o inexistentes se ignoran.
+   * @return cantidad de ventas anuladas
+   */
+  public int anularVentas(List<Long> ventaIds, Long tipoAnulacionId, Long usuarioId, String observacion,
+      LocalDateTime ahora) {
+    Timestamp ts = Timestamp.valueOf(ahora);
+    int anuladas = 0;
+    for (int desde = 0; desde < ventaIds.size(); desde += batchSize) {
+      List<Long> lote = ventaIds.subList(desde, Math.min(desde + batchSize, ventaIds.size()));
+      String marcas = String.join(",", Collections.nCopies(lote.size(), "?"));
+      List<Object> args = new ArrayList<>(List.of(tipoAnulacionId, observacion, usuarioId, ts));
+      args.addAll(lote);
+      jdbc.update(SQL_KARDEX_ANULACION.formatted(marcas), args.toArray());
+      args = new ArrayList<>(List.of(ts, usuarioId, ts));
+      args.addAll(lote);
+      anuladas += jdbc.update(SQL_VENTA_ANULADA.formatted(marcas), args.toArray());
+    }
+    return anuladas;
+  }
+
+  /** Inserta errores de fila de una bitácora de carga (sin ids de vuelta: nadie los referencia). */
+  public void insertarErrores(List<BitacoraError> errores) {
+    jdbc.batchUpdate(SQL_ERROR, errores, batchSize, (ps, e) -> {
+      ps.setLong(1, e.getBitacora().getId());
+      if (e.getFilaOrigen() == null) ps.setNull(2, Types.INTEGER);
+      else ps.setInt(2, e.getFilaOrigen());
+      ps.setString(3, e.getCampo());
+      ps.setString(4, e.getMensajeError());
+      ps.setString(5, e.getValorOriginal());
+      ps.setTimestamp(6, Timestamp.valueOf(e.getFechaHoraRegistro()));
+    });
+  }
+
+  // === Helpers ===
+
+  /**
+   * Ejecuta el lote con RETURN_GENERATED_KEYS; el driver devuelve las claves en el orden del lote.
+   * Se usa ConnectionCallback para quedarse en la conexión de la transacción actual.
+   */
+  private <T> List<Long> insertarConIds(String sql, List<T> lote, ParameterizedPreparedStatementSetter<T> setter) {
+    List<Long> ids = jdbc.execute((ConnectionCallback<List<Long>>) con -> {
+      try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        for (T fila : lote) {
+          setter.setValues(ps, fila);
+          ps.addBatch();
+        }
+        ps.executeBatch();
+        List<Long> claves = new ArrayList<>(lote.size());
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+          while (rs.next()) claves.add(rs.getLong(1));
+        }
+        return claves;
+      }
+    });
+    if (ids == null || ids.size() != lote.size()) {
+      throw new IllegalStateException("Claves generadas inesperadas: " + (ids == null ? 0 : ids.size()) + " de " + lote.size());
+    }
+    return ids;
+  }
+
+  private static void setLongNullable(PreparedStatement ps, int idx, Long valor) throws SQLException {
+    if (valor == null) ps.setNull(idx, Types.BIGINT);
+    else ps.setLong(idx, valor);
+  }
+}
@@ -0,0 +1,27 @@
+package com.colors.savd.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.colors.savd.model.ColorAlias;
+
+@Repository
+public interface ColorAliasRepository extends JpaRepository<ColorAlias, Long> {
+
+    /** [colorId, codigo, nombre] de los colores visibles (índice de SKUs por atributos) */
+    @Query("""
+        SELECT c.id, c.codigo, c.nombre FROM Color c
+        WHERE c.estatusRegistro = com.colors.savd.model.enums.EstatusRegistro.VISIBLE
+        """)
+    List<Object[]> coloresVisibles();
+
+    /** [colorId, alias] de los alias visibles */
+    @Query("""
+        SELECT a.color.id, a.alias FROM ColorAlias a
+        WHERE a.estatusRegistro = com.colors.savd.model.enums.EstatusRegistro.VISIBLE
+        """)
+    List<Object[]> aliasVisibles();
+}
@@ -0,0 +1,75 @@
+package com.colors.savd.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Lecturas en bloque para el cubo de ventas en memoria ({@code CuboVentas}): líneas de ventas ACTIVAS y
+ * atributos de los SKUs. Se recorren fila a fila (streaming) sin armar entidades ni listas intermedias.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CuboVentasRepository {
+
+  // Columnas: fecha_hora, canal_id, temporada_id (0 = sin temporada), sku_id, cantidad, importe
+  private static final String SQL_LINEAS = """
+      SELECT v.fecha_hora, v.canal_id, COALESCE(v.temporada_id, 0), d.sku_id, d.cantidad, d.importe
+      FROM venta v
+      JOIN venta_detalle d ON d.venta_id = v.id
+      WHERE v.estado = 'ACTIVA'
+      """;
+
+  // Columnas: sku_id, sku, producto_id, producto, categoria_id, categoria, talla_id, talla, color_id, color
+  private static final String SQL_SKUS = """
+      SELECT vs.id, vs.sku, p.id, p.nombre, c.id, c.nombre, t.id, t.codigo, co.id, co.nombre
+      FROM variante_sku vs
+      JOIN producto p ON p.id = vs.producto_id
+      JOIN categoria c ON c.id = p.categoria_id
+      LEFT JOIN talla t ON t.id = vs.talla_id
+      LEFT JOIN color co ON co.id = vs.color_id
+      """;
+
+  private final JdbcTemplate jdbc;
+  private final DataSource dataSource;
+
+  @Value("${savd.importacion.batch-size:500}")
+  private int batchSize;
+
+  /** Todas las líneas de ventas ACTIVAS (carga completa del cubo), en streaming */
+  public void recorrerLineasActivas(RowCallbackHandler fila) {
+    JdbcTemplate streaming = new JdbcTemplate(dataSource);
+    streaming.setFetchSize(Integer.MIN_VALUE); // Connector/J: fila a fila, sin traer el resultado completo
+    streaming.query(SQL_LINEAS, fila);
+  }
+
+  /** Líneas de las ventas de la lista que siguen ACTIVAS (correr antes de anularlas), por lotes de ids */
+  public void recorrerLineasActivas(List<Long> ventaIds, RowCallbackHandler fila) {
+    for (int desde = 0; desde < ventaIds.size(); desde += batchSize) {
+      List<Long> lote = ventaIds.subList(desde, Math.min(desde + batchSize, ventaIds.size()));
+      String marcas = String.join(",", Collections.nCopies(lote.size(), "?"));
+      jdbc.query(SQL_LINEAS + "  AND v.id IN (" + marcas + ")", fila, lote.toArray());
+    }
+  }
+
+  /** Atributos de todos los SKUs */
+  public void recorrerSkus(RowCallbackHandler fila) {
+    jdbc.query(SQL_SKUS, fila);
+  }
+
+  /** Atributos de los SKUs dados (SKUs creados después de la carga) */
+  public void recorrerSkus(Collection<Long> skuIds, RowCallbackHandler fila) {
+    if (skuIds.isEmpty()) return;
+    String marcas = String.join(",", Collections.nCopies(skuIds.size(), "?"));
+    jdbc.query(SQL_SKUS + "WHERE vs.id IN (" + marcas + ")", fila, skuIds.toArray());
+  }
+}
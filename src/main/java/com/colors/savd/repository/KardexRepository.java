@@ -16,6 +16,10 @@ public interface KardexRepository extends JpaRepository<KardexMovimiento, Long>
 
   List<KardexMovimiento> findBySku_IdOrderByFechaHoraDesc(Long skuId);
 
+  /** Claves de idempotencia ya registradas entre las dadas (importación de inventario, por bloques) */
+  @Query("SELECT k.idempotencyKey FROM KardexMovimiento k WHERE k.idempotencyKey IN :claves")
+  List<String> idempotencyKeysExistentes(@Param("claves") Collection<String> claves);
+
   /**
    * Stock actual por SKU = SUM(signo * cantidad) hasta 'corte' (o todo si corte es null → usar NOW en service).
    * Retorna filas: [Long skuId, Long stock]
@@ -1,244 +1,83 @@
 package com.colors.savd.repository;
 
-import java.time.LocalDateTime;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.colors.savd.model.VentaDetalle;
 import com.colors.savd.repository.projection.KpiAggCategoria;
-import com.colors.savd.repository.projection.KpiAggCategoriaTotal;
+import com.colors.savd.repository.projection.KpiAggComparado;
 import com.colors.savd.repository.projection.KpiAggProducto;
-import com.colors.savd.repository.projection.KpiAggProductoTotal;
 import com.colors.savd.repository.projection.KpiAggSku;
-import com.colors.savd.repository.projection.KpiAggSkuTotal;
+import com.colors.savd.util.ConsultaKpi;
+import com.colors.savd.util.ConsultaKpi.Nivel;
+import com.colors.savd.util.TramosMensuales;
 
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Consultas de KPI por categoría, producto y SKU: mensuales y totales con comparación de períodos.
+ * El SQL lo arma {@link ConsultaKpi} con solo los filtros informados (null = sin filtro).
+ * Las filas mensuales se devuelven como las proyecciones de siempre (respaldadas por la fila leída).
+ */
 @Repository
+@RequiredArgsConstructor
 @Transactional(readOnly = true)
-public interface KpiRepository extends JpaRepository<VentaDetalle, Long>{
-    @Query(value = """
-            SELECT 
-                YEAR(v.fecha_hora)       AS anio,
-                MONTH(v.fecha_hora)      AS mes,
-                c.id                     AS categoriaId,
-                c.nombre                 AS categoria,
-                SUM(vd.cantidad)         AS unidades,
-                SUM(vd.importe)          AS ingresos
-            FROM venta_detalle vd
-            JOIN venta v                ON vd.venta_id = v.id
-                                        AND v.estado = 'ACTIVA'
-                                        AND v.fecha_hora BETWEEN :desde AND :hasta
-            JOIN variante_sku vs       ON vd.sku_id = vs.id
-            JOIN producto p            ON vs.producto_id = p.id
-            JOIN categoria c           ON p.categoria_id = c.id
-            LEFT JOIN temporada t      ON v.temporada_id = t.id
-            LEFT JOIN canal_venta cv   ON v.canal_id = cv.id
-            LEFT JOIN talla ta         ON vs.talla_id = ta.id
-            LEFT JOIN color co         ON vs.color_id = co.id
-            WHERE (:canalId     IS NULL OR v.canal_id     = :canalId)
-                AND (:temporadaId IS NULL OR v.temporada_id = :temporadaId)
-                AND (:categoriaId IS NULL OR c.id           = :categoriaId)
-                AND (:tallaId     IS NULL OR ta.id          = :tallaId)
-                AND (:colorId     IS NULL OR co.id          = :colorId)
-            GROUP BY anio, mes, categoriaId, categoria
-            ORDER BY anio, mes, ingresos DESC                                
-            """, nativeQuery = true)
-    List<KpiAggCategoria> kpiCategoriaMensual(
-        @Param("desde") LocalDateTime desde,
-        @Param("hasta") LocalDateTime hasta,
-        @Param("canalId") Long canalId,
-        @Param("temporadaId") Long temporadaId,
-        @Param("categoriaId") Long categoriaId,
-        @Param("tallaId") Long tallaId,
-        @Param("colorId") Long colorId
-    );
+public class KpiRepository {
+
+  private static final ProjectionFactory PROYECCIONES = new SpelAwareProxyProjectionFactory();
+
+  private final NamedParameterJdbcTemplate jdbc;
+
+  public List<KpiAggCategoria> kpiCategoriaMensual(TramosMensuales rango, Long canalId, Long temporadaId,
+      Long categoriaId, Long tallaId, Long colorId) {
+    return mensual(KpiAggCategoria.class, Nivel.CATEGORIA, rango, canalId, temporadaId, categoriaId, tallaId, colorId);
+  }
+
+  public List<KpiAggProducto> kpiProductoMensual(TramosMensuales rango, Long canalId, Long temporadaId,
+      Long categoriaId, Long tallaId, Long colorId) {
+    return mensual(KpiAggProducto.class, Nivel.PRODUCTO, rango, canalId, temporadaId, categoriaId, tallaId, colorId);
+  }
 
-    @Query(value = """
-        SELECT 
-            YEAR(v.fecha_hora)       AS anio,
-            MONTH(v.fecha_hora)      AS mes,
-            p.id                     AS productoId,
-            p.nombre                 AS producto,
-            SUM(vd.cantidad)         AS unidades,
-            SUM(vd.importe)          AS ingresos
-        FROM venta_detalle vd
-        JOIN venta v               ON vd.venta_id = v.id
-                                AND v.estado = 'ACTIVA'
-                                AND v.fecha_hora BETWEEN :desde AND :hasta
-        JOIN variante_sku vs       ON vd.sku_id = vs.id
-        JOIN producto p            ON vs.producto_id = p.id
-        JOIN categoria c           ON p.categoria_id = c.id
-        LEFT JOIN temporada t      ON v.temporada_id = t.id
-        LEFT JOIN canal_venta cv   ON v.canal_id = cv.id
-        LEFT JOIN talla ta         ON vs.talla_id = ta.id
-        LEFT JOIN color co         ON vs.color_id = co.id
-        WHERE (:canalId     IS NULL OR v.canal_id     = :canalId)
-        AND (:temporadaId IS NULL OR v.temporada_id = :temporadaId)
-        AND (:categoriaId IS NULL OR c.id           = :categoriaId)
-        AND (:tallaId     IS NULL OR ta.id          = :tallaId)
-        AND (:colorId     IS NULL OR co.id          = :colorId)
-        GROUP BY anio, mes, productoId, producto
-        ORDER BY anio, mes, ingresos DESC
-        """, nativeQuery = true)
-    List<KpiAggProducto> kpiProductoMensual(
-            @Param("desde") LocalDateTime desde,
-            @Param("hasta") LocalDateTime hasta,
-            @Param("canalId") Long canalId,
-            @Param("temporadaId") Long temporadaId,
-            @Param("categoriaId") Long categoriaId,
-            @Param("tallaId") Long tallaId,
-            @Param("colorId") Long colorId
-    );
+  public List<KpiAggSku> kpiSkuMensual(TramosMensuales rango, Long canalId, Long temporadaId,
+      Long categoriaId, Long tallaId, Long colorId) {
+    return mensual(KpiAggSku.class, Nivel.SKU, rango, canalId, temporadaId, categoriaId, tallaId, colorId);
+  }
 
-    @Query(value = """
-        SELECT 
-            YEAR(v.fecha_hora)       AS anio,
-            MONTH(v.fecha_hora)      AS mes,
-            vs.id                    AS skuId,
-            vs.sku                   AS sku,
-            p.nombre                 AS producto,
-            ta.codigo                AS talla,
-            co.nombre                AS color,
-            SUM(vd.cantidad)         AS unidades,
-            SUM(vd.importe)          AS ingresos
-        FROM venta_detalle vd
-        JOIN venta v               ON vd.venta_id = v.id
-                                AND v.estado = 'ACTIVA'
-                                AND v.fecha_hora BETWEEN :desde AND :hasta
-        JOIN variante_sku vs       ON vd.sku_id = vs.id
-        JOIN producto p            ON vs.producto_id = p.id
-        JOIN categoria c           ON p.categoria_id = c.id
-        LEFT JOIN temporada t      ON v.temporada_id = t.id
-        LEFT JOIN canal_venta cv   ON v.canal_id = cv.id
-        LEFT JOIN talla ta         ON vs.talla_id = ta.id
-        LEFT JOIN color co         ON vs.color_id = co.id
-        WHERE (:canalId     IS NULL OR v.canal_id     = :canalId)
-        AND (:temporadaId IS NULL OR v.temporada_id = :temporadaId)
-        AND (:categoriaId IS NULL OR c.id           = :categoriaId)
-        AND (:tallaId     IS NULL OR ta.id          = :tallaId)
-        AND (:colorId     IS NULL OR co.id          = :colorId)
-        GROUP BY anio, mes, skuId, sku, producto, talla, color
-        ORDER BY anio, mes, ingresos DESC
-        """, nativeQuery = true)
-    List<KpiAggSku> kpiSkuMensual(
-            @Param("desde") LocalDateTime desde,
-            @Param("hasta") LocalDateTime hasta,
-            @Param("canalId") Long canalId,
-            @Param("temporadaId") Long temporadaId,
-            @Param("categoriaId") Long categoriaId,
-            @Param("tallaId") Long tallaId,
-            @Param("colorId") Long colorId
-    );
+  /** Totales del período actual con los ingresos del período anterior y del año previo (una sola pasada) */
+  public List<KpiAggComparado> kpiComparado(Nivel nivel, TramosMensuales actual, TramosMensuales anterior,
+      TramosMensuales yoy, Long canalId, Long temporadaId, Long categoriaId, Long tallaId, Long colorId) {
+    ConsultaKpi q = ConsultaKpi.comparada(nivel, actual, anterior, yoy)
+        .filtros(canalId, temporadaId, categoriaId, tallaId, colorId);
+    String sql = q.sql();
+    return jdbc.query(sql, q.parametros(), (rs, n) -> comparado(nivel, rs));
+  }
 
-    @Query(value = """
-        SELECT 
-            c.id       AS categoriaId,
-            c.nombre   AS categoria,
-            SUM(vd.cantidad) AS unidades,
-            SUM(vd.importe)  AS ingresos
-        FROM venta_detalle vd
-        JOIN venta v             ON vd.venta_id = v.id
-                                AND v.estado = 'ACTIVA'
-                                AND v.fecha_hora BETWEEN :desde AND :hasta
-        JOIN variante_sku vs     ON vd.sku_id = vs.id
-        JOIN producto p          ON vs.producto_id = p.id
-        JOIN categoria c         ON p.categoria_id = c.id
-        LEFT JOIN temporada t    ON v.temporada_id = t.id
-        LEFT JOIN canal_venta cv ON v.canal_id = cv.id
-        LEFT JOIN talla ta       ON vs.talla_id = ta.id
-        LEFT JOIN color co       ON vs.color_id = co.id
-        WHERE (:canalId     IS NULL OR v.canal_id     = :canalId)
-        AND (:temporadaId IS NULL OR v.temporada_id = :temporadaId)
-        AND (:categoriaId IS NULL OR c.id           = :categoriaId)
-        AND (:tallaId     IS NULL OR ta.id          = :tallaId)
-        AND (:colorId     IS NULL OR co.id          = :colorId)
-        GROUP BY c.id, c.nombre
-        ORDER BY ingresos DESC
-        """, nativeQuery = true)
-    List<KpiAggCategoriaTotal> kpiCategoriaTotal(
-            @Param("desde") java.time.LocalDateTime desde,
-            @Param("hasta") java.time.LocalDateTime hasta,
-            @Param("canalId") Long canalId,
-            @Param("temporadaId") Long temporadaId,
-            @Param("categoriaId") Long categoriaId,
-            @Param("tallaId") Long tallaId,
-            @Param("colorId") Long colorId
-    );
+  private <T> List<T> mensual(Class<T> proyeccion, Nivel nivel, TramosMensuales rango, Long canalId,
+      Long temporadaId, Long categoriaId, Long tallaId, Long colorId) {
+    ConsultaKpi q = ConsultaKpi.mensual(nivel, rango).filtros(canalId, temporadaId, categoriaId, tallaId, colorId);
+    String sql = q.sql();
+    List<Map<String, Object>> filas = jdbc.queryForList(sql, q.parametros());
+    return filas.stream().map(f -> PROYECCIONES.createProjection(proyeccion, f)).toList();
+  }
 
-    @Query(value = """
-        SELECT 
-            p.id                   AS productoId,
-            p.nombre               AS producto,
-            SUM(vd.cantidad)       AS unidades,
-            SUM(vd.importe)        AS ingresos
-        FROM venta_detalle vd
-        JOIN venta v             ON vd.venta_id = v.id
-                                AND v.estado = 'ACTIVA'
-                                AND v.fecha_hora BETWEEN :desde AND :hasta
-        JOIN variante_sku vs     ON vd.sku_id = vs.id
-        JOIN producto p          ON vs.producto_id = p.id
-        JOIN categoria c         ON p.categoria_id = c.id
-        LEFT JOIN temporada t    ON v.temporada_id = t.id
-        LEFT JOIN canal_venta cv ON v.canal_id = cv.id
-        LEFT JOIN talla ta       ON vs.talla_id = ta.id
-        LEFT JOIN color co       ON vs.color_id = co.id
-        WHERE (:canalId     IS NULL OR v.canal_id     = :canalId)
-        AND (:temporadaId IS NULL OR v.temporada_id = :temporadaId)
-        AND (:categoriaId IS NULL OR c.id           = :categoriaId)
-        AND (:tallaId     IS NULL OR ta.id          = :tallaId)
-        AND (:colorId     IS NULL OR co.id          = :colorId)
-        GROUP BY p.id, p.nombre
-        ORDER BY ingresos DESC
-        """, nativeQuery = true)
-    List<KpiAggProductoTotal> kpiProductoTotal(
-            @Param("desde") java.time.LocalDateTime desde,
-            @Param("hasta") java.time.LocalDateTime hasta,
-            @Param("canalId") Long canalId,
-            @Param("temporadaId") Long temporadaId,
-            @Param("categoriaId") Long categoriaId,
-            @Param("tallaId") Long tallaId,
-            @Param("colorId") Long colorId
-    );
+  // Columnas 1 y 2: id y nombre de la clave del nivel (ver ConsultaKpi)
+  private static KpiAggComparado comparado(Nivel nivel, ResultSet rs) throws SQLException {
+    boolean sku = nivel == Nivel.SKU;
+    return new KpiAggComparado(rs.getLong(1), rs.getString(2),
+        sku ? rs.getString("producto") : null, sku ? rs.getString("talla") : null, sku ? rs.getString("color") : null,
+        rs.getLong("unidades"), nz(rs.getBigDecimal("ingresos")),
+        nz(rs.getBigDecimal("ingresosAnterior")), nz(rs.getBigDecimal("ingresosYoY")));
+  }
 
-    @Query(value = """
-        SELECT 
-            vs.id                  AS skuId,
-            vs.sku                 AS sku,
-            p.nombre               AS producto,
-            ta.codigo              AS talla,
-            co.nombre              AS color,
-            SUM(vd.cantidad)       AS unidades,
-            SUM(vd.importe)        AS ingresos
-        FROM venta_detalle vd
-        JOIN venta v             ON vd.venta_id = v.id
-                                AND v.estado = 'ACTIVA'
-                                AND v.fecha_hora BETWEEN :desde AND :hasta
-        JOIN variante_sku vs     ON vd.sku_id = vs.id
-        JOIN producto p          ON vs.producto_id = p.id
-        JOIN categoria c         ON p.categoria_id = c.id
-        LEFT JOIN temporada t    ON v.temporada_id = t.id
-        LEFT JOIN canal_venta cv ON v.canal_id = cv.id
-        LEFT JOIN talla ta       ON vs.talla_id = ta.id
-        LEFT JOIN color co       ON vs.color_id = co.id
-        WHERE (:canalId     IS NULL OR v.canal_id     = :canalId)
-        AND (:temporadaId IS NULL OR v.temporada_id = :temporadaId)
-        AND (:categoriaId IS NULL OR c.id           = :categoriaId)
-        AND (:tallaId     IS NULL OR ta.id          = :tallaId)
-        AND (:colorId     IS NULL OR co.id          = :colorId)
-        GROUP BY vs.id, vs.sku, p.nombre, ta.codigo, co.nombre
-        ORDER BY ingresos DESC
-        """, nativeQuery = true)
-    List<KpiAggSkuTotal> kpiSkuTotal(
-            @Param("desde") java.time.LocalDateTime desde,
-            @Param("hasta") java.time.LocalDateTime hasta,
-            @Param("canalId") Long canalId,
-            @Param("temporadaId") Long temporadaId,
-            @Param("categoriaId") Long categoriaId,
-            @Param("tallaId") Long tallaId,
-            @Param("colorId") Long colorId
-    );
+  private static BigDecimal nz(BigDecimal v) {
+    return v == null ? BigDecimal.ZERO : v;
+  }
 }
@@ -1,8 +1,12 @@
 package com.colors.savd.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.colors.savd.model.ParametroReposicion;
@@ -13,4 +17,8 @@ public interface ParametroReposicionRepository extends JpaRepository<ParametroRe
     Optional<ParametroReposicion> findBySku_Id(Long skuId);
     
     Boolean existsBySku_Id(Long skuId);
+
+    /** SKU que ya tienen parámetro, entre los dados (importación masiva: creados vs actualizados por bloque) */
+    @Query("SELECT p.sku.id FROM ParametroReposicion p WHERE p.sku.id IN :skuIds")
+    List<Long> skuIdsConParametro(@Param("skuIds") Collection<Long> skuIds);
 }
@@ -0,0 +1,157 @@
+package com.colors.savd.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.colors.savd.model.Venta;
+import com.colors.savd.model.VentaDetalle;
+import com.colors.savd.util.AntesDelCommit;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resumen mensual de ventas ACTIVAS por (anio, mes, sku, canal, temporada): unidades e ingresos.
+ * Lo mantienen al día, dentro de la misma transacción, el alta manual, las anulaciones y la importación
+ * (deltas con upsert); {@link #reconstruir()} lo vuelve a calcular desde venta / venta_detalle.
+ * Las consultas de KPI de {@link KpiRepository} leen de aquí los meses completos del rango.
+ * <p>
+ * temporada_id = 0 representa "sin temporada" (la clave primaria no admite NULL).
+ * Una anulación deja la fila con unidades 0: las consultas la descartan con HAVING.
+ * <p>
+ * Dentro de una transacción los deltas de {@link #sumar} / {@link #restar} se acumulan y se escriben justo
+ * antes del commit, en el orden de la clave primaria: las filas calientes quedan bloqueadas solo ese
+ * instante (una importación de un solo tramo no frena a las ventas manuales) y dos transacciones que tocan
+ * las mismas claves las bloquean en el mismo orden, sin deadlock.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class ResumenVentaMensualRepository {
+
+  private static final String SQL_DELTA = """
+      INSERT INTO venta_resumen_mensual (anio, mes, sku_id, canal_id, temporada_id, unidades, ingresos)
+      VALUES (?, ?, ?, ?, ?, ?, ?)
+      ON DUPLICATE KEY UPDATE unidades = unidades + VALUES(unidades), ingresos = ingresos + VALUES(ingresos)
+      """;
+
+  // Resta lo que aportan las ventas que siguen ACTIVAS: debe correr antes de marcarlas ANULADAS
+  private static final String SQL_RESTAR_VENTAS = """
+      INSERT INTO venta_resumen_mensual (anio, mes, sku_id, canal_id, temporada_id, unidades, ingresos)
+      SELECT YEAR(v.fecha_hora), MONTH(v.fecha_hora), d.sku_id, v.canal_id, COALESCE(v.temporada_id, 0),
+             -SUM(d.cantidad), -SUM(d.importe)
+      FROM venta v
+      JOIN venta_detalle d ON d.venta_id = v.id
+      WHERE v.id IN (%s) AND v.estado = 'ACTIVA'
+      GROUP BY YEAR(v.fecha_hora), MONTH(v.fecha_hora), d.sku_id, v.canal_id, COALESCE(v.temporada_id, 0)
+      ON DUPLICATE KEY UPDATE unidades = unidades + VALUES(unidades), ingresos = ingresos + VALUES(ingresos)
+      """;
+
+  private static final String SQL_VACIAR = "DELETE FROM venta_resumen_mensual";
+
+  private static final String SQL_RECONSTRUIR = """
+      INSERT INTO venta_resumen_mensual (anio, mes, sku_id, canal_id, temporada_id, unidades, ingresos)
+      SELECT YEAR(v.fecha_hora), MONTH(v.fecha_hora), d.sku_id, v.canal_id, COALESCE(v.temporada_id, 0),
+             SUM(d.cantidad), SUM(d.importe)
+      FROM venta v
+      JOIN venta_detalle d ON d.venta_id = v.id
+      WHERE v.estado = 'ACTIVA'
+      GROUP BY YEAR(v.fecha_hora), MONTH(v.fecha_hora), d.sku_id, v.canal_id, COALESCE(v.temporada_id, 0)
+      """;
+
+  /** Orden de la clave primaria (anio, mes, sku, canal, temporada) */
+  private static final Comparator<List<Long>> ORDEN_CLAVE = (a, b) -> {
+    for (int i = 0; i < a.size(); i++) {
+      int c = Long.compare(a.get(i), b.get(i));
+      if (c != 0) return c;
+    }
+    return 0;
+  };
+
+  private final JdbcTemplate jdbc;
+
+  @Value("${savd.importacion.batch-size:500}")
+  private int batchSize;
+
+  /** Suma las líneas de ventas nuevas (la venta de cada línea debe tener fecha, canal y temporada). */
+  public void sumar(Collection<VentaDetalle> detalles) {
+    aplicar(detalles, 1);
+  }
+
+  /** Resta las líneas de una venta que se anula. */
+  public void restar(Collection<VentaDetalle> detalles) {
+    aplicar(detalles, -1);
+  }
+
+  /** Resta las ventas de la lista que siguen ACTIVAS (anulación masiva), por lotes de {@code batchSize} ids. */
+  public void restarVentasActivas(List<Long> ventaIds) {
+    for (int desde = 0; desde < ventaIds.size(); desde += batchSize) {
+      List<Long> lote = ventaIds.subList(desde, Math.min(desde + batchSize, ventaIds.size()));
+      String marcas = String.join(",", Collections.nCopies(lote.size(), "?"));
+      jdbc.update(SQL_RESTAR_VENTAS.formatted(marcas), lote.toArray());
+    }
+  }
+
+  /**
+   * Vuelve a calcular todo el resumen. Corre en la transacción del llamador: hasta el commit las
+   * consultas de otras transacciones siguen viendo el resumen anterior.
+   * @return filas del resumen
+   */
+  public int reconstruir() {
+    // Lo pendiente de esta transacción ya está en venta / venta_detalle: el recálculo lo incluye
+    if (TransactionSynchronizationManager.isSynchronizationActive()) pendientes().clear();
+    int borradas = jdbc.update(SQL_VACIAR);
+    int filas = jdbc.update(SQL_RECONSTRUIR);
+    log.info("Resumen mensual de ventas reconstruido: {} filas (antes {})", filas, borradas);
+    return filas;
+  }
+
+  /**
+   * Agrupa por clave [anio, mes, sku, canal, temporada] antes de escribir: una carga con muchas líneas
+   * del mismo mes/SKU es un solo upsert. En una transacción se suma a los deltas pendientes de esa
+   * transacción, que se escriben antes del commit.
+   */
+  private void aplicar(Collection<VentaDetalle> detalles, int signo) {
+    if (detalles.isEmpty()) return;
+    boolean enTransaccion = TransactionSynchronizationManager.isSynchronizationActive();
+    Map<List<Long>, BigDecimal[]> deltas = enTransaccion ? pendientes() : new TreeMap<>(ORDEN_CLAVE);
+    for (VentaDetalle d : detalles) {
+      Venta v = d.getVenta();
+      List<Long> k = List.of((long) v.getFechaHora().getYear(), (long) v.getFechaHora().getMonthValue(),
+          d.getSku().getId(), v.getCanal().getId(), v.getTemporada() != null ? v.getTemporada().getId() : 0L);
+      BigDecimal[] delta = deltas.computeIfAbsent(k, x -> new BigDecimal[] { BigDecimal.ZERO, BigDecimal.ZERO });
+      delta[0] = delta[0].add(BigDecimal.valueOf((long) signo * d.getCantidad()));
+      delta[1] = delta[1].add(signo > 0 ? d.getImporte() : d.getImporte().negate());
+    }
+    if (!enTransaccion) escribir(deltas);
+  }
+
+  /** Deltas [unidades, ingresos] por clave de la transacción actual, ordenados como la clave primaria */
+  private Map<List<Long>, BigDecimal[]> pendientes() {
+    return AntesDelCommit.estado(this, () -> new TreeMap<>(ORDEN_CLAVE), this::escribir);
+  }
+
+  /** Un upsert por clave, en orden de clave primaria */
+  private void escribir(Map<List<Long>, BigDecimal[]> deltas) {
+    if (deltas.isEmpty()) return;
+    List<Map.Entry<List<Long>, BigDecimal[]>> filas = new ArrayList<>(deltas.entrySet());
+    jdbc.batchUpdate(SQL_DELTA, filas, batchSize, (ps, e) -> {
+      List<Long> k = e.getKey();
+      for (int i = 0; i < k.size(); i++) ps.setLong(i + 1, k.get(i));
+      ps.setLong(6, e.getValue()[0].longValueExact());
+      ps.setBigDecimal(7, e.getValue()[1]);
+    });
+    deltas.clear();
+  }
+}
@@ -0,0 +1,27 @@
+package com.colors.savd.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.colors.savd.model.TallaAlias;
+
+@Repository
+public interface TallaAliasRepository extends JpaRepository<TallaAlias, Long> {
+
+    /** [tallaId, codigo, nombre] de las tallas visibles (índice de SKUs por atributos) */
+    @Query("""
+        SELECT t.id, t.codigo, t.nombre FROM Talla t
+        WHERE t.estatusRegistro = com.colors.savd.model.enums.EstatusRegistro.VISIBLE
+        """)
+    List<Object[]> tallasVisibles();
+
+    /** [tallaId, alias] de los alias visibles */
+    @Query("""
+        SELECT a.talla.id, a.alias FROM TallaAlias a
+        WHERE a.estatusRegistro = com.colors.savd.model.enums.EstatusRegistro.VISIBLE
+        """)
+    List<Object[]> aliasVisibles();
+}
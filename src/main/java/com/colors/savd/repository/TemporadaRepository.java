@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.colors.savd.model.Temporada;
+import com.colors.savd.model.enums.EstadoTemporada;
 
 @Repository
 public interface TemporadaRepository extends JpaRepository<Temporada, Long> {
@@ -64,4 +65,7 @@ public interface TemporadaRepository extends JpaRepository<Temporada, Long> {
       nativeQuery = true
   )
   Optional<Temporada> findActivaById(@Param("id") Long id);
+
+  /** Todas las temporadas en el estado dado (carga del índice en memoria de temporadas) */
+  List<Temporada> findByEstadoNegocio(EstadoTemporada estadoNegocio);
 }
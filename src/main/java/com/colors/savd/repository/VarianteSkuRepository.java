@@ -5,6 +5,8 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.colors.savd.model.VarianteSku;
@@ -23,4 +25,12 @@ public interface VarianteSkuRepository extends JpaRepository<VarianteSku, Long>{
     List<VarianteSku> findByProducto_Id(Long productoId);   // si filtras por producto en UI
     
     List<VarianteSku> findByActivoTrue(); // Útil para catálogos activos en UI
+
+    /** [categoriaId, tallaId, colorId] de cada SKU (invalidación de cachés de reportes filtrados) */
+    @Query("SELECT v.producto.categoria.id, v.talla.id, v.color.id FROM VarianteSku v WHERE v.id IN :ids")
+    List<Object[]> atributosPorId(@Param("ids") Collection<Long> ids);
+
+    /** [id, sku, productoId, productoNombre, tallaId, colorId] de todas las variantes (índice de SKUs por atributos) */
+    @Query("SELECT v.id, v.sku, p.id, p.nombre, v.talla.id, v.color.id FROM VarianteSku v JOIN v.producto p")
+    List<Object[]> catalogoAtributos();
 }
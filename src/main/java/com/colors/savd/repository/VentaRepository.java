@@ -1,17 +1,24 @@
 package com.colors.savd.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.colors.savd.model.Venta;
+import com.colors.savd.repository.projection.CabeceraVentaClave;
+import com.colors.savd.repository.projection.LineaVentaAfectada;
 import com.colors.savd.repository.projection.TopProductoAgg;
 
+import jakarta.persistence.LockModeType;
+
 @Repository
 public interface VentaRepository extends JpaRepository<Venta, Long>{
 
@@ -21,6 +28,33 @@ public interface VentaRepository extends JpaRepository<Venta, Long>{
 
     Boolean existsByFechaHoraAndCanal_IdAndReferenciaOrigen(LocalDateTime fechaHora, Long canalId, String referenciaOrigen);
 
+    // SELECT ... FOR UPDATE: dos anulaciones de la misma venta (manual o masiva) no descuentan ambas
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM Venta v WHERE v.id = :id")
+    Optional<Venta> findByIdParaActualizar(@Param("id") Long id);
+
+    // Cabeceras con referencia en la ventana de fechas de un archivo: detección de duplicados en memoria al importar
+    @Query("""
+        SELECT v.fechaHora AS fechaHora, v.canal.id AS canalId, v.referenciaOrigen AS referenciaOrigen
+        FROM Venta v
+        WHERE v.fechaHora BETWEEN :desde AND :hasta
+            AND v.canal.id IN :canalIds
+            AND v.referenciaOrigen IS NOT NULL
+        """)
+    List<CabeceraVentaClave> cabecerasConReferenciaEnRango(@Param("desde") LocalDateTime desde,
+                                @Param("hasta") LocalDateTime hasta,
+                                @Param("canalIds") Collection<Long> canalIds);
+
+    // Fecha/canal/SKU de las ventas activas de la lista, sin cargar entidades (invalidación de reportes)
+    @Query("""
+        SELECT DISTINCT v.fechaHora AS fechaHora, v.canal.id AS canalId, vd.sku.id AS skuId
+        FROM VentaDetalle vd
+        JOIN vd.venta v
+        WHERE v.id IN :ventaIds
+            AND v.estado = com.colors.savd.model.enums.EstadoVenta.ACTIVA
+        """)
+    List<LineaVentaAfectada> lineasActivas(@Param("ventaIds") Collection<Long> ventaIds);
+
     //Agregacion para top 15 por SKU en un rango de fechas.
     @Query("""
         SELECT vd.sku.id AS skuId,
@@ -0,0 +1,9 @@
+package com.colors.savd.repository.projection;
+
+import java.time.LocalDateTime;
+
+public interface CabeceraVentaClave {
+    LocalDateTime getFechaHora();
+    Long getCanalId();
+    String getReferenciaOrigen();
+}
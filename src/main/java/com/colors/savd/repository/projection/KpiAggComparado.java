@@ -0,0 +1,13 @@
+package com.colors.savd.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Total de un período y los ingresos de sus dos períodos de comparación (anterior de igual duración y
+ * mismo rango del año previo), por categoría, producto o SKU.
+ * - id / nombre: categoría, producto o SKU (código) según el nivel
+ * - producto, talla, color: solo en el nivel SKU
+ */
+public record KpiAggComparado(Long id, String nombre, String producto, String talla, String color,
+    Long unidades, BigDecimal ingresos, BigDecimal ingresosAnterior, BigDecimal ingresosYoY) {
+}
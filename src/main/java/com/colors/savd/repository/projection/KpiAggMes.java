@@ -0,0 +1,25 @@
+package com.colors.savd.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Fila mensual de KPI armada en memoria (cubo de ventas), con la forma de las tres proyecciones mensuales.
+ * - id / nombre: categoría, producto o SKU (código) según el nivel
+ * - producto: en el nivel producto es el mismo nombre; talla y color solo en el nivel SKU
+ */
+public record KpiAggMes(Integer anio, Integer mes, Long id, String nombre, String producto, String talla,
+    String color, Long unidades, BigDecimal ingresos) implements KpiAggCategoria, KpiAggProducto, KpiAggSku {
+
+  @Override public Integer getAnio() { return anio; }
+  @Override public Integer getMes() { return mes; }
+  @Override public Long getCategoriaId() { return id; }
+  @Override public String getCategoria() { return nombre; }
+  @Override public Long getProductoId() { return id; }
+  @Override public String getProducto() { return producto; }
+  @Override public Long getSkuId() { return id; }
+  @Override public String getSku() { return nombre; }
+  @Override public String getTalla() { return talla; }
+  @Override public String getColor() { return color; }
+  @Override public Long getUnidades() { return unidades; }
+  @Override public BigDecimal getIngresos() { return ingresos; }
+}
@@ -0,0 +1,9 @@
+package com.colors.savd.repository.projection;
+
+import java.time.LocalDateTime;
+
+public interface LineaVentaAfectada {
+    LocalDateTime getFechaHora();
+    Long getCanalId();
+    Long getSkuId();
+}
@@ -0,0 +1,11 @@
+package com.colors.savd.repository.projection;
+
+import java.math.BigDecimal;
+
+/** Fila del top de SKUs armada en memoria (cubo de ventas) */
+public record TopProductoFila(Long skuId, Long unidades, BigDecimal ingresos) implements TopProductoAgg {
+
+  @Override public Long getSkuId() { return skuId; }
+  @Override public Long getUnidades() { return unidades; }
+  @Override public BigDecimal getIngresos() { return ingresos; }
+}
@@ -0,0 +1,20 @@
+package com.colors.savd.service;
+
+import java.io.InputStream;
+
+import com.colors.savd.dto.ImportOpcionesDTO;
+import com.colors.savd.dto.ImportResultadoDTO;
+import com.colors.savd.model.enums.TipoCarga;
+
+public interface ImportacionInventarioService {
+    /**
+     * Importa movimientos de inventario (stock inicial o ingresos) desde XLSX/XLS/CSV (opcionalmente gzip).
+     * Columnas: SKU y Cantidad obligatorias; FechaHora, Referencia, Observacion y CanalCodigo (solo INGRESOS)
+     * opcionales. Los movimientos ya registrados (misma clave de idempotencia) se omiten.
+     * @param tipoCarga INICIAL o INGRESOS
+     * @param opciones soloValidar, modoLectura, observacionGeneral y permitirArchivoRepetido
+     * @return resumen de filas OK/ERROR y bitácora creada (null en soloValidar)
+     */
+    ImportResultadoDTO importarMovimientos(InputStream in, String nombreArchivo, Long usuarioId, TipoCarga tipoCarga,
+            ImportOpcionesDTO opciones);
+}
@@ -0,0 +1,16 @@
+package com.colors.savd.service;
+
+import java.io.InputStream;
+
+import com.colors.savd.dto.ImportOpcionesDTO;
+import com.colors.savd.dto.ImportResultadoDTO;
+
+public interface ImportacionParametrosService {
+    /**
+     * Crea o actualiza parámetros de reposición por SKU desde XLSX/XLS/CSV (opcionalmente gzip).
+     * Columnas obligatorias: SKU, MinStock, LeadTimeDias y StockSeguridad (enteros >= 0).
+     * @param opciones soloValidar, modoLectura y permitirArchivoRepetido
+     * @return resumen de filas OK/ERROR (con creados/actualizados en mensaje) y bitácora PARAMETROS
+     */
+    ImportResultadoDTO importarParametros(InputStream in, String nombreArchivo, Long usuarioId, ImportOpcionesDTO opciones);
+}
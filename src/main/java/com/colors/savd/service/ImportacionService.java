@@ -2,13 +2,15 @@ package com.colors.savd.service;
 
 import java.io.InputStream;
 
+import com.colors.savd.dto.ImportJobDTO;
+import com.colors.savd.dto.ImportLoteResultadoDTO;
 import com.colors.savd.dto.ImportOpcionesDTO;
 import com.colors.savd.dto.ImportResultadoDTO;
 
 public interface ImportacionService {
     /**
-     * Importa ventas desde un archivo Excel.
-     * @param in stream del archivo Excel
+     * Importa ventas desde un archivo Excel (XLSX/XLS) o CSV (opcionalmente gzip).
+     * @param in stream del archivo
      * @param nombreArchivo nombre recibido (para bitacora)
      * @param usuarioId quien ejecuta la importacion
      * @param opciones opciones de importacion (modo de temporada, temporada fija, observacion, etc.)
@@ -19,4 +21,30 @@ public interface ImportacionService {
     default ImportResultadoDTO importarVentasExcel(InputStream in, String nombreArchivo, Long usuarioId){
         return importarVentasExcel(in, nombreArchivo, usuarioId, new ImportOpcionesDTO());
     }
+
+    /**
+     * Importa un lote: cada hoja de un libro, o cada archivo (y hoja) de un ZIP, como una carga propia con su
+     * bitácora hija, en paralelo en un pool acotado. Las partes ya importadas (mismo contenido) se omiten y las
+     * interrumpidas se reanudan desde su checkpoint.
+     * @return resultado por parte y totales del lote
+     */
+    ImportLoteResultadoDTO importarVentasLote(InputStream in, String nombreArchivo, Long usuarioId, ImportOpcionesDTO opciones);
+
+    /**
+     * Encola la importación de ventas en el pool de importaciones y retorna de inmediato.
+     * El archivo se copia a disco antes de retornar; jobId = id de la bitácora creada (o reanudada).
+     * @return estado inicial del job (EN_COLA)
+     */
+    ImportJobDTO encolarVentasExcel(InputStream in, String nombreArchivo, Long usuarioId, ImportOpcionesDTO opciones);
+
+    /**
+     * Progreso de una importación: en vivo si el job corre en este servidor, si no desde la bitácora.
+     */
+    ImportJobDTO estadoImportacion(Long jobId);
+
+    /**
+     * Solicita la cancelación de un job en cola o en curso. Los tramos ya confirmados se conservan
+     * y la carga queda CANCELADA (reanudable).
+     */
+    ImportJobDTO cancelarImportacion(Long jobId);
 }
@@ -24,4 +24,6 @@ public interface ReporteService {
     List<KpiCategoriaDTO> kpiPorCategoria(LocalDateTime desde, LocalDateTime hasta, Long canalId, Long temporadaId, Long categoriaId, Long tallaId, Long colorId);
     List<KpiProductoDTO> kpiPorProducto(LocalDateTime desde, LocalDateTime hasta, Long canalId, Long temporadaId, Long categoriaId, Long tallaId, Long colorId);
     List<KpiSkuDTO> kpiPorSku(LocalDateTime desde, LocalDateTime hasta, Long canalId, Long temporadaId, Long categoriaId, Long tallaId, Long colorId);
+    // Resumen mensual de ventas (fuente de los KPI): recalcula todo; devuelve las filas generadas
+    int reconstruirResumenMensual();
 }
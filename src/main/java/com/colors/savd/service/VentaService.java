@@ -1,8 +1,16 @@
 package com.colors.savd.service;
 
+import com.colors.savd.dto.AnulacionMasivaDTO;
+import com.colors.savd.dto.AnulacionMasivaResultadoDTO;
 import com.colors.savd.dto.VentaManualDTO;
 
 public interface VentaService {
     Long registrarVentaManual(VentaManualDTO dto, Long usuarioId);
     void anularVenta(Long ventaId, Long usuarioId, String motivo);
+
+    /**
+     * Anula varias ventas con las mismas reglas que {@link #anularVenta}, escribiendo por JDBC en lotes
+     * (sin cargar ventas ni detalles como entidades). Todo o nada: una sola transacción.
+     */
+    AnulacionMasivaResultadoDTO anularVentas(AnulacionMasivaDTO dto, Long usuarioId);
 }
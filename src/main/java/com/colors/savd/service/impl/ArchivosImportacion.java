@@ -0,0 +1,236 @@
+package com.colors.savd.service.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.colors.savd.model.enums.ModoLectura;
+import com.colors.savd.util.FormatoArchivo;
+import com.colors.savd.util.LectorCsv;
+import com.colors.savd.util.LectorFilas;
+import com.colors.savd.util.LectorXlsxCompleto;
+import com.colors.savd.util.LectorXlsxStreaming;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Manejo del archivo subido, común a las importaciones (ventas, inventario): copia a disco con su
+ * SHA-256, apertura del lector de filas según el formato detectado y, para la importación por lote,
+ * separación de un libro de varias hojas o de un ZIP en partes independientes.
+ */
+@Slf4j
+final class ArchivosImportacion {
+
+  private ArchivosImportacion() {
+  }
+
+  /** Upload copiado a disco y su huella de contenido */
+  record ArchivoVolcado(Path ruta, String sha256) {
+  }
+
+  /**
+   * Hoja o archivo de un lote, importable por separado.
+   * @param hoja índice 0-based de la hoja dentro de {@code ruta} (0 para CSV)
+   * @param sha256 huella de la parte (para detectar re-subidas parte por parte)
+   * @param temporal la ruta se extrajo del ZIP y hay que borrarla al terminar
+   */
+  record Parte(Path ruta, String nombre, int hoja, String sha256, boolean temporal) {
+  }
+
+  /**
+   * El upload se copia a disco: POI lee por File sin duplicar el archivo en heap y conocemos su tamaño.
+   * El SHA-256 se calcula en la misma copia (sin releer el archivo).
+   */
+  static ArchivoVolcado volcarATemporal(InputStream in) throws IOException {
+    MessageDigest sha = sha256();
+    Path tmp = Files.createTempFile("savd-import-", ".tmp");
+    try (DigestInputStream din = new DigestInputStream(in, sha)) {
+      Files.copy(din, tmp, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      borrarTemporal(tmp);
+      throw e;
+    }
+    return new ArchivoVolcado(tmp, HexFormat.of().formatHex(sha.digest()));
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 no disponible", e);
+    }
+  }
+
+  static void borrarTemporal(Path archivo) {
+    if (archivo == null) return;
+    try {
+      Files.deleteIfExists(archivo);
+    } catch (IOException e) {
+      log.warn("No se pudo borrar temporal de importación {}: {}", archivo, e.getMessage());
+    }
+  }
+
+  /**
+   * Lector de filas para el formato detectado por contenido (o por nombre si es texto plano).
+   * @param modo estrategia para XLSX; null = AUTOMATICO (streaming desde {@code umbralStreamingBytes})
+   */
+  static LectorFilas abrirLector(Path archivo, String nombreArchivo, ModoLectura modo, long umbralStreamingBytes)
+      throws IOException {
+    return abrirLector(archivo, nombreArchivo, modo, umbralStreamingBytes, 0);
+  }
+
+  /** @param hoja índice 0-based de la hoja (libros); se ignora en CSV */
+  static LectorFilas abrirLector(Path archivo, String nombreArchivo, ModoLectura modo, long umbralStreamingBytes,
+      int hoja) throws IOException {
+    FormatoArchivo formato = FormatoArchivo.detectar(archivo.toFile(), nombreArchivo);
+    log.debug("Importación: formato {} ({} bytes)", formato, Files.size(archivo));
+    return switch (formato) {
+      case CSV -> new LectorCsv(archivo.toFile(), false);
+      case CSV_GZIP -> new LectorCsv(archivo.toFile(), true);
+      // El modo SAX solo aplica a XLSX (OOXML); un .xls siempre se lee completo
+      case XLS -> new LectorXlsxCompleto(archivo.toFile(), hoja);
+      case XLSX -> abrirLectorXlsx(archivo, modo, umbralStreamingBytes, hoja);
+      case ZIP -> throw new IllegalArgumentException(
+          "El archivo " + nombreArchivo + " es un ZIP; súbalo por la importación por lote.");
+    };
+  }
+
+  private static LectorFilas abrirLectorXlsx(Path archivo, ModoLectura modo, long umbralStreamingBytes, int hoja)
+      throws IOException {
+    if (modo == null || modo == ModoLectura.AUTOMATICO) {
+      modo = (Files.size(archivo) >= umbralStreamingBytes) ? ModoLectura.STREAMING : ModoLectura.COMPLETO;
+    }
+    log.debug("Importación: modo de lectura {}", modo);
+    return (modo == ModoLectura.STREAMING)
+        ? new LectorXlsxStreaming(archivo.toFile(), hoja)
+        : new LectorXlsxCompleto(archivo.toFile(), hoja);
+  }
+
+  /**
+   * Separa el upload de un lote en partes: cada hoja de un libro, o cada archivo (y cada hoja de cada libro)
+   * de un ZIP. Los archivos del ZIP se extraen a temporales propios ({@link Parte#temporal()}); si algo
+   * falla a mitad, se borran los ya extraídos.
+   * @param maxPartes tope de partes del lote
+   * @param maxBytesArchivo tope del tamaño descomprimido de cada archivo del ZIP
+   */
+  static List<Parte> separarPartes(ArchivoVolcado archivo, String nombreArchivo, int maxPartes,
+      long maxBytesArchivo) throws IOException {
+    List<Parte> partes = new ArrayList<>();
+    try {
+      if (FormatoArchivo.detectar(archivo.ruta().toFile(), nombreArchivo) == FormatoArchivo.ZIP) {
+        extraerZip(archivo.ruta(), maxPartes, maxBytesArchivo, partes);
+      } else {
+        agregarHojas(archivo.ruta(), nombreArchivo, archivo.sha256(), false, partes);
+      }
+      if (partes.size() > maxPartes) {
+        throw new IllegalArgumentException("El lote tiene " + partes.size() + " partes; el máximo es " + maxPartes + ".");
+      }
+      if (partes.isEmpty()) throw new IllegalArgumentException("El lote no contiene archivos para importar.");
+      return partes;
+    } catch (IOException | RuntimeException e) {
+      borrarPartes(partes);
+      throw e;
+    }
+  }
+
+  static void borrarPartes(List<Parte> partes) {
+    partes.stream().filter(Parte::temporal).map(Parte::ruta).distinct().forEach(ArchivosImportacion::borrarTemporal);
+  }
+
+  private static void extraerZip(Path zipPath, int maxPartes, long maxBytesArchivo, List<Parte> partes)
+      throws IOException {
+    try (ZipFile zip = new ZipFile(zipPath.toFile())) {
+      Enumeration<? extends ZipEntry> entradas = zip.entries();
+      while (entradas.hasMoreElements()) {
+        ZipEntry e = entradas.nextElement();
+        String nombre = e.getName();
+        String base = nombre.substring(nombre.lastIndexOf('/') + 1);
+        // Carpetas y metadatos de macOS / archivos ocultos no son datos
+        if (e.isDirectory() || nombre.startsWith("__MACOSX/") || base.isEmpty() || base.startsWith(".")) continue;
+        if (partes.size() >= maxPartes) {
+          throw new IllegalArgumentException("El ZIP tiene más de " + maxPartes + " archivos.");
+        }
+        ArchivoVolcado v;
+        try (InputStream in = new LimiteBytes(zip.getInputStream(e), maxBytesArchivo, nombre)) {
+          v = volcarATemporal(in);
+        }
+        try {
+          if (FormatoArchivo.detectar(v.ruta().toFile(), base) == FormatoArchivo.ZIP) {
+            throw new IllegalArgumentException("El ZIP contiene otro ZIP (" + nombre + "); no se admiten anidados.");
+          }
+          agregarHojas(v.ruta(), nombre, v.sha256(), true, partes);
+        } catch (IOException | RuntimeException ex) {
+          borrarTemporal(v.ruta()); // aún no está en partes
+          throw ex;
+        }
+      }
+    }
+  }
+
+  /** Una parte por hoja si es un libro con varias; si no, el archivo entero */
+  private static void agregarHojas(Path ruta, String nombre, String sha256, boolean temporal, List<Parte> partes)
+      throws IOException {
+    List<String> hojas = switch (FormatoArchivo.detectar(ruta.toFile(), nombre)) {
+      case XLSX -> LectorXlsxStreaming.nombresHojas(ruta.toFile());
+      case XLS -> LectorXlsxCompleto.nombresHojas(ruta.toFile());
+      default -> List.of();
+    };
+    if (hojas.size() <= 1) {
+      partes.add(new Parte(ruta, nombre, 0, sha256, temporal));
+      return;
+    }
+    for (int i = 0; i < hojas.size(); i++) {
+      partes.add(new Parte(ruta, nombre + " [" + hojas.get(i) + "]", i, huellaHoja(sha256, i), temporal));
+    }
+  }
+
+  /** Huella de una hoja: la del libro más su posición (la misma hoja en otro libro es otra carga) */
+  private static String huellaHoja(String sha256Libro, int hoja) {
+    return HexFormat.of().formatHex(sha256().digest((sha256Libro + "#" + hoja).getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /** Corta la extracción de un archivo del ZIP que descomprimido supera el tope (ZIP bomb) */
+  private static final class LimiteBytes extends FilterInputStream {
+    private final long max;
+    private final String nombre;
+    private long leidos = 0;
+
+    LimiteBytes(InputStream in, long max, String nombre) {
+      super(in);
+      this.max = max;
+      this.nombre = nombre;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) contar(1);
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+      int n = super.read(buf, off, len);
+      if (n > 0) contar(n);
+      return n;
+    }
+
+    private void contar(long n) throws IOException {
+      leidos += n;
+      if (leidos > max) throw new IOException("El archivo " + nombre + " del ZIP supera " + max + " bytes descomprimido.");
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.colors.savd.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.colors.savd.model.BitacoraCarga;
+import com.colors.savd.model.BitacoraError;
+import com.colors.savd.repository.CargaMasivaRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Errores de fila de una importación: se acumulan y se insertan en bitacora_error por lotes JDBC
+ * en vez de un save por fila. El log también se limita: por tipo de error (campo + excepción) solo
+ * se registran las primeras {@code trazasPorTipo} entradas y el resto se cuenta como suprimido.
+ * Sin bitácora (dry-run o reanudación con errores ya registrados) solo aplica el límite de log.
+ * Puede recibir errores desde varios hilos (validación paralela del dry-run).
+ */
+@Slf4j
+class BufferErroresImportacion {
+
+  static final String CAMPO_GENERAL = "GENERAL";
+  private static final int MAX_CAMPO = 80;
+  private static final int MAX_TEXTO = 255;
+
+  private final BitacoraCarga bitacora;
+  private final CargaMasivaRepository cargaMasivaRepo;
+  private final int tamanioLote;
+  private final int trazasPorTipo;
+
+  private final List<BitacoraError> pendientes = new ArrayList<>();
+  private final Map<String, AtomicInteger> registradosPorTipo = new ConcurrentHashMap<>();
+  private final Map<String, AtomicInteger> suprimidosPorTipo = new ConcurrentHashMap<>();
+  private int insertados = 0;
+
+  BufferErroresImportacion(BitacoraCarga bitacora, CargaMasivaRepository cargaMasivaRepo, int tamanioLote,
+      int trazasPorTipo) {
+    this.bitacora = bitacora;
+    this.cargaMasivaRepo = cargaMasivaRepo;
+    this.tamanioLote = Math.max(tamanioLote, 1);
+    this.trazasPorTipo = trazasPorTipo;
+  }
+
+  void registrar(int fila, Exception e) {
+    String campo = CAMPO_GENERAL;
+    String valor = null;
+    if (e instanceof CampoInvalidoException ci) {
+      campo = ci.getCampo();
+      valor = ci.getValorOriginal();
+    }
+    loguear(fila, campo, e);
+    if (bitacora == null) return;
+
+    BitacoraError be = new BitacoraError();
+    be.setBitacora(bitacora);
+    be.setFilaOrigen(fila);
+    be.setCampo(recortar(campo, MAX_CAMPO));
+    be.setMensajeError(recortar(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName(), MAX_TEXTO));
+    be.setValorOriginal(recortar(valor, MAX_TEXTO));
+    be.setFechaHoraRegistro(LocalDateTime.now());
+
+    List<BitacoraError> lote = null;
+    synchronized (pendientes) {
+      pendientes.add(be);
+      if (pendientes.size() >= tamanioLote) {
+        lote = new ArrayList<>(pendientes);
+        pendientes.clear();
+      }
+    }
+    if (lote != null) escribir(lote);
+  }
+
+  /** Inserta lo acumulado y resume en el log las entradas suprimidas. Se puede llamar más de una vez. */
+  void cerrar() {
+    List<BitacoraError> lote;
+    synchronized (pendientes) {
+      lote = new ArrayList<>(pendientes);
+      pendientes.clear();
+    }
+    if (!lote.isEmpty()) escribir(lote);
+
+    Map<String, Integer> suprimidos = suprimidos();
+    if (!suprimidos.isEmpty()) {
+      log.warn("Importación{}: errores de fila omitidos del log por tipo: {}",
+          bitacora != null ? " bitácora " + bitacora.getId() : "", suprimidos);
+    }
+  }
+
+  /** Entradas no logueadas por tipo (campo/excepción), en orden alfabético */
+  Map<String, Integer> suprimidos() {
+    Map<String, Integer> r = new TreeMap<>();
+    suprimidosPorTipo.forEach((tipo, n) -> r.put(tipo, n.get()));
+    return r;
+  }
+
+  int getInsertados() {
+    return insertados;
+  }
+
+  private void loguear(int fila, String campo, Exception e) {
+    String tipo = campo + "/" + e.getClass().getSimpleName();
+    int n = registradosPorTipo.computeIfAbsent(tipo, k -> new AtomicInteger()).incrementAndGet();
+    if (n <= trazasPorTipo) {
+      log.error("Error importando fila {}: {}", fila, e.getMessage(), e);
+      if (n == trazasPorTipo) log.info("Importación: se omiten del log los siguientes errores de tipo {}", tipo);
+    } else {
+      suprimidosPorTipo.computeIfAbsent(tipo, k -> new AtomicInteger()).incrementAndGet();
+    }
+  }
+
+  private synchronized void escribir(List<BitacoraError> lote) {
+    cargaMasivaRepo.insertarErrores(lote);
+    insertados += lote.size();
+  }
+
+  private static String recortar(String s, int max) {
+    return (s == null || s.length() <= max) ? s : s.substring(0, max);
+  }
+}
@@ -0,0 +1,30 @@
+package com.colors.savd.service.impl;
+
+/**
+ * Fila de importación rechazada por un campo concreto. Es un error esperado del archivo, no del sistema:
+ * no captura stack trace (miles de filas malas no deben costar miles de trazas).
+ */
+class CampoInvalidoException extends IllegalArgumentException {
+
+  private final String campo;
+  private final String valorOriginal;
+
+  CampoInvalidoException(String campo, String valorOriginal, String mensaje) {
+    super(mensaje);
+    this.campo = campo;
+    this.valorOriginal = valorOriginal;
+  }
+
+  String getCampo() {
+    return campo;
+  }
+
+  String getValorOriginal() {
+    return valorOriginal;
+  }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return this;
+  }
+}
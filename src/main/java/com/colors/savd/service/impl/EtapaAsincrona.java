@@ -0,0 +1,154 @@
+package com.colors.savd.service.impl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Etapa productora del pipeline de importación: el productor corre en un hilo del executor y entrega sus
+ * elementos por una cola acotada; el hilo de la carga los consume como un {@link Iterator}. Con la cola
+ * llena el productor espera (backpressure), así la memoria queda limitada a la capacidad de la cola.
+ * <p>
+ * Un error del productor se relanza en el consumidor al llegar a ese punto de la cola. {@link #close()}
+ * detiene el productor (en su siguiente entrega) y espera a que termine: después es seguro cerrar lo
+ * que el productor estaba leyendo.
+ */
+final class EtapaAsincrona<T> implements Iterator<T>, AutoCloseable {
+
+  @FunctionalInterface
+  interface Productor<T> {
+    void producir(Salida<T> salida) throws Exception;
+  }
+
+  @FunctionalInterface
+  interface Salida<T> {
+    /** @param peso unidades que representa el elemento en las métricas (p. ej. filas de un paquete) */
+    void emitir(T elemento, int peso);
+  }
+
+  private record Paquete(Object elemento, int peso) {
+  }
+
+  private static final Paquete FIN = new Paquete(null, 0);
+  private static final long ESPERA_MAX_MS = 100; // cada cuánto revisa el productor si la etapa se cerró
+
+  private final BlockingQueue<Paquete> cola;
+  private final MetricasEtapa productor;
+  private final MetricasEtapa consumidor;
+  private final CountDownLatch terminado = new CountDownLatch(1);
+  private volatile boolean cerrado = false;
+  private volatile Throwable error;
+
+  // Solo el hilo consumidor
+  private Paquete siguiente;
+  private boolean agotado = false;
+
+  private EtapaAsincrona(int capacidad, MetricasEtapa productor, MetricasEtapa consumidor) {
+    this.cola = new ArrayBlockingQueue<>(Math.max(1, capacidad));
+    this.productor = productor;
+    this.consumidor = consumidor;
+  }
+
+  /**
+   * Arranca el productor en el executor.
+   * @throws java.util.concurrent.RejectedExecutionException si el executor no tiene hilo libre
+   */
+  static <T> EtapaAsincrona<T> iniciar(Executor executor, int capacidad, MetricasEtapa productor,
+      MetricasEtapa consumidor, Productor<T> p) {
+    EtapaAsincrona<T> etapa = new EtapaAsincrona<>(capacidad, productor, consumidor);
+    executor.execute(() -> etapa.correr(p));
+    consumidor.iniciar();
+    return etapa;
+  }
+
+  private void correr(Productor<T> p) {
+    productor.iniciar();
+    try {
+      p.producir(this::emitir);
+    } catch (Throwable t) {
+      if (!cerrado) error = t;
+    } finally {
+      productor.terminar();
+      poner(FIN);
+      terminado.countDown();
+    }
+  }
+
+  private void emitir(T elemento, int peso) {
+    long t0 = System.nanoTime();
+    if (!poner(new Paquete(elemento, peso))) throw new CancellationException("Etapa de importación cerrada.");
+    productor.esperado(System.nanoTime() - t0);
+    productor.sumar(peso);
+  }
+
+  /** false si la etapa se cerró antes de que hubiera lugar en la cola */
+  private boolean poner(Paquete p) {
+    try {
+      while (!cerrado) {
+        if (cola.offer(p, ESPERA_MAX_MS, TimeUnit.MILLISECONDS)) return true;
+      }
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (siguiente != null) return true;
+    if (agotado) return false;
+    long t0 = System.nanoTime();
+    Paquete p;
+    try {
+      p = cola.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Importación interrumpida.");
+    }
+    consumidor.esperado(System.nanoTime() - t0);
+    if (p == FIN) {
+      agotado = true;
+      consumidor.terminar();
+      relanzarError();
+      return false;
+    }
+    siguiente = p;
+    return true;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    Paquete p = siguiente;
+    siguiente = null;
+    consumidor.sumar(p.peso());
+    return (T) p.elemento();
+  }
+
+  private void relanzarError() {
+    Throwable t = error;
+    if (t == null) return;
+    if (t instanceof RuntimeException re) throw re;
+    if (t instanceof Error e) throw e;
+    throw new IllegalStateException(t.getMessage(), t);
+  }
+
+  @Override
+  public void close() {
+    cerrado = true;
+    cola.clear();
+    try {
+      terminado.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    consumidor.terminar();
+  }
+}
@@ -0,0 +1,31 @@
+package com.colors.savd.service.impl;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Fila de ventas con formato válido (1ª pasada); SKU y canal aún como códigos del archivo.
+ * canalCodigo ya viene en mayúsculas.
+ */
+record FilaLeida(int filaExcel, LocalDateTime fechaHora, String canalCodigo, String referencia,
+    String skuStr, int cantidad, BigDecimal precioUnit, BigDecimal precioLista) {
+
+  /** Orden de agrupación: por cabecera (fecha, canal, referencia; sin referencia primero) y luego por fila */
+  static final Comparator<FilaLeida> ORDEN_CABECERA = Comparator
+      .comparing(FilaLeida::fechaHora)
+      .thenComparing(FilaLeida::canalCodigo)
+      .thenComparing(FilaLeida::referencia, Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparingInt(FilaLeida::filaExcel);
+
+  /** Misma cabecera que otra fila (mismo criterio que CabKey, con el canal aún como código) */
+  boolean mismaCabecera(FilaLeida o) {
+    return fechaHora.equals(o.fechaHora) && canalCodigo.equals(o.canalCodigo)
+        && (referencia == null ? o.referencia == null : referencia.equals(o.referencia));
+  }
+
+  /** Tamaño aproximado en heap, para el presupuesto de memoria del ordenamiento */
+  long bytesEstimados() {
+    return 200L + 2L * (canalCodigo.length() + skuStr.length() + (referencia != null ? referencia.length() : 0));
+  }
+}
@@ -0,0 +1,76 @@
+package com.colors.savd.service.impl;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.colors.savd.cache.IndiceSkus;
+import com.colors.savd.util.ExcelUtil;
+
+/**
+ * Identificación de la variante en las importaciones: por la columna SKU o, si el archivo no la trae (o la
+ * celda está vacía), por Producto + Talla + Color resueltos en memoria con {@link IndiceSkus}. En ambos casos
+ * el resultado es el código SKU, así el resto de la carga (resolución en bloque, validación) no cambia.
+ */
+final class IdentificacionSku {
+
+  static final String COLUMNAS = "SKU (o Producto, Talla y Color)";
+
+  private IdentificacionSku() {
+  }
+
+  /** Claves obligatorias para detectar el encabezado: las de la carga sin SKU (se verifica aparte) */
+  static Set<String> sinSku(Set<String> requiredKeys) {
+    Set<String> r = new LinkedHashSet<>(requiredKeys);
+    r.remove("SKU");
+    return r;
+  }
+
+  /** Claves para el mensaje de encabezado no encontrado */
+  static Set<String> paraMensaje(Set<String> requiredKeys) {
+    Set<String> r = new LinkedHashSet<>();
+    requiredKeys.forEach(k -> r.add("SKU".equals(k) ? COLUMNAS : k));
+    return r;
+  }
+
+  /** Encabezado detectado si también identifica la variante; null para seguir buscando */
+  static ExcelUtil.HeaderMapping validar(ExcelUtil.HeaderMapping hm) {
+    return (hm != null && ExcelUtil.identificaSku(hm)) ? hm : null;
+  }
+
+  /** @throws CampoInvalidoException si la fila no identifica una variante existente */
+  static String leer(ExcelUtil excelUtil, IndiceSkus indice, ExcelUtil.HeaderMapping hm, String[] celdas) {
+    String sku = texto(excelUtil, hm, "SKU", celdas);
+    if (StringUtils.isNotBlank(sku)) return sku.trim();
+    if (hm.col("Producto") == null) throw faltante("SKU");
+
+    String producto = texto(excelUtil, hm, "Producto", celdas);
+    String talla = texto(excelUtil, hm, "Talla", celdas);
+    String color = texto(excelUtil, hm, "Color", celdas);
+    if (StringUtils.isBlank(producto)) throw faltante("Producto");
+    if (StringUtils.isBlank(talla)) throw faltante("Talla");
+    if (StringUtils.isBlank(color)) throw faltante("Color");
+
+    IndiceSkus.Resolucion r = indice.resolver(producto, talla, color);
+    if (!r.encontrada()) {
+      String valor = switch (r.campo()) {
+        case "Talla" -> talla;
+        case "Color" -> color;
+        default -> producto;
+      };
+      throw new CampoInvalidoException(r.campo(), valor, r.error());
+    }
+    return r.sku();
+  }
+
+  private static String texto(ExcelUtil excelUtil, ExcelUtil.HeaderMapping hm, String clave, String[] celdas) {
+    Integer col = hm.col(clave);
+    if (celdas == null || col == null || col >= celdas.length) return null;
+    return excelUtil.leerString(celdas[col]);
+  }
+
+  private static CampoInvalidoException faltante(String campo) {
+    return new CampoInvalidoException(campo, null, "Datos obligatorios faltantes o inválidos: " + campo + ".");
+  }
+}
@@ -0,0 +1,408 @@
+package com.colors.savd.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.colors.savd.cache.CambioDatosReporte;
+import com.colors.savd.cache.IndiceSkus;
+import com.colors.savd.dto.ImportOpcionesDTO;
+import com.colors.savd.dto.ImportResultadoDTO;
+import com.colors.savd.exception.BusinessException;
+import com.colors.savd.model.BitacoraCarga;
+import com.colors.savd.model.CanalVenta;
+import com.colors.savd.model.KardexMovimiento;
+import com.colors.savd.model.TipoMovimiento;
+import com.colors.savd.model.Usuario;
+import com.colors.savd.model.VarianteSku;
+import com.colors.savd.model.enums.EstadoCarga;
+import com.colors.savd.model.enums.TipoCarga;
+import com.colors.savd.repository.BitacoraCargaRepository;
+import com.colors.savd.repository.CanalVentaRepository;
+import com.colors.savd.repository.CargaMasivaRepository;
+import com.colors.savd.repository.KardexRepository;
+import com.colors.savd.repository.TipoMovimientoRepository;
+import com.colors.savd.repository.UsuarioRepository;
+import com.colors.savd.repository.VarianteSkuRepository;
+import com.colors.savd.service.ImportacionInventarioService;
+import com.colors.savd.service.impl.ArchivosImportacion.ArchivoVolcado;
+import com.colors.savd.util.ExcelUtil;
+import com.colors.savd.util.LectorFilas;
+import com.colors.savd.util.PerfilColumnas;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Importación masiva de movimientos de inventario (INICIAL / INGRESOS). El archivo se recorre una vez y
+ * las filas se procesan por bloques de {@code savd.importacion.batch-size}: por bloque se resuelven los
+ * SKU nuevos con una consulta IN, se consultan juntas las claves de idempotencia y los movimientos se
+ * escriben por JDBC batch en su propia transacción. Una carga interrumpida se puede volver a subir:
+ * los movimientos ya escritos se omiten por su clave de idempotencia. Las filas sin FechaHora toman la
+ * hora de la corrida como fecha del movimiento, pero su clave sale de la huella del archivo y el número
+ * de fila, que no cambian entre subidas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportacionInventarioServiceImpl implements ImportacionInventarioService {
+
+  private final BitacoraCargaRepository bitacoraRepo;
+  private final VarianteSkuRepository skuRepo;
+  private final CanalVentaRepository canalRepo;
+  private final TipoMovimientoRepository tipoMovRepo;
+  private final UsuarioRepository usuarioRepo;
+  private final KardexRepository kardexRepo;
+  private final CargaMasivaRepository cargaMasivaRepo;
+  private final ExcelUtil excelUtil;
+  private final TransactionTemplate txTemplate;
+  private final ApplicationEventPublisher publisher;
+  private final IndiceSkus indiceSkus;
+
+  /** Cargas que hacen innecesario reprocesar un archivo idéntico (una INTERRUMPIDA se puede repetir) */
+  private static final List<EstadoCarga> ESTADOS_ARCHIVO_REPETIDO = List.of(EstadoCarga.COMPLETADA,
+      EstadoCarga.EN_PROCESO);
+
+  /** Filas superiores donde se busca el encabezado */
+  private static final int MAX_FILAS_ENCABEZADO = 50;
+
+  private static final int MAX_REFERENCIA = 160;
+  private static final int MAX_OBSERVACION = 255;
+
+  @Value("${savd.importacion.streaming-umbral-bytes:5242880}")
+  private long umbralStreamingBytes;
+
+  /** Filas por bloque: resolución de SKU, consulta de idempotencia y lote JDBC */
+  @Value("${savd.importacion.batch-size:500}")
+  private int tamanioLote;
+
+  @Value("${savd.importacion.errores.trazas-por-tipo:5}")
+  private int trazasPorTipo;
+
+  /** Fila con formato válido, pendiente de resolver contra catálogo con su bloque; fechaHora null = sin FechaHora */
+  private record MovimientoLeido(int fila, String skuStr, int cantidad, LocalDateTime fechaHora,
+      String referencia, String observacion, String canalCodigo) {
+  }
+
+  /** Estado de una corrida */
+  private static class Corrida {
+    final TipoCarga tipoCarga;
+    final BitacoraCarga bit; // null = soloValidar
+    final String hashArchivo; // sha256 del archivo: clave de las filas sin FechaHora
+    final LocalDateTime inicio = LocalDateTime.now().withNano(0); // fecha de las filas sin FechaHora
+    final List<MovimientoLeido> bloque = new ArrayList<>();
+    // Catálogo resuelto hasta ahora, clave en mayúsculas; valor null = código inexistente
+    final Map<String, VarianteSku> skus = new HashMap<>();
+    final Map<String, CanalVenta> canales = new HashMap<>();
+    final Set<String> clavesArchivo = new HashSet<>(); // claves de idempotencia ya vistas en el archivo
+    final List<String> erroresMuestra = new ArrayList<>();
+    final PerfilColumnas perfil = new PerfilColumnas();
+    ExcelUtil.HeaderMapping hm;
+    TipoMovimiento tipo;
+    Usuario usuario;
+    String observacionBase;
+    BufferErroresImportacion bufferErrores;
+    final CambioDatosReporte.Acumulador cambios = new CambioDatosReporte.Acumulador(); // lo ya escrito
+    int ok = 0, err = 0, yaRegistrados = 0;
+
+    Corrida(TipoCarga tipoCarga, BitacoraCarga bit, String hashArchivo) {
+      this.tipoCarga = tipoCarga;
+      this.bit = bit;
+      this.hashArchivo = hashArchivo;
+    }
+
+    /** Código del tipo de movimiento, el mismo que usa el alta individual (InventarioServiceImpl) */
+    String codigoMovimiento() {
+      return tipoCarga == TipoCarga.INICIAL ? "INICIAL" : "INGRESO";
+    }
+  }
+
+  @Override
+  public ImportResultadoDTO importarMovimientos(InputStream in, String nombreArchivo, Long usuarioId,
+      TipoCarga tipoCarga, ImportOpcionesDTO opciones) {
+    if (tipoCarga != TipoCarga.INICIAL && tipoCarga != TipoCarga.INGRESOS) {
+      throw new BusinessException("Tipo de carga de inventario no soportado: " + tipoCarga);
+    }
+    final boolean isDryRun = (opciones != null && opciones.isSoloValidar());
+
+    Path archivo = null;
+    try {
+      ArchivoVolcado volcado = ArchivosImportacion.volcarATemporal(in);
+      archivo = volcado.ruta();
+      if (!isDryRun && (opciones == null || !opciones.isPermitirArchivoRepetido())) {
+        Optional<BitacoraCarga> previa = bitacoraRepo.findFirstByHashArchivoAndTipoCargaAndEstadoInOrderByIdDesc(
+            volcado.sha256(), tipoCarga, ESTADOS_ARCHIVO_REPETIDO);
+        if (previa.isPresent()) return resultadoArchivoRepetido(previa.get());
+      }
+
+      Corrida c = new Corrida(tipoCarga, isDryRun ? null : crearBitacora(nombreArchivo, usuarioId, tipoCarga,
+          volcado.sha256()), volcado.sha256());
+      c.tipo = tipoMovRepo.findByCodigo(c.codigoMovimiento())
+          .orElseThrow(() -> new BusinessException("TipoMovimiento '" + c.codigoMovimiento() + "' no configurado"));
+      c.usuario = (c.bit != null) ? c.bit.getUsuario() : null;
+      c.observacionBase = (opciones != null && StringUtils.isNotBlank(opciones.getObservacionGeneral()))
+          ? opciones.getObservacionGeneral().trim()
+          : (tipoCarga == TipoCarga.INICIAL ? "Stock inicial" : "Ingreso de inventario");
+      c.bufferErrores = new BufferErroresImportacion(c.bit, cargaMasivaRepo, tamanioLote, trazasPorTipo);
+      return procesar(archivo, nombreArchivo, opciones, c);
+    } catch (IOException e) {
+      throw new RuntimeException("Error leyendo archivo: " + e.getMessage(), e);
+    } finally {
+      ArchivosImportacion.borrarTemporal(archivo);
+    }
+  }
+
+  private ImportResultadoDTO procesar(Path archivo, String nombreArchivo, ImportOpcionesDTO opciones, Corrida c) {
+    try {
+      leerArchivo(archivo, nombreArchivo, opciones, c);
+      c.bufferErrores.cerrar();
+    } catch (RuntimeException e) {
+      try {
+        c.bufferErrores.cerrar();
+      } catch (RuntimeException ex) {
+        log.warn("No se pudieron registrar los errores pendientes de la importación: {}", ex.getMessage());
+      }
+      if (c.bit != null) cerrarBitacora(c, EstadoCarga.INTERRUMPIDA);
+      publicarCambios(c);
+      throw e;
+    }
+    if (c.bit != null) cerrarBitacora(c, EstadoCarga.COMPLETADA);
+    publicarCambios(c);
+    log.info("Importación de inventario {} ({}): {} ok, {} con error, {} ya registrados", c.tipoCarga,
+        c.bit != null ? c.bit.getId() : "soloValidar", c.ok, c.err, c.yaRegistrados);
+
+    return ImportResultadoDTO.builder()
+        .bitacoraId(c.bit != null ? c.bit.getId() : null)
+        .filasOk(c.ok)
+        .filasError(c.err)
+        .erroresMuestra(c.erroresMuestra)
+        .mensaje(c.yaRegistrados > 0
+            ? c.yaRegistrados + " movimientos ya estaban registrados y se omitieron." : null)
+        .build();
+  }
+
+  private void leerArchivo(Path archivo, String nombreArchivo, ImportOpcionesDTO opciones, Corrida c) {
+    Set<String> requiredKeys = new LinkedHashSet<>(List.of("SKU", "Cantidad"));
+    Set<String> clavesEncabezado = IdentificacionSku.sinSku(requiredKeys);
+    Set<String> clavesMensaje = IdentificacionSku.paraMensaje(requiredKeys);
+    Map<String, List<String>> aliases = ExcelUtil.inventarioAliases();
+    try (LectorFilas lector = ArchivosImportacion.abrirLector(archivo, nombreArchivo,
+        opciones != null ? opciones.getModoLectura() : null, umbralStreamingBytes)) {
+      lector.recorrer((i, celdas, crudos) -> {
+        if (c.hm == null) {
+          if (i > MAX_FILAS_ENCABEZADO) throw excelUtil.encabezadosNoEncontrados(clavesMensaje);
+          c.hm = IdentificacionSku.validar(excelUtil.detectarEncabezados(i, celdas, aliases, clavesEncabezado));
+          return;
+        }
+        leerFila(c, i, celdas, crudos);
+        if (c.bloque.size() >= tamanioLote) procesarBloque(c);
+      });
+      if (c.hm == null) throw excelUtil.encabezadosNoEncontrados(clavesMensaje);
+      procesarBloque(c);
+    } catch (BusinessException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Error leyendo archivo: " + e.getMessage(), e);
+    }
+  }
+
+  /** Formato de una fila; SKU y canal quedan como códigos hasta procesar el bloque. Cantidad y fecha, de su valor crudo */
+  private void leerFila(Corrida c, int i, String[] celdas, String[] crudos) {
+    ExcelUtil.HeaderMapping hm = c.hm;
+    try {
+      String skuStr = IdentificacionSku.leer(excelUtil, indiceSkus, hm, celdas);
+
+      String cantidadTxt = celda(crudos, hm.col("Cantidad"));
+      Integer cantidad = c.perfil.entero(hm.col("Cantidad"), cantidadTxt);
+      if (cantidad == null || cantidad <= 0) throw campoInvalido("Cantidad", cantidadTxt);
+
+      LocalDateTime fechaHora = null;
+      String fechaTxt = celda(crudos, hm.col("FechaHora"));
+      if (StringUtils.isNotBlank(fechaTxt)) {
+        fechaHora = c.perfil.fechaHora(hm.col("FechaHora"), fechaTxt);
+        if (fechaHora == null) throw campoInvalido("FechaHora", fechaTxt);
+        fechaHora = fechaHora.withNano(0);
+      }
+
+      String referencia = StringUtils.trimToNull(excelUtil.leerString(celda(celdas, hm.col("Referencia"))));
+      if (referencia != null && referencia.length() > MAX_REFERENCIA) throw campoInvalido("Referencia", referencia);
+      String observacion = StringUtils.trimToNull(excelUtil.leerString(celda(celdas, hm.col("Observacion"))));
+      // El canal solo aplica a ingresos (igual que en el alta individual)
+      String canalCodigo = (c.tipoCarga == TipoCarga.INGRESOS)
+          ? StringUtils.trimToNull(excelUtil.leerString(celda(celdas, hm.col("CanalCodigo")))) : null;
+
+      c.bloque.add(new MovimientoLeido(i + 1, skuStr, cantidad, fechaHora, referencia, observacion,
+          canalCodigo != null ? canalCodigo.toUpperCase(Locale.ROOT) : null));
+    } catch (Exception e) {
+      registrarError(c, i + 1, e);
+    }
+  }
+
+  /**
+   * Resuelve contra catálogo las filas del bloque, descarta las ya registradas (una consulta de claves por
+   * bloque) y escribe el resto en un lote JDBC con su propia transacción.
+   */
+  private void procesarBloque(Corrida c) {
+    if (c.bloque.isEmpty()) return;
+    resolverCatalogo(c);
+
+    Map<String, MovimientoLeido> porClave = new HashMap<>();
+    List<KardexMovimiento> movimientos = new ArrayList<>(c.bloque.size());
+    for (MovimientoLeido m : c.bloque) {
+      try {
+        VarianteSku sku = c.skus.get(m.skuStr().toUpperCase(Locale.ROOT));
+        if (sku == null) throw new CampoInvalidoException("SKU", m.skuStr(), "SKU no encontrado: " + m.skuStr());
+        CanalVenta canal = null;
+        if (m.canalCodigo() != null) {
+          canal = c.canales.get(m.canalCodigo());
+          if (canal == null) {
+            throw new CampoInvalidoException("CanalCodigo", m.canalCodigo(), "Canal no configurado: " + m.canalCodigo());
+          }
+        }
+        LocalDateTime fechaHora = (m.fechaHora() != null) ? m.fechaHora() : c.inicio;
+        String claveContenido = InventarioServiceImpl.generarIdemKey(sku.getId(), fechaHora, c.codigoMovimiento(),
+            m.referencia());
+        if (!c.clavesArchivo.add(claveContenido)) {
+          throw new CampoInvalidoException("SKU", m.skuStr(),
+              "Movimiento repetido en el archivo (mismo SKU, fecha y referencia).");
+        }
+        // Sin FechaHora la fecha cambia en cada subida: la clave no puede depender de ella
+        String clave = (m.fechaHora() != null) ? claveContenido : claveFilaSinFecha(c, m.fila(), sku.getId());
+
+        KardexMovimiento k = new KardexMovimiento();
+        k.setFechaHora(fechaHora);
+        k.setTipo(c.tipo);
+        k.setSku(sku);
+        k.setCantidad(m.cantidad());
+        k.setSigno(+1); // stock inicial e ingresos suman
+        k.setCanal(canal);
+        k.setReferencia(m.referencia());
+        k.setObservacion(StringUtils.left(StringUtils.defaultIfBlank(m.observacion(), c.observacionBase), MAX_OBSERVACION));
+        k.setUsuario(c.usuario);
+        k.setCreatedAt(LocalDateTime.now());
+        k.setIdempotencyKey(clave);
+        movimientos.add(k);
+        porClave.put(clave, m);
+      } catch (Exception e) {
+        registrarError(c, m.fila(), e);
+      }
+    }
+    c.bloque.clear();
+    if (movimientos.isEmpty()) return;
+
+    // Movimientos ya registrados (carga anterior interrumpida o alta individual): se omiten
+    Set<String> existentes = new HashSet<>(kardexRepo.idempotencyKeysExistentes(porClave.keySet()));
+    if (!existentes.isEmpty()) {
+      movimientos.removeIf(k -> existentes.contains(k.getIdempotencyKey()));
+      c.yaRegistrados += existentes.size();
+    }
+    c.ok += movimientos.size() + existentes.size();
+    if (c.bit == null || movimientos.isEmpty()) return;
+
+    txTemplate.executeWithoutResult(status -> cargaMasivaRepo.insertarKardex(movimientos));
+    movimientos.forEach(k -> c.cambios.registrar(k.getFechaHora(), null, k.getSku().getId()));
+  }
+
+  /** El stock cambió: solo las alertas con corte posterior a lo cargado quedan viejas */
+  private void publicarCambios(Corrida c) {
+    if (!c.cambios.isVacio()) publisher.publishEvent(c.cambios.stock());
+  }
+
+  /** Solo consulta los códigos que aún no se conocen; las claves quedan en mayúsculas como en ventas */
+  private void resolverCatalogo(Corrida c) {
+    Set<String> skusNuevos = new HashSet<>();
+    Set<String> canalesNuevos = new HashSet<>();
+    for (MovimientoLeido m : c.bloque) {
+      String sku = m.skuStr().toUpperCase(Locale.ROOT);
+      if (!c.skus.containsKey(sku)) skusNuevos.add(sku);
+      if (m.canalCodigo() != null && !c.canales.containsKey(m.canalCodigo())) canalesNuevos.add(m.canalCodigo());
+    }
+    if (!skusNuevos.isEmpty()) {
+      skusNuevos.forEach(s -> c.skus.put(s, null));
+      skuRepo.findBySkuIn(skusNuevos).forEach(v -> c.skus.put(v.getSku().toUpperCase(Locale.ROOT), v));
+    }
+    if (!canalesNuevos.isEmpty()) {
+      canalesNuevos.forEach(cc -> c.canales.put(cc, null));
+      canalRepo.findByCodigoIn(canalesNuevos).forEach(cv -> c.canales.put(cv.getCodigo().toUpperCase(Locale.ROOT), cv));
+    }
+  }
+
+  private void registrarError(Corrida c, int fila, Exception e) {
+    c.err++;
+    if (c.erroresMuestra.size() < ProgresoImportacion.MAX_ERRORES_MUESTRA) {
+      c.erroresMuestra.add("Fila " + fila + ": " + e.getMessage());
+    }
+    c.bufferErrores.registrar(fila, e);
+  }
+
+  private BitacoraCarga crearBitacora(String nombreArchivo, Long usuarioId, TipoCarga tipoCarga, String sha256) {
+    BitacoraCarga bit = new BitacoraCarga();
+    bit.setFechaHora(LocalDateTime.now());
+    bit.setUsuario(usuarioRepo.findById(usuarioId)
+        .orElseThrow(() -> new BusinessException("Usuario no encontrado id=" + usuarioId)));
+    bit.setTipoCarga(tipoCarga);
+    bit.setArchivoNombre(nombreArchivo);
+    bit.setHashArchivo(sha256);
+    bit.setFilasOk(0);
+    bit.setFilasError(0);
+    bit.setEstado(EstadoCarga.EN_PROCESO);
+    bit.setGruposConfirmados(0);
+    return bitacoraRepo.save(bit);
+  }
+
+  private void cerrarBitacora(Corrida c, EstadoCarga estado) {
+    c.bit.setFilasOk(c.ok);
+    c.bit.setFilasError(c.err);
+    c.bit.setEstado(estado);
+    bitacoraRepo.save(c.bit);
+  }
+
+  private ImportResultadoDTO resultadoArchivoRepetido(BitacoraCarga previa) {
+    log.info("Importación de inventario omitida: archivo idéntico a la carga {} ({})", previa.getId(), previa.getEstado());
+    String mensaje = (previa.getEstado() == EstadoCarga.EN_PROCESO)
+        ? "Archivo idéntico a la carga " + previa.getId() + ", aún en curso."
+        : "Archivo idéntico ya importado en la carga " + previa.getId()
+            + " (permitirArchivoRepetido=true para procesarlo de nuevo).";
+    return ImportResultadoDTO.builder()
+        .bitacoraId(previa.getId())
+        .filasOk(previa.getFilasOk())
+        .filasError(previa.getFilasError())
+        .erroresMuestra(List.of())
+        .duplicadoDeBitacoraId(previa.getId())
+        .mensaje(mensaje)
+        .build();
+  }
+
+  /** Clave estable entre subidas del mismo archivo: huella, fila, SKU y tipo de movimiento */
+  private static String claveFilaSinFecha(Corrida c, int fila, Long skuId) {
+    String base = "archivo|" + c.hashArchivo + "|" + fila + "|" + skuId + "|" + c.codigoMovimiento();
+    return UUID.nameUUIDFromBytes(base.getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
+  private static String celda(String[] celdas, Integer colIndex) {
+    if (celdas == null || colIndex == null || colIndex >= celdas.length) return null;
+    return celdas[colIndex];
+  }
+
+  private static CampoInvalidoException campoInvalido(String campo, String valorOriginal) {
+    return new CampoInvalidoException(campo, valorOriginal, "Datos obligatorios faltantes o inválidos: " + campo + ".");
+  }
+}
@@ -0,0 +1,310 @@
+package com.colors.savd.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.colors.savd.cache.CambioDatosReporte;
+import com.colors.savd.dto.ImportOpcionesDTO;
+import com.colors.savd.dto.ImportResultadoDTO;
+import com.colors.savd.exception.BusinessException;
+import com.colors.savd.model.BitacoraCarga;
+import com.colors.savd.model.ParametroReposicion;
+import com.colors.savd.model.VarianteSku;
+import com.colors.savd.model.enums.EstadoCarga;
+import com.colors.savd.model.enums.TipoCarga;
+import com.colors.savd.repository.BitacoraCargaRepository;
+import com.colors.savd.repository.CargaMasivaRepository;
+import com.colors.savd.repository.ParametroReposicionRepository;
+import com.colors.savd.repository.UsuarioRepository;
+import com.colors.savd.repository.VarianteSkuRepository;
+import com.colors.savd.service.ImportacionParametrosService;
+import com.colors.savd.service.impl.ArchivosImportacion.ArchivoVolcado;
+import com.colors.savd.util.ExcelUtil;
+import com.colors.savd.util.LectorFilas;
+import com.colors.savd.util.PerfilColumnas;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Importación masiva de parámetros de reposición (TipoCarga.PARAMETROS). Igual que la de inventario, el
+ * archivo se recorre una vez y las filas se procesan por bloques de {@code savd.importacion.batch-size}:
+ * una consulta IN para los SKU nuevos, una para saber cuáles ya tienen parámetro (solo para informar
+ * creados/actualizados) y un lote de INSERT ... ON DUPLICATE KEY UPDATE por bloque y transacción.
+ * Repetir el archivo deja el mismo resultado, así que una carga interrumpida se puede volver a subir.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportacionParametrosServiceImpl implements ImportacionParametrosService {
+
+  private final BitacoraCargaRepository bitacoraRepo;
+  private final VarianteSkuRepository skuRepo;
+  private final ParametroReposicionRepository parametroRepo;
+  private final UsuarioRepository usuarioRepo;
+  private final CargaMasivaRepository cargaMasivaRepo;
+  private final ExcelUtil excelUtil;
+  private final ApplicationEventPublisher publisher;
+  private final TransactionTemplate txTemplate;
+
+  private static final List<EstadoCarga> ESTADOS_ARCHIVO_REPETIDO = List.of(EstadoCarga.COMPLETADA,
+      EstadoCarga.EN_PROCESO);
+
+  private static final int MAX_FILAS_ENCABEZADO = 50;
+
+  private static final List<String> COLUMNAS_VALOR = List.of("MinStock", "LeadTimeDias", "StockSeguridad");
+
+  @Value("${savd.importacion.streaming-umbral-bytes:5242880}")
+  private long umbralStreamingBytes;
+
+  @Value("${savd.importacion.batch-size:500}")
+  private int tamanioLote;
+
+  @Value("${savd.importacion.errores.trazas-por-tipo:5}")
+  private int trazasPorTipo;
+
+  /** Fila con formato válido; el SKU aún como código del archivo */
+  private record ParametroLeido(int fila, String skuStr, int minStock, int leadTimeDias, int stockSeguridad) {
+  }
+
+  private static class Corrida {
+    final BitacoraCarga bit; // null = soloValidar
+    final List<ParametroLeido> bloque = new ArrayList<>();
+    final Map<String, VarianteSku> skus = new HashMap<>(); // clave en mayúsculas; null = no existe
+    final Set<Long> skusEnArchivo = new HashSet<>(); // un SKU repetido en el archivo es ambiguo
+    final List<String> erroresMuestra = new ArrayList<>();
+    final PerfilColumnas perfil = new PerfilColumnas();
+    ExcelUtil.HeaderMapping hm;
+    BufferErroresImportacion bufferErrores;
+    int ok = 0, err = 0, creados = 0, actualizados = 0;
+
+    Corrida(BitacoraCarga bit) {
+      this.bit = bit;
+    }
+  }
+
+  @Override
+  public ImportResultadoDTO importarParametros(InputStream in, String nombreArchivo, Long usuarioId,
+      ImportOpcionesDTO opciones) {
+    final boolean isDryRun = (opciones != null && opciones.isSoloValidar());
+
+    Path archivo = null;
+    try {
+      ArchivoVolcado volcado = ArchivosImportacion.volcarATemporal(in);
+      archivo = volcado.ruta();
+      if (!isDryRun && (opciones == null || !opciones.isPermitirArchivoRepetido())) {
+        Optional<BitacoraCarga> previa = bitacoraRepo.findFirstByHashArchivoAndTipoCargaAndEstadoInOrderByIdDesc(
+            volcado.sha256(), TipoCarga.PARAMETROS, ESTADOS_ARCHIVO_REPETIDO);
+        if (previa.isPresent()) return resultadoArchivoRepetido(previa.get());
+      }
+
+      Corrida c = new Corrida(isDryRun ? null : crearBitacora(nombreArchivo, usuarioId, volcado.sha256()));
+      c.bufferErrores = new BufferErroresImportacion(c.bit, cargaMasivaRepo, tamanioLote, trazasPorTipo);
+      return procesar(archivo, nombreArchivo, opciones, c);
+    } catch (IOException e) {
+      throw new RuntimeException("Error leyendo archivo: " + e.getMessage(), e);
+    } finally {
+      ArchivosImportacion.borrarTemporal(archivo);
+    }
+  }
+
+  private ImportResultadoDTO procesar(Path archivo, String nombreArchivo, ImportOpcionesDTO opciones, Corrida c) {
+    try {
+      leerArchivo(archivo, nombreArchivo, opciones, c);
+      c.bufferErrores.cerrar();
+    } catch (RuntimeException e) {
+      try {
+        c.bufferErrores.cerrar();
+      } catch (RuntimeException ex) {
+        log.warn("No se pudieron registrar los errores pendientes de la importación: {}", ex.getMessage());
+      }
+      if (c.bit != null) cerrarBitacora(c, EstadoCarga.INTERRUMPIDA);
+      if (c.creados + c.actualizados > 0) invalidarAlertas();
+      throw e;
+    }
+    if (c.bit != null) {
+      cerrarBitacora(c, EstadoCarga.COMPLETADA);
+      invalidarAlertas();
+    }
+    log.info("Importación de parámetros ({}): {} creados, {} actualizados, {} con error",
+        c.bit != null ? c.bit.getId() : "soloValidar", c.creados, c.actualizados, c.err);
+
+    return ImportResultadoDTO.builder()
+        .bitacoraId(c.bit != null ? c.bit.getId() : null)
+        .filasOk(c.ok)
+        .filasError(c.err)
+        .erroresMuestra(c.erroresMuestra)
+        .mensaje(c.creados + " parámetros nuevos y " + c.actualizados + " existentes"
+            + (c.bit != null ? " actualizados." : " a actualizar."))
+        .build();
+  }
+
+  private void leerArchivo(Path archivo, String nombreArchivo, ImportOpcionesDTO opciones, Corrida c) {
+    Map<String, List<String>> aliases = ExcelUtil.parametrosAliases();
+    Set<String> requiredKeys = new LinkedHashSet<>(aliases.keySet());
+    try (LectorFilas lector = ArchivosImportacion.abrirLector(archivo, nombreArchivo,
+        opciones != null ? opciones.getModoLectura() : null, umbralStreamingBytes)) {
+      lector.recorrer((i, celdas, crudos) -> {
+        if (c.hm == null) {
+          if (i > MAX_FILAS_ENCABEZADO) throw excelUtil.encabezadosNoEncontrados(requiredKeys);
+          c.hm = excelUtil.detectarEncabezados(i, celdas, aliases, requiredKeys);
+          return;
+        }
+        leerFila(c, i, celdas, crudos);
+        if (c.bloque.size() >= tamanioLote) procesarBloque(c);
+      });
+      if (c.hm == null) throw excelUtil.encabezadosNoEncontrados(requiredKeys);
+      procesarBloque(c);
+    } catch (BusinessException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Error leyendo archivo: " + e.getMessage(), e);
+    }
+  }
+
+  /** El SKU se lee como se ve en la hoja; los valores enteros, de su valor crudo */
+  private void leerFila(Corrida c, int i, String[] celdas, String[] crudos) {
+    try {
+      String skuStr = excelUtil.leerString(celda(celdas, c.hm.col("SKU")));
+      if (StringUtils.isBlank(skuStr)) throw campoInvalido("SKU", null);
+      int[] valores = new int[COLUMNAS_VALOR.size()];
+      for (int v = 0; v < valores.length; v++) {
+        String campo = COLUMNAS_VALOR.get(v);
+        String txt = celda(crudos, c.hm.col(campo));
+        Integer n = c.perfil.entero(c.hm.col(campo), txt);
+        if (n == null || n < 0) throw campoInvalido(campo, txt);
+        valores[v] = n;
+      }
+      c.bloque.add(new ParametroLeido(i + 1, skuStr.trim(), valores[0], valores[1], valores[2]));
+    } catch (Exception e) {
+      registrarError(c, i + 1, e);
+    }
+  }
+
+  /** Resuelve los SKU del bloque y escribe sus parámetros con un lote de upserts en una transacción */
+  private void procesarBloque(Corrida c) {
+    if (c.bloque.isEmpty()) return;
+    resolverSkus(c);
+
+    LocalDateTime ahora = LocalDateTime.now();
+    List<ParametroReposicion> parametros = new ArrayList<>(c.bloque.size());
+    for (ParametroLeido p : c.bloque) {
+      try {
+        VarianteSku sku = c.skus.get(p.skuStr().toUpperCase(Locale.ROOT));
+        if (sku == null) throw new CampoInvalidoException("SKU", p.skuStr(), "SKU no encontrado: " + p.skuStr());
+        if (!c.skusEnArchivo.add(sku.getId())) {
+          throw new CampoInvalidoException("SKU", p.skuStr(), "SKU repetido en el archivo: " + p.skuStr());
+        }
+        ParametroReposicion pr = new ParametroReposicion();
+        pr.setSku(sku);
+        pr.setMinStock(p.minStock());
+        pr.setLeadTimeDias(p.leadTimeDias());
+        pr.setStockSeguridad(p.stockSeguridad());
+        pr.setUltimaActualizacion(ahora);
+        pr.setCreatedAt(ahora);
+        pr.setUpdatedAt(ahora);
+        parametros.add(pr);
+      } catch (Exception e) {
+        registrarError(c, p.fila(), e);
+      }
+    }
+    c.bloque.clear();
+    if (parametros.isEmpty()) return;
+
+    int existentes = parametroRepo.skuIdsConParametro(parametros.stream().map(p -> p.getSku().getId()).toList()).size();
+    if (c.bit != null) {
+      txTemplate.executeWithoutResult(status -> cargaMasivaRepo.upsertParametros(parametros));
+    }
+    c.ok += parametros.size();
+    c.actualizados += existentes;
+    c.creados += parametros.size() - existentes;
+  }
+
+  private void resolverSkus(Corrida c) {
+    Set<String> nuevos = new HashSet<>();
+    for (ParametroLeido p : c.bloque) {
+      String sku = p.skuStr().toUpperCase(Locale.ROOT);
+      if (!c.skus.containsKey(sku)) nuevos.add(sku);
+    }
+    if (nuevos.isEmpty()) return;
+    nuevos.forEach(s -> c.skus.put(s, null));
+    skuRepo.findBySkuIn(nuevos).forEach(v -> c.skus.put(v.getSku().toUpperCase(Locale.ROOT), v));
+  }
+
+  private void registrarError(Corrida c, int fila, Exception e) {
+    c.err++;
+    if (c.erroresMuestra.size() < ProgresoImportacion.MAX_ERRORES_MUESTRA) {
+      c.erroresMuestra.add("Fila " + fila + ": " + e.getMessage());
+    }
+    c.bufferErrores.registrar(fila, e);
+  }
+
+  private BitacoraCarga crearBitacora(String nombreArchivo, Long usuarioId, String sha256) {
+    BitacoraCarga bit = new BitacoraCarga();
+    bit.setFechaHora(LocalDateTime.now());
+    bit.setUsuario(usuarioRepo.findById(usuarioId)
+        .orElseThrow(() -> new BusinessException("Usuario no encontrado id=" + usuarioId)));
+    bit.setTipoCarga(TipoCarga.PARAMETROS);
+    bit.setArchivoNombre(nombreArchivo);
+    bit.setHashArchivo(sha256);
+    bit.setFilasOk(0);
+    bit.setFilasError(0);
+    bit.setEstado(EstadoCarga.EN_PROCESO);
+    bit.setGruposConfirmados(0);
+    return bitacoraRepo.save(bit);
+  }
+
+  private void cerrarBitacora(Corrida c, EstadoCarga estado) {
+    c.bit.setFilasOk(c.ok);
+    c.bit.setFilasError(c.err);
+    c.bit.setEstado(estado);
+    bitacoraRepo.save(c.bit);
+  }
+
+  /** Las alertas de stock comparan contra min_stock / stock_seguridad */
+  private void invalidarAlertas() {
+    publisher.publishEvent(CambioDatosReporte.parametros());
+  }
+
+  private ImportResultadoDTO resultadoArchivoRepetido(BitacoraCarga previa) {
+    log.info("Importación de parámetros omitida: archivo idéntico a la carga {} ({})", previa.getId(), previa.getEstado());
+    String mensaje = (previa.getEstado() == EstadoCarga.EN_PROCESO)
+        ? "Archivo idéntico a la carga " + previa.getId() + ", aún en curso."
+        : "Archivo idéntico ya importado en la carga " + previa.getId()
+            + " (permitirArchivoRepetido=true para procesarlo de nuevo).";
+    return ImportResultadoDTO.builder()
+        .bitacoraId(previa.getId())
+        .filasOk(previa.getFilasOk())
+        .filasError(previa.getFilasError())
+        .erroresMuestra(List.of())
+        .duplicadoDeBitacoraId(previa.getId())
+        .mensaje(mensaje)
+        .build();
+  }
+
+  private static String celda(String[] celdas, Integer colIndex) {
+    if (celdas == null || colIndex == null || colIndex >= celdas.length) return null;
+    return celdas[colIndex];
+  }
+
+  private static CampoInvalidoException campoInvalido(String campo, String valorOriginal) {
+    return new CampoInvalidoException(campo, valorOriginal, "Datos obligatorios faltantes o inválidos: " + campo + ".");
+  }
+}
@@ -1,38 +1,60 @@
 package com.colors.savd.service.impl;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.ss.usermodel.*;
-import org.springframework.cache.CacheManager;
-import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.colors.savd.cache.CambioDatosReporte;
+import com.colors.savd.cache.CuboVentas;
+import com.colors.savd.cache.IndiceSkus;
+import com.colors.savd.cache.IndiceTemporadas;
+import com.colors.savd.dto.ImportJobDTO;
+import com.colors.savd.dto.ImportLoteResultadoDTO;
 import com.colors.savd.dto.ImportOpcionesDTO;
+import com.colors.savd.dto.ImportParteResultadoDTO;
 import com.colors.savd.dto.ImportResultadoDTO;
 import com.colors.savd.exception.BusinessException;
 import com.colors.savd.model.*;
 import com.colors.savd.model.enums.*;
 import com.colors.savd.repository.*;
 import com.colors.savd.service.ImportacionService;
+import com.colors.savd.service.impl.ArchivosImportacion.ArchivoVolcado;
+import com.colors.savd.service.impl.ArchivosImportacion.Parte;
 import com.colors.savd.util.ExcelUtil;
+import com.colors.savd.util.LectorFilas;
+import com.colors.savd.util.PerfilColumnas;
 
+import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /*
- * Importa ventas desde Excel agrupando por cabecera ().
+ * Importa ventas desde Excel agrupando por cabecera (fecha, canal, referencia).
  * Columnas esperadas
  * 0: FechaHora, 1: CanalCodigo (FISICO/ONLINE), 2: Referencia, 3: SKU, 4: Cantidad, 5: PrecioUnitario, 6: PrecioLista (opcional)
+ * En lugar de SKU se aceptan las columnas Producto, Talla y Color (con alias de talla/color).
  */
 @Service
 @RequiredArgsConstructor
@@ -43,276 +65,743 @@ public class ImportacionServiceImpl implements ImportacionService {
   private final BitacoraErrorRepository bitErrorRepo;
   private final VarianteSkuRepository skuRepo;
   private final VentaRepository ventaRepo;
-  private final VentaDetalleRepository ventaDetRepo;
   private final KardexRepository kardexRepo;
   private final CanalVentaRepository canalRepo;
   private final TipoMovimientoRepository tipoMovRepo;
   private final UsuarioRepository usuarioRepo;
   private final TemporadaRepository temporadaRepo;
   private final ExcelUtil excelUtil;
-  private final CacheManager cacheManager;
+  private final ApplicationEventPublisher publisher;
+  private final CargaMasivaRepository cargaMasivaRepo;
+  private final ResumenVentaMensualRepository resumenMensualRepo;
+  private final CuboVentas cubo;
+  private final TransactionTemplate txTemplate;
+  private final ThreadPoolTaskExecutor importacionExecutor;
+  private final ThreadPoolTaskExecutor validacionExecutor;
+  private final ThreadPoolTaskExecutor etapasExecutor;
+  private final ThreadPoolTaskExecutor lotesExecutor;
+  private final IndiceTemporadas indiceTemporadas;
+  private final IndiceSkus indiceSkus;
+
+  /** Progreso de importaciones en curso o recién terminadas, por id de bitácora (= jobId) */
+  private final Map<Long, ProgresoImportacion> jobs = new ConcurrentHashMap<>();
 
   // ====== Tipos y helpers internos ======
 
   /** Clave de agrupación de cabecera */
   private record CabKey(LocalDateTime fechaHora, Long canalId, String referencia) {
+    /** Representación guardada como checkpoint en la bitácora */
+    String checkpoint() {
+      return fechaHora + "|" + canalId + "|" + (referencia != null ? referencia : "");
+    }
+
+    /** Clave de duplicado: como compara MySQL (collation sin mayúsculas, sin espacios finales) */
+    String claveDuplicado() {
+      return claveCabecera(fechaHora, canalId, referencia);
+    }
+
+    static String claveCabecera(LocalDateTime fechaHora, Long canalId, String referencia) {
+      return fechaHora + "|" + canalId + "|" + referencia.strip().toUpperCase(Locale.ROOT);
+    }
+  }
+
+  /** Datos fijos de la rama persistente, compartidos por todos los tramos */
+  private record ContextoPersistencia(Long bitacoraId, TipoMovimiento tipoVenta, Usuario userRef,
+      String observacionBase, Map<Long, CanalVenta> canalesPorId, ImportOpcionesDTO opciones,
+      ProgresoImportacion progreso, Set<String> cabecerasExistentes, CambioDatosReporte.Acumulador cambios) {
+  }
+
+  /** Catálogos resueltos en bloque para toda la corrida (claves en mayúsculas) */
+  private record CatalogoImport(Map<String, CanalVenta> canales, Map<String, VarianteSku> skus) {
   }
 
   /** Ítem parseado de la fila del Excel */
   private static class ParsedItem {
     int filaExcel; // para log/bitácora
-    Long skuId;
-    String skuStr;
+    VarianteSku sku; // resuelto en la 2ª pasada: la persistencia no vuelve a consultar catálogo
     int cantidad;
     BigDecimal precioUnit;
     BigDecimal precioLista; // si no viene, se usará el de VarianteSku
   }
 
+  /** Estado acumulado mientras el lector entrega filas */
+  private static class EstadoParseo {
+    final ProgresoImportacion progreso;
+    int hoja; // hoja del libro a leer (partes de una importación por lote)
+    ExcelUtil.HeaderMapping hm;
+    int ok = 0, err = 0;
+    List<FilaLeida> filas = new ArrayList<>(); // dry-run: en memoria, validadas por rangos en paralelo
+    OrdenadorFilas ordenador; // persistente: ordenadas por cabecera con runs en disco (filas = null)
+    Set<String> skuCodigos = new HashSet<>();
+    Set<String> canalCodigos = new HashSet<>();
+    // "Fila N: mensaje" ordenado por fila (las dos pasadas detectan errores en distinto momento);
+    // solo se conservan las primeras filas con error, las que van a la muestra
+    TreeMap<Integer, String> errores = new TreeMap<>();
+    boolean huboCommit = false; // algún tramo ya confirmado (hay datos nuevos aunque la carga falle)
+    final CambioDatosReporte.Acumulador cambios = new CambioDatosReporte.Acumulador(); // para invalidar reportes
+    BufferErroresImportacion bufferErrores; // bitacora_error por lotes + log limitado por tipo
+    PerfilColumnas perfil = new PerfilColumnas(); // formato de fecha / separador decimal por columna
+
+    EstadoParseo(ProgresoImportacion progreso) {
+      this.progreso = progreso;
+    }
+
+    /** Estado vacío para un bloque validado en otro hilo (mismo encabezado y progreso) */
+    EstadoParseo bloque(List<FilaLeida> filasBloque) {
+      EstadoParseo b = new EstadoParseo(progreso);
+      b.hm = hm;
+      b.bufferErrores = bufferErrores;
+      b.perfil = perfil;
+      b.filas = filasBloque;
+      return b;
+    }
+
+    /** Suma un bloque ya procesado; llamado en orden de bloque, por eso filas queda en orden de archivo */
+    void fusionar(EstadoParseo b) {
+      ok += b.ok;
+      err += b.err;
+      if (filas != null && b.filas != null) filas.addAll(b.filas);
+      skuCodigos.addAll(b.skuCodigos);
+      canalCodigos.addAll(b.canalCodigos);
+      errores.putAll(b.errores);
+      recortarErrores();
+    }
+
+    void recortarErrores() {
+      while (errores.size() > ProgresoImportacion.MAX_ERRORES_MUESTRA) errores.pollLastEntry();
+    }
+  }
+
+  /** Resultado de la 2ª pasada persistente (ver validarYContarGrupos) */
+  private record ResumenGrupos(int total, String checkpoint, LocalDateTime min, LocalDateTime max,
+      Set<Long> canalIds) {
+  }
+
+  /** Grupos confirmados en una transacción y checkpoint del último */
+  private record TramoPersistido(int grupos, String ultimo) {
+  }
+
+  /**
+   * Arma los grupos al vuelo sobre filas ordenadas por cabecera: cada elemento es una cabecera con los
+   * ítems de sus filas válidas consecutivas. Las filas inválidas se saltan (validar devuelve null).
+   */
+  private static class IteradorGrupos implements Iterator<Map.Entry<CabKey, List<ParsedItem>>> {
+    private final Iterator<FilaLeida> filas;
+    private final Function<FilaLeida, ParsedItem> validar;
+    private final CatalogoImport catalogo;
+    private FilaLeida fila; // siguiente fila válida aún no agrupada
+    private ParsedItem item;
+
+    IteradorGrupos(Iterator<FilaLeida> filas, Function<FilaLeida, ParsedItem> validar, CatalogoImport catalogo) {
+      this.filas = filas;
+      this.validar = validar;
+      this.catalogo = catalogo;
+      avanzar();
+    }
+
+    private void avanzar() {
+      fila = null;
+      item = null;
+      while (item == null && filas.hasNext()) {
+        fila = filas.next();
+        item = validar.apply(fila);
+      }
+      if (item == null) fila = null;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return fila != null;
+    }
+
+    @Override
+    public Map.Entry<CabKey, List<ParsedItem>> next() {
+      if (fila == null) throw new NoSuchElementException();
+      FilaLeida primera = fila;
+      List<ParsedItem> items = new ArrayList<>();
+      do {
+        items.add(item);
+        avanzar();
+      } while (fila != null && fila.mismaCabecera(primera));
+      return Map.entry(clave(primera, catalogo), items);
+    }
+  }
+
+  /** Fila del archivo aún sin parsear, retenida hasta completar un bloque de validación paralela */
+  private record FilaCruda(int indice, String[] celdas, String[] crudos) {
+  }
+
+  /** Cargas previas que hacen innecesario reprocesar un archivo idéntico (las CANCELADAS no cuentan) */
+  private static final List<EstadoCarga> ESTADOS_ARCHIVO_REPETIDO = List.of(
+      EstadoCarga.COMPLETADA, EstadoCarga.EN_COLA, EstadoCarga.EN_PROCESO, EstadoCarga.INTERRUMPIDA);
+
+  /** Columnas cuyo separador decimal se aprende de la muestra */
+  private static final List<String> COLUMNAS_NUMERICAS = List.of("Cantidad", "PrecioUnitario", "PrecioLista");
+
+  /** Tamaño de los IN (...) al resolver catálogos en bloque */
+  private static final int TAMANIO_CHUNK_CATALOGO = 1000;
+
+  /** Filas superiores donde se busca el encabezado (igual que detectarEncabezados sobre Sheet) */
+  private static final int MAX_FILAS_ENCABEZADO = 50;
+
+  /** Filas por paquete entre la etapa de lectura y la de parseo (un paquete = una entrada de la cola) */
+  private static final int FILAS_POR_PAQUETE = 500;
+
+  /** Desde este tamaño el modo AUTOMATICO lee el XLSX en streaming (SAX) en vez de cargar el libro */
+  @Value("${savd.importacion.streaming-umbral-bytes:5242880}")
+  private long umbralStreamingBytes;
+
+  /** Filas por bloque en la pre-validación paralela (soloValidar) */
+  @Value("${savd.importacion.validacion.bloque-filas:2000}")
+  private int filasPorBloque;
+
+  /** Cabeceras por lote de escritura JDBC (detalles y kardex se envían en lotes del mismo tamaño) */
+  @Value("${savd.importacion.batch-size:500}")
+  private int tamanioLote;
+
+  /** Errores de fila logueados con traza por tipo (campo + excepción); el resto solo se cuenta */
+  @Value("${savd.importacion.errores.trazas-por-tipo:5}")
+  private int trazasPorTipo;
+
+  /** Cabeceras por transacción si la petición no indica commitCadaCabeceras (0 = todo en una transacción) */
+  @Value("${savd.importacion.commit-cada:0}")
+  private int commitCadaPorDefecto;
+
+  /** Memoria para ordenar las filas por cabecera antes de volcar un run a disco (importación persistente) */
+  @Value("${savd.importacion.agrupacion.memoria-mb:64}")
+  private long memoriaAgrupacionMb;
+
+  /** Minutos que se conserva en memoria el progreso de un job terminado */
+  @Value("${savd.importacion.async.retencion-minutos:60}")
+  private long retencionJobsMinutos;
+
+  /** Lectura y agrupación en hilos de etapasExecutor, solapadas con el parseo y la escritura */
+  @Value("${savd.importacion.pipeline.habilitado:true}")
+  private boolean pipelineHabilitado;
+
+  /** Paquetes de filas leídas en espera de parseo */
+  @Value("${savd.importacion.pipeline.cola-paquetes:8}")
+  private int colaPaquetes;
+
+  /** Cabeceras agrupadas en espera de escritura */
+  @Value("${savd.importacion.pipeline.cola-grupos:2000}")
+  private int colaGrupos;
+
+  /** Hojas/archivos como máximo en una importación por lote */
+  @Value("${savd.importacion.lote.max-partes:100}")
+  private int maxPartesLote;
+
+  /** Tamaño máximo descomprimido de cada archivo de un ZIP */
+  @Value("${savd.importacion.lote.max-mb-archivo:200}")
+  private long maxMbArchivoLote;
+
+  /*
+   * Sin @Transactional de método: el parseo no necesita transacción y la persistencia se confirma por
+   * tramos con txTemplate (ver commitCadaCabeceras), dejando checkpoint en la bitácora.
+   */
   @Override
-  @Transactional
   public ImportResultadoDTO importarVentasExcel(InputStream in, String nombreArchivo, Long usuarioId,
       ImportOpcionesDTO opciones) {
     // === GUARD DE ROL + SOLO VALIDAR ===
     final boolean isDryRun = (opciones != null && opciones.isSoloValidar());
+    validarRolAnalista(isDryRun);
 
-    // ==== Guard de seguridad: ANALISTA solo puede ejecutar en modo soloValidar
-    // ====
-    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-    boolean isAnalista = auth != null
-        && auth.getAuthorities().stream().anyMatch(a -> "ROLE_ANALISTA".equals(a.getAuthority()));
+    Path archivo = null;
+    try {
+      ArchivoVolcado volcado = ArchivosImportacion.volcarATemporal(in);
+      archivo = volcado.ruta();
+      // ==== 0) Archivo idéntico a una carga previa: se responde con esa bitácora sin reprocesar ====
+      if (!isDryRun) {
+        Optional<BitacoraCarga> previa = cargaPreviaDelMismoArchivo(volcado.sha256(), opciones);
+        if (previa.isPresent()) return resultadoArchivoRepetido(previa.get());
+      }
+      // ==== 1) Crear (o retomar) bitácora si no es dry-run ====
+      BitacoraCarga bit = isDryRun ? null
+          : abrirBitacora(nombreArchivo, usuarioId, opciones, EstadoCarga.EN_PROCESO, volcado.sha256());
+      ProgresoImportacion progreso = new ProgresoImportacion(bit != null ? bit.getId() : null);
+      return procesarVentas(archivo, nombreArchivo, 0, usuarioId, opciones, bit, progreso);
+    } catch (IOException e) {
+      throw new RuntimeException("Error leyendo archivo: " + e.getMessage(), e);
+    } finally {
+      ArchivosImportacion.borrarTemporal(archivo);
+    }
+  }
 
-    // Analista no puede persistir (solo pre-validacion)
-    if (isAnalista && !isDryRun) {
-      throw new AccessDeniedException("Analista solo puede pre-validar (soloValidar=true).");
+  @Override
+  public ImportJobDTO encolarVentasExcel(InputStream in, String nombreArchivo, Long usuarioId,
+      ImportOpcionesDTO opciones) {
+    if (opciones != null && opciones.isSoloValidar()) {
+      throw new BusinessException("La pre-validación (soloValidar) se ejecuta en modo síncrono.");
     }
+    validarRolAnalista(false);
+    purgarJobsFinalizados();
 
-    int ok = 0, err = 0;
-    List<String> erroresMuestra = new ArrayList<>();
+    // El stream del multipart deja de existir al terminar la petición: se copia a disco antes de encolar
+    ArchivoVolcado volcado;
+    try {
+      volcado = ArchivosImportacion.volcarATemporal(in);
+    } catch (IOException e) {
+      throw new RuntimeException("Error leyendo archivo: " + e.getMessage(), e);
+    }
+    final Path archivo = volcado.ruta();
+
+    BitacoraCarga bit;
+    try {
+      Optional<BitacoraCarga> previa = cargaPreviaDelMismoArchivo(volcado.sha256(), opciones);
+      if (previa.isPresent()) {
+        ArchivosImportacion.borrarTemporal(archivo);
+        ImportJobDTO job = estadoImportacion(previa.get().getId());
+        job.setMensaje(mensajeArchivoRepetido(previa.get()));
+        return job;
+      }
+      bit = abrirBitacora(nombreArchivo, usuarioId, opciones, EstadoCarga.EN_COLA, volcado.sha256());
+    } catch (RuntimeException e) {
+      ArchivosImportacion.borrarTemporal(archivo);
+      throw e;
+    }
 
-    // Cache para evitar consultas repetidas
-    Map<String, CanalVenta> canalCache = new HashMap<>();
-    Map<String, VarianteSku> skuCache = new HashMap<>();
+    ProgresoImportacion progreso = new ProgresoImportacion(bit.getId());
+    jobs.put(bit.getId(), progreso);
+    final BitacoraCarga bitJob = bit;
+    try {
+      importacionExecutor.execute(() -> ejecutarJob(archivo, nombreArchivo, usuarioId, opciones, bitJob, progreso));
+    } catch (TaskRejectedException e) {
+      jobs.remove(bit.getId());
+      ArchivosImportacion.borrarTemporal(archivo);
+      bit.setEstado(EstadoCarga.CANCELADA);
+      bitacoraRepo.save(bit);
+      throw new BusinessException("IMPORT_COLA_LLENA", "Hay demasiadas importaciones en cola; intente más tarde.");
+    }
+    log.info("Importación {} encolada ({})", bit.getId(), nombreArchivo);
+    return progreso.aDTO();
+  }
 
-    // Cabecera: (fechaHora, canal, referencia) → lista de items
-    // Estructura de agrupación para la rama persistente
-    Map<CabKey, List<ParsedItem>> grupos = new LinkedHashMap<>();
+  @Override
+  public ImportJobDTO estadoImportacion(Long jobId) {
+    ProgresoImportacion progreso = jobs.get(jobId);
+    if (progreso != null) return progreso.aDTO();
 
-    // ==== 1) Crear bitácora si no es dry-run ====
-    if (!isDryRun) {
-      BitacoraCarga bit = new BitacoraCarga();
-      bit.setFechaHora(LocalDateTime.now());
-      bit.setUsuario(usuarioRepo.findById(usuarioId)
-          .orElseThrow(() -> new BusinessException("Usuario no encontrado id=" + usuarioId)));
-      bit.setTipoCarga(TipoCarga.VENTAS);
-      bit.setArchivoNombre(nombreArchivo);
-      bit.setFilasOk(0);
-      bit.setFilasError(0);
-      bit = bitacoraRepo.save(bit);
-
-      // ==== 2) Parsear Excel a estructuras de agrupación ====
-      try (Workbook wb = WorkbookFactory.create(in)) {
-        Sheet sheet = wb.getSheetAt(0);
-
-        // === detectar encabezados dinamicamente ===
-        Map<String, List<String>> aliases = ExcelUtil.defaultAliases();
-        // Consideramos obligatorios en encabezado (Referencia puede venir vacia pero la
-        // columna idealmente existe):
-        // Si deseas permitir archivos sin columna Referencia, elimina "Referencia" de
-        // requiredKeys.
-        Set<String> requiredKeys = new LinkedHashSet<>(Arrays.asList("FechaHora", "CanalCodigo", "SKU", "Cantidad", "PrecioUnitario"));
-        ExcelUtil.HeaderMapping hm = excelUtil.detectarEncabezados(sheet, aliases, requiredKeys, 50);
-
-        int startRow = hm.getHeaderRowIndex() + 1;
-        for (int i = startRow; i <= sheet.getLastRowNum(); i++) {
-          Row row = sheet.getRow(i);
-          if (row == null)
-            continue;
-
-          try {
-            // --- Leer por nombre de columnas ---
-            LocalDateTime fechaHora = excelUtil.leerFechaHora(getCell(row, hm.col("FechaHora")));
-            if (fechaHora != null) {
-              fechaHora = fechaHora.withNano(0); // normalizar a segundos
-            }
-
-            String canalCodigo = excelUtil.leerString(getCell(row, hm.col("CanalCodigo")));
-            // "Referencia" puede no estar en el encabezado si no es obligatorio
-            Integer colRef = hm.col("Referencia");
-            String referencia = (colRef != null) ? excelUtil.leerString(getCell(row, colRef)) : null;
-            String skuStr = excelUtil.leerString(getCell(row, hm.col("SKU")));
-            Integer cantidad = excelUtil.leerEntero(getCell(row, hm.col("Cantidad")));
-            BigDecimal precioUnit = excelUtil.leerDecimal(getCell(row, hm.col("PrecioUnitario")));
-            Integer colPL = hm.col("PrecioLista");
-            BigDecimal precioLista = (colPL != null) ? excelUtil.leerDecimal(getCell(row, colPL)) : null;
-
-            if (fechaHora == null || StringUtils.isBlank(canalCodigo) ||
-                StringUtils.isBlank(skuStr) || cantidad == null || cantidad <= 0 ||
-                precioUnit == null || precioUnit.signum() < 0) {
-              throw new IllegalArgumentException("Datos obligatorios faltantes o inválidos.");
-            }
-
-            // Resolver canal por código (cacheado)
-            CanalVenta canal = canalCache.computeIfAbsent(canalCodigo.toUpperCase(Locale.ROOT), code -> canalRepo
-                .findByCodigo(code).orElseThrow(() -> new BusinessException("Canal no configurado: " + code)));
-
-            // Regla: referencia obligatoria si FISICO
-            if ("FISICO".equalsIgnoreCase(canal.getCodigo()) && StringUtils.isBlank(referencia)) {
-              throw new IllegalArgumentException("Referencia obligatoria para canal FISICO.");
-            }
-
-            // Resolver SKU por cadena (cacheado)
-            VarianteSku sku = skuCache.computeIfAbsent(skuStr,
-                key -> skuRepo.findBySku(key).orElseThrow(() -> new BusinessException("SKU no encontrado: " + key)));
-
-            // Armar item
-            ParsedItem item = new ParsedItem();
-            item.filaExcel = i + 1;
-            item.skuId = sku.getId();
-            item.skuStr = skuStr;
-            item.cantidad = cantidad;
-            item.precioUnit = precioUnit;
-            item.precioLista = (precioLista != null ? precioLista : sku.getPrecioLista());
-
-            // Si es persistente, acumula; si es dry-run, no se necesita agrupar, solo
-            // contamos ok/err
-            if (!isDryRun) {
-              CabKey key = new CabKey(fechaHora, canal.getId(), referencia);
-              grupos.computeIfAbsent(key, k -> new ArrayList<>()).add(item);
-            }
-
-            ok++; // fila válida
-          } catch (Exception e) {
-            err++;
-            String msg = "Fila " + (i + 1) + ": " + e.getMessage();
-            erroresMuestra.add(msg);
-
-            // Solo en modo persistente registramos bitacora_error
-            if (!isDryRun && bit != null) {
-              BitacoraError be = new BitacoraError();
-              be.setBitacora(bit);
-              be.setFilaOrigen(i + 1);
-              be.setCampo("GENERAL");
-              be.setMensajeError(e.getMessage());
-              be.setFechaHoraRegistro(LocalDateTime.now());
-              bitErrorRepo.save(be);
-            }
-
-            log.error("Error importando fila {}: {}", i + 1, e.getMessage(), e);
-          }
+    // Sin progreso en memoria (terminó hace rato o se reinició la app): se informa desde la bitácora
+    BitacoraCarga bit = bitacoraRepo.findById(jobId)
+        .orElseThrow(() -> new EntityNotFoundException("Importación no encontrada id=" + jobId));
+    List<String> errores = bitErrorRepo.findTop50ByBitacora_IdOrderByFilaOrigenAsc(jobId).stream()
+        .limit(ProgresoImportacion.MAX_ERRORES_MUESTRA)
+        .map(e -> "Fila " + e.getFilaOrigen() + ": " + e.getMensajeError())
+        .toList();
+    boolean activa = bit.getEstado() == EstadoCarga.EN_COLA || bit.getEstado() == EstadoCarga.EN_PROCESO;
+    return ImportJobDTO.builder()
+        .jobId(jobId)
+        .estado(bit.getEstado())
+        .fase(activa ? null : "FINALIZADA")
+        .filasOk(bit.getFilasOk())
+        .filasError(bit.getFilasError())
+        .gruposPersistidos(bit.getGruposConfirmados())
+        .iniciadoEn(bit.getFechaHora())
+        .mensaje(activa ? "Sin proceso activo en este servidor; reanudable con reanudarBitacoraId." : null)
+        .erroresMuestra(errores)
+        .build();
+  }
+
+  @Override
+  public ImportJobDTO cancelarImportacion(Long jobId) {
+    ProgresoImportacion progreso = jobs.get(jobId);
+    if (progreso == null || progreso.isFinalizado()) {
+      throw new BusinessException("La importación " + jobId + " no está en ejecución.");
+    }
+    // Cooperativa: el hilo de la carga la detecta entre filas / grupos y revierte el tramo en curso
+    progreso.cancelar();
+    log.info("Cancelación solicitada para importación {}", jobId);
+    return progreso.aDTO();
+  }
+
+  /*
+   * Cada parte es una carga de ventas completa (su bitácora hija, su checkpoint, sus tramos); el lote solo
+   * las reparte en lotesExecutor y suma el resultado. Una parte que falla no detiene a las demás.
+   */
+  @Override
+  public ImportLoteResultadoDTO importarVentasLote(InputStream in, String nombreArchivo, Long usuarioId,
+      ImportOpcionesDTO opciones) {
+    final boolean isDryRun = (opciones != null && opciones.isSoloValidar());
+    validarRolAnalista(isDryRun);
+    if (opciones != null && opciones.getReanudarBitacoraId() != null) {
+      throw new BusinessException("En un lote las partes interrumpidas se reanudan al volver a subirlo; "
+          + "no indique reanudarBitacoraId.");
+    }
+    purgarJobsFinalizados();
+
+    ArchivoVolcado volcado = null;
+    List<Parte> partes = List.of();
+    BitacoraCarga lote = null;
+    try {
+      volcado = ArchivosImportacion.volcarATemporal(in);
+      if (!isDryRun) {
+        Optional<BitacoraCarga> previa = cargaPreviaDelMismoArchivo(volcado.sha256(), opciones);
+        if (previa.isPresent() && previa.get().getEstado() == EstadoCarga.COMPLETADA) {
+          return resultadoLoteRepetido(previa.get());
         }
-      } catch (Exception e) {
-        throw new RuntimeException("Error leyendo Excel: " + e.getMessage(), e);
       }
+      partes = ArchivosImportacion.separarPartes(volcado, nombreArchivo, maxPartesLote,
+          maxMbArchivoLote * 1024L * 1024L);
+      lote = isDryRun ? null : crearBitacora(nombreArchivo, usuarioId, EstadoCarga.EN_PROCESO, volcado.sha256());
+      log.info("Importación por lote {}: {} partes de {}", lote != null ? lote.getId() : "(validación)",
+          partes.size(), nombreArchivo);
 
-      // ==== 3) Persistir grupos como ventas con detalles + kardex ====
-      // === Rama persistente: crear ventas/detalles/kardex + cerrar bitácora ===
-      if (!isDryRun) {
-        // TipoMovimiento VENTA (debe existir en catálogo)
-        TipoMovimiento tipoVenta = tipoMovRepo.findByCodigo("VENTA")
-            .orElseThrow(() -> new BusinessException("TipoMovimiento 'VENTA' no configurado"));
-        Usuario userRef = usuarioRepo.findById(usuarioId)
-            .orElseThrow(() -> new BusinessException("Usuario no encontrado id=" + usuarioId));
-        // Observacion que pondremos en kardex
-        final String observacionBase = construirObservacionBase(nombreArchivo, opciones);
-
-        for (Map.Entry<CabKey, List<ParsedItem>> entry : grupos.entrySet()) {
-          CabKey cab = entry.getKey();
-          List<ParsedItem> items = entry.getValue();
-
-          // Canal por id (desde cache no tenemos instancia; recupéralo una vez)
-          CanalVenta canal = canalRepo.findById(cab.canalId())
-              .orElseThrow(() -> new BusinessException("Canal no encontrado id=" + cab.canalId()));
-
-          String ref = cab.referencia();
-          LocalDateTime fechaCab = cab.fechaHora();
-
-          // Evitar duplicados de cabecera (fecha+canal+ref)
-          boolean dup = (ref != null
-              && ventaRepo.existsByFechaHoraAndCanal_IdAndReferenciaOrigen(fechaCab, cab.canalId(), ref));
-          if (dup) {
-            log.warn("Cabecera duplicada: fecha={}, canalId={}, ref={}", fechaCab, cab.canalId(), ref);
-            continue; // saltar venta completa
-          }
-
-          // ===== Asignacion de temporada segun opciones =====
-          Temporada temporadaAsignada = resolvTemporadaPara(fechaCab, opciones);
-
-          // Crear cabecera
-          Venta v = new Venta();
-          v.setFechaHora(fechaCab);
-          v.setCanal(canal);
-          v.setReferenciaOrigen(ref);
-          v.setTemporada(temporadaAsignada);
-          v.setEstado(EstadoVenta.ACTIVA);
-          v.setTotal(BigDecimal.ZERO);
-          v.setCreatedAt(LocalDateTime.now());
-          v.setUpdatedAt(LocalDateTime.now());
-          v.setCreatedBy(userRef);
-          v = ventaRepo.save(v);
-
-          BigDecimal total = BigDecimal.ZERO;
-
-          for (ParsedItem it : items) {
-            VarianteSku sku = skuRepo.findById(it.skuId)
-                .orElseThrow(() -> new BusinessException("SKU desapareció durante import: id=" + it.skuId));
-
-            // Detalle
-            VentaDetalle det = new VentaDetalle();
-            det.setVenta(v);
-            det.setSku(sku);
-            det.setCantidad(it.cantidad);
-            det.setPrecioUnitario(it.precioUnit);
-            det.setPrecioLista(it.precioLista != null ? it.precioLista : sku.getPrecioLista());
-
-            BigDecimal importe = it.precioUnit.multiply(BigDecimal.valueOf(it.cantidad)).setScale(2,
-                RoundingMode.HALF_UP);
-            det.setImporte(importe);
-            ventaDetRepo.save(det);
-
-            total = total.add(importe);
-
-            // Kardex (VENTA: -1) con idempotencia
-            KardexMovimiento k = new KardexMovimiento();
-            k.setFechaHora(v.getFechaHora());
-            k.setTipo(tipoVenta);
-            k.setSku(sku);
-            k.setCantidad(it.cantidad);
-            k.setSigno(-1);
-            k.setCanal(canal);
-            k.setVenta(v);
-            k.setVentaDetalle(det);
-            k.setReferencia(v.getReferenciaOrigen());
-            k.setUsuario(userRef);
-            k.setCreatedAt(LocalDateTime.now());
-            k.setObservacion(observacionBase);
-            k.setIdempotencyKey(generarIdemKey(v.getId(), det.getId(), "VENTA"));
-            try {
-              kardexRepo.save(k);
-            } catch (DataIntegrityViolationException ex) {
-              log.warn("Conflicto de idempotencia en Kardex (import) venta={} det={}", v.getId(), det.getId());
-            }
-          }
-
-          v.setTotal(total.setScale(2, RoundingMode.HALF_UP));
-          v.setUpdatedAt(LocalDateTime.now());
-          ventaRepo.save(v);
+      final BitacoraCarga padre = lote;
+      List<Future<ImportParteResultadoDTO>> tareas = new ArrayList<>();
+      for (Parte p : partes) {
+        tareas.add(lotesExecutor.submit(() -> importarParte(p, usuarioId, opciones, padre)));
+      }
+      List<ImportParteResultadoDTO> resultados = new ArrayList<>();
+      try {
+        for (Future<ImportParteResultadoDTO> t : tareas) resultados.add(esperar(t));
+      } catch (CancellationException e) {
+        // Petición interrumpida: las partes que aún no empezaron ya no lo harán
+        tareas.forEach(t -> t.cancel(false));
+        throw e;
+      }
+      return cerrarLote(lote, resultados);
+    } catch (IOException e) {
+      marcarLoteInterrumpido(lote);
+      throw new RuntimeException("Error leyendo archivo: " + e.getMessage(), e);
+    } catch (RuntimeException e) {
+      marcarLoteInterrumpido(lote);
+      throw e;
+    } finally {
+      ArchivosImportacion.borrarPartes(partes);
+      if (volcado != null) ArchivosImportacion.borrarTemporal(volcado.ruta());
+    }
+  }
+
+  /**
+   * Una parte del lote con su propia bitácora (hija del lote). Si la misma parte ya se importó se omite;
+   * si quedó interrumpida, se reanuda desde su checkpoint.
+   */
+  private ImportParteResultadoDTO importarParte(Parte parte, Long usuarioId, ImportOpcionesDTO opciones,
+      BitacoraCarga lote) {
+    BitacoraCarga bit = null;
+    if (lote != null) {
+      try {
+        Optional<BitacoraCarga> previa = cargaPreviaDelMismoArchivo(parte.sha256(), opciones);
+        if (previa.isPresent() && previa.get().getEstado() != EstadoCarga.INTERRUMPIDA) {
+          return resultadoParteRepetida(parte, previa.get());
         }
+        bit = previa.isPresent()
+            ? prepararReanudacion(previa.get().getId(), EstadoCarga.EN_PROCESO, parte.sha256())
+            : crearBitacora(StringUtils.left(parte.nombre(), 180), usuarioId, EstadoCarga.EN_PROCESO, parte.sha256());
+        bit.setPadre(lote);
+        bit = bitacoraRepo.save(bit);
+      } catch (RuntimeException e) {
+        log.warn("Importación por lote: no se pudo abrir la bitácora de {}: {}", parte.nombre(), e.getMessage());
+        return ImportParteResultadoDTO.builder()
+            .nombre(parte.nombre())
+            .estado(EstadoCarga.INTERRUMPIDA)
+            .filasOk(0)
+            .filasError(0)
+            .erroresMuestra(List.of())
+            .mensaje(e.getMessage())
+            .build();
+      }
+    }
+    ProgresoImportacion progreso = new ProgresoImportacion(bit != null ? bit.getId() : null);
+    if (bit != null) jobs.put(bit.getId(), progreso);
+    try {
+      ImportResultadoDTO r = procesarVentas(parte.ruta(), parte.nombre(), parte.hoja(), usuarioId, opciones, bit,
+          progreso);
+      return ImportParteResultadoDTO.builder()
+          .nombre(parte.nombre())
+          .bitacoraId(r.getBitacoraId())
+          .estado(EstadoCarga.COMPLETADA)
+          .filasOk(r.getFilasOk())
+          .filasError(r.getFilasError())
+          .erroresMuestra(r.getErroresMuestra())
+          .mensaje(r.getMensaje())
+          .build();
+    } catch (RuntimeException e) {
+      // procesarVentas ya dejó la bitácora hija INTERRUMPIDA/CANCELADA con sus conteos
+      log.warn("Importación por lote: la parte {} no se completó: {}", parte.nombre(), e.getMessage());
+      ImportJobDTO estado = progreso.aDTO();
+      return ImportParteResultadoDTO.builder()
+          .nombre(parte.nombre())
+          .bitacoraId(bit != null ? bit.getId() : null)
+          .estado(e instanceof CancellationException ? EstadoCarga.CANCELADA : EstadoCarga.INTERRUMPIDA)
+          .filasOk(estado.getFilasOk())
+          .filasError(estado.getFilasError())
+          .erroresMuestra(estado.getErroresMuestra())
+          .mensaje(e.getMessage())
+          .build();
+    }
+  }
+
+  private ImportLoteResultadoDTO cerrarLote(BitacoraCarga lote, List<ImportParteResultadoDTO> partes) {
+    int ok = partes.stream().mapToInt(p -> p.getFilasOk() != null ? p.getFilasOk() : 0).sum();
+    int err = partes.stream().mapToInt(p -> p.getFilasError() != null ? p.getFilasError() : 0).sum();
+    boolean completo = partes.stream().allMatch(p -> p.getEstado() == EstadoCarga.COMPLETADA);
+    EstadoCarga estado = completo ? EstadoCarga.COMPLETADA : EstadoCarga.INTERRUMPIDA;
+    if (lote != null) {
+      lote.setFilasOk(ok);
+      lote.setFilasError(err);
+      lote.setEstado(estado);
+      lote = bitacoraRepo.save(lote);
+      log.info("Importación por lote {} {}: {} partes, {} filas OK, {} con error", lote.getId(), estado,
+          partes.size(), ok, err);
+    }
+    return ImportLoteResultadoDTO.builder()
+        .bitacoraId(lote != null ? lote.getId() : null)
+        .estado(estado)
+        .filasOk(ok)
+        .filasError(err)
+        .partes(partes)
+        .mensaje(completo ? null
+            : "Hay partes sin completar; al volver a subir el lote se reanudan y las completas se omiten.")
+        .build();
+  }
+
+  private void marcarLoteInterrumpido(BitacoraCarga lote) {
+    if (lote == null) return;
+    lote.setEstado(EstadoCarga.INTERRUMPIDA);
+    bitacoraRepo.save(lote);
+  }
+
+  private ImportParteResultadoDTO resultadoParteRepetida(Parte parte, BitacoraCarga previa) {
+    return ImportParteResultadoDTO.builder()
+        .nombre(parte.nombre())
+        .bitacoraId(previa.getId())
+        .estado(previa.getEstado())
+        .filasOk(previa.getFilasOk())
+        .filasError(previa.getFilasError())
+        .erroresMuestra(List.of())
+        .duplicadoDeBitacoraId(previa.getId())
+        .mensaje(mensajeArchivoRepetido(previa))
+        .build();
+  }
+
+  private ImportLoteResultadoDTO resultadoLoteRepetido(BitacoraCarga previa) {
+    log.info("Importación por lote omitida: archivo idéntico a la carga {}", previa.getId());
+    List<ImportParteResultadoDTO> partes = bitacoraRepo.findByPadre_IdOrderByIdAsc(previa.getId()).stream()
+        .map(b -> ImportParteResultadoDTO.builder()
+            .nombre(b.getArchivoNombre())
+            .bitacoraId(b.getId())
+            .estado(b.getEstado())
+            .filasOk(b.getFilasOk())
+            .filasError(b.getFilasError())
+            .erroresMuestra(List.of())
+            .build())
+        .toList();
+    return ImportLoteResultadoDTO.builder()
+        .bitacoraId(previa.getId())
+        .estado(previa.getEstado())
+        .filasOk(previa.getFilasOk())
+        .filasError(previa.getFilasError())
+        .partes(partes)
+        .duplicadoDeBitacoraId(previa.getId())
+        .mensaje(mensajeArchivoRepetido(previa))
+        .build();
+  }
 
-        // ==== 4) Cerrar bitácora con los conteos reales ====
-        bit.setFilasOk(ok);
-        bit.setFilasError(err);
+  /** Cuerpo del job asíncrono: el estado final queda en la bitácora y en el progreso */
+  private void ejecutarJob(Path archivo, String nombreArchivo, Long usuarioId, ImportOpcionesDTO opciones,
+      BitacoraCarga bit, ProgresoImportacion progreso) {
+    try {
+      procesarVentas(archivo, nombreArchivo, 0, usuarioId, opciones, bit, progreso);
+    } catch (CancellationException e) {
+      log.info("Importación {} cancelada", bit.getId());
+    } catch (Exception e) {
+      log.error("Importación asíncrona {} falló: {}", bit.getId(), e.getMessage(), e);
+    } finally {
+      ArchivosImportacion.borrarTemporal(archivo);
+    }
+  }
+
+  /**
+   * Parseo + validación + persistencia sobre el archivo ya volcado a disco.
+   * bit == null indica dry-run (no se persiste nada).
+   * @param hoja índice de la hoja a leer si el archivo es un libro
+   */
+  private ImportResultadoDTO procesarVentas(Path archivo, String nombreArchivo, int hoja, Long usuarioId,
+      ImportOpcionesDTO opciones, BitacoraCarga bit, ProgresoImportacion progreso) {
+    EstadoParseo st = new EstadoParseo(progreso);
+    st.hoja = hoja;
+    try {
+      if (progreso.isCancelado()) throw new CancellationException("Importación cancelada por el usuario.");
+      if (bit != null && bit.getEstado() != EstadoCarga.EN_PROCESO) {
+        bit.setEstado(EstadoCarga.EN_PROCESO);
+        bit = bitacoraRepo.save(bit);
+      }
+
+      ImportResultadoDTO resultado = importarDesdeArchivo(archivo, nombreArchivo, usuarioId, opciones, bit, st);
+      progreso.finalizar(EstadoCarga.COMPLETADA, null);
+      return resultado;
+    } catch (RuntimeException e) {
+      EstadoCarga estadoFinal = (e instanceof CancellationException) ? EstadoCarga.CANCELADA : EstadoCarga.INTERRUMPIDA;
+      vaciarErrores(st);
+      if (bit != null) {
+        bit.setEstado(estadoFinal);
+        bit.setFilasOk(st.ok);
+        bit.setFilasError(st.err);
         bitacoraRepo.save(bit);
+        log.warn("Importación bitácora {} {} en el grupo {}; reanudable con reanudarBitacoraId",
+            bit.getId(), estadoFinal, bit.getGruposConfirmados());
+        if (st.huboCommit) publicarCambios(st);
+      }
+      progreso.finalizar(estadoFinal, e.getMessage());
+      throw e;
+    } finally {
+      if (st.ordenador != null) st.ordenador.close(); // borra los runs temporales
+    }
+  }
 
-        // === invalidar cachés de reportes: hay datos nuevos ===
-        evictReportCaches();
+  private ImportResultadoDTO importarDesdeArchivo(Path archivo, String nombreArchivo, Long usuarioId,
+      ImportOpcionesDTO opciones, BitacoraCarga bit, EstadoParseo st) {
+    final boolean isDryRun = (bit == null);
+    final ProgresoImportacion progreso = st.progreso;
 
-        return ImportResultadoDTO.builder()
-            .bitacoraId(bit.getId())
-            .filasOk(ok)
-            .filasError(err)
-            .erroresMuestra(erroresMuestra.size() > 10 ? erroresMuestra.subList(0, 10) : erroresMuestra)
-            .build();
+    // Rama persistente: las filas se ordenan por cabecera (con runs en disco si superan el presupuesto)
+    // y los grupos se arman al recorrerlas; así ni el archivo ni sus grupos tienen que caber en heap
+    if (!isDryRun) {
+      st.ordenador = new OrdenadorFilas(memoriaAgrupacionMb * 1024L * 1024L);
+      st.filas = null;
+    }
+
+    // ==== 2) Parsear archivo fila a fila (XLSX DOM/streaming o CSV) a estructuras de agrupación ====
+    // Si la carga a reanudar ya pasó el parseo (tiene checkpoint), sus errores ya están en bitacora_error
+    final BitacoraCarga bitRef = (bit != null && bit.getGruposConfirmados() > 0) ? null : bit;
+    st.bufferErrores = new BufferErroresImportacion(bitRef, cargaMasivaRepo, tamanioLote, trazasPorTipo);
+    // Dry-run: el lector entrega filas en orden y los bloques se parsean en paralelo a medida que se completan
+    final boolean paralelo = isDryRun && validacionExecutor.getMaxPoolSize() > 1;
+    final List<Future<EstadoParseo>> bloques = new ArrayList<>();
+    final List<FilaCruda> porBloque = new ArrayList<>();
+    try (LectorFilas lector = ArchivosImportacion.abrirLector(archivo, nombreArchivo,
+        opciones != null ? opciones.getModoLectura() : null, umbralStreamingBytes, st.hoja)) {
+      progreso.iniciarLectura(lector.filasEstimadas());
+      // === detectar encabezados dinamicamente ===
+      Map<String, List<String>> aliases = ExcelUtil.defaultAliases();
+      // Consideramos obligatorios en encabezado (Referencia puede venir vacia pero la
+      // columna idealmente existe):
+      // Si deseas permitir archivos sin columna Referencia, elimina "Referencia" de
+      // requiredKeys.
+      Set<String> requiredKeys = new LinkedHashSet<>(Arrays.asList("FechaHora", "CanalCodigo", "SKU", "Cantidad", "PrecioUnitario"));
+      Set<String> clavesEncabezado = IdentificacionSku.sinSku(requiredKeys);
+      Set<String> clavesMensaje = IdentificacionSku.paraMensaje(requiredKeys);
+
+      LectorFilas.ConsumidorFila despachar = (i, celdas, crudos) -> {
+        if (!paralelo) {
+          leerFila(st, i, celdas, crudos);
+          return;
+        }
+        porBloque.add(new FilaCruda(i, celdas, crudos));
+        if (porBloque.size() >= filasPorBloque) {
+          bloques.add(leerBloque(st, List.copyOf(porBloque)));
+          porBloque.clear();
+        }
+      };
+      // Las primeras filas de datos se retienen hasta fijar el perfil de columnas y luego se procesan igual
+      final List<FilaCruda> muestra = new ArrayList<>(PerfilColumnas.FILAS_MUESTRA);
+
+      recorrerEnEtapa(lector, progreso, (i, celdas, crudos) -> {
+        if (progreso.isCancelado()) throw new CancellationException("Importación cancelada por el usuario.");
+        if (st.hm == null) {
+          if (i > MAX_FILAS_ENCABEZADO) throw excelUtil.encabezadosNoEncontrados(clavesMensaje);
+          st.hm = IdentificacionSku.validar(excelUtil.detectarEncabezados(i, celdas, aliases, clavesEncabezado));
+          return;
+        }
+        if (st.perfil.isCongelado()) {
+          despachar.aceptar(i, celdas, crudos);
+          return;
+        }
+        observarMuestra(st, crudos);
+        muestra.add(new FilaCruda(i, celdas, crudos));
+        if (muestra.size() >= PerfilColumnas.FILAS_MUESTRA) liberarMuestra(st, muestra, despachar);
+      });
+      if (st.hm == null) throw excelUtil.encabezadosNoEncontrados(clavesMensaje);
+      if (!st.perfil.isCongelado()) liberarMuestra(st, muestra, despachar);
+      if (!porBloque.isEmpty()) bloques.add(leerBloque(st, List.copyOf(porBloque)));
+      for (Future<EstadoParseo> b : bloques) st.fusionar(esperar(b));
+    } catch (CancellationException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Error leyendo archivo: " + e.getMessage(), e);
+    }
+
+    // ==== 2b) Resolver SKUs y canales en bloque y validar contra catálogo ====
+    progreso.iniciarValidacion();
+    CatalogoImport catalogo = resolverCatalogo(st.skuCodigos, st.canalCodigos);
+    if (paralelo) validarFilasEnParalelo(st, catalogo);
+    else if (isDryRun) validarFilas(st, catalogo);
+    final int desde = isDryRun ? 0 : bit.getGruposConfirmados();
+    final ResumenGrupos resumen = isDryRun ? null : validarYContarGrupos(st, catalogo, desde);
+    st.bufferErrores.cerrar();
+    Map<Long, CanalVenta> canalesPorId = new HashMap<>();
+    catalogo.canales().values().forEach(c -> canalesPorId.put(c.getId(), c));
+
+    int ok = st.ok, err = st.err;
+    List<String> erroresMuestra = new ArrayList<>(st.errores.values());
+
+    // ==== 3) Persistir grupos como ventas con detalles + kardex ====
+    // === Rama persistente: crear ventas/detalles/kardex + cerrar bitácora ===
+    if (!isDryRun) {
+      // TipoMovimiento VENTA (debe existir en catálogo)
+      TipoMovimiento tipoVenta = tipoMovRepo.findByCodigo("VENTA")
+          .orElseThrow(() -> new BusinessException("TipoMovimiento 'VENTA' no configurado"));
+      Usuario userRef = usuarioRepo.findById(usuarioId)
+          .orElseThrow(() -> new BusinessException("Usuario no encontrado id=" + usuarioId));
+      // Observacion que pondremos en kardex
+      final String observacionBase = construirObservacionBase(nombreArchivo, opciones);
+
+      // Orden de grupos = orden de cabecera (fecha, canal, referencia): determinista entre ejecuciones
+      verificarCheckpoint(bit, resumen);
+
+      ContextoPersistencia ctx = new ContextoPersistencia(bit.getId(), tipoVenta, userRef, observacionBase,
+          canalesPorId, opciones, progreso, cargarCabecerasExistentes(resumen), st.cambios);
+      int commitCada = (opciones != null && opciones.getCommitCadaCabeceras() != null)
+          ? opciones.getCommitCadaCabeceras() : commitCadaPorDefecto;
+      int tramo = commitCada > 0 ? commitCada : Integer.MAX_VALUE;
+      progreso.iniciarPersistencia(resumen.total(), desde);
+
+      // Se vuelven a recorrer las filas ordenadas; la validación ya quedó registrada, aquí solo filtra.
+      // Agrupar (merge de runs + armado de ítems) corre en su etapa mientras este hilo escribe en la BD
+      EtapaAsincrona<Map.Entry<CabKey, List<ParsedItem>>> etapa = iniciarEtapa(colaGrupos, progreso,
+          "agrupacion", "escritura", salida -> {
+            Iterator<Map.Entry<CabKey, List<ParsedItem>>> it = iterarGrupos(st, catalogo, desde);
+            while (it.hasNext()) salida.emitir(it.next(), 1);
+          });
+      Iterator<Map.Entry<CabKey, List<ParsedItem>>> grupos = (etapa != null) ? etapa : iterarGrupos(st, catalogo, desde);
+      int confirmados = desde;
+      try {
+        while (grupos.hasNext()) {
+          // Tramo + checkpoint en la misma transacción: o se confirman ambos o ninguno
+          final int previos = confirmados;
+          TramoPersistido t = txTemplate.execute(status -> {
+            TramoPersistido r = persistirTramo(grupos, tramo, ctx);
+            bitacoraRepo.actualizarCheckpoint(ctx.bitacoraId(), previos + r.grupos(), r.ultimo());
+            return r;
+          });
+          confirmados += t.grupos();
+          st.huboCommit = true;
+          bit.setGruposConfirmados(confirmados);
+          bit.setUltimoGrupo(t.ultimo());
+          log.debug("Importación bitácora {}: {} / {} grupos confirmados", bit.getId(), confirmados, resumen.total());
+        }
+      } finally {
+        if (etapa != null) etapa.close();
       }
+      if (etapa != null) log.info("Importación bitácora {}: etapas {}", bit.getId(), progreso.getEtapas());
+
+      // ==== 4) Cerrar bitácora con los conteos reales ====
+      bit.setFilasOk(ok);
+      bit.setFilasError(err);
+      bit.setEstado(EstadoCarga.COMPLETADA);
+      bitacoraRepo.save(bit);
+
+      // === invalidar las entradas de reportes que cubren lo importado ===
+      publicarCambios(st);
+
+      return ImportResultadoDTO.builder()
+          .bitacoraId(bit.getId())
+          .filasOk(ok)
+          .filasError(err)
+          .erroresMuestra(erroresMuestra.size() > 10 ? erroresMuestra.subList(0, 10) : erroresMuestra)
+          .gruposConfirmados(bit.getGruposConfirmados())
+          .build();
     }
     // ==== Rama dry-run: NO se persiste nada, bitácoraId = null ===
     return ImportResultadoDTO.builder()
@@ -324,41 +813,600 @@ public class ImportacionServiceImpl implements ImportacionService {
 
   }
 
-  private void evictReportCaches() {
-    List<String> names = List.of("top15","kpiCategoriaMensual","kpiProductoMensual","kpiSkuMensual",
-                                "kpiCategoriaTotal","kpiProductoTotal","kpiSkuTotal","alertasStock");
-    for (String n : names) {
-      var c = cacheManager.getCache(n);
-      if (c != null) c.clear();
+  /** ANALISTA solo puede ejecutar en modo soloValidar */
+  private void validarRolAnalista(boolean isDryRun) {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    boolean isAnalista = auth != null
+        && auth.getAuthorities().stream().anyMatch(a -> "ROLE_ANALISTA".equals(a.getAuthority()));
+
+    // Analista no puede persistir (solo pre-validacion)
+    if (isAnalista && !isDryRun) {
+      throw new AccessDeniedException("Analista solo puede pre-validar (soloValidar=true).");
+    }
+  }
+
+  private BitacoraCarga abrirBitacora(String nombreArchivo, Long usuarioId, ImportOpcionesDTO opciones,
+      EstadoCarga estadoInicial, String sha256) {
+    Long reanudarId = (opciones != null) ? opciones.getReanudarBitacoraId() : null;
+    return (reanudarId != null)
+        ? prepararReanudacion(reanudarId, estadoInicial, sha256)
+        : crearBitacora(nombreArchivo, usuarioId, estadoInicial, sha256);
+  }
+
+  /**
+   * Última carga de ventas del mismo contenido (SHA-256) que no fue cancelada. Con permitirArchivoRepetido,
+   * o al reanudar (por definición el mismo archivo), se procesa igual.
+   */
+  private Optional<BitacoraCarga> cargaPreviaDelMismoArchivo(String sha256, ImportOpcionesDTO opciones) {
+    if (opciones != null && (opciones.isPermitirArchivoRepetido() || opciones.getReanudarBitacoraId() != null)) {
+      return Optional.empty();
+    }
+    return bitacoraRepo.findFirstByHashArchivoAndTipoCargaAndEstadoInOrderByIdDesc(sha256, TipoCarga.VENTAS,
+        ESTADOS_ARCHIVO_REPETIDO);
+  }
+
+  private ImportResultadoDTO resultadoArchivoRepetido(BitacoraCarga previa) {
+    log.info("Importación omitida: archivo idéntico a la carga {} ({})", previa.getId(), previa.getEstado());
+    return ImportResultadoDTO.builder()
+        .bitacoraId(previa.getId())
+        .filasOk(previa.getFilasOk())
+        .filasError(previa.getFilasError())
+        .erroresMuestra(List.of())
+        .gruposConfirmados(previa.getGruposConfirmados())
+        .duplicadoDeBitacoraId(previa.getId())
+        .mensaje(mensajeArchivoRepetido(previa))
+        .build();
+  }
+
+  private String mensajeArchivoRepetido(BitacoraCarga previa) {
+    return switch (previa.getEstado()) {
+      case INTERRUMPIDA -> "Archivo idéntico a la carga " + previa.getId()
+          + ", que quedó interrumpida; reanúdela con reanudarBitacoraId=" + previa.getId() + ".";
+      case EN_COLA, EN_PROCESO -> "Archivo idéntico a la carga " + previa.getId() + ", aún en curso.";
+      default -> "Archivo idéntico ya importado en la carga " + previa.getId()
+          + " (permitirArchivoRepetido=true para procesarlo de nuevo).";
+    };
+  }
+
+  /** Libera el progreso en memoria de jobs terminados hace más de la retención configurada */
+  private void purgarJobsFinalizados() {
+    LocalDateTime limite = LocalDateTime.now().minusMinutes(retencionJobsMinutos);
+    jobs.values().removeIf(p -> p.isFinalizado() && p.getFinalizadoEn().isBefore(limite));
+  }
+
+  private BitacoraCarga crearBitacora(String nombreArchivo, Long usuarioId, EstadoCarga estadoInicial,
+      String sha256) {
+    BitacoraCarga bit = new BitacoraCarga();
+    bit.setFechaHora(LocalDateTime.now());
+    bit.setUsuario(usuarioRepo.findById(usuarioId)
+        .orElseThrow(() -> new BusinessException("Usuario no encontrado id=" + usuarioId)));
+    bit.setTipoCarga(TipoCarga.VENTAS);
+    bit.setArchivoNombre(nombreArchivo);
+    bit.setHashArchivo(sha256);
+    bit.setFilasOk(0);
+    bit.setFilasError(0);
+    bit.setEstado(estadoInicial);
+    bit.setGruposConfirmados(0);
+    return bitacoraRepo.save(bit);
+  }
+
+  /** Retoma la bitácora de una carga de ventas no completada */
+  private BitacoraCarga prepararReanudacion(Long bitacoraId, EstadoCarga estadoInicial, String sha256) {
+    BitacoraCarga bit = bitacoraRepo.findById(bitacoraId)
+        .orElseThrow(() -> new BusinessException("Bitácora no encontrada id=" + bitacoraId));
+    if (bit.getTipoCarga() != TipoCarga.VENTAS) {
+      throw new BusinessException("La bitácora " + bitacoraId + " no corresponde a una carga de ventas.");
+    }
+    if (bit.getEstado() == EstadoCarga.COMPLETADA) {
+      throw new BusinessException("La carga " + bitacoraId + " ya fue completada.");
+    }
+    ProgresoImportacion activo = jobs.get(bitacoraId);
+    if (activo != null && !activo.isFinalizado()) {
+      throw new BusinessException("La carga " + bitacoraId + " está en ejecución.");
+    }
+    if (bit.getGruposConfirmados() == 0) {
+      // No llegó a confirmar ningún tramo: se re-registran los errores desde cero
+      bitErrorRepo.eliminarPorBitacora(bitacoraId);
+    }
+    if (bit.getHashArchivo() == null) bit.setHashArchivo(sha256); // bitácoras anteriores al hash
+    bit.setEstado(estadoInicial);
+    log.info("Reanudando importación bitácora {} desde el grupo {}", bitacoraId, bit.getGruposConfirmados());
+    return bitacoraRepo.save(bit);
+  }
+
+  /**
+   * Índice del primer grupo pendiente. Al reanudar, el grupo del checkpoint debe coincidir con el del
+   * archivo recibido; si no, se trata de otro archivo (o cambió) y reanudar duplicaría ventas.
+   */
+  private void verificarCheckpoint(BitacoraCarga bit, ResumenGrupos resumen) {
+    int desde = bit.getGruposConfirmados();
+    if (desde == 0) return;
+    if (desde > resumen.total() || !bit.getUltimoGrupo().equals(resumen.checkpoint())) {
+      throw new BusinessException("El archivo no coincide con la carga a reanudar (checkpoint en el grupo "
+          + desde + ": " + bit.getUltimoGrupo() + ").");
+    }
+  }
+
+  /**
+   * Cabeceras con referencia ya registradas en la ventana de fechas de los grupos pendientes, en una sola
+   * consulta por rango. El set se sigue llenando con lo que se inserta, así también detecta grupos del
+   * archivo que la BD consideraría la misma cabecera (referencia con otra capitalización o espacios).
+   */
+  private Set<String> cargarCabecerasExistentes(ResumenGrupos resumen) {
+    Set<String> existentes = new HashSet<>();
+    if (resumen.min() == null) return existentes;
+
+    ventaRepo.cabecerasConReferenciaEnRango(resumen.min(), resumen.max(), resumen.canalIds()).forEach(c ->
+        existentes.add(CabKey.claveCabecera(c.getFechaHora(), c.getCanalId(), c.getReferenciaOrigen())));
+    log.debug("Importación: {} cabeceras existentes entre {} y {}", existentes.size(), resumen.min(), resumen.max());
+    return existentes;
+  }
+
+  /**
+   * Persiste hasta {@code maxGrupos} grupos (cabeceras) del iterador en la transacción en curso, en lotes
+   * JDBC: en memoria solo queda el lote abierto, aunque el tramo sea todo el archivo.
+   */
+  private TramoPersistido persistirTramo(Iterator<Map.Entry<CabKey, List<ParsedItem>>> grupos, int maxGrupos,
+      ContextoPersistencia ctx) {
+    // Cabeceras acumuladas hasta completar un lote; se escriben por JDBC batch (ver escribirLote)
+    List<Venta> loteVentas = new ArrayList<>();
+    List<VentaDetalle> loteDetalles = new ArrayList<>();
+    List<KardexMovimiento> loteKardex = new ArrayList<>();
+    int procesados = 0;
+    String ultimo = null;
+
+    while (procesados < maxGrupos && grupos.hasNext()) {
+      if (ctx.progreso().isCancelado()) throw new CancellationException("Importación cancelada por el usuario.");
+      Map.Entry<CabKey, List<ParsedItem>> entry = grupos.next();
+      procesados++;
+      ctx.progreso().gruposPersistidos(1);
+      CabKey cab = entry.getKey();
+      ultimo = cab.checkpoint();
+      List<ParsedItem> items = entry.getValue();
+
+      CanalVenta canal = ctx.canalesPorId().get(cab.canalId());
+
+      String ref = cab.referencia();
+      LocalDateTime fechaCab = cab.fechaHora();
+
+      // Evitar duplicados de cabecera (fecha+canal+ref) contra BD y contra grupos anteriores del mismo archivo
+      boolean dup = (ref != null && !ctx.cabecerasExistentes().add(cab.claveDuplicado()));
+      if (dup) {
+        log.warn("Cabecera duplicada: fecha={}, canalId={}, ref={}", fechaCab, cab.canalId(), ref);
+        continue; // saltar venta completa
+      }
+
+      // ===== Asignacion de temporada segun opciones =====
+      Temporada temporadaAsignada = resolvTemporadaPara(fechaCab, ctx.opciones());
+
+      // Crear cabecera (el id se asigna al escribir el lote)
+      LocalDateTime ahora = LocalDateTime.now();
+      Venta v = new Venta();
+      v.setFechaHora(fechaCab);
+      v.setCanal(canal);
+      v.setReferenciaOrigen(ref);
+      v.setTemporada(temporadaAsignada);
+      v.setEstado(EstadoVenta.ACTIVA);
+      v.setCreatedAt(ahora);
+      v.setUpdatedAt(ahora);
+      v.setCreatedBy(ctx.userRef());
+
+      BigDecimal total = BigDecimal.ZERO;
+
+      for (ParsedItem it : items) {
+        VarianteSku sku = it.sku;
+
+        // Detalle
+        VentaDetalle det = new VentaDetalle();
+        det.setVenta(v);
+        det.setSku(sku);
+        det.setCantidad(it.cantidad);
+        det.setPrecioUnitario(it.precioUnit);
+        det.setPrecioLista(it.precioLista != null ? it.precioLista : sku.getPrecioLista());
+
+        BigDecimal importe = it.precioUnit.multiply(BigDecimal.valueOf(it.cantidad)).setScale(2,
+            RoundingMode.HALF_UP);
+        det.setImporte(importe);
+        loteDetalles.add(det);
+        ctx.cambios().registrar(fechaCab, canal.getId(), sku.getId());
+
+        total = total.add(importe);
+
+        // Kardex (VENTA: -1); venta/detalle se referencian por objeto y sus ids existen al escribir el lote
+        KardexMovimiento k = new KardexMovimiento();
+        k.setFechaHora(fechaCab);
+        k.setTipo(ctx.tipoVenta());
+        k.setSku(sku);
+        k.setCantidad(it.cantidad);
+        k.setSigno(-1);
+        k.setCanal(canal);
+        k.setVenta(v);
+        k.setVentaDetalle(det);
+        k.setReferencia(ref);
+        k.setUsuario(ctx.userRef());
+        k.setCreatedAt(ahora);
+        k.setObservacion(ctx.observacionBase());
+        // Clave estable por (bitácora, fila): reanudar la misma carga no puede duplicar kardex
+        k.setIdempotencyKey(generarIdemKey(ctx.bitacoraId(), it.filaExcel, "VENTA"));
+        loteKardex.add(k);
+      }
+
+      // El total ya se conoce antes del INSERT: no hace falta un UPDATE posterior
+      v.setTotal(total.setScale(2, RoundingMode.HALF_UP));
+      loteVentas.add(v);
+
+      if (loteVentas.size() >= tamanioLote) {
+        escribirLote(loteVentas, loteDetalles, loteKardex);
+      }
+    }
+    escribirLote(loteVentas, loteDetalles, loteKardex);
+    return new TramoPersistido(procesados, ultimo);
+  }
+
+  /**
+   * Escribe un lote de cabeceras con sus detalles y movimientos de kardex.
+   * Orden: ventas → detalles → kardex, porque cada nivel necesita los ids generados del anterior.
+   */
+  private void escribirLote(List<Venta> ventas, List<VentaDetalle> detalles, List<KardexMovimiento> movimientos) {
+    if (ventas.isEmpty()) return;
+
+    descartarYaRegistradas(ventas, detalles, movimientos);
+    if (!ventas.isEmpty()) {
+      cargaMasivaRepo.insertarVentas(ventas);
+      cargaMasivaRepo.insertarDetalles(detalles);
+      cargaMasivaRepo.insertarKardex(movimientos);
+      resumenMensualRepo.sumar(detalles);
+      cubo.sumar(detalles);
+    }
+
+    ventas.clear();
+    detalles.clear();
+    movimientos.clear();
+  }
+
+  /**
+   * Quita del lote las cabeceras con algún movimiento cuya idempotency_key ya está en kardex (reanudación de la
+   * misma carga tras un corte): la venta completa se omite, no solo el movimiento, para no dejar ventas sin kardex.
+   */
+  private void descartarYaRegistradas(List<Venta> ventas, List<VentaDetalle> detalles,
+      List<KardexMovimiento> movimientos) {
+    Set<String> claves = new HashSet<>();
+    movimientos.forEach(k -> claves.add(k.getIdempotencyKey()));
+    Set<String> existentes = new HashSet<>(kardexRepo.idempotencyKeysExistentes(claves));
+    if (existentes.isEmpty()) return;
+
+    Set<Venta> registradas = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (KardexMovimiento k : movimientos) {
+      if (existentes.contains(k.getIdempotencyKey())) registradas.add(k.getVenta());
+    }
+    ventas.removeIf(registradas::contains);
+    detalles.removeIf(d -> registradas.contains(d.getVenta()));
+    movimientos.removeIf(k -> registradas.contains(k.getVenta()));
+    log.warn("Importación: {} cabeceras omitidas, su kardex ya estaba registrado", registradas.size());
+  }
+
+  /** Rango de fechas, canales y SKUs escritos (incluye tramos revertidos: solo sobra invalidación) */
+  private void publicarCambios(EstadoParseo st) {
+    if (!st.cambios.isVacio()) publisher.publishEvent(st.cambios.ventas());
+  }
+
+  /**
+   * 1ª pasada: parsea y valida formato de una fila de datos. Solo junta los códigos de SKU y canal;
+   * la validación contra catálogo se hace en bloque en la 2ª pasada ({@link #validarFila}).
+   * Canal, Referencia y SKU se leen como se ven en la hoja; fecha, cantidad y precios de su valor crudo.
+   */
+  private void leerFila(EstadoParseo st, int i, String[] celdas, String[] crudos) {
+    ExcelUtil.HeaderMapping hm = st.hm;
+    try {
+      // --- Leer por nombre de columnas ---
+      String fechaTxt = celda(crudos, hm.col("FechaHora"));
+      LocalDateTime fechaHora = st.perfil.fechaHora(hm.col("FechaHora"), fechaTxt);
+      if (fechaHora == null) throw campoInvalido("FechaHora", fechaTxt);
+      fechaHora = fechaHora.withNano(0); // normalizar a segundos
+
+      String canalCodigo = excelUtil.leerString(celda(celdas, hm.col("CanalCodigo")));
+      if (StringUtils.isBlank(canalCodigo)) throw campoInvalido("CanalCodigo", null);
+      // "Referencia" puede no estar en el encabezado si no es obligatorio
+      Integer colRef = hm.col("Referencia");
+      String referencia = (colRef != null) ? excelUtil.leerString(celda(celdas, colRef)) : null;
+      String skuStr = IdentificacionSku.leer(excelUtil, indiceSkus, hm, celdas);
+
+      String cantidadTxt = celda(crudos, hm.col("Cantidad"));
+      Integer cantidad = st.perfil.entero(hm.col("Cantidad"), cantidadTxt);
+      if (cantidad == null || cantidad <= 0) throw campoInvalido("Cantidad", cantidadTxt);
+
+      String precioTxt = celda(crudos, hm.col("PrecioUnitario"));
+      BigDecimal precioUnit = st.perfil.decimal(hm.col("PrecioUnitario"), precioTxt);
+      if (precioUnit == null || precioUnit.signum() < 0) throw campoInvalido("PrecioUnitario", precioTxt);
+
+      Integer colPL = hm.col("PrecioLista");
+      BigDecimal precioLista = (colPL != null) ? st.perfil.decimal(colPL, celda(crudos, colPL)) : null;
+
+      String canalKey = canalCodigo.toUpperCase(Locale.ROOT);
+      st.progreso.filaLeida();
+      FilaLeida fila = new FilaLeida(i + 1, fechaHora, canalKey, referencia, skuStr, cantidad, precioUnit, precioLista);
+      if (st.ordenador != null) st.ordenador.agregar(fila);
+      else st.filas.add(fila);
+      st.canalCodigos.add(canalKey);
+      st.skuCodigos.add(skuStr);
+    } catch (Exception e) {
+      registrarError(st, i + 1, e);
+    }
+  }
+
+  /** Separador decimal de las columnas numéricas según las filas de muestra */
+  private void observarMuestra(EstadoParseo st, String[] crudos) {
+    for (String key : COLUMNAS_NUMERICAS) {
+      Integer col = st.hm.col(key);
+      if (col != null) st.perfil.observar(col, celda(crudos, col));
+    }
+  }
+
+  /** Fija el perfil y procesa las filas retenidas en su orden original */
+  private void liberarMuestra(EstadoParseo st, List<FilaCruda> muestra, LectorFilas.ConsumidorFila despachar) {
+    st.perfil.congelar();
+    for (FilaCruda f : muestra) despachar.aceptar(f.indice(), f.celdas(), f.crudos());
+    muestra.clear();
+  }
+
+  /** Resuelve todos los códigos distintos del archivo con consultas IN por bloques */
+  private CatalogoImport resolverCatalogo(Set<String> skuCodigos, Set<String> canalCodigos) {
+    Map<String, CanalVenta> canales = new HashMap<>();
+    for (List<String> chunk : enBloques(canalCodigos)) {
+      canalRepo.findByCodigoIn(chunk).forEach(c -> canales.put(c.getCodigo().toUpperCase(Locale.ROOT), c));
+    }
+    // Clave en mayúsculas: la collation de MySQL compara SKU sin distinguir mayúsculas
+    Map<String, VarianteSku> skus = new HashMap<>();
+    for (List<String> chunk : enBloques(skuCodigos)) {
+      skuRepo.findBySkuIn(chunk).forEach(v -> skus.put(v.getSku().toUpperCase(Locale.ROOT), v));
+    }
+    log.debug("Importación: catálogo resuelto ({} canales, {} SKUs de {} códigos)",
+        canales.size(), skus.size(), skuCodigos.size());
+    return new CatalogoImport(canales, skus);
+  }
+
+  /** 2ª pasada del dry-run: valida contra catálogo las filas en memoria (solo cuenta ok/err) */
+  private void validarFilas(EstadoParseo st, CatalogoImport catalogo) {
+    for (FilaLeida f : st.filas) validarFila(st, catalogo, f, true);
+    st.filas = null;
+  }
+
+  /**
+   * 2ª pasada persistente: recorre las filas ordenadas por cabecera, valida cada una y cuenta los grupos
+   * (filas válidas consecutivas con la misma cabecera). Anota el checkpoint del grupo {@code desde} y la
+   * ventana de fechas/canales de las cabeceras con referencia que faltan persistir.
+   */
+  private ResumenGrupos validarYContarGrupos(EstadoParseo st, CatalogoImport catalogo, int desde) {
+    int total = 0;
+    String checkpoint = null;
+    LocalDateTime min = null, max = null;
+    Set<Long> canalIds = new HashSet<>();
+    FilaLeida anterior = null;
+    for (Iterator<FilaLeida> it = st.ordenador.recorrer(); it.hasNext();) {
+      FilaLeida f = it.next();
+      if (validarFila(st, catalogo, f, true) == null) continue;
+      if (anterior != null && f.mismaCabecera(anterior)) continue;
+      anterior = f;
+      total++;
+      CabKey k = clave(f, catalogo);
+      if (total == desde) checkpoint = k.checkpoint();
+      if (total <= desde || k.referencia() == null) continue;
+      if (min == null || k.fechaHora().isBefore(min)) min = k.fechaHora();
+      if (max == null || k.fechaHora().isAfter(max)) max = k.fechaHora();
+      canalIds.add(k.canalId());
+    }
+    log.debug("Importación: {} filas en {} grupos ({} runs en disco)", st.ordenador.getTotal(), total,
+        st.ordenador.getRuns());
+    return new ResumenGrupos(total, checkpoint, min, max, canalIds);
+  }
+
+  /**
+   * Valida una fila contra el catálogo y arma su ítem; null si no es válida. Con {@code registrar} la cuenta
+   * como ok/error (2ª pasada); sin él solo filtra, al volver a recorrer las filas para persistir.
+   */
+  private ParsedItem validarFila(EstadoParseo st, CatalogoImport catalogo, FilaLeida f, boolean registrar) {
+    try {
+      CanalVenta canal = catalogo.canales().get(f.canalCodigo());
+      if (canal == null) {
+        throw new CampoInvalidoException("CanalCodigo", f.canalCodigo(), "Canal no configurado: " + f.canalCodigo());
+      }
+
+      // Regla: referencia obligatoria si FISICO
+      if ("FISICO".equalsIgnoreCase(canal.getCodigo()) && StringUtils.isBlank(f.referencia())) {
+        throw new CampoInvalidoException("Referencia", f.referencia(), "Referencia obligatoria para canal FISICO.");
+      }
+
+      VarianteSku sku = catalogo.skus().get(f.skuStr().toUpperCase(Locale.ROOT));
+      if (sku == null) {
+        throw new CampoInvalidoException("SKU", f.skuStr(), "SKU no encontrado: " + f.skuStr());
+      }
+
+      // Armar item
+      ParsedItem item = new ParsedItem();
+      item.filaExcel = f.filaExcel();
+      item.sku = sku;
+      item.cantidad = f.cantidad();
+      item.precioUnit = f.precioUnit();
+      item.precioLista = (f.precioLista() != null ? f.precioLista() : sku.getPrecioLista());
+
+      if (registrar) {
+        st.ok++; // fila válida
+        st.progreso.filaOk();
+      }
+      return item;
+    } catch (Exception e) {
+      if (registrar) registrarError(st, f.filaExcel(), e);
+      return null;
+    }
+  }
+
+  private static CabKey clave(FilaLeida f, CatalogoImport catalogo) {
+    return new CabKey(f.fechaHora(), catalogo.canales().get(f.canalCodigo()).getId(), f.referencia());
+  }
+
+  /**
+   * Recorre el archivo con la lectura (POI / CSV) en su propia etapa: entrega paquetes de filas por una cola
+   * acotada mientras este hilo las parsea, valida y ordena.
+   */
+  private void recorrerEnEtapa(LectorFilas lector, ProgresoImportacion progreso, LectorFilas.ConsumidorFila consumidor)
+      throws IOException {
+    EtapaAsincrona.Productor<List<FilaCruda>> leer = salida -> {
+      List<FilaCruda> paquete = new ArrayList<>(FILAS_POR_PAQUETE);
+      lector.recorrer((i, celdas, crudos) -> {
+        paquete.add(new FilaCruda(i, celdas, crudos));
+        if (paquete.size() >= FILAS_POR_PAQUETE) {
+          salida.emitir(List.copyOf(paquete), paquete.size());
+          paquete.clear();
+        }
+      });
+      if (!paquete.isEmpty()) salida.emitir(List.copyOf(paquete), paquete.size());
+    };
+    EtapaAsincrona<List<FilaCruda>> paquetes = iniciarEtapa(colaPaquetes, progreso, "lectura", "parseo", leer);
+    if (paquetes == null) {
+      lector.recorrer(consumidor);
+      return;
+    }
+    try (paquetes) {
+      while (paquetes.hasNext()) {
+        for (FilaCruda f : paquetes.next()) consumidor.aceptar(f.indice(), f.celdas(), f.crudos());
+      }
+    }
+  }
+
+  /**
+   * Etapa con el productor en etapasExecutor; null si el pipeline está deshabilitado o no hay hilo libre,
+   * y entonces el llamador hace el mismo trabajo en secuencia en su hilo.
+   */
+  private <T> EtapaAsincrona<T> iniciarEtapa(int capacidad, ProgresoImportacion progreso, String productor,
+      String consumidor, EtapaAsincrona.Productor<T> p) {
+    if (!pipelineHabilitado) return null;
+    MetricasEtapa mp = new MetricasEtapa(productor), mc = new MetricasEtapa(consumidor);
+    try {
+      EtapaAsincrona<T> etapa = EtapaAsincrona.iniciar(etapasExecutor, capacidad, mp, mc, p);
+      progreso.registrarEtapas(mp, mc);
+      return etapa;
+    } catch (RejectedExecutionException e) {
+      log.debug("Importación: sin hilo libre para la etapa {}, se ejecuta en secuencia", productor);
+      return null;
     }
   }
 
+  /** Grupos pendientes (desde el índice {@code desde}) en orden de cabecera */
+  private Iterator<Map.Entry<CabKey, List<ParsedItem>>> iterarGrupos(EstadoParseo st, CatalogoImport catalogo,
+      int desde) {
+    Iterator<Map.Entry<CabKey, List<ParsedItem>>> it = new IteradorGrupos(st.ordenador.recorrer(),
+        f -> validarFila(st, catalogo, f, false), catalogo);
+    for (int g = 0; g < desde && it.hasNext(); g++) it.next();
+    return it;
+  }
+
+  /** 1ª pasada de un bloque en el pool de validación (solo dry-run: no hay bitácora que escribir) */
+  private Future<EstadoParseo> leerBloque(EstadoParseo st, List<FilaCruda> filas) {
+    return validacionExecutor.submit(() -> {
+      EstadoParseo b = st.bloque(new ArrayList<>(filas.size()));
+      for (FilaCruda f : filas) leerFila(b, f.indice(), f.celdas(), f.crudos());
+      return b;
+    });
+  }
+
+  /**
+   * 2ª pasada del dry-run por rangos de filas en paralelo. El catálogo ya está resuelto y solo se lee,
+   * así que los hilos lo comparten sin sincronizar; los resultados se fusionan en orden de rango.
+   */
+  private void validarFilasEnParalelo(EstadoParseo st, CatalogoImport catalogo) {
+    List<Future<EstadoParseo>> rangos = new ArrayList<>();
+    for (int desde = 0; desde < st.filas.size(); desde += filasPorBloque) {
+      List<FilaLeida> rango = st.filas.subList(desde, Math.min(desde + filasPorBloque, st.filas.size()));
+      rangos.add(validacionExecutor.submit(() -> {
+        EstadoParseo b = st.bloque(rango);
+        validarFilas(b, catalogo);
+        return b;
+      }));
+    }
+    // Cada rango termina con filas = null: la fusión solo suma conteos y errores
+    for (Future<EstadoParseo> r : rangos) st.fusionar(esperar(r));
+    st.filas = null;
+  }
+
+  private static <T> T esperar(Future<T> tarea) {
+    try {
+      return tarea.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Importación interrumpida.");
+    } catch (ExecutionException e) {
+      throw (e.getCause() instanceof RuntimeException re) ? re : new IllegalStateException(e.getCause());
+    }
+  }
+
+  private void registrarError(EstadoParseo st, int fila, Exception e) {
+    st.err++;
+    String detalle = "Fila " + fila + ": " + e.getMessage();
+    st.errores.put(fila, detalle);
+    st.recortarErrores();
+    st.progreso.filaError(detalle);
+    // bitacora_error (solo en modo persistente) por lotes y log limitado por tipo de error
+    st.bufferErrores.registrar(fila, e);
+  }
+
+  private static CampoInvalidoException campoInvalido(String campo, String valorOriginal) {
+    return new CampoInvalidoException(campo, valorOriginal, "Datos obligatorios faltantes o inválidos: " + campo + ".");
+  }
+
+  /** Al interrumpirse la carga, los errores ya detectados igual quedan en la bitácora */
+  private void vaciarErrores(EstadoParseo st) {
+    if (st.bufferErrores == null) return;
+    try {
+      st.bufferErrores.cerrar();
+    } catch (RuntimeException ex) {
+      log.warn("No se pudieron registrar los errores pendientes de la importación: {}", ex.getMessage());
+    }
+  }
+
+  private static List<List<String>> enBloques(Set<String> codigos) {
+    List<String> todos = new ArrayList<>(codigos);
+    List<List<String>> bloques = new ArrayList<>();
+    for (int desde = 0; desde < todos.size(); desde += TAMANIO_CHUNK_CATALOGO) {
+      bloques.add(todos.subList(desde, Math.min(desde + TAMANIO_CHUNK_CATALOGO, todos.size())));
+    }
+    return bloques;
+  }
+
   // === Helpers ===
-  private Cell getCell(Row row, Integer colIndex) {
-    if (row == null || colIndex == null)
+  private String celda(String[] celdas, Integer colIndex) {
+    if (celdas == null || colIndex == null || colIndex >= celdas.length)
       return null;
-    return row.getCell(colIndex);
+    return celdas[colIndex];
   }
 
+  /**
+   * Temporada por cabecera resuelta con el índice en memoria: sin consultas por cabecera. La venta solo
+   * necesita el id (INSERT por JDBC), por eso basta la referencia.
+   */
   private Temporada resolvTemporadaPara(LocalDateTime fechaHora, ImportOpcionesDTO opciones) {
     if (opciones == null || opciones.getModoTemporada() == null) {
-      return temporadaRepo.findActivaQueContenga(fechaHora.toLocalDate()).orElse(null);
+      return temporadaAutomatica(fechaHora);
     }
     AsignacionTemporadaModo modo = opciones.getModoTemporada();
     return switch (modo) {
-      case AUTOMATICA -> temporadaRepo.findActivaQueContenga(fechaHora.toLocalDate()).orElse(null);
+      case AUTOMATICA -> temporadaAutomatica(fechaHora);
       case FIJAR -> {
         if (opciones.getTemporadaId() == null) {
           throw new BusinessException("Se requiere temporadaId cuando el modo es FIJAR.");
         }
-        Temporada t = temporadaRepo.findActivaById(opciones.getTemporadaId())
-            .orElseThrow(() -> new BusinessException("Temporada fija no encontrada o no activa."));
-        yield t;
+        if (!indiceTemporadas.esActiva(opciones.getTemporadaId())) {
+          throw new BusinessException("Temporada fija no encontrada o no activa.");
+        }
+        yield temporadaRepo.getReferenceById(opciones.getTemporadaId());
       }
       case NINGUNA -> null;
     };
   }
 
+  private Temporada temporadaAutomatica(LocalDateTime fechaHora) {
+    return indiceTemporadas.idQueContenga(fechaHora.toLocalDate()).map(temporadaRepo::getReferenceById).orElse(null);
+  }
+
   private String construirObservacionBase(String nombreArchivo, ImportOpcionesDTO opciones) {
     StringBuilder sb = new StringBuilder("Importacion Excel: ").append(nombreArchivo);
     if (opciones != null && StringUtils.isNotBlank(opciones.getObservacionGeneral())) {
@@ -367,8 +1415,8 @@ public class ImportacionServiceImpl implements ImportacionService {
     return sb.toString();
   }
 
-  private String generarIdemKey(Long ventaId, Long detId, String tipo) {
-    String base = ventaId + "|" + detId + "|" + tipo;
+  private String generarIdemKey(Long bitacoraId, int filaExcel, String tipo) {
+    String base = "IMPORT|" + bitacoraId + "|" + filaExcel + "|" + tipo;
     return UUID.nameUUIDFromBytes(base.getBytes(StandardCharsets.UTF_8)).toString();
   }
 }
\ No newline at end of file
@@ -5,9 +5,11 @@ import java.util.Objects;
 import java.util.UUID;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import com.colors.savd.cache.CambioDatosReporte;
 import com.colors.savd.dto.MovimientoInventarioDTO;
 import com.colors.savd.exception.BusinessException;
 import com.colors.savd.model.CanalVenta;
@@ -31,6 +33,7 @@ public class InventarioServiceImpl implements InventarioService{
     private final TipoMovimientoRepository tipoMovRepo;
     private final CanalVentaRepository canalRepo;
     private final UsuarioRepository usuarioRepo;
+    private final ApplicationEventPublisher publisher;
 
     @Override @Transactional
     public Long registrarStockInicial(MovimientoInventarioDTO dto, Long usuarioId) {
@@ -60,6 +63,7 @@ public class InventarioServiceImpl implements InventarioService{
         try { kardexRepo.save(k); } 
         catch (DataIntegrityViolationException ex) { /* log + opcionalmente buscar y retornar el id existente */ }
 
+        publisher.publishEvent(CambioDatosReporte.stock(fecha, sku.getId()));
         return k.getId();
     }
 
@@ -98,10 +102,12 @@ public class InventarioServiceImpl implements InventarioService{
         try { kardexRepo.save(k); } 
         catch (DataIntegrityViolationException ex) { /* log + opcionalmente buscar y retornar el id existente */ }
 
+        publisher.publishEvent(CambioDatosReporte.stock(fecha, sku.getId()));
         return k.getId();
     }
 
-    private String generarIdemKey(Long skuId, LocalDateTime fecha, String tipo, String referencia) {
+    /** Misma clave en el alta individual y en la importación masiva: un movimiento no se registra dos veces */
+    static String generarIdemKey(Long skuId, LocalDateTime fecha, String tipo, String referencia) {
         String base = skuId + "|" + fecha.toString() + "|" + tipo + "|" + Objects.toString(referencia, "");
         return UUID.nameUUIDFromBytes(base.getBytes()).toString();
     }
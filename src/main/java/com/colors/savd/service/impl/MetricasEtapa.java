@@ -0,0 +1,71 @@
+package com.colors.savd.service.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.colors.savd.dto.EtapaImportacionDTO;
+
+/**
+ * Contadores de una etapa del pipeline de importación. Los escribe solo el hilo de la etapa y los leen las
+ * consultas de progreso: elementos procesados y tiempo bloqueado esperando a la etapa vecina (cola llena
+ * para un productor, cola vacía para un consumidor). El tiempo restante es trabajo propio: la etapa con
+ * menos espera es el cuello de botella.
+ */
+final class MetricasEtapa {
+
+  private final String nombre;
+  private final AtomicLong elementos = new AtomicLong();
+  private final AtomicLong esperaNanos = new AtomicLong();
+  private volatile long inicioNanos = 0;
+  private volatile long finNanos = 0;
+
+  MetricasEtapa(String nombre) {
+    this.nombre = nombre;
+  }
+
+  void iniciar() {
+    if (inicioNanos == 0) inicioNanos = System.nanoTime();
+  }
+
+  void sumar(long n) {
+    elementos.addAndGet(n);
+  }
+
+  void esperado(long nanos) {
+    esperaNanos.addAndGet(nanos);
+  }
+
+  void terminar() {
+    if (finNanos == 0) finNanos = System.nanoTime();
+  }
+
+  String getNombre() {
+    return nombre;
+  }
+
+  long getElementos() {
+    return elementos.get();
+  }
+
+  EtapaImportacionDTO aDTO() {
+    long fin = (finNanos > 0) ? finNanos : System.nanoTime();
+    long total = (inicioNanos > 0) ? fin - inicioNanos : 0;
+    long espera = Math.min(esperaNanos.get(), total);
+    long activo = total - espera;
+    long n = elementos.get();
+    return EtapaImportacionDTO.builder()
+        .nombre(nombre)
+        .elementos(n)
+        .porSegundo(activo > 0 ? n / (activo / 1_000_000_000.0) : null)
+        .esperaMs(espera / 1_000_000)
+        .ocupacion(total > 0 ? activo / (double) total : null)
+        .finalizada(finNanos > 0)
+        .build();
+  }
+
+  @Override
+  public String toString() {
+    EtapaImportacionDTO d = aDTO();
+    return String.format("%s: %d en %s/s, espera %d ms", nombre, d.getElementos(),
+        d.getPorSegundo() != null ? String.format("%.0f", d.getPorSegundo()) : "-", d.getEsperaMs());
+  }
+}
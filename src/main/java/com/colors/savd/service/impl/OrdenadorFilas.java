@@ -0,0 +1,225 @@
+package com.colors.savd.service.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ordena las filas de una importación por cabecera con memoria acotada: mientras el buffer no supera
+ * {@code presupuestoBytes} todo queda en heap; al superarlo se ordena y se vuelca como "run" a un archivo
+ * temporal. {@link #recorrer()} entrega todas las filas en {@link FilaLeida#ORDEN_CABECERA} con una mezcla
+ * k-way de los runs y el buffer, y se puede llamar más de una vez (validación y persistencia).
+ * Un solo hilo; {@link #close()} cierra los runs que quedaron abiertos (recorrido a medias) y borra los temporales.
+ */
+@Slf4j
+class OrdenadorFilas implements Closeable {
+
+  private static final int BUFFER_IO = 64 * 1024;
+
+  private final long presupuestoBytes;
+  private final List<FilaLeida> buffer = new ArrayList<>();
+  private final List<Path> runs = new ArrayList<>();
+  private final List<LectorRun> lectores = new ArrayList<>();
+  private long bytesBuffer = 0;
+  private boolean ordenado = false;
+  private int total = 0;
+
+  OrdenadorFilas(long presupuestoBytes) {
+    this.presupuestoBytes = presupuestoBytes;
+  }
+
+  void agregar(FilaLeida fila) {
+    buffer.add(fila);
+    ordenado = false;
+    total++;
+    bytesBuffer += fila.bytesEstimados();
+    if (bytesBuffer >= presupuestoBytes) volcarRun();
+  }
+
+  int getTotal() {
+    return total;
+  }
+
+  int getRuns() {
+    return runs.size();
+  }
+
+  /** Todas las filas ordenadas por cabecera; los runs se leen en streaming */
+  Iterator<FilaLeida> recorrer() {
+    if (!ordenado) {
+      buffer.sort(FilaLeida.ORDEN_CABECERA);
+      ordenado = true;
+    }
+    if (runs.isEmpty()) return buffer.iterator();
+
+    List<Iterator<FilaLeida>> fuentes = new ArrayList<>(runs.size() + 1);
+    for (Path run : runs) {
+      LectorRun lector = new LectorRun(run);
+      lectores.add(lector);
+      fuentes.add(lector);
+    }
+    fuentes.add(buffer.iterator());
+    return new Mezcla(fuentes);
+  }
+
+  @Override
+  public void close() {
+    buffer.clear();
+    lectores.forEach(LectorRun::close);
+    lectores.clear();
+    for (Path run : runs) {
+      try {
+        Files.deleteIfExists(run);
+      } catch (IOException e) {
+        log.warn("No se pudo borrar run temporal {}: {}", run, e.getMessage());
+      }
+    }
+    runs.clear();
+  }
+
+  // ==== Runs en disco ====
+
+  private void volcarRun() {
+    buffer.sort(FilaLeida.ORDEN_CABECERA);
+    try {
+      Path run = Files.createTempFile("savd-grupos-", ".run");
+      runs.add(run);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_IO))) {
+        for (FilaLeida f : buffer) escribir(out, f);
+      }
+      log.debug("Importación: run {} con {} filas (~{} KB)", runs.size(), buffer.size(), bytesBuffer / 1024);
+    } catch (IOException e) {
+      throw new UncheckedIOException("No se pudo volcar filas a disco: " + e.getMessage(), e);
+    }
+    buffer.clear();
+    bytesBuffer = 0;
+  }
+
+  private static void escribir(DataOutputStream out, FilaLeida f) throws IOException {
+    out.writeInt(f.filaExcel());
+    out.writeLong(f.fechaHora().toEpochSecond(ZoneOffset.UTC));
+    out.writeInt(f.fechaHora().getNano());
+    out.writeUTF(f.canalCodigo());
+    escribirNullable(out, f.referencia());
+    out.writeUTF(f.skuStr());
+    out.writeInt(f.cantidad());
+    out.writeUTF(f.precioUnit().toString());
+    escribirNullable(out, f.precioLista() != null ? f.precioLista().toString() : null);
+  }
+
+  private static FilaLeida leer(DataInputStream in) throws IOException {
+    int fila = in.readInt();
+    LocalDateTime fecha = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    String canal = in.readUTF();
+    String ref = leerNullable(in);
+    String sku = in.readUTF();
+    int cantidad = in.readInt();
+    BigDecimal precio = new BigDecimal(in.readUTF());
+    String lista = leerNullable(in);
+    return new FilaLeida(fila, fecha, canal, ref, sku, cantidad, precio, lista != null ? new BigDecimal(lista) : null);
+  }
+
+  private static void escribirNullable(DataOutputStream out, String s) throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null) out.writeUTF(s);
+  }
+
+  private static String leerNullable(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  /** Lee un run secuencialmente; cierra el archivo al llegar al final o al cerrar el ordenador */
+  private static class LectorRun implements Iterator<FilaLeida>, Closeable {
+    private DataInputStream in;
+    private FilaLeida siguiente;
+
+    LectorRun(Path run) {
+      try {
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_IO));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      avanzar();
+    }
+
+    private void avanzar() {
+      try {
+        siguiente = leer(in);
+      } catch (EOFException e) {
+        close();
+      } catch (IOException e) {
+        close();
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /** Idempotente; después de cerrar el iterador queda agotado */
+    @Override
+    public void close() {
+      siguiente = null;
+      try {
+        in.close();
+      } catch (IOException ignored) {
+        // solo lectura
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return siguiente != null;
+    }
+
+    @Override
+    public FilaLeida next() {
+      if (siguiente == null) throw new NoSuchElementException();
+      FilaLeida f = siguiente;
+      avanzar();
+      return f;
+    }
+  }
+
+  /** Mezcla k-way: un heap con la fila en cabeza de cada fuente */
+  private static class Mezcla implements Iterator<FilaLeida> {
+    private record Cabeza(FilaLeida fila, Iterator<FilaLeida> fuente) {
+    }
+
+    private final PriorityQueue<Cabeza> heap =
+        new PriorityQueue<>((a, b) -> FilaLeida.ORDEN_CABECERA.compare(a.fila(), b.fila()));
+
+    Mezcla(List<Iterator<FilaLeida>> fuentes) {
+      for (Iterator<FilaLeida> f : fuentes) {
+        if (f.hasNext()) heap.add(new Cabeza(f.next(), f));
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heap.isEmpty();
+    }
+
+    @Override
+    public FilaLeida next() {
+      Cabeza c = heap.poll();
+      if (c == null) throw new NoSuchElementException();
+      if (c.fuente().hasNext()) heap.add(new Cabeza(c.fuente().next(), c.fuente()));
+      return c.fila();
+    }
+  }
+}
@@ -3,9 +3,11 @@ package com.colors.savd.service.impl;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.colors.savd.cache.CambioDatosReporte;
 import com.colors.savd.dto.ParametroReposicionDTO;
 import com.colors.savd.exception.BusinessException;
 import com.colors.savd.model.ParametroReposicion;
@@ -21,6 +23,7 @@ public class ParametroReposicionServiceImpl implements ParametroReposicionServic
 
     private final ParametroReposicionRepository repo;
     private final VarianteSkuRepository skuRepo;
+    private final ApplicationEventPublisher publisher;
 
     @Override @Transactional
     public ParametroReposicionDTO crear(ParametroReposicionDTO dto) {
@@ -38,6 +41,7 @@ public class ParametroReposicionServiceImpl implements ParametroReposicionServic
         p.setCreatedAt(LocalDateTime.now());
         p.setUpdatedAt(LocalDateTime.now());
         p = repo.save(p);
+        publisher.publishEvent(CambioDatosReporte.parametros());
         return toDTO(p);
     }
 
@@ -53,6 +57,7 @@ public class ParametroReposicionServiceImpl implements ParametroReposicionServic
         p.setUltimaActualizacion(LocalDateTime.now());
         p.setUpdatedAt(LocalDateTime.now());
         repo.save(p);
+        publisher.publishEvent(CambioDatosReporte.parametros());
         return toDTO(p);
     }
 
@@ -60,6 +65,7 @@ public class ParametroReposicionServiceImpl implements ParametroReposicionServic
     public void eliminar(Long id) {
         var p = repo.findById(id).orElseThrow(() -> new BusinessException("Parámetro no encontrado id=" + id));
         repo.delete(p);
+        publisher.publishEvent(CambioDatosReporte.parametros());
     }
 
     @Override @Transactional(readOnly = true)
@@ -0,0 +1,173 @@
+package com.colors.savd.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.colors.savd.dto.ImportJobDTO;
+import com.colors.savd.model.enums.EstadoCarga;
+
+/**
+ * Progreso en vivo de una importación. Lo escribe el hilo de la carga y lo leen las consultas
+ * GET /api/importaciones/{jobId}: contadores atómicos y campos volátiles, sin locks.
+ */
+class ProgresoImportacion {
+
+  static final int MAX_ERRORES_MUESTRA = 10;
+
+  private final Long jobId;
+  private volatile EstadoCarga estado = EstadoCarga.EN_COLA;
+  private volatile String fase = "EN_COLA";
+  private volatile boolean cancelado = false;
+  private volatile String mensaje;
+
+  private final AtomicInteger filasLeidas = new AtomicInteger();
+  private final AtomicInteger filasOk = new AtomicInteger();
+  private final AtomicInteger filasError = new AtomicInteger();
+  private final AtomicInteger gruposPersistidos = new AtomicInteger();
+  private volatile int gruposTotales = 0;
+  private volatile int gruposBase = 0; // confirmados en una ejecución anterior (reanudación)
+  private volatile int filasEstimadas = -1;
+  private final List<String> erroresMuestra = new ArrayList<>();
+  private final List<MetricasEtapa> etapas = new CopyOnWriteArrayList<>(); // en orden de creación
+
+  private volatile long inicioLecturaNanos = 0;
+  private volatile long inicioPersistenciaNanos = 0;
+  private volatile LocalDateTime iniciadoEn;
+  private volatile LocalDateTime finalizadoEn;
+
+  ProgresoImportacion(Long jobId) {
+    this.jobId = jobId;
+  }
+
+  // ==== Transiciones (hilo de la importación) ====
+
+  void iniciarLectura(int filasEstimadas) {
+    this.estado = EstadoCarga.EN_PROCESO;
+    this.fase = "LEYENDO";
+    this.filasEstimadas = filasEstimadas;
+    this.iniciadoEn = LocalDateTime.now();
+    this.inicioLecturaNanos = System.nanoTime();
+  }
+
+  void iniciarValidacion() {
+    this.fase = "VALIDANDO";
+  }
+
+  void iniciarPersistencia(int gruposTotales, int gruposYaConfirmados) {
+    this.fase = "PERSISTIENDO";
+    this.gruposTotales = gruposTotales;
+    this.gruposPersistidos.set(gruposYaConfirmados);
+    this.gruposBase = gruposYaConfirmados;
+    this.inicioPersistenciaNanos = System.nanoTime();
+  }
+
+  void finalizar(EstadoCarga estadoFinal, String mensaje) {
+    this.estado = estadoFinal;
+    this.fase = "FINALIZADA";
+    this.mensaje = mensaje;
+    this.finalizadoEn = LocalDateTime.now();
+  }
+
+  void filaLeida() {
+    filasLeidas.incrementAndGet();
+  }
+
+  void filaOk() {
+    filasOk.incrementAndGet();
+  }
+
+  void filaError(String detalle) {
+    filasError.incrementAndGet();
+    synchronized (erroresMuestra) {
+      if (erroresMuestra.size() < MAX_ERRORES_MUESTRA) erroresMuestra.add(detalle);
+    }
+  }
+
+  void gruposPersistidos(int n) {
+    gruposPersistidos.addAndGet(n);
+  }
+
+  /** Etapas del pipeline cuyo rendimiento se informa en el progreso */
+  void registrarEtapas(MetricasEtapa... m) {
+    etapas.addAll(List.of(m));
+  }
+
+  List<MetricasEtapa> getEtapas() {
+    return etapas;
+  }
+
+  // ==== Cancelación ====
+
+  void cancelar() {
+    this.cancelado = true;
+  }
+
+  boolean isCancelado() {
+    return cancelado;
+  }
+
+  boolean isFinalizado() {
+    return finalizadoEn != null;
+  }
+
+  LocalDateTime getFinalizadoEn() {
+    return finalizadoEn;
+  }
+
+  // ==== Lectura (hilos HTTP) ====
+
+  ImportJobDTO aDTO() {
+    long ahora = System.nanoTime();
+    int leidas = filasLeidas.get();
+    int persistidos = gruposPersistidos.get();
+
+    Double filasSeg = null;
+    Double gruposSeg = null;
+    Long eta = null;
+    if (inicioLecturaNanos > 0) {
+      double seg = segundos(inicioLecturaNanos, inicioPersistenciaNanos > 0 ? inicioPersistenciaNanos : ahora);
+      if (seg > 0) filasSeg = leidas / seg;
+      if ("LEYENDO".equals(fase) && filasSeg != null && filasSeg > 0 && filasEstimadas > leidas) {
+        eta = Math.round((filasEstimadas - leidas) / filasSeg);
+      }
+    }
+    if (inicioPersistenciaNanos > 0) {
+      double seg = segundos(inicioPersistenciaNanos, ahora);
+      if (seg > 0) gruposSeg = (persistidos - gruposBase) / seg;
+      if ("PERSISTIENDO".equals(fase) && gruposSeg != null && gruposSeg > 0) {
+        eta = Math.round(Math.max(gruposTotales - persistidos, 0) / gruposSeg);
+      }
+    }
+
+    List<String> muestra;
+    synchronized (erroresMuestra) {
+      muestra = new ArrayList<>(erroresMuestra);
+    }
+
+    return ImportJobDTO.builder()
+        .jobId(jobId)
+        .estado(estado)
+        .fase(fase)
+        .filasLeidas(leidas)
+        .filasOk(filasOk.get())
+        .filasError(filasError.get())
+        .gruposTotales(gruposTotales)
+        .gruposPersistidos(persistidos)
+        .filasPorSegundo(filasSeg)
+        .gruposPorSegundo(gruposSeg)
+        .etaSegundos(eta)
+        .iniciadoEn(iniciadoEn)
+        .finalizadoEn(finalizadoEn)
+        .mensaje(mensaje)
+        .erroresMuestra(muestra)
+        .etapas(etapas.stream().map(MetricasEtapa::aDTO).toList())
+        .build();
+  }
+
+  private static double segundos(long desde, long hasta) {
+    return (hasta - desde) / 1_000_000_000.0;
+  }
+}
@@ -12,11 +12,15 @@ import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.colors.savd.cache.CambioDatosReporte;
+import com.colors.savd.cache.CuboVentas;
 import com.colors.savd.dto.*;
 import com.colors.savd.exception.BusinessException;
 import com.colors.savd.model.ParametroReposicion;
@@ -25,6 +29,8 @@ import com.colors.savd.repository.*;
 import com.colors.savd.repository.projection.*;
 import com.colors.savd.service.ReporteService;
 import com.colors.savd.util.ExcelUtil;
+import com.colors.savd.util.ConsultaKpi.Nivel;
+import com.colors.savd.util.TramosMensuales;
 
 import lombok.RequiredArgsConstructor;
 
@@ -38,6 +44,17 @@ public class ReporteServiceImpl implements ReporteService{
     private final VarianteSkuRepository varianteSkuRepo;
     private final ExcelUtil excelUtil;
     private final KpiRepository kpiRepo;
+    private final ResumenVentaMensualRepository resumenMensualRepo;
+    private final ApplicationEventPublisher publisher;
+    private final CuboVentas cubo;
+
+    // false: los KPI se calculan solo desde venta_detalle (p. ej. mientras el resumen no está reconstruido)
+    @Value("${savd.kpi.resumen-mensual.habilitado:true}")
+    private boolean resumenMensualHabilitado;
+
+    // true: KPI y top15 desde el cubo de ventas en memoria en lugar de SQL
+    @Value("${savd.kpi.cubo.habilitado:false}")
+    private boolean cuboHabilitado;
 
     @Override
     @Transactional(readOnly = true)
@@ -52,7 +69,9 @@ public class ReporteServiceImpl implements ReporteService{
         LocalDateTime hastaEf = hasta.withNano(0);
 
         // 1) Traemos el TOP con proyeccoon y limite 15
-        var rows = ventaRepo.top15ByRango(desdeEf, hastaEf, canalId, PageRequest.of(0, 15));
+        List<? extends TopProductoAgg> rows = cuboHabilitado
+            ? cubo.top(desdeEf, hastaEf, canalId, 15)
+            : ventaRepo.top15ByRango(desdeEf, hastaEf, canalId, PageRequest.of(0, 15));
         if (rows == null || rows.isEmpty())  return List.of();          
 
         // 2) Obtenemos info de variantes en bloque (para nombres reales)
@@ -189,7 +208,9 @@ public class ReporteServiceImpl implements ReporteService{
         LocalDateTime hastaEf = hasta.withNano(0);
 
         // 1) Traer agregación cruda        
-        var rows = kpiRepo.kpiCategoriaMensual(desdeEf,hastaEf,canalId,temporadaId,categoriaId,tallaId,colorId);
+        List<? extends KpiAggCategoria> rows = cuboHabilitado
+            ? cubo.kpiMensual(Nivel.CATEGORIA, tramos(desdeEf, hastaEf), canalId, temporadaId, categoriaId, tallaId, colorId)
+            : kpiRepo.kpiCategoriaMensual(tramos(desdeEf, hastaEf), canalId, temporadaId, categoriaId, tallaId, colorId);
         if (rows == null || rows.isEmpty()) return List.of();
 
         // 2) Totales por (año, mes) para calcular aporte
@@ -279,7 +300,9 @@ public class ReporteServiceImpl implements ReporteService{
         LocalDateTime desdeEf = desde.withNano(0);
         LocalDateTime hastaEf = hasta.withNano(0);
 
-        var rows = kpiRepo.kpiProductoMensual(desdeEf, hastaEf, canalId, temporadaId, categoriaId, tallaId, colorId);
+        List<? extends KpiAggProducto> rows = cuboHabilitado
+            ? cubo.kpiMensual(Nivel.PRODUCTO, tramos(desdeEf, hastaEf), canalId, temporadaId, categoriaId, tallaId, colorId)
+            : kpiRepo.kpiProductoMensual(tramos(desdeEf, hastaEf), canalId, temporadaId, categoriaId, tallaId, colorId);
         if (rows == null || rows.isEmpty()) return List.of();
 
         record Ym(int y, int m) {}
@@ -357,7 +380,9 @@ public class ReporteServiceImpl implements ReporteService{
         LocalDateTime desdeEf = desde.withNano(0);
         LocalDateTime hastaEf = hasta.withNano(0);
 
-        var rows = kpiRepo.kpiSkuMensual(desdeEf, hastaEf, canalId, temporadaId, categoriaId, tallaId, colorId);
+        List<? extends KpiAggSku> rows = cuboHabilitado
+            ? cubo.kpiMensual(Nivel.SKU, tramos(desdeEf, hastaEf), canalId, temporadaId, categoriaId, tallaId, colorId)
+            : kpiRepo.kpiSkuMensual(tramos(desdeEf, hastaEf), canalId, temporadaId, categoriaId, tallaId, colorId);
         if (rows == null || rows.isEmpty()) return List.of();
 
         record Ym(int y, int m) {}
@@ -429,57 +454,29 @@ public class ReporteServiceImpl implements ReporteService{
     @Transactional(readOnly = true)
     @Cacheable(
         cacheNames = "kpiCategoriaTotal",
-        key = "T(com.colors.savd.cache.CacheKeys).kpiKey(#desde,#hasta,#canalId,#temporadaId,#categoriaId,#tallaId,#colorId)"
+        key = "T(com.colors.savd.cache.CacheKeys).kpiTotalKey(#desde,#hasta,#canalId,#temporadaId,#categoriaId,#tallaId,#colorId)"
     )
     public List<KpiCategoriaDTO> kpiPorCategoria(LocalDateTime desde, LocalDateTime hasta,
                                                 Long canalId, Long temporadaId, Long categoriaId,
                                                 Long tallaId, Long colorId) {
-        // Actual
-        var actual = kpiRepo.kpiCategoriaTotal(desde, hasta, canalId, temporadaId, categoriaId, tallaId, colorId);
-
-        // Periodo anterior de igual duración
-        var dur = Duration.between(desde, hasta);
-        var desdePrev = desde.minus(dur);
-        var hastaPrev = desde;
-        var prev = kpiRepo.kpiCategoriaTotal(desdePrev, hastaPrev, canalId, temporadaId, categoriaId, tallaId, colorId);
-
-        // Mismo periodo año anterior (YoY)
-        var desdeYoY = desde.minusYears(1);
-        var hastaYoY = hasta.minusYears(1);
-        var yoy = kpiRepo.kpiCategoriaTotal(desdeYoY, hastaYoY, canalId, temporadaId, categoriaId, tallaId, colorId);
+        // Actual, período anterior de igual duración y mismo período del año anterior (YoY) en una sola consulta
+        var filas = comparado(Nivel.CATEGORIA, desde, hasta, canalId, temporadaId, categoriaId, tallaId, colorId);
 
         // Total ingresos período actual para aporte
-        var totalIngresos = actual.stream()
-                .map(r -> nz(r.getIngresos()))
+        var totalIngresos = filas.stream()
+                .map(KpiAggComparado::ingresos)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-        // Mapas para variaciones
-        var prevMap = prev.stream().collect(Collectors.toMap(
-                KpiAggCategoriaTotal::getCategoriaId,
-                KpiAggCategoriaTotal::getIngresos));
-        var yoyMap = yoy.stream().collect(Collectors.toMap(
-                KpiAggCategoriaTotal::getCategoriaId,
-                KpiAggCategoriaTotal::getIngresos));
-
         var out = new ArrayList<KpiCategoriaDTO>();
-        for (var r : actual) {
-            var ingresosAct = nz(r.getIngresos());
-            var aporte = pct(ingresosAct, totalIngresos);
-
-            var basePrev = nz(prevMap.get(r.getCategoriaId()));
-            var varMes = growthPct(ingresosAct, basePrev);
-
-            var baseYoy = nz(yoyMap.get(r.getCategoriaId()));
-            var varYoy = growthPct(ingresosAct, baseYoy);
-
+        for (var r : filas) {
             out.add(KpiCategoriaDTO.builder()
-                    .categoriaId(r.getCategoriaId())
-                    .categoria(r.getCategoria())
-                    .unidades(r.getUnidades() == null ? 0L : r.getUnidades())
-                    .ingresos(ingresosAct)
-                    .aportePct(aporte)
-                    .variacionMesPct(varMes)
-                    .variacionYoYPct(varYoy)
+                    .categoriaId(r.id())
+                    .categoria(r.nombre())
+                    .unidades(r.unidades())
+                    .ingresos(r.ingresos())
+                    .aportePct(pct(r.ingresos(), totalIngresos))
+                    .variacionMesPct(growthPct(r.ingresos(), r.ingresosAnterior()))
+                    .variacionYoYPct(growthPct(r.ingresos(), r.ingresosYoY()))
                     .build());
         }
         return out;
@@ -489,44 +486,26 @@ public class ReporteServiceImpl implements ReporteService{
     @Transactional(readOnly = true)
     @Cacheable(
         cacheNames = "kpiProductoTotal",
-        key = "T(com.colors.savd.cache.CacheKeys).kpiKey(#desde,#hasta,#canalId,#temporadaId,#categoriaId,#tallaId,#colorId)"
+        key = "T(com.colors.savd.cache.CacheKeys).kpiTotalKey(#desde,#hasta,#canalId,#temporadaId,#categoriaId,#tallaId,#colorId)"
     )
     public List<KpiProductoDTO> kpiPorProducto(LocalDateTime desde, LocalDateTime hasta,
                                             Long canalId, Long temporadaId, Long categoriaId, Long tallaId, Long colorId) {
-        var actual = kpiRepo.kpiProductoTotal(desde, hasta, canalId, temporadaId, categoriaId, tallaId, colorId);
-
-        var dur = java.time.Duration.between(desde, hasta);
-        var desdePrev = desde.minus(dur);
-        var hastaPrev = desde;
-        var prev = kpiRepo.kpiProductoTotal(desdePrev, hastaPrev, canalId, temporadaId, categoriaId, tallaId, colorId);
+        var filas = comparado(Nivel.PRODUCTO, desde, hasta, canalId, temporadaId, categoriaId, tallaId, colorId);
 
-        var desdeYoY = desde.minusYears(1);
-        var hastaYoY = hasta.minusYears(1);
-        var yoy = kpiRepo.kpiProductoTotal(desdeYoY, hastaYoY, canalId, temporadaId, categoriaId, tallaId, colorId);
-
-        var totalIngresos = actual.stream()
-                .map(r -> nz(r.getIngresos()))
+        var totalIngresos = filas.stream()
+                .map(KpiAggComparado::ingresos)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-        var prevMap = prev.stream().collect(java.util.stream.Collectors.toMap(
-                KpiAggProductoTotal::getProductoId,
-                KpiAggProductoTotal::getIngresos));
-
-        var yoyMap = yoy.stream().collect(java.util.stream.Collectors.toMap(
-                KpiAggProductoTotal::getProductoId,
-                KpiAggProductoTotal::getIngresos));
-
-        var out = new java.util.ArrayList<KpiProductoDTO>();
-        for (var r : actual) {
-            var ingresosAct = nz(r.getIngresos());
+        var out = new ArrayList<KpiProductoDTO>();
+        for (var r : filas) {
             out.add(KpiProductoDTO.builder()
-                    .productoId(r.getProductoId())
-                    .producto(r.getProducto())
-                    .unidades(r.getUnidades() == null ? 0L : r.getUnidades())
-                    .ingresos(ingresosAct)
-                    .aportePct(pct(ingresosAct, totalIngresos))
-                    .variacionMesPct(growthPct(ingresosAct, nz(prevMap.get(r.getProductoId()))))
-                    .variacionYoYPct(growthPct(ingresosAct, nz(yoyMap.get(r.getProductoId()))))
+                    .productoId(r.id())
+                    .producto(r.nombre())
+                    .unidades(r.unidades())
+                    .ingresos(r.ingresos())
+                    .aportePct(pct(r.ingresos(), totalIngresos))
+                    .variacionMesPct(growthPct(r.ingresos(), r.ingresosAnterior()))
+                    .variacionYoYPct(growthPct(r.ingresos(), r.ingresosYoY()))
                     .build());
         }
         return out;
@@ -536,54 +515,66 @@ public class ReporteServiceImpl implements ReporteService{
     @Transactional(readOnly = true)
     @Cacheable(
         cacheNames = "kpiSkuTotal",
-        key = "T(com.colors.savd.cache.CacheKeys).kpiKey(#desde,#hasta,#canalId,#temporadaId,#categoriaId,#tallaId,#colorId)"
+        key = "T(com.colors.savd.cache.CacheKeys).kpiTotalKey(#desde,#hasta,#canalId,#temporadaId,#categoriaId,#tallaId,#colorId)"
     )
     public List<KpiSkuDTO> kpiPorSku(LocalDateTime desde, LocalDateTime hasta,
                                     Long canalId, Long temporadaId, Long categoriaId, Long tallaId, Long colorId) {
-        var actual = kpiRepo.kpiSkuTotal(desde, hasta, canalId, temporadaId, categoriaId, tallaId, colorId);
-
-        var dur = java.time.Duration.between(desde, hasta);
-        var desdePrev = desde.minus(dur);
-        var hastaPrev = desde;
-        var prev = kpiRepo.kpiSkuTotal(desdePrev, hastaPrev, canalId, temporadaId, categoriaId, tallaId, colorId);
+        var filas = comparado(Nivel.SKU, desde, hasta, canalId, temporadaId, categoriaId, tallaId, colorId);
 
-        var desdeYoY = desde.minusYears(1);
-        var hastaYoY = hasta.minusYears(1);
-        var yoy = kpiRepo.kpiSkuTotal(desdeYoY, hastaYoY, canalId, temporadaId, categoriaId, tallaId, colorId);
-
-        var totalIngresos = actual.stream()
-                .map(r -> nz(r.getIngresos()))
+        var totalIngresos = filas.stream()
+                .map(KpiAggComparado::ingresos)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-        var prevMap = prev.stream().collect(Collectors.toMap(
-                KpiAggSkuTotal::getSkuId,
-                KpiAggSkuTotal::getIngresos));
-
-        var yoyMap = yoy.stream().collect(Collectors.toMap(
-                KpiAggSkuTotal::getSkuId,
-                KpiAggSkuTotal::getIngresos));
-
-        var out = new java.util.ArrayList<KpiSkuDTO>();
-        for (var r : actual) {
-            var ingresosAct = nz(r.getIngresos());
+        var out = new ArrayList<KpiSkuDTO>();
+        for (var r : filas) {
             out.add(KpiSkuDTO.builder()
-                    .skuId(r.getSkuId())
-                    .sku(r.getSku())
-                    .producto(r.getProducto())
-                    .talla(r.getTalla())
-                    .color(r.getColor())
-                    .unidades(r.getUnidades() == null ? 0L : r.getUnidades())
-                    .ingresos(ingresosAct)
-                    .aportePct(pct(ingresosAct, totalIngresos))
-                    .variacionMesPct(growthPct(ingresosAct, nz(prevMap.get(r.getSkuId()))))
-                    .variacionYoYPct(growthPct(ingresosAct, nz(yoyMap.get(r.getSkuId()))))
+                    .skuId(r.id())
+                    .sku(r.nombre())
+                    .producto(r.producto())
+                    .talla(r.talla())
+                    .color(r.color())
+                    .unidades(r.unidades())
+                    .ingresos(r.ingresos())
+                    .aportePct(pct(r.ingresos(), totalIngresos))
+                    .variacionMesPct(growthPct(r.ingresos(), r.ingresosAnterior()))
+                    .variacionYoYPct(growthPct(r.ingresos(), r.ingresosYoY()))
                     .build());
         }
         return out;
     }
 
 
+    @Override
+    @Transactional
+    public int reconstruirResumenMensual() {
+        int filas = resumenMensualRepo.reconstruir();
+        cubo.recargar();
+        publisher.publishEvent(CambioDatosReporte.todasLasVentas());
+        return filas;
+    }
+
+
     // ================= Helpers privados =================
+    /** Totales comparados desde el cubo en memoria o desde SQL, según savd.kpi.cubo.habilitado */
+    private List<KpiAggComparado> comparado(Nivel nivel, LocalDateTime desde, LocalDateTime hasta, Long canalId,
+            Long temporadaId, Long categoriaId, Long tallaId, Long colorId) {
+        TramosMensuales actual = tramos(desde, hasta);
+        TramosMensuales previo = tramos(anterior(desde, hasta), desde);
+        TramosMensuales yoy = tramos(desde.minusYears(1), hasta.minusYears(1));
+        return cuboHabilitado
+            ? cubo.kpiComparado(nivel, actual, previo, yoy, canalId, temporadaId, categoriaId, tallaId, colorId)
+            : kpiRepo.kpiComparado(nivel, actual, previo, yoy, canalId, temporadaId, categoriaId, tallaId, colorId);
+    }
+
+    private TramosMensuales tramos(LocalDateTime desde, LocalDateTime hasta) {
+        return TramosMensuales.de(desde, hasta, resumenMensualHabilitado);
+    }
+
+    /** Inicio del período anterior de igual duración que [desde, hasta] (termina en desde) */
+    private static LocalDateTime anterior(LocalDateTime desde, LocalDateTime hasta) {
+        return desde.minus(Duration.between(desde, hasta));
+    }
+
     private static String nvl (String s) { 
         return s == null ? "" : s; 
     }
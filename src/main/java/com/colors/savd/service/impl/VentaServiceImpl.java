@@ -3,17 +3,25 @@ package com.colors.savd.service.impl;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.colors.savd.cache.CambioDatosReporte;
+import com.colors.savd.cache.CuboVentas;
+import com.colors.savd.cache.IndiceTemporadas;
+import com.colors.savd.dto.AnulacionMasivaDTO;
+import com.colors.savd.dto.AnulacionMasivaResultadoDTO;
 import com.colors.savd.dto.LineaVentaDTO;
 import com.colors.savd.dto.VentaManualDTO;
 import com.colors.savd.exception.BusinessException;
@@ -38,6 +46,11 @@ public class VentaServiceImpl implements VentaService {
   private final KardexRepository kardexRepo;
   private final TipoMovimientoRepository tipoMovRepo;
   private final UsuarioRepository usuarioRepo;
+  private final IndiceTemporadas indiceTemporadas;
+  private final ApplicationEventPublisher publisher;
+  private final CargaMasivaRepository cargaMasivaRepo;
+  private final ResumenVentaMensualRepository resumenMensualRepo;
+  private final CuboVentas cubo;
 
   @Override
   @Transactional
@@ -71,7 +84,8 @@ public class VentaServiceImpl implements VentaService {
       temporada = temporadaRepo.findById(dto.getTemporadaId())
       .orElseThrow(() -> new BusinessException("Temporada no encontrada"));
     }else{
-      temporada = temporadaRepo.findActivaQueContenga(fechaEf.toLocalDate()).orElse(null); //puede ser null
+      temporada = indiceTemporadas.idQueContenga(fechaEf.toLocalDate())
+      .map(temporadaRepo::getReferenceById).orElse(null); //puede ser null
     }
 
     // 6) Tipo de movimiento VENTA
@@ -134,6 +148,7 @@ public class VentaServiceImpl implements VentaService {
 
     // 10) Iterar items
     BigDecimal total = BigDecimal.ZERO;
+    List<VentaDetalle> detalles = new ArrayList<>(dto.getItems().size());
     for (LineaVentaDTO it : dto.getItems()) {
       VarianteSku sku = skuMap.get(it.getSkuId()); // reutilizamos el cargado en precheck
 
@@ -152,6 +167,7 @@ public class VentaServiceImpl implements VentaService {
           .setScale(2, RoundingMode.HALF_UP);
       det.setImporte(importe);
       ventaDetRepo.save(det);
+      detalles.add(det);
 
       total = total.add(importe);
 
@@ -182,6 +198,11 @@ public class VentaServiceImpl implements VentaService {
     v.setTotal(total.setScale(2, RoundingMode.HALF_UP));
     v.setUpdatedAt(LocalDateTime.now());
     ventaRepo.save(v);
+    resumenMensualRepo.sumar(detalles);
+    cubo.sumar(detalles);
+
+    // 12) Reportes: solo las entradas que cubren esta fecha/canal/SKUs (tras el commit)
+    publisher.publishEvent(CambioDatosReporte.ventas(fechaEf, canal.getId(), skuIdsSolicitados));
 
     return v.getId();
   }
@@ -189,7 +210,8 @@ public class VentaServiceImpl implements VentaService {
   @Override
   @Transactional
   public void anularVenta(Long ventaId, Long usuarioId, String motivo) {
-    Venta v = ventaRepo.findById(ventaId)
+    // Bloqueada hasta el commit: otra anulación espera y luego la ve ANULADA, sin restar de nuevo
+    Venta v = ventaRepo.findByIdParaActualizar(ventaId)
         .orElseThrow(() -> new BusinessException("Venta no existe"));
 
     if (v.getEstado() == EstadoVenta.ANULADA){ 
@@ -229,11 +251,57 @@ public class VentaServiceImpl implements VentaService {
       }
     }
 
+    resumenMensualRepo.restar(detalles);
+    cubo.restar(detalles);
+
     // Marcar Cabecera
     v.setEstado(EstadoVenta.ANULADA);
     v.setAnuladaAt(LocalDateTime.now());
     v.setAnuladaPor(userRef);
     v.setUpdatedAt(LocalDateTime.now());
     ventaRepo.save(v);
+
+    publisher.publishEvent(CambioDatosReporte.ventas(v.getFechaHora(), v.getCanal().getId(),
+        detalles.stream().map(d -> d.getSku().getId()).toList()));
+  }
+
+  @Override
+  @Transactional
+  public AnulacionMasivaResultadoDTO anularVentas(AnulacionMasivaDTO dto, Long usuarioId) {
+    if (dto.getVentaIds() == null || dto.getVentaIds().isEmpty()) {
+      throw new BusinessException("Debe indicar al menos una venta.");
+    }
+    Set<Long> solicitadas = new LinkedHashSet<>(dto.getVentaIds());
+
+    TipoMovimiento tipoAnul = tipoMovRepo.findByCodigo("ANULACION")
+    .orElseThrow(() -> new BusinessException("TipoMovimiento 'ANULACION' no configurado"));
+
+    if (!usuarioRepo.existsById(usuarioId)) {
+      throw new BusinessException("Usuario no encontrado id=" + usuarioId);
+    }
+
+    String motivoEf = StringUtils.left(StringUtils.defaultIfBlank(dto.getMotivo(), "Anulacion solicitada"), 255);
+
+    // Solo las que esta transacción bloqueó ACTIVAS se descuentan: otra anulación de las mismas espera al commit
+    List<Long> ids = cargaMasivaRepo.bloquearVentasActivas(solicitadas);
+    int anuladas = 0;
+    if (!ids.isEmpty()) {
+      // Lo que cambia para los reportes se lee antes: después ya no están ACTIVAS
+      CambioDatosReporte.Acumulador cambios = new CambioDatosReporte.Acumulador();
+      ventaRepo.lineasActivas(ids).forEach(l -> cambios.registrar(l.getFechaHora(), l.getCanalId(), l.getSkuId()));
+
+      resumenMensualRepo.restarVentasActivas(ids);
+      cubo.restarVentasActivas(ids);
+      anuladas = cargaMasivaRepo.anularVentas(ids, tipoAnul.getId(), usuarioId, motivoEf, LocalDateTime.now());
+
+      if (!cambios.isVacio()) publisher.publishEvent(cambios.ventas());
+    }
+    log.info("Anulación masiva: {} de {} ventas anuladas", anuladas, solicitadas.size());
+
+    return AnulacionMasivaResultadoDTO.builder()
+        .solicitadas(dto.getVentaIds().size())
+        .anuladas(anuladas)
+        .omitidas(dto.getVentaIds().size() - anuladas)
+        .build();
   }
 }
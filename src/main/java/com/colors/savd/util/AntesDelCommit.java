@@ -0,0 +1,49 @@
+package com.colors.savd.util;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Estado que se acumula durante una transacción y se escribe una sola vez justo antes de su commit (si la
+ * transacción se revierte, se descarta). Cada transacción tiene el suyo: una REQUIRES_NEW suspende las
+ * sincronizaciones de la externa y registra otro.
+ */
+public final class AntesDelCommit {
+
+  private AntesDelCommit() {
+  }
+
+  /**
+   * Estado de {@code duenio} en la transacción actual; la primera vez lo crea con {@code nuevo} y registra
+   * {@code escribir} para antes del commit. Requiere sincronización de transacción activa.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T estado(Object duenio, Supplier<T> nuevo, Consumer<T> escribir) {
+    for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+      if (s instanceof Registro<?> r && r.duenio == duenio) return (T) r.estado;
+    }
+    Registro<T> r = new Registro<>(duenio, nuevo.get(), escribir);
+    TransactionSynchronizationManager.registerSynchronization(r);
+    return r.estado;
+  }
+
+  private static final class Registro<T> implements TransactionSynchronization {
+    final Object duenio;
+    final T estado;
+    final Consumer<T> escribir;
+
+    Registro(Object duenio, T estado, Consumer<T> escribir) {
+      this.duenio = duenio;
+      this.estado = estado;
+      this.escribir = escribir;
+    }
+
+    @Override
+    public void beforeCommit(boolean readOnly) {
+      escribir.accept(estado);
+    }
+  }
+}
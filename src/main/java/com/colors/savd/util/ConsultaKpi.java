@@ -0,0 +1,198 @@
+package com.colors.savd.util;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+/**
+ * Arma el SQL de las consultas de KPI (mensuales y totales comparados, por categoría, producto o SKU)
+ * con solo los joins y predicados de los filtros que vienen informados, en lugar de
+ * {@code (:x IS NULL OR col = :x)}, para que MySQL elija el índice según la consulta real.
+ * <p>
+ * Las ventas salen de venta_detalle para los extremos parciales del rango y de venta_resumen_mensual para
+ * los meses completos ({@link TramosMensuales}); cada rama se agrupa antes de unir y de cruzar con el
+ * catálogo. El mes se maneja como un único entero yyyymm: {@code EXTRACT(YEAR_MONTH FROM fecha_hora)} en
+ * venta_detalle y rangos (anio = Y AND mes BETWEEN ..) sobre la clave primaria del resumen.
+ * <p>
+ * Columnas devueltas: en las mensuales anio y mes; luego las del nivel con los nombres de las proyecciones
+ * (categoriaId/categoria, productoId/producto o skuId/sku/producto/talla/color), unidades e ingresos; en
+ * las comparadas además ingresosAnterior e ingresosYoY.
+ */
+public final class ConsultaKpi {
+
+    public enum Nivel {
+        CATEGORIA("c.id AS categoriaId, c.nombre AS categoria", "c.id, c.nombre"),
+        PRODUCTO("p.id AS productoId, p.nombre AS producto", "p.id, p.nombre"),
+        SKU("vs.id AS skuId, vs.sku AS sku, p.nombre AS producto, ta.codigo AS talla, co.nombre AS color",
+            "vs.id, vs.sku, p.nombre, ta.codigo, co.nombre");
+
+        private final String columnas;
+        private final String agrupacion;
+
+        Nivel(String columnas, String agrupacion) {
+            this.columnas = columnas;
+            this.agrupacion = agrupacion;
+        }
+    }
+
+    // Prefijo de parámetros de cada ventana: actual, anterior, año previo
+    private static final String[] PREFIJOS = { "a", "p", "y" };
+
+    private final Nivel nivel;
+    private final List<TramosMensuales> ventanas;
+    private final boolean mensual;
+    private final MapSqlParameterSource parametros = new MapSqlParameterSource();
+    private Long canalId, temporadaId, categoriaId, tallaId, colorId;
+
+    private ConsultaKpi(Nivel nivel, List<TramosMensuales> ventanas, boolean mensual) {
+        this.nivel = nivel;
+        this.ventanas = ventanas;
+        this.mensual = mensual;
+    }
+
+    /** Unidades e ingresos por mes y por clave del nivel */
+    public static ConsultaKpi mensual(Nivel nivel, TramosMensuales rango) {
+        return new ConsultaKpi(nivel, List.of(rango), true);
+    }
+
+    /** Totales del período actual con los ingresos del anterior y del año previo, en una sola pasada */
+    public static ConsultaKpi comparada(Nivel nivel, TramosMensuales actual, TramosMensuales anterior,
+                                        TramosMensuales yoy) {
+        return new ConsultaKpi(nivel, List.of(actual, anterior, yoy), false);
+    }
+
+    /** Filtros opcionales: null = sin filtro (no se emite nada) */
+    public ConsultaKpi filtros(Long canalId, Long temporadaId, Long categoriaId, Long tallaId, Long colorId) {
+        this.canalId = canalId;
+        this.temporadaId = temporadaId;
+        this.categoriaId = categoriaId;
+        this.tallaId = tallaId;
+        this.colorId = colorId;
+        return this;
+    }
+
+    /** Valores de los parámetros que emitió {@link #sql()} (llamarlo después) */
+    public MapSqlParameterSource parametros() {
+        return parametros;
+    }
+
+    public String sql() {
+        List<String> ramas = new ArrayList<>(2);
+        String detalle = ramaDetalle();
+        if (detalle != null) ramas.add(detalle);
+        String resumen = ramaResumen();
+        if (resumen != null) ramas.add(resumen);
+
+        StringBuilder sb = new StringBuilder("SELECT ");
+        if (mensual) sb.append("x.periodo DIV 100 AS anio, x.periodo MOD 100 AS mes, ");
+        sb.append(nivel.columnas).append(",\n")
+          .append("       SUM(x.en_a * x.unidades) AS unidades, SUM(x.en_a * x.ingresos) AS ingresos");
+        if (!mensual) {
+            sb.append(",\n       SUM(x.en_p * x.ingresos) AS ingresosAnterior, SUM(x.en_y * x.ingresos) AS ingresosYoY");
+        }
+        sb.append("\nFROM (\n").append(String.join("UNION ALL\n", ramas)).append(") x\n")
+          .append("JOIN variante_sku vs ON vs.id = x.sku_id\n")
+          .append("JOIN producto p ON p.id = vs.producto_id\n");
+        if (nivel == Nivel.CATEGORIA) sb.append("JOIN categoria c ON c.id = p.categoria_id\n");
+        if (nivel == Nivel.SKU) {
+            sb.append("LEFT JOIN talla ta ON ta.id = vs.talla_id\n")
+              .append("LEFT JOIN color co ON co.id = vs.color_id\n");
+        }
+
+        List<String> where = new ArrayList<>(3);
+        if (categoriaId != null) where.add(predicado("p.categoria_id", "categoriaId", categoriaId));
+        if (tallaId != null) where.add(predicado("vs.talla_id", "tallaId", tallaId));
+        if (colorId != null) where.add(predicado("vs.color_id", "colorId", colorId));
+        if (!where.isEmpty()) sb.append("WHERE ").append(String.join("\n  AND ", where)).append('\n');
+
+        sb.append("GROUP BY ").append(mensual ? "x.periodo, " : "").append(nivel.agrupacion).append('\n')
+          .append("HAVING SUM(x.en_a * x.unidades) > 0\n")
+          .append("ORDER BY ").append(mensual ? "x.periodo, " : "").append("ingresos DESC");
+        return sb.toString();
+    }
+
+    /** Extremos parciales de cada ventana, agrupados por (mes o ventanas, sku); null si no hay ninguno */
+    private String ramaDetalle() {
+        List<String> rangos = new ArrayList<>();
+        List<String> marcas = new ArrayList<>();
+        for (int i = 0; i < ventanas.size(); i++) {
+            TramosMensuales t = ventanas.get(i);
+            String w = PREFIJOS[i];
+            List<String> propios = new ArrayList<>(2);
+            if (!t.cabezaHasta().isBefore(t.desde())) propios.add(entre(w + "Desde", t.desde(), w + "CabezaHasta", t.cabezaHasta()));
+            if (!t.hasta().isBefore(t.colaDesde())) propios.add(entre(w + "ColaDesde", t.colaDesde(), w + "Hasta", t.hasta()));
+            rangos.addAll(propios);
+            marcas.add(marca(propios) + " AS en_" + w);
+        }
+        if (rangos.isEmpty()) return null;
+
+        String clave = mensual ? "EXTRACT(YEAR_MONTH FROM v.fecha_hora)" : String.join(", ", marcas);
+        StringBuilder sb = new StringBuilder("SELECT ")
+            .append(mensual ? clave + " AS periodo, 1 AS en_a" : clave)
+            .append(", vd.sku_id AS sku_id, SUM(vd.cantidad) AS unidades, SUM(vd.importe) AS ingresos\n")
+            .append("FROM venta v\n")
+            .append("JOIN venta_detalle vd ON vd.venta_id = v.id\n")
+            .append("WHERE v.estado = 'ACTIVA'\n")
+            .append("  AND (").append(String.join(" OR ", rangos)).append(")\n");
+        if (canalId != null) sb.append("  AND ").append(predicado("v.canal_id", "canalId", canalId)).append('\n');
+        if (temporadaId != null) sb.append("  AND ").append(predicado("v.temporada_id", "temporadaId", temporadaId)).append('\n');
+        sb.append("GROUP BY ").append(mensual ? "periodo" : "en_a, en_p, en_y").append(", vd.sku_id\n");
+        return sb.toString();
+    }
+
+    /** Meses completos de cada ventana desde el resumen; null si ninguna tiene */
+    private String ramaResumen() {
+        List<String> rangos = new ArrayList<>();
+        List<String> marcas = new ArrayList<>();
+        for (int i = 0; i < ventanas.size(); i++) {
+            TramosMensuales t = ventanas.get(i);
+            List<String> propios = t.usaResumen() ? mesesPorAnio(t.mesDesde(), t.mesHasta()) : List.of();
+            rangos.addAll(propios);
+            marcas.add(marca(propios) + " AS en_" + PREFIJOS[i]);
+        }
+        if (rangos.isEmpty()) return null;
+
+        StringBuilder sb = new StringBuilder("SELECT ")
+            .append(mensual ? "r.anio * 100 + r.mes AS periodo, 1 AS en_a" : String.join(", ", marcas))
+            .append(", r.sku_id AS sku_id, r.unidades AS unidades, r.ingresos AS ingresos\n")
+            .append("FROM venta_resumen_mensual r\n")
+            .append("WHERE (").append(String.join(" OR ", rangos)).append(")\n");
+        if (canalId != null) sb.append("  AND ").append(predicado("r.canal_id", "canalId", canalId)).append('\n');
+        if (temporadaId != null) sb.append("  AND ").append(predicado("r.temporada_id", "temporadaId", temporadaId)).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * [yyyymm, yyyymm] como un rango de la clave primaria por año. Son enteros calculados aquí (no vienen
+     * del usuario), así que van literales: la cantidad de años varía y el plan queda con rangos exactos.
+     */
+    private static List<String> mesesPorAnio(int desde, int hasta) {
+        List<String> r = new ArrayList<>();
+        for (int anio = desde / 100; anio <= hasta / 100; anio++) {
+            int mesDesde = (anio == desde / 100) ? desde % 100 : 1;
+            int mesHasta = (anio == hasta / 100) ? hasta % 100 : 12;
+            r.add("(r.anio = " + anio + " AND r.mes BETWEEN " + mesDesde + " AND " + mesHasta + ")");
+        }
+        return r;
+    }
+
+    /** 1 si la fila cae en alguno de los rangos de la ventana; en la consulta mensual hay una sola ventana */
+    private String marca(List<String> rangos) {
+        if (rangos.isEmpty()) return "0";
+        if (mensual) return "1";
+        return "CASE WHEN " + String.join(" OR ", rangos) + " THEN 1 ELSE 0 END";
+    }
+
+    private String entre(String nombreDesde, LocalDateTime desde, String nombreHasta, LocalDateTime hasta) {
+        parametros.addValue(nombreDesde, Timestamp.valueOf(desde)).addValue(nombreHasta, Timestamp.valueOf(hasta));
+        return "v.fecha_hora BETWEEN :" + nombreDesde + " AND :" + nombreHasta;
+    }
+
+    private String predicado(String columna, String nombre, Long valor) {
+        parametros.addValue(nombre, valor);
+        return columna + " = :" + nombre;
+    }
+}
@@ -3,11 +3,8 @@ package com.colors.savd.util;
 import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.text.Normalizer;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.*;
 
 import org.apache.commons.lang3.StringUtils;
@@ -31,16 +28,6 @@ import lombok.extern.slf4j.Slf4j;
 public class ExcelUtil {
     private static final DataFormatter DF = new DataFormatter(Locale.getDefault());
 
-    //Formatos comunes de fecha/hora cuando vienen como texto
-    private static final List<DateTimeFormatter> TXT_DATE_TIME_FORMATTERS = List.of(
-        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
-        DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"),
-        DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"),
-        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"),
-        DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"),
-        DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm")
-    );
-
     // ==================== Detección de encabezados ====================
     /* Resultado de la deteccion: fila de encabezados + mapping col */
     public static class HeaderMapping {
@@ -72,6 +59,43 @@ public class ExcelUtil {
         m.put("PrecioUnitario", List.of("PRECIOUNITARIO","PU","PRECIO U.","PRECIO U"));
         // Campo opcional:
         m.put("PrecioLista",    List.of("PRECIOLISTA","PL","LISTA","P. LISTA"));
+        agregarAtributosSku(m);
+        return m;
+    }
+
+    /** SKU por atributos, alternativa a la columna SKU (ver {@link #identificaSku}) */
+    private static void agregarAtributosSku(Map<String, List<String>> m) {
+        m.put("Producto",       List.of("PRODUCTO","NOMBREPRODUCTO","NOMBRE PRODUCTO","MODELO","ARTICULO"));
+        m.put("Talla",          List.of("TALLA","TALLE","SIZE"));
+        m.put("Color",          List.of("COLOR","COLOUR"));
+    }
+
+    /** La fila de encabezados identifica la variante: columna SKU, o bien Producto + Talla + Color */
+    public static boolean identificaSku(HeaderMapping hm) {
+        return hm.col("SKU") != null || (hm.col("Producto") != null && hm.col("Talla") != null && hm.col("Color") != null);
+    }
+
+    /** Columnas de la importación de inventario (INICIAL / INGRESOS); obligatorias: SKU (o Producto/Talla/Color) y Cantidad */
+    public static Map<String, List<String>> inventarioAliases(){
+        Map<String, List<String>> m = new LinkedHashMap<>();
+        m.put("SKU",            List.of("SKU","CODIGOSKU","PRODUCTOSKU","ITEM","CODIGO"));
+        m.put("Cantidad",       List.of("CANTIDAD","QTY","UNIDADES","CANT.","STOCK"));
+        // Campos opcionales:
+        m.put("FechaHora",      List.of("FECHAHORA","FECHA HORA","FECHA/HORA","FECHA","DATE","DATETIME"));
+        m.put("Referencia",     List.of("REFERENCIA","REF","NRODOC","DOCUMENTO","GUIA","COMPROBANTE"));
+        m.put("Observacion",    List.of("OBSERVACION","OBS","COMENTARIO","NOTA"));
+        m.put("CanalCodigo",    List.of("CANALCODIGO","CANAL","CHANNEL"));
+        agregarAtributosSku(m);
+        return m;
+    }
+
+    /** Columnas de la importación de parámetros de reposición (todas obligatorias) */
+    public static Map<String, List<String>> parametrosAliases(){
+        Map<String, List<String>> m = new LinkedHashMap<>();
+        m.put("SKU",            List.of("SKU","CODIGOSKU","PRODUCTOSKU","ITEM","CODIGO"));
+        m.put("MinStock",       List.of("MINSTOCK","MIN STOCK","STOCK MINIMO","STOCKMINIMO","MINIMO"));
+        m.put("LeadTimeDias",   List.of("LEADTIMEDIAS","LEAD TIME DIAS","LEAD TIME","LEADTIME","DIAS REPOSICION"));
+        m.put("StockSeguridad", List.of("STOCKSEGURIDAD","STOCK SEGURIDAD","STOCK DE SEGURIDAD","SS"));
         return m;
     }
 
@@ -100,8 +124,31 @@ public class ExcelUtil {
         }
 
         // Si no encontró una fila que cumpla todos los obligatorios, construir mensaje útil
+        throw encabezadosNoEncontrados(requiredKeys);
+    }
+
+    /**
+     * Variante para lectores fila a fila (streaming/CSV): evalúa una sola fila ya leída como texto.
+     * El llamador decide hasta qué fila seguir intentando (típicamente las primeras 50).
+     *
+     * @return HeaderMapping si la fila contiene todos los obligatorios; null en otro caso
+     */
+    public HeaderMapping detectarEncabezados(int indiceFila, String[] celdas, Map<String, List<String>> aliases, Set<String> requiredKeys) {
+        if (celdas == null) return null;
+        Map<Integer, String> normByCol = new HashMap<>();
+        for (int c = 0; c < celdas.length; c++) {
+            String norm = normalizar(celdas[c]);
+            if (StringUtils.isNotBlank(norm)) {
+                normByCol.put(c, norm);
+            }
+        }
+        Map<String, Integer> map = construirMapa(normByCol, aliases);
+        return (map != null && map.keySet().containsAll(requiredKeys)) ? new HeaderMapping(indiceFila, map) : null;
+    }
+
+    public IllegalArgumentException encabezadosNoEncontrados(Set<String> requiredKeys) {
         String faltan = String.join(", ", requiredKeys);
-        throw new IllegalArgumentException("No se encontró fila de encabezados válida. " +
+        return new IllegalArgumentException("No se encontró fila de encabezados válida. " +
                 "Asegúrate de incluir: " + faltan + " (usa nombres o alias compatibles).");
     }
 
@@ -123,6 +170,10 @@ public class ExcelUtil {
                 normByCol.put(c, norm);
             }
         }
+        return construirMapa(normByCol, aliases);
+    }
+
+    private Map<String, Integer> construirMapa(Map<Integer, String> normByCol, Map<String, List<String>> aliases) {
         if (normByCol.isEmpty()) return null;
 
         // Intenta matchear cada clave canónica con alguna columna por alias
@@ -358,32 +409,36 @@ public class ExcelUtil {
             }
             String txt = DF.formatCellValue(cell);
             if (StringUtils.isBlank(txt)) return null;
-            txt = txt.trim();
-
-            //Intentar con patrones conocidos
-            for (DateTimeFormatter fmt : TXT_DATE_TIME_FORMATTERS){
-                try {
-                    return LocalDateTime.parse(txt, fmt);
-                } catch (DateTimeParseException ignored) {}
-            }
-
-            //falback: solo fecha (sin hora)
-            try {
-                LocalDate d = LocalDate.parse(txt, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                return d.atStartOfDay();
-            } catch (DateTimeParseException ignored) {}
-
-            try {
-                LocalDate d = LocalDate.parse(txt, DateTimeFormatter.ofPattern("dd/MM/yyyy"));
-                return d.atStartOfDay();
-            } catch (DateTimeParseException ignored) {}
-
-            return null;
+            return parseFechaHoraTexto(txt.trim());
         } catch (Exception e) {
             log.debug("leerFechaHora error: {}", e.getMessage());
             return null;
         }
     }
+
+    // ===== Lectura desde texto (filas de LectorFilas: XLSX streaming/completo) =====
+    public String leerString(String txt){
+        return StringUtils.isBlank(txt) ? null : txt.trim();
+    }
+
+    /**
+     * Acepta "3", "3.0" o "1,200"; los decimales se redondean como Math.round sobre la celda numérica.
+     * Sin contexto de columna; las importaciones usan {@link PerfilColumnas}, que aprende el separador decimal.
+     */
+    public Integer leerEntero(String txt){
+        return PerfilColumnas.aEntero(leerDecimal(txt));
+    }
+
+    /** Celdas con formato moneda ("$12.50", "S/ 12.50"): se descarta el prefijo no numérico. */
+    public BigDecimal leerDecimal(String txt){
+        return PerfilColumnas.parsearDecimal(txt, false);
+    }
+
+    /** Fechas numéricas de Excel llegan ya en ISO (ver FormateadorCeldas); el resto se intenta con los patrones conocidos. */
+    public LocalDateTime leerFechaHora(String txt){
+        if (StringUtils.isBlank(txt)) return null;
+        return PerfilColumnas.parsearFechaHora(txt);
+    }
     
     // ===== Exportacion de Reporte Ejecutivo (Top15 + Alertas) =====
     /*
@@ -472,6 +527,11 @@ public class ExcelUtil {
     }
 
     // ===== Helpers privados =====
+    // Mismos patrones que antes (yyyy-MM-dd HH:mm:ss, dd/MM/yyyy HH:mm, ..., solo fecha), sin excepciones por intento
+    private LocalDateTime parseFechaHoraTexto(String txt) {
+        return PerfilColumnas.parsearFechaHora(txt);
+    }
+
     private Integer parseEnteroSeguro(String s){
         if (StringUtils.isBlank(s)) return null;
         try {
@@ -482,14 +542,7 @@ public class ExcelUtil {
     }
 
     private BigDecimal parseDecimalSeguro(String s) {
-        if (StringUtils.isBlank(s)) return null;
-        try {
-        // quitar separadores de miles comunes
-        String norm = s.trim().replace(" ", "").replace(",", "");
-        return new BigDecimal(norm);
-        } catch (NumberFormatException e) {
-        return null;
-        }
+        return PerfilColumnas.parsearDecimal(s, false);
     }
 
     private long nullSafeLong(Long v) {
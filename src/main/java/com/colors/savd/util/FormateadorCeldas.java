@@ -0,0 +1,50 @@
+package com.colors.savd.util;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+/**
+ * DataFormatter para importaciones: las celdas numéricas con formato de fecha salen en ISO
+ * ("yyyy-MM-dd HH:mm:ss") en vez del patrón visual del libro; el resto de números sale como se ve en la hoja
+ * (Locale.US), de modo que un código con formato "00000" conserva sus ceros ("00123").
+ * Para los campos numéricos, cada número formateado deja además su valor crudo (ver {@link #tomarCrudo()}):
+ * punto decimal, sin redondeo ni separadores de miles, moneda o %, como lo leía {@code cell.getNumericCellValue()}.
+ * No es thread-safe: cada lector crea su propia instancia.
+ */
+public class FormateadorCeldas extends DataFormatter {
+
+    public static final DateTimeFormatter ISO_FECHA_HORA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private String ultimoCrudo;
+
+    public FormateadorCeldas() {
+        super(Locale.US);
+    }
+
+    @Override
+    public String formatRawCellContents(double value, int formatIndex, String formatString) {
+        if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+            String iso = textoFechaHora(DateUtil.getLocalDateTime(value));
+            ultimoCrudo = iso;
+            return iso;
+        }
+        ultimoCrudo = NumberToTextConverter.toText(value);
+        return super.formatRawCellContents(value, formatIndex, formatString);
+    }
+
+    /** Valor crudo del último número formateado (null si no hubo ninguno desde la llamada anterior). */
+    public String tomarCrudo() {
+        String crudo = ultimoCrudo;
+        ultimoCrudo = null;
+        return crudo;
+    }
+
+    public static String textoFechaHora(LocalDateTime fechaHora) {
+        return fechaHora == null ? null : fechaHora.format(ISO_FECHA_HORA);
+    }
+}
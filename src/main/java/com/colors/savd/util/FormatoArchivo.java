@@ -0,0 +1,48 @@
+package com.colors.savd.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.zip.ZipFile;
+
+import org.apache.poi.poifs.filesystem.FileMagic;
+
+/**
+ * Formatos de archivo aceptados por las importaciones.
+ * Se decide primero por contenido (firma de bytes) y, para texto plano, por la extensión del nombre.
+ * ZIP es un lote de archivos (solo lo acepta la importación por lote); un XLSX también es un ZIP, pero con
+ * {@code [Content_Types].xml} en la raíz.
+ */
+public enum FormatoArchivo {
+    XLSX, XLS, CSV, CSV_GZIP, ZIP;
+
+    public static FormatoArchivo detectar(File archivo, String nombreArchivo) throws IOException {
+        FileMagic magic = FileMagic.valueOf(archivo);
+        if (magic == FileMagic.OOXML) return esPaqueteOffice(archivo) ? XLSX : ZIP;
+        if (magic == FileMagic.OLE2) return XLS;
+        if (esGzip(archivo)) return CSV_GZIP;
+
+        String nombre = (nombreArchivo != null) ? nombreArchivo.toLowerCase(Locale.ROOT) : "";
+        if (nombre.endsWith(".xlsx") || nombre.endsWith(".xls")) {
+            throw new IllegalArgumentException("El archivo " + nombreArchivo + " no es un Excel válido.");
+        }
+        // Texto plano: .csv/.txt/.tsv o sin extensión reconocible
+        return CSV;
+    }
+
+    private static boolean esPaqueteOffice(File archivo) {
+        try (ZipFile zip = new ZipFile(archivo)) {
+            return zip.getEntry("[Content_Types].xml") != null;
+        } catch (IOException e) {
+            return true; // ZIP dañado: que lo reporte POI al abrirlo como XLSX
+        }
+    }
+
+    private static boolean esGzip(File archivo) throws IOException {
+        try (InputStream in = Files.newInputStream(archivo.toPath())) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.colors.savd.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Lector CSV (opcionalmente gzip) con commons-csv, en streaming: una fila en memoria a la vez.
+ * El separador se detecta en la primera línea no vacía (',', ';' o tabulador) y se ignora el BOM UTF-8.
+ * Las celdas se entregan recortadas; vacías = null, igual que los lectores XLSX.
+ */
+public class LectorCsv implements LectorFilas {
+
+    private static final int BUFFER = 64 * 1024;
+    private static final char[] SEPARADORES = {',', ';', '\t'};
+
+    private final CSVParser parser;
+
+    public LectorCsv(File archivo, boolean gzip) throws IOException {
+        char separador = detectarSeparador(abrir(archivo, gzip));
+        CSVFormat formato = CSVFormat.DEFAULT.builder()
+            .setDelimiter(separador)
+            .setIgnoreEmptyLines(false) // conserva la numeración de filas (mensajes "Fila N")
+            .setTrim(true)
+            .build();
+        this.parser = CSVParser.parse(abrir(archivo, gzip), formato);
+    }
+
+    @Override
+    public void recorrer(ConsumidorFila consumidor) {
+        int i = 0;
+        for (CSVRecord rec : parser) {
+            String[] celdas = new String[rec.size()];
+            boolean vacia = true;
+            for (int c = 0; c < celdas.length; c++) {
+                String v = rec.get(c);
+                celdas[c] = StringUtils.isEmpty(v) ? null : v;
+                if (celdas[c] != null) vacia = false;
+            }
+            // Igual que en XLSX, las filas sin contenido no se entregan
+            // En CSV no hay formato visual: el texto es el valor crudo
+            if (!vacia) consumidor.aceptar(i, celdas, celdas);
+            i++;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private static Reader abrir(File archivo, boolean gzip) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(archivo.toPath()), BUFFER);
+        if (gzip) in = new GZIPInputStream(in, BUFFER);
+        InputStream sinBom = BOMInputStream.builder().setInputStream(in).get();
+        return new BufferedReader(new InputStreamReader(sinBom, StandardCharsets.UTF_8), BUFFER);
+    }
+
+    /** El separador más frecuente fuera de comillas en la primera línea con contenido */
+    private static char detectarSeparador(Reader reader) throws IOException {
+        try (BufferedReader br = new BufferedReader(reader)) {
+            String linea;
+            while ((linea = br.readLine()) != null) {
+                if (StringUtils.isBlank(linea)) continue;
+                char mejor = ',';
+                int max = 0;
+                for (char sep : SEPARADORES) {
+                    int n = contarFueraDeComillas(linea, sep);
+                    if (n > max) {
+                        max = n;
+                        mejor = sep;
+                    }
+                }
+                return mejor;
+            }
+            return ',';
+        }
+    }
+
+    private static int contarFueraDeComillas(String linea, char sep) {
+        int n = 0;
+        boolean enComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char ch = linea.charAt(i);
+            if (ch == '"') enComillas = !enComillas;
+            else if (ch == sep && !enComillas) n++;
+        }
+        return n;
+    }
+}
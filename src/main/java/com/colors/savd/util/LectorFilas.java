@@ -0,0 +1,36 @@
+package com.colors.savd.util;
+
+import java.io.IOException;
+
+/**
+ * Fuente de filas de una hoja de importación.
+ * Cada fila se entrega como texto ya formateado (ver {@link FormateadorCeldas}),
+ * de modo que la detección de encabezados y el parseo no dependen de cómo se leyó el archivo.
+ * Las columnas de texto (SKU, Referencia, Canal) se leen de {@code celdas}, tal como se ven en la hoja;
+ * los campos numéricos (cantidad, precios) de {@code crudos}, con el valor sin formato visual.
+ */
+public interface LectorFilas extends AutoCloseable {
+
+    /**
+     * Recorre las filas en orden, una sola vez.
+     * @param consumidor recibe el índice 0-based de la fila, sus celdas (null = celda vacía) y sus valores crudos
+     */
+    void recorrer(ConsumidorFila consumidor) throws IOException;
+
+    /** Total de filas si se conoce antes de recorrer (para estimar progreso); -1 si no. */
+    default int filasEstimadas() {
+        return -1;
+    }
+
+    @Override
+    void close() throws IOException;
+
+    @FunctionalInterface
+    interface ConsumidorFila {
+        /**
+         * @param celdas texto visible de cada celda
+         * @param crudos mismo largo que {@code celdas}; en celdas numéricas, el valor sin formato visual
+         */
+        void aceptar(int indiceFila, String[] celdas, String[] crudos);
+    }
+}
@@ -0,0 +1,84 @@
+package com.colors.savd.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.*;
+
+/**
+ * Lector sobre el modelo DOM de POI: carga el libro completo y recorre una hoja (por defecto la primera).
+ * Adecuado para archivos pequeños; para archivos grandes usar {@link LectorXlsxStreaming}.
+ */
+public class LectorXlsxCompleto implements LectorFilas {
+
+    private final Workbook wb;
+    private final int hoja;
+    private final FormateadorCeldas formateador = new FormateadorCeldas();
+
+    public LectorXlsxCompleto(File archivo) throws IOException {
+        this(archivo, 0);
+    }
+
+    /** @param hoja índice 0-based de la hoja a recorrer */
+    public LectorXlsxCompleto(File archivo, int hoja) throws IOException {
+        this.wb = WorkbookFactory.create(archivo, null, true);
+        if (hoja < 0 || hoja >= wb.getNumberOfSheets()) {
+            wb.close();
+            throw new IllegalArgumentException("El libro no tiene la hoja " + (hoja + 1) + ".");
+        }
+        this.hoja = hoja;
+    }
+
+    /** Nombres de las hojas en orden (XLS, o XLSX pequeños) */
+    public static List<String> nombresHojas(File archivo) throws IOException {
+        try (Workbook wb = WorkbookFactory.create(archivo, null, true)) {
+            List<String> nombres = new ArrayList<>();
+            for (int i = 0; i < wb.getNumberOfSheets(); i++) nombres.add(wb.getSheetName(i));
+            return nombres;
+        }
+    }
+
+    @Override
+    public void recorrer(ConsumidorFila consumidor) {
+        Sheet sheet = wb.getSheetAt(hoja);
+        for (int i = 0; i <= sheet.getLastRowNum(); i++) {
+            Row row = sheet.getRow(i);
+            if (row == null) continue;
+
+            int lastCell = Math.max(row.getLastCellNum(), 0);
+            String[] celdas = new String[lastCell];
+            String[] crudos = new String[lastCell];
+            for (int c = 0; c < lastCell; c++) {
+                celdas[c] = textoCelda(row.getCell(c));
+                String crudo = formateador.tomarCrudo();
+                crudos[c] = (crudo != null) ? crudo : celdas[c];
+            }
+            consumidor.aceptar(i, celdas, crudos);
+        }
+    }
+
+    @Override
+    public int filasEstimadas() {
+        return wb.getSheetAt(hoja).getLastRowNum() + 1;
+    }
+
+    /** Misma representación que produce el lector SAX: valores cacheados, fechas en ISO. */
+    private String textoCelda(Cell cell) {
+        if (cell == null) return null;
+        CellType tipo = cell.getCellType() == CellType.FORMULA ? cell.getCachedFormulaResultType() : cell.getCellType();
+        return switch (tipo) {
+            case NUMERIC -> formateador.formatRawCellContents(cell.getNumericCellValue(),
+                    cell.getCellStyle().getDataFormat(), cell.getCellStyle().getDataFormatString());
+            case STRING -> cell.getStringCellValue();
+            case BOOLEAN -> cell.getBooleanCellValue() ? "TRUE" : "FALSE";
+            default -> null;
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        wb.close();
+    }
+}
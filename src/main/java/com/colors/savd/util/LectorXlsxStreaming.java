@@ -0,0 +1,139 @@
+package com.colors.savd.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Lector SAX (event model de POI) sobre una hoja de un XLSX (por defecto la primera).
+ * No construye el DOM del libro: cada fila se arma, se entrega y se descarta,
+ * así que la memoria depende del ancho de la fila y de la tabla de strings compartidos, no del número de filas.
+ */
+public class LectorXlsxStreaming implements LectorFilas {
+
+    private final OPCPackage pkg;
+    private final int hoja;
+
+    public LectorXlsxStreaming(File archivo) throws IOException {
+        this(archivo, 0);
+    }
+
+    /** @param hoja índice 0-based de la hoja a recorrer */
+    public LectorXlsxStreaming(File archivo, int hoja) throws IOException {
+        try {
+            this.pkg = OPCPackage.open(archivo, PackageAccess.READ);
+        } catch (Exception e) {
+            throw new IOException("No se pudo abrir el XLSX: " + e.getMessage(), e);
+        }
+        this.hoja = hoja;
+    }
+
+    /** Nombres de las hojas en orden, leyendo solo workbook.xml (sin cargar ninguna hoja) */
+    public static List<String> nombresHojas(File archivo) throws IOException {
+        try (LectorXlsxStreaming lector = new LectorXlsxStreaming(archivo)) {
+            XSSFReader.SheetIterator hojas = (XSSFReader.SheetIterator) new XSSFReader(lector.pkg).getSheetsData();
+            List<String> nombres = new ArrayList<>();
+            while (hojas.hasNext()) {
+                hojas.next().close(); // el nombre es el de la última hoja abierta; su contenido no se lee
+                nombres.add(hojas.getSheetName());
+            }
+            return nombres;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("No se pudieron leer las hojas del XLSX: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void recorrer(ConsumidorFila consumidor) throws IOException {
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            StylesTable styles = reader.getStylesTable();
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+
+            Iterator<InputStream> hojas = reader.getSheetsData();
+            for (int i = 0; i < this.hoja; i++) {
+                if (!hojas.hasNext()) break;
+                hojas.next().close();
+            }
+            if (!hojas.hasNext()) {
+                if (this.hoja == 0) return;
+                throw new IllegalArgumentException("El libro no tiene la hoja " + (this.hoja + 1) + ".");
+            }
+
+            try (InputStream hoja = hojas.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                FormateadorCeldas formateador = new FormateadorCeldas();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings,
+                        new AcumuladorFila(consumidor, formateador), formateador, false));
+                parser.parse(new InputSource(hoja));
+            }
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error leyendo XLSX en modo streaming: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        pkg.revert(); // abierto en solo lectura: no escribir nada de vuelta
+    }
+
+    /**
+     * Junta las celdas de la fila en curso y la entrega al cerrar la fila.
+     * El handler de POI formatea cada número justo antes de {@link #cell}, así que el crudo pendiente es el de esa celda.
+     */
+    private static final class AcumuladorFila implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final ConsumidorFila consumidor;
+        private final FormateadorCeldas formateador;
+        private final List<String> celdas = new ArrayList<>();
+        private final List<String> crudos = new ArrayList<>();
+
+        AcumuladorFila(ConsumidorFila consumidor, FormateadorCeldas formateador) {
+            this.consumidor = consumidor;
+            this.formateador = formateador;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            celdas.clear();
+            crudos.clear();
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = (cellReference != null) ? new CellReference(cellReference).getCol() : celdas.size();
+            String crudo = formateador.tomarCrudo();
+            poner(celdas, col, formattedValue);
+            poner(crudos, col, (crudo != null) ? crudo : formattedValue);
+        }
+
+        private static void poner(List<String> valores, int col, String valor) {
+            while (valores.size() < col) valores.add(null);
+            if (valores.size() == col) valores.add(valor);
+            else valores.set(col, valor);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            consumidor.aceptar(rowNum, celdas.toArray(new String[0]), crudos.toArray(new String[0]));
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.colors.savd.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interpretación de celdas de texto (fechas y números) aprendida por columna para una importación.
+ * Las primeras filas de datos se observan ({@link #observar}) y al {@link #congelar} cada columna fija su
+ * separador decimal (punto o coma). Desde ahí cada celda se interpreta con la estrategia de su columna; si
+ * no encaja se prueban las demás. Todo se valida carácter a carácter, sin excepciones como control de flujo.
+ * El separador decimal solo cambia en congelar(): el resultado no depende del orden en que se parsean las
+ * filas (validación paralela). El formato de fecha recordado es solo un atajo, porque los formatos aceptados
+ * son excluyentes entre sí (ningún texto encaja en dos).
+ */
+public class PerfilColumnas {
+
+    /** Filas de datos observadas antes de fijar el perfil */
+    public static final int FILAS_MUESTRA = 50;
+
+    /** Mismos patrones que aceptaba ExcelUtil con DateTimeFormatter (T literal en el ISO) */
+    private static final String[] FORMATOS_FECHA = {
+        "yyyy-MM-dd HH:mm:ss", "dd/MM/yyyy HH:mm:ss", "dd/MM/yyyy HH:mm", "yyyy-MM-ddTHH:mm:ss",
+        "dd-MM-yyyy HH:mm:ss", "dd-MM-yyyy HH:mm", "yyyy-MM-dd", "dd/MM/yyyy"
+    };
+
+    private static final BigDecimal INT_MIN = BigDecimal.valueOf(Integer.MIN_VALUE);
+    private static final BigDecimal INT_MAX = BigDecimal.valueOf(Integer.MAX_VALUE);
+
+    private static class Columna {
+        volatile int formatoFecha = 0; // último formato que encajó
+        int votosComaDecimal = 0;
+        int votosPuntoDecimal = 0;
+        volatile boolean comaDecimal = false;
+    }
+
+    private final Map<Integer, Columna> columnas = new ConcurrentHashMap<>();
+    private volatile boolean congelado = false;
+
+    // ==================== Perfilado ====================
+
+    /** Registra la evidencia de separador decimal de un valor numérico de muestra */
+    public void observar(Integer col, String txt) {
+        if (col == null || congelado || txt == null) return;
+        char sep = separadorEvidente(sinPrefijo(txt.trim()));
+        Columna c = columna(col);
+        synchronized (c) {
+            if (sep == ',') c.votosComaDecimal++;
+            else if (sep == '.') c.votosPuntoDecimal++;
+        }
+    }
+
+    /** Fija el separador decimal de cada columna por mayoría (empate = punto, el formato de Excel en Locale.US) */
+    public void congelar() {
+        columnas.values().forEach(c -> {
+            synchronized (c) {
+                c.comaDecimal = c.votosComaDecimal > c.votosPuntoDecimal;
+            }
+        });
+        congelado = true;
+    }
+
+    public boolean isCongelado() {
+        return congelado;
+    }
+
+    public boolean isComaDecimal(Integer col) {
+        Columna c = (col != null) ? columnas.get(col) : null;
+        return c != null && c.comaDecimal;
+    }
+
+    // ==================== Lectura por columna ====================
+
+    public LocalDateTime fechaHora(Integer col, String txt) {
+        if (txt == null) return null;
+        String t = txt.trim();
+        if (t.isEmpty()) return null;
+        Columna c = (col != null) ? columna(col) : null;
+        int preferido = (c != null) ? c.formatoFecha : 0;
+        LocalDateTime r = parsearFechaHora(t, preferido);
+        if (r != null) return r;
+        for (int f = 0; f < FORMATOS_FECHA.length; f++) {
+            if (f == preferido) continue;
+            r = parsearFechaHora(t, f);
+            if (r != null) {
+                if (c != null) c.formatoFecha = f;
+                return r;
+            }
+        }
+        return null;
+    }
+
+    public BigDecimal decimal(Integer col, String txt) {
+        return parsearDecimal(txt, isComaDecimal(col));
+    }
+
+    public Integer entero(Integer col, String txt) {
+        return aEntero(decimal(col, txt));
+    }
+
+    // ==================== Parseo sin estado (ExcelUtil) ====================
+
+    /** Fecha/hora en cualquiera de los formatos aceptados; null si no encaja en ninguno */
+    public static LocalDateTime parsearFechaHora(String txt) {
+        if (txt == null) return null;
+        String t = txt.trim();
+        for (int f = 0; f < FORMATOS_FECHA.length; f++) {
+            LocalDateTime r = parsearFechaHora(t, f);
+            if (r != null) return r;
+        }
+        return null;
+    }
+
+    /**
+     * Número con prefijo de moneda opcional ("S/ 12.50") y separadores de miles. Un valor que delata su
+     * separador decimal ("1.234,56", "12,5", "1,234,567") se respeta; si es ambiguo ("1,234") se usa el
+     * de la columna.
+     */
+    public static BigDecimal parsearDecimal(String txt, boolean comaDecimalPorDefecto) {
+        if (txt == null) return null;
+        String t = sinPrefijo(txt.trim());
+        if (t.isEmpty()) return null;
+        char sep = separadorEvidente(t);
+        char decimal = (sep != 0) ? sep : (comaDecimalPorDefecto ? ',' : '.');
+        char miles = (decimal == ',') ? '.' : ',';
+
+        StringBuilder sb = new StringBuilder(t.length());
+        boolean digitos = false, punto = false;
+        int i = 0;
+        if (t.charAt(0) == '-') {
+            sb.append('-');
+            i = 1;
+        }
+        for (; i < t.length(); i++) {
+            char ch = t.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                sb.append(ch);
+                digitos = true;
+            } else if (ch == decimal && !punto) {
+                sb.append('.');
+                punto = true;
+            } else if (ch == miles || ch == ' ') {
+                // separador de miles / espacio: se descarta
+            } else if ((ch == 'E' || ch == 'e') && digitos) {
+                return conExponente(sb, t, i + 1);
+            } else {
+                return null;
+            }
+        }
+        return digitos ? new BigDecimal(sb.toString()) : null;
+    }
+
+    /** Redondeo como Math.round sobre la celda numérica; null si no cabe en un int */
+    public static Integer aEntero(BigDecimal d) {
+        if (d == null) return null;
+        BigDecimal r = d.setScale(0, RoundingMode.HALF_UP);
+        if (r.compareTo(INT_MIN) < 0 || r.compareTo(INT_MAX) > 0) return null;
+        return r.intValue();
+    }
+
+    // ==================== Helpers ====================
+
+    private Columna columna(int col) {
+        return columnas.computeIfAbsent(col, k -> new Columna());
+    }
+
+    /** Descarta prefijos no numéricos (moneda) como hacía ExcelUtil */
+    private static String sinPrefijo(String t) {
+        int i = 0;
+        while (i < t.length() && !Character.isDigit(t.charAt(i)) && t.charAt(i) != '-' && t.charAt(i) != '.') i++;
+        return t.substring(i);
+    }
+
+    /** '.', ',' o 0 si el propio valor no permite saber cuál es el separador decimal */
+    private static char separadorEvidente(String t) {
+        int puntos = 0, comas = 0, ultimoPunto = -1, ultimaComa = -1;
+        for (int i = 0; i < t.length(); i++) {
+            char ch = t.charAt(i);
+            if (ch == '.') {
+                puntos++;
+                ultimoPunto = i;
+            } else if (ch == ',') {
+                comas++;
+                ultimaComa = i;
+            }
+        }
+        if (puntos > 0 && comas > 0) return (ultimaComa > ultimoPunto) ? ',' : '.';
+        if (comas > 1) return '.';
+        if (puntos > 1) return ',';
+        if (comas == 1) return (digitosTras(t, ultimaComa) == 3) ? 0 : ',';
+        if (puntos == 1) return (digitosTras(t, ultimoPunto) == 3) ? 0 : '.';
+        return 0;
+    }
+
+    private static int digitosTras(String t, int pos) {
+        int n = 0;
+        for (int i = pos + 1; i < t.length() && Character.isDigit(t.charAt(i)); i++) n++;
+        return n;
+    }
+
+    private static BigDecimal conExponente(StringBuilder mantisa, String t, int desde) {
+        int i = desde;
+        StringBuilder exp = new StringBuilder("E");
+        if (i < t.length() && (t.charAt(i) == '+' || t.charAt(i) == '-')) exp.append(t.charAt(i++));
+        int inicio = i;
+        while (i < t.length() && t.charAt(i) >= '0' && t.charAt(i) <= '9') exp.append(t.charAt(i++));
+        if (i != t.length() || i == inicio || i - inicio > 4) return null;
+        return new BigDecimal(mantisa.append(exp).toString());
+    }
+
+    /**
+     * Encaja el texto en el formato indicado posición por posición. Como ResolverStyle.SMART (el de
+     * DateTimeFormatter.ofPattern), un día 29-31 que no existe en el mes se ajusta al último día del mes
+     * y 24:00 pasa al día siguiente.
+     */
+    private static LocalDateTime parsearFechaHora(String t, int formato) {
+        String f = FORMATOS_FECHA[formato];
+        if (t.length() != f.length()) return null;
+        int anio = 0, mes = 0, dia = 0, hora = 0, min = 0, seg = 0;
+        for (int i = 0; i < f.length(); i++) {
+            char p = f.charAt(i);
+            char ch = t.charAt(i);
+            switch (p) {
+                case 'y', 'M', 'd', 'H', 'm', 's' -> {
+                    if (ch < '0' || ch > '9') return null;
+                    int v = ch - '0';
+                    switch (p) {
+                        case 'y' -> anio = anio * 10 + v;
+                        case 'M' -> mes = mes * 10 + v;
+                        case 'd' -> dia = dia * 10 + v;
+                        case 'H' -> hora = hora * 10 + v;
+                        case 'm' -> min = min * 10 + v;
+                        default -> seg = seg * 10 + v;
+                    }
+                }
+                default -> {
+                    if (ch != p) return null;
+                }
+            }
+        }
+        boolean finDeDia = (hora == 24 && min == 0 && seg == 0); // SMART: 24:00:00 = 00:00 del día siguiente
+        if (anio < 1 || mes < 1 || mes > 12 || dia < 1 || dia > 31 || (hora > 23 && !finDeDia) || min > 59 || seg > 59) {
+            return null;
+        }
+        int diasMes = YearMonth.of(anio, mes).lengthOfMonth();
+        LocalDateTime r = LocalDateTime.of(anio, mes, Math.min(dia, diasMes), finDeDia ? 0 : hora, min, seg);
+        return finDeDia ? r.plusDays(1) : r;
+    }
+}
@@ -0,0 +1,42 @@
+package com.colors.savd.util;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Partición de un rango [desde, hasta] para las consultas de KPI ({@code KpiRepository} vía {@code ConsultaKpi}):
+ * los meses calendario completos [mesDesde, mesHasta] (yyyymm) se leen del resumen mensual y los extremos
+ * parciales [desde, cabezaHasta] y [colaDesde, hasta] de venta_detalle. Un tramo vacío queda invertido.
+ * Sin meses completos, o con el resumen deshabilitado, todo el rango es cabeza.
+ * <p>
+ * fecha_hora se guarda al segundo: el último instante de un mes es su inicio siguiente menos 1 s.
+ */
+public record TramosMensuales(LocalDateTime desde, LocalDateTime cabezaHasta, LocalDateTime colaDesde,
+    LocalDateTime hasta, int mesDesde, int mesHasta) {
+
+  public static TramosMensuales de(LocalDateTime desde, LocalDateTime hasta, boolean usarResumen) {
+    YearMonth primero = YearMonth.from(desde);
+    if (desde.isAfter(inicio(primero))) primero = primero.plusMonths(1);
+    YearMonth ultimo = YearMonth.from(hasta);
+    if (hasta.isBefore(inicio(ultimo.plusMonths(1)).minusSeconds(1))) ultimo = ultimo.minusMonths(1);
+
+    if (!usarResumen || primero.isAfter(ultimo)) {
+      return new TramosMensuales(desde, hasta, hasta.plusSeconds(1), hasta, 1, 0);
+    }
+    return new TramosMensuales(desde, inicio(primero).minusSeconds(1), inicio(ultimo.plusMonths(1)), hasta,
+        yyyymm(primero), yyyymm(ultimo));
+  }
+
+  /** true si hay meses completos que se leen del resumen */
+  public boolean usaResumen() {
+    return mesDesde <= mesHasta;
+  }
+
+  private static LocalDateTime inicio(YearMonth ym) {
+    return ym.atDay(1).atStartOfDay();
+  }
+
+  private static int yyyymm(YearMonth ym) {
+    return ym.getYear() * 100 + ym.getMonthValue();
+  }
+}
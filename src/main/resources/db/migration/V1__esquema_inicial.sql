@@ -0,0 +1,425 @@
+-- Esquema inicial de SAVD (el que validaban las entidades JPA antes de las migraciones versionadas).
+-- En una base existente sin historial de Flyway esta versión se toma como línea base y no se ejecuta
+-- (spring.flyway.baseline-on-migrate); en una base vacía crea todas las tablas.
+
+CREATE TABLE bitacora_carga (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    filas_error INTEGER NOT NULL,
+    filas_ok INTEGER NOT NULL,
+    fecha_hora DATETIME(6) NOT NULL,
+    usuario_id BIGINT NOT NULL,
+    archivo_nombre VARCHAR(180),
+    ruta_log VARCHAR(255),
+    tipo_carga ENUM ('CATALOGO','INGRESOS','INICIAL','PARAMETROS','RECLASIFICACION','VENTAS') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE bitacora_error (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    fila_origen INTEGER,
+    bitacora_id BIGINT NOT NULL,
+    fecha_hora_registro DATETIME(6) NOT NULL,
+    campo VARCHAR(80) NOT NULL,
+    mensaje_error VARCHAR(255) NOT NULL,
+    valor_original VARCHAR(255),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE canal_venta (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    codigo VARCHAR(40) NOT NULL,
+    nombre VARCHAR(100) NOT NULL,
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE categoria (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    nombre VARCHAR(120) NOT NULL,
+    descripcion VARCHAR(255),
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE color (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    hex VARCHAR(7),
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    codigo VARCHAR(20) NOT NULL,
+    nombre VARCHAR(60) NOT NULL,
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE color_alias (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    color_id BIGINT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    alias VARCHAR(60) NOT NULL,
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE kardex_movimiento (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    cantidad INTEGER NOT NULL,
+    signo INTEGER NOT NULL,
+    canal_id BIGINT,
+    created_at DATETIME(6) NOT NULL,
+    fecha_hora DATETIME(6) NOT NULL,
+    sku_id BIGINT NOT NULL,
+    tipo_mov_id BIGINT NOT NULL,
+    usuario_id BIGINT NOT NULL,
+    venta_detalle_id BIGINT,
+    venta_id BIGINT,
+    referencia VARCHAR(160),
+    idempotency_key VARCHAR(180),
+    observacion VARCHAR(255),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE parametro_reposicion (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    lead_time_dias INTEGER NOT NULL,
+    min_stock INTEGER NOT NULL,
+    stock_seguridad INTEGER NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    sku_id BIGINT NOT NULL,
+    ultima_actualizacion DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE password_reset_token (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    attempts INTEGER NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    used_at DATETIME(6),
+    usuario_id BIGINT NOT NULL,
+    token VARCHAR(72) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE producto (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    categoria_id BIGINT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    nombre VARCHAR(160) NOT NULL,
+    descripcion VARCHAR(255),
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE rol (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    codigo VARCHAR(40) NOT NULL,
+    nombre VARCHAR(100) NOT NULL,
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE talla (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    orden INTEGER NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    codigo VARCHAR(20) NOT NULL,
+    nombre VARCHAR(60) NOT NULL,
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE talla_alias (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    created_at DATETIME(6) NOT NULL,
+    talla_id BIGINT NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    alias VARCHAR(60) NOT NULL,
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE temporada (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    anio INTEGER,
+    fecha_fin DATE NOT NULL,
+    fecha_inicio DATE NOT NULL,
+    prioridad INTEGER NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    tipo_temp_id BIGINT NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    nombre VARCHAR(160) NOT NULL,
+    descripcion VARCHAR(255),
+    estado_negocio ENUM ('ACTIVA','CERRADA') NOT NULL,
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE tipo_movimiento (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    signo_default INTEGER NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    codigo VARCHAR(40) NOT NULL,
+    nombre VARCHAR(100) NOT NULL,
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE tipo_temporada (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    codigo VARCHAR(40) NOT NULL,
+    nombre VARCHAR(100) NOT NULL,
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE usuario (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    failed_logins INTEGER NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    last_login_at DATETIME(6),
+    locked_until DATETIME(6),
+    password_updated_at DATETIME(6),
+    reset_token_expira DATETIME(6),
+    rol_id BIGINT NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    nombre VARCHAR(120) NOT NULL,
+    email VARCHAR(180) NOT NULL,
+    reset_token VARCHAR(180),
+    password_hash VARCHAR(255) NOT NULL,
+    estado_negocio ENUM ('ACTIVO','INACTIVO') NOT NULL,
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE variante_sku (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    activo BIT NOT NULL,
+    precio_lista DECIMAL(10,2) NOT NULL,
+    color_id BIGINT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    producto_id BIGINT NOT NULL,
+    talla_id BIGINT NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    sku VARCHAR(80) NOT NULL,
+    estatus_registro ENUM ('ELIMINADO','INACTIVO','VISIBLE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE venta (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    total DECIMAL(12,2) NOT NULL,
+    anulada_at DATETIME(6),
+    anulada_por BIGINT,
+    canal_id BIGINT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    created_by BIGINT,
+    fecha_hora DATETIME(6) NOT NULL,
+    temporada_id BIGINT,
+    updated_at DATETIME(6) NOT NULL,
+    updated_by BIGINT,
+    referencia_origen VARCHAR(120),
+    estado ENUM ('ACTIVA','ANULADA') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE venta_detalle (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    cantidad INTEGER NOT NULL,
+    importe DECIMAL(12,2) NOT NULL,
+    precio_lista DECIMAL(10,2) NOT NULL,
+    precio_unitario DECIMAL(10,2) NOT NULL,
+    sku_id BIGINT NOT NULL,
+    venta_id BIGINT NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+ALTER TABLE canal_venta
+   ADD CONSTRAINT uq_canal_venta__codigo UNIQUE (codigo);
+
+ALTER TABLE categoria
+   ADD CONSTRAINT uq_categoria__nombre UNIQUE (nombre);
+
+ALTER TABLE color
+   ADD CONSTRAINT uq_color__codigo UNIQUE (codigo);
+
+ALTER TABLE color_alias
+   ADD CONSTRAINT uq_color_alias__alias UNIQUE (alias);
+
+ALTER TABLE kardex_movimiento
+   ADD CONSTRAINT uq_kardex__idempotency UNIQUE (idempotency_key);
+
+ALTER TABLE parametro_reposicion
+   ADD CONSTRAINT uq_parametro_repo__sku UNIQUE (sku_id);
+
+CREATE INDEX ix_prt_user
+   ON password_reset_token (usuario_id);
+
+ALTER TABLE password_reset_token
+   ADD CONSTRAINT ix_prt_token UNIQUE (token);
+
+ALTER TABLE producto
+   ADD CONSTRAINT uq_producto__nombre_categoria UNIQUE (nombre, categoria_id);
+
+ALTER TABLE rol
+   ADD CONSTRAINT uq_rol__codigo UNIQUE (codigo);
+
+ALTER TABLE talla
+   ADD CONSTRAINT uq_talla__codigo UNIQUE (codigo);
+
+ALTER TABLE talla_alias
+   ADD CONSTRAINT uq_talla_alias__alias UNIQUE (alias);
+
+ALTER TABLE tipo_movimiento
+   ADD CONSTRAINT uq_tipo_movimiento__codigo UNIQUE (codigo);
+
+ALTER TABLE tipo_temporada
+   ADD CONSTRAINT uq_tipo_temporada__codigo UNIQUE (codigo);
+
+ALTER TABLE usuario
+   ADD CONSTRAINT uq_usuario__email UNIQUE (email);
+
+ALTER TABLE variante_sku
+   ADD CONSTRAINT uq_variante_sku__sku UNIQUE (sku);
+
+ALTER TABLE variante_sku
+   ADD CONSTRAINT uq_variante_sku__prod_talla_color UNIQUE (producto_id, talla_id, color_id);
+
+ALTER TABLE bitacora_carga
+   ADD CONSTRAINT fk_bitacora__usuario
+   FOREIGN KEY (usuario_id)
+   REFERENCES usuario (id);
+
+ALTER TABLE bitacora_error
+   ADD CONSTRAINT fk_bitacora_error__bitacora
+   FOREIGN KEY (bitacora_id)
+   REFERENCES bitacora_carga (id);
+
+ALTER TABLE color_alias
+   ADD CONSTRAINT fk_color_alias__color
+   FOREIGN KEY (color_id)
+   REFERENCES color (id);
+
+ALTER TABLE kardex_movimiento
+   ADD CONSTRAINT fk_kardex__canal
+   FOREIGN KEY (canal_id)
+   REFERENCES canal_venta (id);
+
+ALTER TABLE kardex_movimiento
+   ADD CONSTRAINT fk_kardex__sku
+   FOREIGN KEY (sku_id)
+   REFERENCES variante_sku (id);
+
+ALTER TABLE kardex_movimiento
+   ADD CONSTRAINT fk_kardex__tipo
+   FOREIGN KEY (tipo_mov_id)
+   REFERENCES tipo_movimiento (id);
+
+ALTER TABLE kardex_movimiento
+   ADD CONSTRAINT fk_kardex__usuario
+   FOREIGN KEY (usuario_id)
+   REFERENCES usuario (id);
+
+ALTER TABLE kardex_movimiento
+   ADD CONSTRAINT fk_kardex__venta
+   FOREIGN KEY (venta_id)
+   REFERENCES venta (id);
+
+ALTER TABLE kardex_movimiento
+   ADD CONSTRAINT fk_kardex__venta_detalle
+   FOREIGN KEY (venta_detalle_id)
+   REFERENCES venta_detalle (id);
+
+ALTER TABLE parametro_reposicion
+   ADD CONSTRAINT fk_parametro_repo__sku
+   FOREIGN KEY (sku_id)
+   REFERENCES variante_sku (id);
+
+ALTER TABLE password_reset_token
+   ADD CONSTRAINT fk_prt__usuario
+   FOREIGN KEY (usuario_id)
+   REFERENCES usuario (id);
+
+ALTER TABLE producto
+   ADD CONSTRAINT fk_producto__categoria
+   FOREIGN KEY (categoria_id)
+   REFERENCES categoria (id);
+
+ALTER TABLE talla_alias
+   ADD CONSTRAINT fk_talla_alias__talla
+   FOREIGN KEY (talla_id)
+   REFERENCES talla (id);
+
+ALTER TABLE temporada
+   ADD CONSTRAINT fk_temporada__tipo_temporada
+   FOREIGN KEY (tipo_temp_id)
+   REFERENCES tipo_temporada (id);
+
+ALTER TABLE usuario
+   ADD CONSTRAINT fk_usuario__rol
+   FOREIGN KEY (rol_id)
+   REFERENCES rol (id);
+
+ALTER TABLE variante_sku
+   ADD CONSTRAINT fk_variante_sku__color
+   FOREIGN KEY (color_id)
+   REFERENCES color (id);
+
+ALTER TABLE variante_sku
+   ADD CONSTRAINT fk_variante_sku__producto
+   FOREIGN KEY (producto_id)
+   REFERENCES producto (id);
+
+ALTER TABLE variante_sku
+   ADD CONSTRAINT fk_variante_sku__talla
+   FOREIGN KEY (talla_id)
+   REFERENCES talla (id);
+
+ALTER TABLE venta
+   ADD CONSTRAINT fk_venta__anulada_por
+   FOREIGN KEY (anulada_por)
+   REFERENCES usuario (id);
+
+ALTER TABLE venta
+   ADD CONSTRAINT fk_venta__canal
+   FOREIGN KEY (canal_id)
+   REFERENCES canal_venta (id);
+
+ALTER TABLE venta
+   ADD CONSTRAINT fk_venta__created_by
+   FOREIGN KEY (created_by)
+   REFERENCES usuario (id);
+
+ALTER TABLE venta
+   ADD CONSTRAINT fk_venta__temporada
+   FOREIGN KEY (temporada_id)
+   REFERENCES temporada (id);
+
+ALTER TABLE venta
+   ADD CONSTRAINT fk_venta__updated_by
+   FOREIGN KEY (updated_by)
+   REFERENCES usuario (id);
+
+ALTER TABLE venta_detalle
+   ADD CONSTRAINT fk_venta_detalle__sku
+   FOREIGN KEY (sku_id)
+   REFERENCES variante_sku (id);
+
+ALTER TABLE venta_detalle
+   ADD CONSTRAINT fk_venta_detalle__venta
+   FOREIGN KEY (venta_id)
+   REFERENCES venta (id);
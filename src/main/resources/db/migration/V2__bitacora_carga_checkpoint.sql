@@ -0,0 +1,5 @@
+-- Cargas por tramos con checkpoint: estado de la carga, grupos (cabeceras) confirmados y clave del último
+ALTER TABLE bitacora_carga
+    ADD COLUMN estado VARCHAR(15) NULL,
+    ADD COLUMN grupos_confirmados INT NOT NULL DEFAULT 0,
+    ADD COLUMN ultimo_grupo VARCHAR(200) NULL;
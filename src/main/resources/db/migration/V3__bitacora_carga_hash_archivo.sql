@@ -0,0 +1,4 @@
+-- SHA-256 del archivo subido: una re-subida idéntica se responde con la bitácora existente
+ALTER TABLE bitacora_carga ADD COLUMN hash_archivo VARCHAR(64) NULL;
+
+CREATE INDEX idx_bitacora_carga__hash ON bitacora_carga (hash_archivo, tipo_carga);
@@ -0,0 +1,4 @@
+-- Importación por lote (libro con varias hojas o ZIP): cada parte apunta a la bitácora del lote
+ALTER TABLE bitacora_carga
+    ADD COLUMN bitacora_padre_id BIGINT NULL,
+    ADD CONSTRAINT fk_bitacora_carga__padre FOREIGN KEY (bitacora_padre_id) REFERENCES bitacora_carga (id);
@@ -0,0 +1,23 @@
+-- Resumen mensual de ventas ACTIVAS para los KPI (sin entidad JPA: lo mantiene ResumenVentaMensualRepository).
+-- temporada_id = 0 representa "sin temporada" porque la clave primaria no admite NULL.
+CREATE TABLE venta_resumen_mensual (
+    anio         SMALLINT      NOT NULL,
+    mes          TINYINT       NOT NULL,
+    sku_id       BIGINT        NOT NULL,
+    canal_id     BIGINT        NOT NULL,
+    temporada_id BIGINT        NOT NULL DEFAULT 0,
+    unidades     BIGINT        NOT NULL,
+    ingresos     DECIMAL(16,2) NOT NULL,
+    PRIMARY KEY (anio, mes, sku_id, canal_id, temporada_id),
+    CONSTRAINT fk_venta_resumen_mensual__sku FOREIGN KEY (sku_id) REFERENCES variante_sku (id),
+    CONSTRAINT fk_venta_resumen_mensual__canal FOREIGN KEY (canal_id) REFERENCES canal_venta (id)
+) ENGINE=InnoDB;
+
+-- Carga inicial con las ventas existentes (equivale a POST /api/reportes/resumen-mensual/reconstruir)
+INSERT INTO venta_resumen_mensual (anio, mes, sku_id, canal_id, temporada_id, unidades, ingresos)
+SELECT YEAR(v.fecha_hora), MONTH(v.fecha_hora), d.sku_id, v.canal_id, COALESCE(v.temporada_id, 0),
+       SUM(d.cantidad), SUM(d.importe)
+FROM venta v
+JOIN venta_detalle d ON d.venta_id = v.id
+WHERE v.estado = 'ACTIVA'
+GROUP BY YEAR(v.fecha_hora), MONTH(v.fecha_hora), d.sku_id, v.canal_id, COALESCE(v.temporada_id, 0);
@@ -0,0 +1,13 @@
+-- Índices de las consultas frecuentes (se verifican con PlanesConsultaTest contra MySQL).
+
+-- Reportes y KPI: ventas ACTIVAS en un rango de fechas, opcionalmente por canal
+CREATE INDEX idx_venta__estado_fecha_canal ON venta (estado, fecha_hora, canal_id);
+
+-- Detección de duplicados al importar: cabeceras (fecha, canal, referencia) en la ventana del archivo
+CREATE INDEX idx_venta__fecha_canal_ref ON venta (fecha_hora, canal_id, referencia_origen);
+
+-- Líneas de una venta con su SKU sin ir a la tabla (reemplaza al índice implícito de fk_venta_detalle__venta)
+CREATE INDEX idx_venta_detalle__venta_sku ON venta_detalle (venta_id, sku_id);
+
+-- Stock y movimiento por SKU hasta / entre fechas (reemplaza al índice implícito de fk_kardex__sku)
+CREATE INDEX idx_kardex__sku_fecha ON kardex_movimiento (sku_id, fecha_hora);
@@ -0,0 +1,213 @@
+package com.colors.savd.cache;
+
+import com.colors.savd.model.CanalVenta;
+import com.colors.savd.model.VarianteSku;
+import com.colors.savd.model.Venta;
+import com.colors.savd.model.VentaDetalle;
+import com.colors.savd.repository.CuboVentasRepository;
+import com.colors.savd.repository.projection.KpiAggComparado;
+import com.colors.savd.repository.projection.KpiAggMes;
+import com.colors.savd.repository.projection.TopProductoFila;
+import com.colors.savd.util.ConsultaKpi.Nivel;
+import com.colors.savd.util.TramosMensuales;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CuboVentasTest {
+
+    private final CuboVentasRepository repo = mock(CuboVentasRepository.class);
+
+    // sku_id, sku, producto_id, producto, categoria_id, categoria, talla_id, talla, color_id, color
+    private static final Object[][] SKUS = {
+        { 1L, "POL-S-ROJ", 10L, "Polo", 100L, "Polos", 1L, "S", 5L, "Rojo" },
+        { 2L, "POL-M-AZU", 10L, "Polo", 100L, "Polos", 2L, "M", 6L, "Azul" },
+        { 3L, "JEA-32", 20L, "Jean", 200L, "Jeans", null, null, null, null },
+    };
+
+    // fecha_hora, canal_id, temporada_id (0 = sin temporada), sku_id, cantidad, importe
+    private static final Object[][] LINEAS = {
+        { LocalDateTime.of(2025, 1, 10, 10, 0), 1L, 0L, 1L, 2, new BigDecimal("50.00") },
+        { LocalDateTime.of(2025, 1, 31, 23, 59, 59), 2L, 7L, 3L, 1, new BigDecimal("120.00") },
+        { LocalDateTime.of(2025, 2, 1, 0, 0), 1L, 7L, 2L, 3, new BigDecimal("75.00") },
+        { LocalDateTime.of(2024, 2, 15, 12, 0), 1L, 0L, 1L, 1, new BigDecimal("25.00") },
+    };
+
+    @BeforeEach
+    void catalogo() {
+        willAnswer(inv -> recorrer(inv.getArgument(0), SKUS)).given(repo).recorrerSkus(any(RowCallbackHandler.class));
+        willAnswer(inv -> recorrer(inv.getArgument(0), LINEAS)).given(repo).recorrerLineasActivas(any(RowCallbackHandler.class));
+        willAnswer(inv -> recorrer(inv.getArgument(1),
+            new Object[] { 4L, "POL-L-NEG", 10L, "Polo", 100L, "Polos", 3L, "L", 8L, "Negro" }))
+            .given(repo).recorrerSkus(anyCollection(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @DisplayName("Mensual: mismas filas y orden que la consulta SQL (mes, luego mayor ingreso); filtros por id")
+    void mensualComoLaConsulta() {
+        CuboVentas cubo = cubo();
+        var rango = rango(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 2, 28, 23, 59, 59));
+
+        List<KpiAggMes> filas = cubo.kpiMensual(Nivel.CATEGORIA, rango, null, null, null, null, null);
+
+        assertEquals(List.of(
+            new KpiAggMes(2025, 1, 200L, "Jeans", null, null, null, 1L, new BigDecimal("120.00")),
+            new KpiAggMes(2025, 1, 100L, "Polos", null, null, null, 2L, new BigDecimal("50.00")),
+            new KpiAggMes(2025, 2, 100L, "Polos", null, null, null, 3L, new BigDecimal("75.00"))), filas);
+
+        assertEquals(2, cubo.kpiMensual(Nivel.CATEGORIA, rango, 1L, null, null, null, null).size());
+        var sku = cubo.kpiMensual(Nivel.SKU, rango, null, 7L, null, 2L, null);
+        assertEquals(List.of(new KpiAggMes(2025, 2, 2L, "POL-M-AZU", "Polo", "M", "Azul", 3L, new BigDecimal("75.00"))), sku);
+        assertTrue(cubo.kpiMensual(Nivel.PRODUCTO, rango, 99L, null, null, null, null).isEmpty());
+        verify(repo, times(1)).recorrerLineasActivas(any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @DisplayName("Comparado: una línea cuenta en cada ventana que la contiene; sin unidades en el actual no sale")
+    void comparadoEnUnRecorrido() {
+        CuboVentas cubo = cubo();
+
+        List<KpiAggComparado> filas = cubo.kpiComparado(Nivel.PRODUCTO,
+            rango(LocalDateTime.of(2025, 2, 1, 0, 0), LocalDateTime.of(2025, 2, 28, 23, 59, 59)),
+            rango(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 2, 1, 0, 0)),
+            rango(LocalDateTime.of(2024, 2, 1, 0, 0), LocalDateTime.of(2024, 2, 29, 23, 59, 59)),
+            null, null, null, null, null);
+
+        assertEquals(List.of(new KpiAggComparado(10L, "Polo", null, null, null, 3L, new BigDecimal("75.00"),
+            new BigDecimal("125.00"), new BigDecimal("25.00"))), filas);
+    }
+
+    @Test
+    @DisplayName("Altas y anulaciones se aplican sin recargar; un SKU nuevo se lee con sus atributos")
+    void deltasIncrementales() {
+        CuboVentas cubo = cubo();
+        LocalDateTime desde = LocalDateTime.of(2025, 2, 1, 0, 0);
+        LocalDateTime hasta = LocalDateTime.of(2025, 2, 28, 23, 59, 59);
+        assertEquals(List.of(new TopProductoFila(2L, 3L, new BigDecimal("75.00"))), cubo.top(desde, hasta, null, 15));
+
+        List<VentaDetalle> venta = List.of(detalle(venta(LocalDateTime.of(2025, 2, 10, 9, 30), 1L), 4L, 5, "40.00"));
+        cubo.sumar(venta); // fuera de una transacción se aplica en el acto
+        assertEquals(List.of(new TopProductoFila(4L, 5L, new BigDecimal("40.00")),
+            new TopProductoFila(2L, 3L, new BigDecimal("75.00"))), cubo.top(desde, hasta, null, 15));
+        assertEquals(List.of(new KpiAggMes(2025, 2, 4L, "POL-L-NEG", "Polo", "L", "Negro", 5L, new BigDecimal("40.00"))),
+            cubo.kpiMensual(Nivel.SKU, rango(desde, hasta), null, null, null, 3L, null));
+
+        cubo.restar(venta);
+        assertEquals(List.of(new TopProductoFila(2L, 3L, new BigDecimal("75.00"))), cubo.top(desde, hasta, null, 15));
+        verify(repo, times(1)).recorrerLineasActivas(any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @DisplayName("Varios bloques del escaneo paralelo se suman sin perder filas")
+    void escaneoParaleloPorBloques() {
+        CuboVentas cubo = cubo();
+        LocalDateTime desde = LocalDateTime.of(2025, 3, 1, 0, 0);
+        LocalDateTime hasta = LocalDateTime.of(2025, 3, 31, 23, 59, 59);
+        assertTrue(cubo.top(desde, hasta, null, 15).isEmpty());
+
+        List<VentaDetalle> detalles = new ArrayList<>();
+        for (int i = 0; i < 150_000; i++) {
+            detalles.add(detalle(venta(desde.plusSeconds(i), 1L + i % 2), 1L + i % 3, 1, "1.00"));
+        }
+        cubo.sumar(detalles);
+
+        List<TopProductoFila> top = cubo.top(desde, hasta, 2L, 2);
+        assertEquals(2, top.size());
+        assertEquals(25_000L, top.get(0).unidades());
+        assertEquals(new BigDecimal("25000.00"), top.get(0).ingresos());
+        long total = cubo.kpiMensual(Nivel.CATEGORIA, rango(desde, hasta), null, null, null, null, null).stream()
+            .mapToLong(KpiAggMes::unidades).sum();
+        assertEquals(150_000L, total);
+    }
+
+    @Test
+    @DisplayName("Un alta escrita sin cubo cargado vence la carga que empezó antes de su commit")
+    void altaSinCuboAntesDeUnaCarga() {
+        CuboVentas cubo = cubo();
+        LocalDateTime desde = LocalDateTime.of(2025, 2, 1, 0, 0);
+        LocalDateTime hasta = LocalDateTime.of(2025, 2, 28, 23, 59, 59);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cubo.sumar(List.of(detalle(venta(LocalDateTime.of(2025, 2, 10, 9, 30), 1L), 4L, 5, "40.00")));
+            // Otra consulta carga el cubo antes del commit: no ve la venta nueva
+            assertEquals(1, cubo.top(desde, hasta, null, 15).size());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        cubo.top(desde, hasta, null, 15);
+        verify(repo, times(2)).recorrerLineasActivas(any(RowCallbackHandler.class));
+    }
+
+    private CuboVentas cubo() {
+        CuboVentas cubo = new CuboVentas(repo);
+        ReflectionTestUtils.setField(cubo, "habilitado", true);
+        ReflectionTestUtils.setField(cubo, "recargaMinutos", 60L);
+        return cubo;
+    }
+
+    private static TramosMensuales rango(LocalDateTime desde, LocalDateTime hasta) {
+        return TramosMensuales.de(desde, hasta, false);
+    }
+
+    private static Venta venta(LocalDateTime fechaHora, Long canalId) {
+        CanalVenta canal = new CanalVenta();
+        canal.setId(canalId);
+        Venta v = new Venta();
+        v.setFechaHora(fechaHora);
+        v.setCanal(canal);
+        return v;
+    }
+
+    private static VentaDetalle detalle(Venta v, Long skuId, int cantidad, String importe) {
+        VarianteSku sku = new VarianteSku();
+        sku.setId(skuId);
+        VentaDetalle d = new VentaDetalle();
+        d.setVenta(v);
+        d.setSku(sku);
+        d.setCantidad(cantidad);
+        d.setImporte(new BigDecimal(importe));
+        return d;
+    }
+
+    /** Entrega las filas al handler con un ResultSet que lee de la fila actual (índices JDBC desde 1) */
+    private static Object recorrer(RowCallbackHandler handler, Object[]... filas) throws SQLException {
+        Object[][] actual = new Object[1][];
+        ResultSet rs = mock(ResultSet.class);
+        willAnswer(inv -> valor(actual[0], inv.getArgument(0))).given(rs).getObject(anyInt(), eq(LocalDateTime.class));
+        willAnswer(inv -> valor(actual[0], inv.getArgument(0))).given(rs).getString(anyInt());
+        willAnswer(inv -> valor(actual[0], inv.getArgument(0))).given(rs).getBigDecimal(anyInt());
+        willAnswer(inv -> valor(actual[0], inv.getArgument(0)) instanceof Number n ? n.longValue() : 0L)
+            .given(rs).getLong(anyInt());
+        willAnswer(inv -> valor(actual[0], inv.getArgument(0)) instanceof Number n ? n.intValue() : 0)
+            .given(rs).getInt(anyInt());
+        for (Object[] f : filas) {
+            actual[0] = f;
+            handler.processRow(rs);
+        }
+        return null;
+    }
+
+    private static Object valor(Object[] fila, int columna) {
+        return fila[columna - 1];
+    }
+}
@@ -0,0 +1,94 @@
+package com.colors.savd.cache;
+
+import com.colors.savd.repository.ColorAliasRepository;
+import com.colors.savd.repository.TallaAliasRepository;
+import com.colors.savd.repository.VarianteSkuRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class IndiceSkusTest {
+
+    private final VarianteSkuRepository skuRepo = mock(VarianteSkuRepository.class);
+    private final TallaAliasRepository tallaRepo = mock(TallaAliasRepository.class);
+    private final ColorAliasRepository colorRepo = mock(ColorAliasRepository.class);
+    private final IndiceSkus indice = new IndiceSkus(skuRepo, tallaRepo, colorRepo);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(indice, "recargaSegundos", 300L);
+        // Producto 1 "Polo Básico" (categoría A) y producto 2 con el mismo nombre (categoría B)
+        given(skuRepo.catalogoAtributos()).willReturn(List.of(
+            new Object[] { 100L, "POLO-M-NEG", 1L, "Polo Básico", 10L, 20L },
+            new Object[] { 101L, "POLO-L-NEG", 1L, "Polo Básico", 11L, 20L },
+            new Object[] { 200L, "POLOB-M-NEG", 2L, "Polo  basico", 10L, 20L },
+            new Object[] { 201L, "POLOB-M-BLA", 2L, "Polo basico", 10L, 21L }));
+        given(tallaRepo.tallasVisibles()).willReturn(List.of(
+            new Object[] { 10L, "M", "Mediana" }, new Object[] { 11L, "L", "Grande" }));
+        given(tallaRepo.aliasVisibles()).willReturn(List.<Object[]>of(new Object[] { 11L, "G" }));
+        given(colorRepo.coloresVisibles()).willReturn(List.of(
+            new Object[] { 20L, "BLK", "Negro" }, new Object[] { 21L, "WHT", "Blanco" }));
+        given(colorRepo.aliasVisibles()).willReturn(List.<Object[]>of(new Object[] { 20L, "Black" }));
+    }
+
+    @Test
+    @DisplayName("Resuelve por código, alias o nombre de talla/color, sin acentos ni mayúsculas")
+    void resuelvePorAlias() {
+        IndiceSkus.Resolucion r = indice.resolver("polo basico", "g", "black");
+        assertTrue(r.encontrada());
+        assertEquals(101L, r.skuId());
+        assertEquals("POLO-L-NEG", r.sku());
+        assertEquals("POLOB-M-BLA", indice.resolver("POLO BÁSICO", "Mediana", "wht").sku());
+        // Se carga una sola vez
+        verify(skuRepo, times(1)).catalogoAtributos();
+    }
+
+    @Test
+    @DisplayName("Rechaza atributos desconocidos, combinaciones inexistentes y nombres ambiguos")
+    void rechazos() {
+        assertEquals("Producto", indice.resolver("Casaca", "M", "BLK").campo());
+        assertEquals("Talla", indice.resolver("Polo Básico", "XXL", "BLK").campo());
+        assertEquals("Color", indice.resolver("Polo Básico", "M", "Rojo").campo());
+        assertFalse(indice.resolver("Polo Básico", "L", "WHT").encontrada());
+        IndiceSkus.Resolucion ambigua = indice.resolver("Polo Básico", "M", "Negro");
+        assertFalse(ambigua.encontrada());
+        assertTrue(ambigua.error().contains("ambiguo"));
+    }
+
+    @Test
+    @DisplayName("Un cambio del catálogo fuera de transacción recarga en la siguiente consulta")
+    void recargaAlCambiar() {
+        indice.resolver("Polo Básico", "L", "BLK");
+        indice.alCambiarCatalogo(new Object());
+        indice.resolver("Polo Básico", "L", "BLK");
+        verify(skuRepo, times(2)).catalogoAtributos();
+    }
+
+    @Test
+    @DisplayName("Una invalidación durante la carga no deja el catálogo viejo hasta la próxima recarga")
+    void invalidarDuranteLaCarga() {
+        given(colorRepo.coloresVisibles())
+            .willAnswer(inv -> {
+                indice.alCambiarCatalogo(new Object()); // commit de otra transacción mientras se lee el catálogo
+                return List.<Object[]>of(new Object[] { 20L, "BLK", "Negro" });
+            })
+            .willReturn(List.of(new Object[] { 20L, "BLK", "Negro" }, new Object[] { 22L, "RED", "Rojo" }));
+        given(skuRepo.catalogoAtributos()).willReturn(List.<Object[]>of(
+            new Object[] { 100L, "POLO-M-NEG", 1L, "Polo Básico", 10L, 20L },
+            new Object[] { 102L, "POLO-M-ROJ", 1L, "Polo Básico", 10L, 22L }));
+
+        assertEquals("Color", indice.resolver("Polo Básico", "M", "Rojo").campo());
+        assertEquals("POLO-M-ROJ", indice.resolver("Polo Básico", "M", "Rojo").sku());
+        assertEquals("POLO-M-NEG", indice.resolver("Polo Básico", "M", "Negro").sku());
+        verify(skuRepo, times(2)).catalogoAtributos();
+    }
+}
@@ -0,0 +1,92 @@
+package com.colors.savd.cache;
+
+import com.colors.savd.model.Temporada;
+import com.colors.savd.model.enums.EstadoTemporada;
+import com.colors.savd.repository.TemporadaRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class IndiceTemporadasTest {
+
+    private final TemporadaRepository repo = mock(TemporadaRepository.class);
+
+    @Test
+    @DisplayName("Elige como la consulta SQL: mayor prioridad, luego intervalo más corto; fecha_fin inclusiva")
+    void mismaReglaQueLaConsulta() {
+        given(repo.findByEstadoNegocio(EstadoTemporada.ACTIVA)).willReturn(List.of(
+            temporada(1L, "2025-01-01", "2025-12-31", 0),   // todo el año
+            temporada(2L, "2025-03-01", "2025-03-31", 0),   // marzo: más corta que el año
+            temporada(3L, "2025-03-10", "2025-06-30", 5),   // prioridad alta aunque más larga que marzo
+            temporada(4L, "2026-02-01", "2026-02-10", 0)));
+        IndiceTemporadas indice = indice();
+
+        assertEquals(Optional.of(1L), indice.idQueContenga(LocalDate.parse("2025-01-01")));
+        assertEquals(Optional.of(2L), indice.idQueContenga(LocalDate.parse("2025-03-09")));
+        assertEquals(Optional.of(3L), indice.idQueContenga(LocalDate.parse("2025-03-10")));
+        assertEquals(Optional.of(3L), indice.idQueContenga(LocalDate.parse("2025-06-30")));
+        assertEquals(Optional.of(1L), indice.idQueContenga(LocalDate.parse("2025-07-01")));
+        assertEquals(Optional.of(4L), indice.idQueContenga(LocalDate.parse("2026-02-10")));
+        assertEquals(Optional.empty(), indice.idQueContenga(LocalDate.parse("2024-12-31")));
+        assertEquals(Optional.empty(), indice.idQueContenga(LocalDate.parse("2026-01-15")));
+        assertEquals(Optional.empty(), indice.idQueContenga(LocalDate.parse("2026-02-11")));
+        assertTrue(indice.esActiva(4L));
+        assertFalse(indice.esActiva(9L));
+        verify(repo, times(1)).findByEstadoNegocio(EstadoTemporada.ACTIVA);
+    }
+
+    @Test
+    @DisplayName("Tras invalidar (cambio de una temporada) la siguiente consulta recarga")
+    void recargaTrasInvalidar() {
+        given(repo.findByEstadoNegocio(EstadoTemporada.ACTIVA))
+            .willReturn(List.of())
+            .willReturn(List.of(temporada(7L, "2025-05-01", "2025-05-31", 0)));
+        IndiceTemporadas indice = indice();
+
+        assertEquals(Optional.empty(), indice.idQueContenga(LocalDate.parse("2025-05-15")));
+        indice.invalidar();
+        assertEquals(Optional.of(7L), indice.idQueContenga(LocalDate.parse("2025-05-15")));
+    }
+
+    @Test
+    @DisplayName("Una invalidación durante la carga no deja los tramos viejos hasta la próxima recarga")
+    void invalidarDuranteLaCarga() {
+        IndiceTemporadas indice = indice();
+        given(repo.findByEstadoNegocio(EstadoTemporada.ACTIVA))
+            .willAnswer(inv -> {
+                indice.invalidar(); // commit de otra transacción mientras se leen las temporadas
+                return List.of();
+            })
+            .willReturn(List.of(temporada(7L, "2025-05-01", "2025-05-31", 0)));
+
+        assertEquals(Optional.empty(), indice.idQueContenga(LocalDate.parse("2025-05-15")));
+        assertEquals(Optional.of(7L), indice.idQueContenga(LocalDate.parse("2025-05-15")));
+        assertEquals(Optional.of(7L), indice.idQueContenga(LocalDate.parse("2025-05-20")));
+        verify(repo, times(2)).findByEstadoNegocio(EstadoTemporada.ACTIVA);
+    }
+
+    private IndiceTemporadas indice() {
+        IndiceTemporadas indice = new IndiceTemporadas(repo);
+        ReflectionTestUtils.setField(indice, "recargaSegundos", 300L);
+        return indice;
+    }
+
+    private static Temporada temporada(Long id, String inicio, String fin, int prioridad) {
+        Temporada t = new Temporada();
+        t.setId(id);
+        t.setFechaInicio(LocalDate.parse(inicio));
+        t.setFechaFin(LocalDate.parse(fin));
+        t.setPrioridad(prioridad);
+        return t;
+    }
+}
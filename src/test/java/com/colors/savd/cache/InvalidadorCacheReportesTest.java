@@ -0,0 +1,104 @@
+package com.colors.savd.cache;
+
+import com.colors.savd.repository.VarianteSkuRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class InvalidadorCacheReportesTest {
+
+    private final CaffeineCacheManager cacheManager = new CaffeineCacheManager(
+        InvalidadorCacheReportes.CACHES_VENTAS.toArray(String[]::new));
+    private final VarianteSkuRepository skuRepo = mock(VarianteSkuRepository.class);
+    private final InvalidadorCacheReportes invalidador = new InvalidadorCacheReportes(cacheManager, skuRepo);
+
+    private static final LocalDateTime ENE_01 = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime ENE_31 = LocalDateTime.of(2025, 1, 31, 23, 59, 59);
+    private static final LocalDateTime FEB_01 = LocalDateTime.of(2025, 2, 1, 0, 0);
+    private static final LocalDateTime FEB_28 = LocalDateTime.of(2025, 2, 28, 23, 59, 59);
+
+    @Test
+    @DisplayName("Venta del 15/01 en canal 1: solo caen las entradas de enero sin canal o del canal 1")
+    void ventaInvalidaPorRangoYCanal() {
+        Cache top15 = cacheManager.getCache("top15");
+        top15.put(CacheKeys.top15(ENE_01, ENE_31, null), List.of());
+        top15.put(CacheKeys.top15(ENE_01, ENE_31, 1L), List.of());
+        top15.put(CacheKeys.top15(ENE_01, ENE_31, 2L), List.of());
+        top15.put(CacheKeys.top15(FEB_01, FEB_28, null), List.of());
+        Cache alertas = cacheManager.getCache("alertasStock");
+        alertas.put(CacheKeys.alertas(null), List.of());
+        alertas.put(CacheKeys.alertas(LocalDateTime.of(2025, 1, 10, 12, 0)), List.of());
+
+        invalidador.alCambiar(CambioDatosReporte.ventas(LocalDateTime.of(2025, 1, 15, 10, 0), 1L, Set.of(7L)));
+
+        assertNull(top15.get(CacheKeys.top15(ENE_01, ENE_31, null)));
+        assertNull(top15.get(CacheKeys.top15(ENE_01, ENE_31, 1L)));
+        assertNotNull(top15.get(CacheKeys.top15(ENE_01, ENE_31, 2L)));
+        assertNotNull(top15.get(CacheKeys.top15(FEB_01, FEB_28, null)));
+        assertNull(alertas.get(CacheKeys.alertas(null)));                                     // "ahora"
+        assertNotNull(alertas.get(CacheKeys.alertas(LocalDateTime.of(2025, 1, 10, 12, 0)))); // corte anterior
+        verify(skuRepo, never()).atributosPorId(anyCollection());                            // ninguna clave filtra por SKU
+    }
+
+    @Test
+    @DisplayName("Filtros de categoría/talla/color: se comparan contra los atributos de los SKUs afectados")
+    void filtrosPorAtributosDeSku() {
+        given(skuRepo.atributosPorId(anyCollection())).willReturn(List.<Object[]>of(new Object[] { 3L, 20L, 30L }));
+        Cache kpi = cacheManager.getCache("kpiSkuTotal");
+        ClaveReporte misma = CacheKeys.kpiKey(ENE_01, ENE_31, null, null, 3L, null, null);
+        ClaveReporte otra = CacheKeys.kpiKey(ENE_01, ENE_31, null, null, 4L, null, null);
+        ClaveReporte otroColor = CacheKeys.kpiKey(ENE_01, ENE_31, null, null, 3L, 20L, 31L);
+        kpi.put(misma, List.of());
+        kpi.put(otra, List.of());
+        kpi.put(otroColor, List.of());
+
+        invalidador.alCambiar(CambioDatosReporte.ventas(LocalDateTime.of(2025, 1, 15, 10, 0), 1L, Set.of(7L)));
+
+        assertNull(kpi.get(misma));
+        assertNotNull(kpi.get(otra));
+        assertNotNull(kpi.get(otroColor));
+    }
+
+    @Test
+    @DisplayName("KPI totales: una venta solo en la ventana del año previo invalida el total (variación YoY), no el mensual")
+    void totalesSeInvalidanPorVentanaYoY() {
+        Cache total = cacheManager.getCache("kpiProductoTotal");
+        Cache mensual = cacheManager.getCache("kpiProductoMensual");
+        ClaveReporte claveTotal = CacheKeys.kpiTotalKey(FEB_01, FEB_28, null, null, null, null, null);
+        ClaveReporte claveMensual = CacheKeys.kpiKey(FEB_01, FEB_28, null, null, null, null, null);
+        total.put(claveTotal, List.of());
+        mensual.put(claveMensual, List.of());
+
+        // Anulación del 10/02/2024: fuera del rango actual y del período anterior (enero 2025)
+        invalidador.alCambiar(CambioDatosReporte.ventas(LocalDateTime.of(2024, 2, 10, 9, 0), 1L, Set.of(7L)));
+
+        assertNull(total.get(claveTotal));
+        assertNotNull(mensual.get(claveMensual));
+    }
+
+    @Test
+    @DisplayName("Movimiento de stock: no toca KPIs, solo alertas con corte posterior")
+    void stockSoloAlertas() {
+        Cache kpi = cacheManager.getCache("kpiCategoriaTotal");
+        kpi.put(CacheKeys.kpiKey(ENE_01, ENE_31, null, null, null, null, null), List.of());
+        Cache alertas = cacheManager.getCache("alertasStock");
+        alertas.put(CacheKeys.alertas(ENE_31), List.of());
+
+        invalidador.alCambiar(CambioDatosReporte.stock(LocalDateTime.of(2025, 1, 15, 10, 0), 7L));
+
+        assertNotNull(kpi.get(CacheKeys.kpiKey(ENE_01, ENE_31, null, null, null, null, null)));
+        assertNull(alertas.get(CacheKeys.alertas(ENE_31)));
+    }
+}
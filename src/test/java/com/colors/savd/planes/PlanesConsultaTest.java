@@ -0,0 +1,205 @@
+package com.colors.savd.planes;
+
+import com.colors.savd.repository.KardexRepository;
+import com.colors.savd.repository.KpiRepository;
+import com.colors.savd.repository.VentaRepository;
+import com.colors.savd.util.ConsultaKpi.Nivel;
+import com.colors.savd.util.TramosMensuales;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Corre EXPLAIN sobre el SQL que ejecutan de verdad las consultas de {@link KpiRepository},
+ * {@link VentaRepository} y {@link KardexRepository} (con los mismos parámetros) y falla si alguna tabla
+ * se recorre completa (type ALL o index).
+ * <p>
+ * Necesita un MySQL local con el esquema migrado y datos representativos: se habilita con
+ * {@code SAVD_PLANES_MYSQL=true} y usa spring.datasource.* (se puede cambiar con SPRING_DATASOURCE_URL, etc.).
+ * Las tablas con menos de {@link #UMBRAL_FILAS} filas estimadas no cuentan: ahí el optimizador prefiere
+ * recorrerlas aunque exista el índice (p. ej. catálogos chicos).
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "SAVD_PLANES_MYSQL", matches = "true")
+class PlanesConsultaTest {
+
+    static final long UMBRAL_FILAS = 1_000;
+    private static final Set<String> SCAN_COMPLETO = Set.of("ALL", "index");
+    private static final ThreadLocal<List<Consulta>> GRABADAS = new ThreadLocal<>();
+
+    private static final LocalDateTime DESDE = LocalDateTime.of(2024, 11, 15, 8, 0);
+    private static final LocalDateTime HASTA = LocalDateTime.of(2025, 3, 10, 18, 30);
+
+    @Autowired private DataSource dataSource;
+    @Autowired private KpiRepository kpiRepo;
+    @Autowired private VentaRepository ventaRepo;
+    @Autowired private KardexRepository kardexRepo;
+
+    @Test
+    @DisplayName("KpiRepository: mensuales y comparadas, con y sin filtros, con y sin resumen mensual")
+    void kpiRepository() throws Exception {
+        var conResumen = TramosMensuales.de(DESDE, HASTA, true);
+        var sinResumen = TramosMensuales.de(DESDE, HASTA, false);
+        var anterior = TramosMensuales.de(DESDE.minusDays(115), DESDE, true);
+        var yoy = TramosMensuales.de(DESDE.minusYears(1), HASTA.minusYears(1), true);
+
+        verificar(grabar(() -> {
+            for (var t : List.of(conResumen, sinResumen)) {
+                kpiRepo.kpiCategoriaMensual(t, null, null, null, null, null);
+                kpiRepo.kpiProductoMensual(t, 1L, null, 1L, null, null);
+                kpiRepo.kpiSkuMensual(t, 1L, 1L, 1L, 1L, 1L);
+            }
+            for (Nivel nivel : Nivel.values()) {
+                kpiRepo.kpiComparado(nivel, conResumen, anterior, yoy, null, null, null, null, null);
+                kpiRepo.kpiComparado(nivel, conResumen, anterior, yoy, 1L, 1L, 1L, 1L, 1L);
+            }
+        }));
+    }
+
+    @Test
+    @DisplayName("VentaRepository: rangos de fechas, duplicados, líneas afectadas y top 15")
+    void ventaRepository() throws Exception {
+        verificar(grabar(() -> {
+            // Traen entidades completas: se usan con ventanas cortas (con meses, recorrer la tabla es lo correcto)
+            ventaRepo.findByFechaHoraBetween(DESDE, DESDE.plusDays(7));
+            ventaRepo.findByFechaHoraBetweenAndCanal_Id(DESDE, DESDE.plusDays(7), 1L);
+            ventaRepo.existsByFechaHoraAndCanal_IdAndReferenciaOrigen(DESDE, 1L, "REF-1");
+            ventaRepo.cabecerasConReferenciaEnRango(DESDE, HASTA, List.of(1L, 2L));
+            ventaRepo.lineasActivas(List.of(1L, 2L, 3L));
+            ventaRepo.top15ByRango(DESDE, HASTA, null, PageRequest.of(0, 15));
+            ventaRepo.top15ByRango(DESDE, HASTA, 1L, PageRequest.of(0, 15));
+        }));
+    }
+
+    @Test
+    @DisplayName("KardexRepository: movimientos, idempotencia, stock y ventas por SKU")
+    void kardexRepository() throws Exception {
+        verificar(grabar(() -> {
+            kardexRepo.findBySku_IdOrderByFechaHoraDesc(1L);
+            kardexRepo.idempotencyKeysExistentes(List.of("k-1", "k-2"));
+            kardexRepo.stockPorSkuHasta(List.of(1L, 2L), null);
+            kardexRepo.stockPorSkuHasta(List.of(1L, 2L), HASTA);
+            kardexRepo.ventasPorSkuEnRango(List.of(1L, 2L), DESDE, HASTA);
+        }));
+    }
+
+    private List<Consulta> grabar(Runnable llamadas) {
+        List<Consulta> consultas = new ArrayList<>();
+        GRABADAS.set(consultas);
+        try {
+            llamadas.run();
+        } finally {
+            GRABADAS.remove();
+        }
+        assertThat(consultas).as("consultas ejecutadas").isNotEmpty();
+        return consultas;
+    }
+
+    private void verificar(List<Consulta> consultas) throws Exception {
+        List<String> scans = new ArrayList<>();
+        try (Connection c = dataSource.getConnection()) {
+            for (Consulta q : consultas) {
+                try (PreparedStatement ps = c.prepareStatement("EXPLAIN " + q.sql())) {
+                    for (Object[] p : q.parametros()) invocar(ps, (Method) p[0], (Object[]) p[1]);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            String tabla = rs.getString("table");
+                            String tipo = rs.getString("type");
+                            long filas = rs.getLong("rows");
+                            // <derivedN>, <unionN,M>: tablas temporales de la propia consulta
+                            if (tabla == null || tabla.startsWith("<") || !SCAN_COMPLETO.contains(tipo)) continue;
+                            if (filas < UMBRAL_FILAS) continue;
+                            scans.add(tabla + " (" + tipo + ", " + filas + " filas) en:\n" + q.sql());
+                        }
+                    }
+                }
+            }
+        }
+        assertThat(scans).as("tablas recorridas completas").isEmpty();
+    }
+
+    private static void invocar(Object destino, Method m, Object[] args) throws Exception {
+        try {
+            m.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    /** SQL ejecutado y los set* de sus parámetros (método, argumentos) para repetirlos en el EXPLAIN */
+    record Consulta(String sql, List<Object[]> parametros) {}
+
+    /**
+     * Envuelve el DataSource de la aplicación: mientras un test graba, cada PreparedStatement recuerda sus
+     * parámetros y al ejecutar una consulta la agrega a la lista.
+     */
+    @TestConfiguration
+    static class Grabacion {
+
+        @Bean
+        static BeanPostProcessor grabadorConsultas() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nombre) {
+                    return bean instanceof DataSource ds ? proxy(DataSource.class, ds) : bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> tipo, T real) {
+            return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (p, m, args) -> {
+                Object r;
+                try {
+                    r = m.invoke(real, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (r instanceof Connection con) return proxy(Connection.class, con);
+                if (r instanceof PreparedStatement ps && "prepareStatement".equals(m.getName())) {
+                    return sentencia(ps, (String) args[0]);
+                }
+                return r;
+            });
+        }
+
+        private static PreparedStatement sentencia(PreparedStatement real, String sql) {
+            List<Object[]> parametros = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (p, m, args) -> {
+                    if (m.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        parametros.add(new Object[]{m, args.clone()});
+                    }
+                    List<Consulta> grabadas = GRABADAS.get();
+                    if (grabadas != null && "executeQuery".equals(m.getName()) && (args == null || args.length == 0)) {
+                        grabadas.add(new Consulta(sql, List.copyOf(parametros)));
+                    }
+                    try {
+                        return m.invoke(real, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        }
+    }
+}
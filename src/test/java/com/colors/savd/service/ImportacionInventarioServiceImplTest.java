@@ -0,0 +1,197 @@
+package com.colors.savd.service;
+
+import com.colors.savd.cache.IndiceSkus;
+import com.colors.savd.dto.ImportOpcionesDTO;
+import com.colors.savd.dto.ImportResultadoDTO;
+import com.colors.savd.model.BitacoraCarga;
+import com.colors.savd.model.KardexMovimiento;
+import com.colors.savd.model.TipoMovimiento;
+import com.colors.savd.model.Usuario;
+import com.colors.savd.model.VarianteSku;
+import com.colors.savd.model.enums.EstadoCarga;
+import com.colors.savd.model.enums.TipoCarga;
+import com.colors.savd.repository.*;
+import com.colors.savd.service.impl.ImportacionInventarioServiceImpl;
+import com.colors.savd.util.ExcelUtil;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ImportacionInventarioServiceImplTest {
+
+    private final BitacoraCargaRepository bitacoraRepo = mock(BitacoraCargaRepository.class);
+    private final VarianteSkuRepository skuRepo = mock(VarianteSkuRepository.class);
+    private final TipoMovimientoRepository tipoMovRepo = mock(TipoMovimientoRepository.class);
+    private final UsuarioRepository usuarioRepo = mock(UsuarioRepository.class);
+    private final KardexRepository kardexRepo = mock(KardexRepository.class);
+    private final CargaMasivaRepository cargaMasivaRepo = mock(CargaMasivaRepository.class);
+    private final TransactionTemplate txTemplate = mock(TransactionTemplate.class);
+
+    @Test
+    @DisplayName("Stock inicial por bloques: SKU resueltos una vez, ya registrados omitidos y errores por fila")
+    void stockInicialPorBloques() {
+        String csv = "SKU,Cantidad,Referencia,Fecha\n"
+            + "SKU-1,10,INV-1,2025-01-02 08:00:00\n"
+            + "NO-EXISTE,5,INV-1,2025-01-02 08:00:00\n"
+            + "SKU-2,0,INV-1,2025-01-02 08:00:00\n"       // cantidad inválida
+            + "sku-1,3,INV-1,2025-01-02 08:00:00\n"       // mismo movimiento que la fila 2 (SKU sin distinguir mayúsculas)
+            + "SKU-3,7,INV-1,2025-01-02 08:00:00\n"       // ya registrado (alta individual o carga anterior)
+            + "SKU-2,4,INV-1,2025-01-02 08:00:00\n";
+        given(skuRepo.findBySkuIn(anyCollection())).willAnswer(inv -> {
+            Collection<String> codigos = inv.getArgument(0);
+            return codigos.stream().filter(c -> c.startsWith("SKU-")).map(ImportacionInventarioServiceImplTest::sku).toList();
+        });
+        VarianteSku sku3 = sku("SKU-3");
+        String claveSku3 = UUID.nameUUIDFromBytes((sku3.getId() + "|2025-01-02T08:00|INICIAL|INV-1").getBytes()).toString();
+        given(kardexRepo.idempotencyKeysExistentes(anyCollection())).willAnswer(inv -> {
+            Collection<String> claves = inv.getArgument(0);
+            return claves.contains(claveSku3) ? List.of(claveSku3) : List.of();
+        });
+        given(tipoMovRepo.findByCodigo("INICIAL")).willReturn(Optional.of(new TipoMovimiento()));
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        given(usuarioRepo.findById(1L)).willReturn(Optional.of(usuario));
+        List<EstadoCarga> estados = new ArrayList<>();
+        given(bitacoraRepo.save(any())).willAnswer(inv -> {
+            BitacoraCarga b = inv.getArgument(0);
+            estados.add(b.getEstado());
+            if (b.getId() == null) b.setId(50L);
+            return b;
+        });
+        willAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).given(txTemplate).executeWithoutResult(any());
+        List<List<KardexMovimiento>> lotes = new ArrayList<>();
+        willAnswer(inv -> {
+            lotes.add(new ArrayList<>(inv.getArgument(0)));
+            return 0;
+        }).given(cargaMasivaRepo).insertarKardex(anyList());
+
+        ImportResultadoDTO r = servicio(2).importarMovimientos(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+            "inicial.csv", 1L, TipoCarga.INICIAL, new ImportOpcionesDTO());
+
+        assertEquals(50L, r.getBitacoraId());
+        assertEquals(3, r.getFilasOk());
+        assertEquals(3, r.getFilasError());
+        assertEquals(List.of("Fila 3: SKU no encontrado: NO-EXISTE"), r.getErroresMuestra().subList(0, 1));
+        assertTrue(r.getErroresMuestra().get(1).startsWith("Fila 4:"));
+        assertTrue(r.getErroresMuestra().get(2).startsWith("Fila 5: Movimiento repetido"));
+        assertNotNull(r.getMensaje());
+        // Bloques de 2 filas; el bloque con SKU-3 solo tenía ese movimiento y no se escribe nada
+        assertEquals(List.of(List.of("SKU-1"), List.of("SKU-2")),
+            lotes.stream().map(l -> l.stream().map(k -> k.getSku().getSku()).toList()).toList());
+        assertEquals(10, lotes.get(0).get(0).getCantidad());
+        assertEquals("INV-1", lotes.get(0).get(0).getReferencia());
+        // SKU-1 ya se conocía en el 2º bloque: solo se consultan códigos nuevos
+        verify(skuRepo, times(3)).findBySkuIn(anyCollection());
+        verify(kardexRepo, times(3)).idempotencyKeysExistentes(anyCollection());
+        assertEquals(List.of(EstadoCarga.EN_PROCESO, EstadoCarga.COMPLETADA), estados);
+    }
+
+    @Test
+    @DisplayName("Filas sin FechaHora: al volver a subir el archivo tras una carga interrumpida no se duplican")
+    void reimportacionSinFechaHoraTrasCargaParcial() throws Exception {
+        String csv = "SKU,Cantidad,Referencia\n"
+            + "SKU-1,10,INV-1\n"
+            + "SKU-2,4,INV-1\n"
+            + "SKU-3,7,INV-1\n";
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        given(skuRepo.findBySkuIn(anyCollection())).willAnswer(inv -> {
+            Collection<String> codigos = inv.getArgument(0);
+            return codigos.stream().map(ImportacionInventarioServiceImplTest::sku).toList();
+        });
+        Set<String> registradas = new HashSet<>();
+        given(kardexRepo.idempotencyKeysExistentes(anyCollection())).willAnswer(inv -> {
+            Collection<String> claves = inv.getArgument(0);
+            return claves.stream().filter(registradas::contains).toList();
+        });
+        given(tipoMovRepo.findByCodigo("INGRESO")).willReturn(Optional.of(new TipoMovimiento()));
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        given(usuarioRepo.findById(1L)).willReturn(Optional.of(usuario));
+        List<EstadoCarga> estados = new ArrayList<>();
+        given(bitacoraRepo.save(any())).willAnswer(inv -> {
+            BitacoraCarga b = inv.getArgument(0);
+            if (b.getId() == null) b.setId(60L + estados.size());
+            estados.add(b.getEstado());
+            return b;
+        });
+        willAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).given(txTemplate).executeWithoutResult(any());
+        List<KardexMovimiento> escritos = new ArrayList<>();
+        boolean[] caerEnElSegundoLote = { true };
+        willAnswer(inv -> {
+            List<KardexMovimiento> lote = inv.getArgument(0);
+            if (caerEnElSegundoLote[0] && !escritos.isEmpty()) throw new IllegalStateException("conexión perdida");
+            lote.forEach(k -> registradas.add(k.getIdempotencyKey()));
+            escritos.addAll(lote);
+            return lote.size();
+        }).given(cargaMasivaRepo).insertarKardex(anyList());
+
+        ImportacionInventarioServiceImpl service = servicio(2);
+        assertThrows(RuntimeException.class, () -> service.importarMovimientos(new ByteArrayInputStream(bytes),
+            "ingresos.csv", 1L, TipoCarga.INGRESOS, new ImportOpcionesDTO()));
+        assertEquals(2, escritos.size());
+
+        // La hora de la corrida (fecha de las filas sin FechaHora) cambia entre subidas
+        LocalDateTime primera = escritos.get(0).getFechaHora();
+        while (!LocalDateTime.now().withNano(0).isAfter(primera)) Thread.sleep(20);
+        caerEnElSegundoLote[0] = false;
+        ImportResultadoDTO r = service.importarMovimientos(new ByteArrayInputStream(bytes),
+            "ingresos.csv", 1L, TipoCarga.INGRESOS, new ImportOpcionesDTO());
+
+        assertEquals(3, r.getFilasOk());
+        assertEquals(0, r.getFilasError());
+        assertNotNull(r.getMensaje());
+        assertEquals(List.of("SKU-1", "SKU-2", "SKU-3"), escritos.stream().map(k -> k.getSku().getSku()).toList());
+        assertTrue(escritos.get(2).getFechaHora().isAfter(primera));
+        assertEquals(List.of(EstadoCarga.EN_PROCESO, EstadoCarga.INTERRUMPIDA, EstadoCarga.EN_PROCESO,
+            EstadoCarga.COMPLETADA), estados);
+    }
+
+    private ImportacionInventarioServiceImpl servicio(int tamanioLote) {
+        ImportacionInventarioServiceImpl service = new ImportacionInventarioServiceImpl(bitacoraRepo, skuRepo,
+            mock(CanalVentaRepository.class), tipoMovRepo, usuarioRepo, kardexRepo, cargaMasivaRepo, new ExcelUtil(), txTemplate, mock(ApplicationEventPublisher.class),
+            mock(IndiceSkus.class));
+        ReflectionTestUtils.setField(service, "tamanioLote", tamanioLote);
+        ReflectionTestUtils.setField(service, "trazasPorTipo", 5);
+        return service;
+    }
+
+    private static VarianteSku sku(String codigo) {
+        VarianteSku v = new VarianteSku();
+        v.setId((long) codigo.hashCode());
+        v.setSku(codigo);
+        v.setPrecioLista(new BigDecimal("25.00"));
+        return v;
+    }
+}
@@ -0,0 +1,119 @@
+package com.colors.savd.service;
+
+import com.colors.savd.cache.CambioDatosReporte;
+import com.colors.savd.dto.ImportOpcionesDTO;
+import com.colors.savd.dto.ImportResultadoDTO;
+import com.colors.savd.model.BitacoraCarga;
+import com.colors.savd.model.ParametroReposicion;
+import com.colors.savd.model.Usuario;
+import com.colors.savd.model.VarianteSku;
+import com.colors.savd.model.enums.EstadoCarga;
+import com.colors.savd.repository.*;
+import com.colors.savd.service.impl.ImportacionParametrosServiceImpl;
+import com.colors.savd.util.ExcelUtil;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class ImportacionParametrosServiceImplTest {
+
+    private final BitacoraCargaRepository bitacoraRepo = mock(BitacoraCargaRepository.class);
+    private final VarianteSkuRepository skuRepo = mock(VarianteSkuRepository.class);
+    private final ParametroReposicionRepository parametroRepo = mock(ParametroReposicionRepository.class);
+    private final UsuarioRepository usuarioRepo = mock(UsuarioRepository.class);
+    private final CargaMasivaRepository cargaMasivaRepo = mock(CargaMasivaRepository.class);
+    private final TransactionTemplate txTemplate = mock(TransactionTemplate.class);
+    private final ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+
+    @Test
+    @DisplayName("Upsert por bloques: cuenta creados/actualizados, rechaza repetidos e invalida alertasStock")
+    void upsertPorBloques() {
+        String csv = "SKU,MinStock,LeadTimeDias,StockSeguridad\n"
+            + "SKU-1,10,7,2\n"
+            + "SKU-2,5,3,1\n"          // ya tiene parámetro
+            + "NO-EXISTE,1,1,1\n"
+            + "SKU-3,-1,1,1\n"         // negativo
+            + "sku-1,4,4,4\n";         // repetido en el archivo
+        given(skuRepo.findBySkuIn(anyCollection())).willAnswer(inv -> {
+            Collection<String> codigos = inv.getArgument(0);
+            return codigos.stream().filter(c -> c.startsWith("SKU-")).map(ImportacionParametrosServiceImplTest::sku).toList();
+        });
+        Long idSku2 = sku("SKU-2").getId();
+        given(parametroRepo.skuIdsConParametro(anyCollection())).willAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return ids.contains(idSku2) ? List.of(idSku2) : List.of();
+        });
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        given(usuarioRepo.findById(1L)).willReturn(Optional.of(usuario));
+        List<EstadoCarga> estados = new ArrayList<>();
+        given(bitacoraRepo.save(any())).willAnswer(inv -> {
+            BitacoraCarga b = inv.getArgument(0);
+            estados.add(b.getEstado());
+            if (b.getId() == null) b.setId(70L);
+            return b;
+        });
+        willAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).given(txTemplate).executeWithoutResult(any());
+        List<List<ParametroReposicion>> lotes = new ArrayList<>();
+        willAnswer(inv -> {
+            lotes.add(new ArrayList<>(inv.getArgument(0)));
+            return null;
+        }).given(cargaMasivaRepo).upsertParametros(anyList());
+
+        ImportResultadoDTO r = servicio(2).importarParametros(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+            "parametros.csv", 1L, new ImportOpcionesDTO());
+
+        assertEquals(70L, r.getBitacoraId());
+        assertEquals(2, r.getFilasOk());
+        assertEquals(3, r.getFilasError());
+        assertTrue(r.getErroresMuestra().get(0).startsWith("Fila 5:"));        // negativo, al leer la fila
+        assertEquals("Fila 4: SKU no encontrado: NO-EXISTE", r.getErroresMuestra().get(1));
+        assertEquals("Fila 6: SKU repetido en el archivo: sku-1", r.getErroresMuestra().get(2));
+        assertTrue(r.getMensaje().startsWith("1 parámetros nuevos y 1 existentes"));
+        assertEquals(List.of(List.of("SKU-1", "SKU-2")),
+            lotes.stream().map(l -> l.stream().map(p -> p.getSku().getSku()).toList()).toList());
+        assertEquals(10, lotes.get(0).get(0).getMinStock());
+        assertEquals(7, lotes.get(0).get(0).getLeadTimeDias());
+        assertEquals(2, lotes.get(0).get(0).getStockSeguridad());
+        verify(publisher).publishEvent(CambioDatosReporte.parametros());
+        assertEquals(List.of(EstadoCarga.EN_PROCESO, EstadoCarga.COMPLETADA), estados);
+    }
+
+    private ImportacionParametrosServiceImpl servicio(int tamanioLote) {
+        ImportacionParametrosServiceImpl service = new ImportacionParametrosServiceImpl(bitacoraRepo, skuRepo,
+            parametroRepo, usuarioRepo, cargaMasivaRepo, new ExcelUtil(), publisher, txTemplate);
+        ReflectionTestUtils.setField(service, "tamanioLote", tamanioLote);
+        ReflectionTestUtils.setField(service, "trazasPorTipo", 5);
+        return service;
+    }
+
+    private static VarianteSku sku(String codigo) {
+        VarianteSku v = new VarianteSku();
+        v.setId((long) codigo.hashCode());
+        v.setSku(codigo);
+        return v;
+    }
+}
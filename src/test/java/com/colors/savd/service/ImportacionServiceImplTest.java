@@ -0,0 +1,323 @@
+package com.colors.savd.service;
+
+import com.colors.savd.cache.CuboVentas;
+import com.colors.savd.cache.IndiceSkus;
+import com.colors.savd.cache.IndiceTemporadas;
+import com.colors.savd.dto.ImportLoteResultadoDTO;
+import com.colors.savd.dto.ImportOpcionesDTO;
+import com.colors.savd.dto.ImportParteResultadoDTO;
+import com.colors.savd.dto.ImportResultadoDTO;
+import com.colors.savd.model.BitacoraCarga;
+import com.colors.savd.model.CanalVenta;
+import com.colors.savd.model.KardexMovimiento;
+import com.colors.savd.model.TipoMovimiento;
+import com.colors.savd.model.Usuario;
+import com.colors.savd.model.VarianteSku;
+import com.colors.savd.model.Venta;
+import com.colors.savd.model.VentaDetalle;
+import com.colors.savd.model.enums.EstadoCarga;
+import com.colors.savd.model.enums.TipoCarga;
+import com.colors.savd.repository.*;
+import com.colors.savd.repository.projection.CabeceraVentaClave;
+import com.colors.savd.service.impl.ImportacionServiceImpl;
+import com.colors.savd.util.ExcelUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ImportacionServiceImplTest {
+
+    private final List<ThreadPoolTaskExecutor> pools = new ArrayList<>();
+
+    private final BitacoraCargaRepository bitacoraRepo = mock(BitacoraCargaRepository.class);
+    private final CanalVentaRepository canalRepo = mock(CanalVentaRepository.class);
+    private final VarianteSkuRepository skuRepo = mock(VarianteSkuRepository.class);
+    private final VentaRepository ventaRepo = mock(VentaRepository.class);
+    private final KardexRepository kardexRepo = mock(KardexRepository.class);
+    private final TipoMovimientoRepository tipoMovRepo = mock(TipoMovimientoRepository.class);
+    private final UsuarioRepository usuarioRepo = mock(UsuarioRepository.class);
+    private final TemporadaRepository temporadaRepo = mock(TemporadaRepository.class);
+    private final CargaMasivaRepository cargaMasivaRepo = mock(CargaMasivaRepository.class);
+    private final ResumenVentaMensualRepository resumenMensualRepo = mock(ResumenVentaMensualRepository.class);
+    private final TransactionTemplate txTemplate = mock(TransactionTemplate.class);
+
+    @AfterEach
+    void tearDown() {
+        pools.forEach(ThreadPoolTaskExecutor::shutdown);
+    }
+
+    @Test
+    @DisplayName("soloValidar en paralelo da el mismo resultado que la validación secuencial")
+    void dryRunParaleloIgualASecuencial() {
+        byte[] csv = archivoConErrores(500).getBytes(StandardCharsets.UTF_8);
+
+        ImportResultadoDTO secuencial = servicio(1).importarVentasExcel(
+            new ByteArrayInputStream(csv), "ventas.csv", 1L, soloValidar());
+        ImportResultadoDTO paralelo = servicio(4).importarVentasExcel(
+            new ByteArrayInputStream(csv), "ventas.csv", 1L, soloValidar());
+
+        assertNull(paralelo.getBitacoraId());
+        assertEquals(secuencial.getFilasOk(), paralelo.getFilasOk());
+        assertEquals(secuencial.getFilasError(), paralelo.getFilasError());
+        assertEquals(secuencial.getErroresMuestra(), paralelo.getErroresMuestra());
+        assertEquals(500, paralelo.getFilasOk() + paralelo.getFilasError());
+        assertTrue(paralelo.getFilasError() > 10);
+        assertTrue(paralelo.getErroresMuestra().get(0).startsWith("Fila 5:"));
+    }
+
+    @Test
+    @DisplayName("Importación omite cabeceras ya registradas (una consulta por rango) y duplicadas en el archivo")
+    void duplicadosContraBdYArchivo() {
+        String csv = "FechaHora,Canal,Referencia,SKU,Cantidad,PrecioUnitario\n"
+            + "2025-03-10 10:00:00,FISICO,T-1,SKU-1,1,10\n"   // ya existe en BD
+            + "2025-03-11 10:00:00,FISICO,T-2,SKU-1,1,10\n"
+            + "2025-03-11 10:00:00,FISICO,T-2,SKU-2,2,10\n"   // misma cabecera: segundo detalle
+            + "2025-03-11 10:00:00,FISICO,t-2 ,SKU-1,1,10\n"  // misma cabecera para MySQL
+            + "2025-03-12 10:00:00,ONLINE,,SKU-1,1,10\n";
+        CabeceraVentaClave existente = mock(CabeceraVentaClave.class);
+        given(existente.getFechaHora()).willReturn(LocalDateTime.of(2025, 3, 10, 10, 0));
+        given(existente.getCanalId()).willReturn(1L);
+        given(existente.getReferenciaOrigen()).willReturn("t-1");
+        given(ventaRepo.cabecerasConReferenciaEnRango(any(), any(), anyCollection())).willReturn(List.of(existente));
+        given(bitacoraRepo.save(any())).willAnswer(inv -> {
+            BitacoraCarga b = inv.getArgument(0);
+            if (b.getId() == null) b.setId(40L);
+            return b;
+        });
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        given(usuarioRepo.findById(1L)).willReturn(Optional.of(usuario));
+        given(tipoMovRepo.findByCodigo("VENTA")).willReturn(Optional.of(new TipoMovimiento()));
+        given(txTemplate.execute(any())).willAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        List<Venta> insertadas = new ArrayList<>();
+        willAnswer(inv -> insertadas.addAll(inv.getArgument(0))).given(cargaMasivaRepo).insertarVentas(anyList());
+        List<VentaDetalle> resumidas = new ArrayList<>();
+        willAnswer(inv -> resumidas.addAll(inv.getArgument(0))).given(resumenMensualRepo).sumar(anyCollection());
+
+        ImportResultadoDTO r = servicio(1).importarVentasExcel(
+            new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "ventas.csv", 1L, new ImportOpcionesDTO());
+
+        assertEquals(5, r.getFilasOk());
+        assertEquals(Arrays.asList("T-2", null), insertadas.stream().map(Venta::getReferenciaOrigen).toList());
+        assertEquals(new BigDecimal("30.00"), insertadas.get(0).getTotal());
+        // El resumen mensual recibe las mismas líneas que se insertaron
+        assertEquals(insertadas.stream().map(Venta::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add),
+            resumidas.stream().map(VentaDetalle::getImporte).reduce(BigDecimal.ZERO, BigDecimal::add));
+        verify(ventaRepo).cabecerasConReferenciaEnRango(
+            LocalDateTime.of(2025, 3, 10, 10, 0), LocalDateTime.of(2025, 3, 11, 10, 0), Set.of(1L));
+        verify(ventaRepo, never()).existsByFechaHoraAndCanal_IdAndReferenciaOrigen(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Cabecera con kardex ya registrado (reanudación) se omite completa: ni venta, ni detalles, ni kardex")
+    void cabeceraConKardexRegistradoSeOmite() {
+        String csv = "FechaHora,Canal,Referencia,SKU,Cantidad,PrecioUnitario\n"
+            + "2025-03-11 10:00:00,FISICO,T-1,SKU-1,1,10\n"
+            + "2025-03-11 10:00:00,FISICO,T-1,SKU-2,2,10\n"   // su movimiento ya está en kardex
+            + "2025-03-12 10:00:00,FISICO,T-2,SKU-1,1,10\n";
+        String registrada = UUID.nameUUIDFromBytes("IMPORT|40|3|VENTA".getBytes(StandardCharsets.UTF_8)).toString();
+        given(kardexRepo.idempotencyKeysExistentes(anyCollection())).willAnswer(inv -> {
+            Collection<String> claves = inv.getArgument(0);
+            return claves.contains(registrada) ? List.of(registrada) : List.of();
+        });
+        given(bitacoraRepo.save(any())).willAnswer(inv -> {
+            BitacoraCarga b = inv.getArgument(0);
+            if (b.getId() == null) b.setId(40L);
+            return b;
+        });
+        Usuario usuario = new Usuario();
+        usuario.setId(1L);
+        given(usuarioRepo.findById(1L)).willReturn(Optional.of(usuario));
+        given(tipoMovRepo.findByCodigo("VENTA")).willReturn(Optional.of(new TipoMovimiento()));
+        given(txTemplate.execute(any())).willAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        List<Venta> insertadas = new ArrayList<>();
+        willAnswer(inv -> insertadas.addAll(inv.getArgument(0))).given(cargaMasivaRepo).insertarVentas(anyList());
+        List<VentaDetalle> detalles = new ArrayList<>();
+        willAnswer(inv -> detalles.addAll(inv.getArgument(0))).given(cargaMasivaRepo).insertarDetalles(anyList());
+        List<KardexMovimiento> movimientos = new ArrayList<>();
+        willAnswer(inv -> movimientos.addAll(inv.getArgument(0))).given(cargaMasivaRepo).insertarKardex(anyList());
+
+        servicio(1).importarVentasExcel(
+            new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "ventas.csv", 1L, new ImportOpcionesDTO());
+
+        assertEquals(List.of("T-2"), insertadas.stream().map(Venta::getReferenciaOrigen).toList());
+        assertEquals(1, detalles.size());
+        assertEquals(1, movimientos.size());
+        assertSame(insertadas.get(0), movimientos.get(0).getVenta());
+    }
+
+    @Test
+    @DisplayName("Archivo idéntico a una carga completada se responde con esa bitácora sin reprocesar")
+    void archivoRepetido() throws Exception {
+        byte[] csv = archivoConErrores(20).getBytes(StandardCharsets.UTF_8);
+        String sha = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(csv));
+        BitacoraCarga previa = new BitacoraCarga();
+        previa.setId(7L);
+        previa.setEstado(EstadoCarga.COMPLETADA);
+        previa.setFilasOk(15);
+        previa.setFilasError(5);
+        given(bitacoraRepo.findFirstByHashArchivoAndTipoCargaAndEstadoInOrderByIdDesc(eq(sha), eq(TipoCarga.VENTAS), anyCollection()))
+            .willReturn(Optional.of(previa));
+
+        ImportResultadoDTO r = servicio(1).importarVentasExcel(
+            new ByteArrayInputStream(csv), "ventas.csv", 1L, new ImportOpcionesDTO());
+
+        assertEquals(7L, r.getDuplicadoDeBitacoraId());
+        assertEquals(7L, r.getBitacoraId());
+        assertEquals(15, r.getFilasOk());
+        verify(bitacoraRepo, never()).save(any());
+        verifyNoInteractions(canalRepo, skuRepo, cargaMasivaRepo);
+    }
+
+    @Test
+    @DisplayName("Lote ZIP: cada archivo y cada hoja de un libro se valida como una parte propia")
+    void loteZipConLibroDeVariasHojas() throws Exception {
+        ByteArrayOutputStream libro = new ByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            hoja(wb.createSheet("Lima"), "2025-03-10 10:00:00", "T-1", "SKU-1");
+            hoja(wb.createSheet("Cusco"), "2025-03-10 11:00:00", "T-2", "NO-EXISTE");
+            wb.write(libro);
+        }
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream z = new ZipOutputStream(zip)) {
+            z.putNextEntry(new ZipEntry("lunes.csv"));
+            z.write(archivoConErrores(20).getBytes(StandardCharsets.UTF_8));
+            z.putNextEntry(new ZipEntry("__MACOSX/._lunes.csv"));
+            z.write(new byte[] { 0, 5, 22, 7 });
+            z.putNextEntry(new ZipEntry("tiendas/martes.xlsx"));
+            z.write(libro.toByteArray());
+        }
+
+        ImportLoteResultadoDTO r = servicio(1).importarVentasLote(
+            new ByteArrayInputStream(zip.toByteArray()), "semana.zip", 1L, soloValidar());
+
+        assertEquals(List.of("lunes.csv", "tiendas/martes.xlsx [Lima]", "tiendas/martes.xlsx [Cusco]"),
+            r.getPartes().stream().map(ImportParteResultadoDTO::getNombre).toList());
+        assertEquals(EstadoCarga.COMPLETADA, r.getEstado());
+        assertEquals(20, r.getPartes().get(0).getFilasOk() + r.getPartes().get(0).getFilasError());
+        assertEquals(1, r.getPartes().get(1).getFilasOk());
+        assertEquals(1, r.getPartes().get(2).getFilasError());
+        assertEquals(r.getPartes().stream().mapToInt(ImportParteResultadoDTO::getFilasOk).sum(), r.getFilasOk());
+        assertNull(r.getBitacoraId());
+        verify(bitacoraRepo, never()).save(any());
+    }
+
+    private static void hoja(Sheet sh, String fecha, String ref, String sku) {
+        String[][] filas = {
+            { "FechaHora", "Canal", "Referencia", "SKU", "Cantidad", "PrecioUnitario" },
+            { fecha, "FISICO", ref, sku, "2", "19.90" } };
+        for (int i = 0; i < filas.length; i++) {
+            Row row = sh.createRow(i);
+            for (int c = 0; c < filas[i].length; c++) row.createCell(c).setCellValue(filas[i][c]);
+        }
+    }
+
+    /** Filas válidas mezcladas con errores de formato (1ª pasada) y de catálogo (2ª pasada) */
+    private static String archivoConErrores(int filas) {
+        StringBuilder sb = new StringBuilder("FechaHora,Canal,Referencia,SKU,Cantidad,PrecioUnitario\n");
+        for (int i = 0; i < filas; i++) {
+            String sku = (i % 11 == 7) ? "NO-EXISTE" : "SKU-" + (i % 3);
+            String canal = (i % 17 == 9) ? "MAYORISTA" : (i % 2 == 0 ? "FISICO" : "ONLINE");
+            String ref = (i % 13 == 5) ? "" : "T-" + (i / 4);
+            String cant = (i % 7 == 3) ? "-1" : String.valueOf(1 + i % 4);
+            sb.append("2025-03-").append(10 + i % 15).append(" 10:00:00,")
+              .append(canal).append(',').append(ref).append(',').append(sku).append(',')
+              .append(cant).append(",19.90\n");
+        }
+        return sb.toString();
+    }
+
+    private ImportacionServiceImpl servicio(int hilosValidacion) {
+        given(canalRepo.findByCodigoIn(anyCollection())).willAnswer(inv -> {
+            Collection<String> codigos = inv.getArgument(0);
+            return codigos.stream().filter(c -> c.equals("FISICO") || c.equals("ONLINE"))
+                .map(c -> canal(c.equals("FISICO") ? 1L : 2L, c)).toList();
+        });
+        given(skuRepo.findBySkuIn(anyCollection())).willAnswer(inv -> {
+            Collection<String> codigos = inv.getArgument(0);
+            return codigos.stream().filter(c -> c.startsWith("SKU-")).map(ImportacionServiceImplTest::sku).toList();
+        });
+
+        ImportacionServiceImpl service = new ImportacionServiceImpl(
+            bitacoraRepo, mock(BitacoraErrorRepository.class), skuRepo, ventaRepo, kardexRepo, canalRepo, tipoMovRepo,
+            usuarioRepo, temporadaRepo, new ExcelUtil(), mock(ApplicationEventPublisher.class), cargaMasivaRepo,
+            resumenMensualRepo, mock(CuboVentas.class), txTemplate,
+            pool(1), pool(hilosValidacion), pool(2), pool(2), new IndiceTemporadas(temporadaRepo),
+            mock(IndiceSkus.class));
+        ReflectionTestUtils.setField(service, "filasPorBloque", 37);
+        // Pipeline con colas mínimas: cada etapa queda frenada por la siguiente
+        ReflectionTestUtils.setField(service, "pipelineHabilitado", true);
+        ReflectionTestUtils.setField(service, "colaPaquetes", 1);
+        ReflectionTestUtils.setField(service, "colaGrupos", 1);
+        ReflectionTestUtils.setField(service, "maxPartesLote", 10);
+        ReflectionTestUtils.setField(service, "maxMbArchivoLote", 1L);
+        return service;
+    }
+
+    private ThreadPoolTaskExecutor pool(int hilos) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(hilos);
+        ex.setMaxPoolSize(hilos);
+        ex.initialize();
+        pools.add(ex);
+        return ex;
+    }
+
+    private static ImportOpcionesDTO soloValidar() {
+        ImportOpcionesDTO op = new ImportOpcionesDTO();
+        op.setSoloValidar(true);
+        return op;
+    }
+
+    private static CanalVenta canal(Long id, String codigo) {
+        CanalVenta c = new CanalVenta();
+        c.setId(id);
+        c.setCodigo(codigo);
+        return c;
+    }
+
+    private static VarianteSku sku(String codigo) {
+        VarianteSku v = new VarianteSku();
+        v.setId((long) codigo.hashCode());
+        v.setSku(codigo);
+        v.setPrecioLista(new BigDecimal("25.00"));
+        return v;
+    }
+}
@@ -59,7 +59,7 @@ class ReporteServiceCacheTest {
         var hasta = LocalDateTime.of(2025, 1, 31, 23, 59, 59);
         var row = mockRow(2025, 1, 101L, "Polo Básico", 120L, new BigDecimal("1500.00"));
 
-        given(kpiRepo.kpiProductoMensual(any(), any(), any(), any(), any(), any(), any()))
+        given(kpiRepo.kpiProductoMensual(any(), any(), any(), any(), any(), any()))
             .willReturn(List.of(row));
 
         // Act 1: primer llamado (cache miss)
@@ -72,7 +72,7 @@ class ReporteServiceCacheTest {
 
         // Assert
         then(kpiRepo).should(times(1))
-            .kpiProductoMensual(any(), any(), any(), any(), any(), any(), any());
+            .kpiProductoMensual(any(), any(), any(), any(), any(), any());
         // mismas referencias (o al menos tamaño igual): confirma mismo resultado cacheado
         org.assertj.core.api.Assertions.assertThat(r1).hasSize(1);
         org.assertj.core.api.Assertions.assertThat(r2).hasSize(1);
@@ -90,7 +90,7 @@ class ReporteServiceCacheTest {
         var hastaB = LocalDateTime.of(2025, 2, 28, 23, 59, 10);
 
         var row = mockRow(2025, 2, 201L, "Camisa Slim", 80L, new BigDecimal("2100.00"));
-        given(kpiRepo.kpiProductoMensual(any(), any(), any(), any(), any(), any(), any()))
+        given(kpiRepo.kpiProductoMensual(any(), any(), any(), any(), any(), any()))
             .willReturn(List.of(row));
 
         // Act: primera llamada (miss)
@@ -100,7 +100,7 @@ class ReporteServiceCacheTest {
 
         // Assert: repo invocado una sola vez si la clave se normaliza (dayStart/dayEnd o trunc)
         then(kpiRepo).should(times(1))
-            .kpiProductoMensual(any(), any(), any(), any(), any(), any(), any());
+            .kpiProductoMensual(any(), any(), any(), any(), any(), any());
     }
 
     @Test
@@ -111,13 +111,13 @@ class ReporteServiceCacheTest {
         var hasta = LocalDateTime.of(2025, 3, 31, 23, 59, 59);
 
         var row = mockRow(2025, 3, 301L, "Jeans Regular", 60L, new BigDecimal("1800.00"));
-        given(kpiRepo.kpiProductoMensual(any(), any(), any(), any(), any(), any(), any()))
+        given(kpiRepo.kpiProductoMensual(any(), any(), any(), any(), any(), any()))
             .willReturn(List.of(row));
 
         // Prime cache
         reporteService.kpiProductoMensual(desde, hasta, 1L, null, null, null, null);
         then(kpiRepo).should(times(1))
-            .kpiProductoMensual(any(), any(), any(), any(), any(), any(), any());
+            .kpiProductoMensual(any(), any(), any(), any(), any(), any());
 
         // Evict cache programáticamente (simula importación persistente que limpia)
         var cache = cacheManager.getCache("kpiProductoMensual");
@@ -126,6 +126,6 @@ class ReporteServiceCacheTest {
         // Llamada otra vez → debe invocar repo de nuevo
         reporteService.kpiProductoMensual(desde, hasta, 1L, null, null, null, null);
         then(kpiRepo).should(times(2))
-            .kpiProductoMensual(any(), any(), any(), any(), any(), any(), any());
+            .kpiProductoMensual(any(), any(), any(), any(), any(), any());
     }
 }
@@ -64,7 +64,7 @@ class ReporteServiceImplKpiProductoMensualTest {
         var pA_2025_02 = row(2025, 2, 10L, "Prod A", 15L,  new BigDecimal("150"));
         var pB_2025_02 = row(2025, 2, 20L, "Prod B", 15L,  new BigDecimal("150"));
 
-        given(kpiRepo.kpiProductoMensual(any(), any(), any(), any(), any(), any(), any()))
+        given(kpiRepo.kpiProductoMensual(any(), any(), any(), any(), any(), any()))
                 .willReturn(List.of(
                         pA_2024_01, pB_2024_01,
                         pA_2025_01, pB_2025_01,
@@ -0,0 +1,71 @@
+package com.colors.savd.service;
+
+import com.colors.savd.dto.KpiProductoDTO;
+import com.colors.savd.repository.*;
+import com.colors.savd.repository.projection.KpiAggComparado;
+import com.colors.savd.service.impl.ReporteServiceImpl;
+import com.colors.savd.util.ConsultaKpi.Nivel;
+import com.colors.savd.util.ExcelUtil;
+import com.colors.savd.util.TramosMensuales;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+
+@ExtendWith(MockitoExtension.class)
+class ReporteServiceImplKpiTotalesTest {
+
+    @Mock private VentaRepository ventaRepo;
+    @Mock private KardexRepository kardexRepo;
+    @Mock private ParametroReposicionRepository paramRepo;
+    @Mock private VarianteSkuRepository varianteSkuRepo;
+    @Mock private ExcelUtil excelUtil;
+    @Mock private KpiRepository kpiRepo;
+
+    @InjectMocks
+    private ReporteServiceImpl service;
+
+    @Test
+    @DisplayName("kpiPorProducto: actual, período anterior y YoY en una sola consulta")
+    void kpiPorProducto_unaConsulta() {
+        var desde = LocalDateTime.of(2025, 3, 1, 0, 0);
+        var hasta = LocalDateTime.of(2025, 3, 31, 0, 0);
+        given(kpiRepo.kpiComparado(eq(Nivel.PRODUCTO), any(), any(), any(), any(), any(), any(), any(), any())).willReturn(List.of(
+                new KpiAggComparado(10L, "Prod A", null, null, null, 5L, new BigDecimal("300"),
+                        new BigDecimal("200"), BigDecimal.ZERO),
+                new KpiAggComparado(20L, "Prod B", null, null, null, 2L, new BigDecimal("100"),
+                        new BigDecimal("100"), new BigDecimal("50"))));
+
+        List<KpiProductoDTO> out = service.kpiPorProducto(desde, hasta, 1L, null, null, null, null);
+
+        var actual = ArgumentCaptor.forClass(TramosMensuales.class);
+        var anterior = ArgumentCaptor.forClass(TramosMensuales.class);
+        var yoy = ArgumentCaptor.forClass(TramosMensuales.class);
+        then(kpiRepo).should().kpiComparado(eq(Nivel.PRODUCTO), actual.capture(), anterior.capture(), yoy.capture(),
+                eq(1L), isNull(), isNull(), isNull(), isNull());
+        then(kpiRepo).shouldHaveNoMoreInteractions();
+        assertThat(actual.getValue().desde()).isEqualTo(desde);
+        assertThat(anterior.getValue().desde()).isEqualTo(LocalDateTime.of(2025, 1, 30, 0, 0));
+        assertThat(anterior.getValue().hasta()).isEqualTo(desde);
+        assertThat(yoy.getValue().hasta()).isEqualTo(hasta.minusYears(1));
+
+        assertThat(out).hasSize(2);
+        var a = out.get(0);
+        assertThat(a.getAportePct()).isNotNull();
+        assertThat(a.getAportePct().compareTo(new BigDecimal("75"))).isZero();
+        assertThat(a.getVariacionMesPct().compareTo(new BigDecimal("50"))).isZero();
+        assertThat(out.get(1).getVariacionYoYPct().compareTo(new BigDecimal("100"))).isZero();
+    }
+}
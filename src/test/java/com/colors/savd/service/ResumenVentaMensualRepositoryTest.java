@@ -0,0 +1,95 @@
+package com.colors.savd.service;
+
+import com.colors.savd.model.CanalVenta;
+import com.colors.savd.model.VarianteSku;
+import com.colors.savd.model.Venta;
+import com.colors.savd.model.VentaDetalle;
+import com.colors.savd.repository.ResumenVentaMensualRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ResumenVentaMensualRepositoryTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final ResumenVentaMensualRepository repo = new ResumenVentaMensualRepository(jdbc);
+
+    @AfterEach
+    void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("En una transacción los deltas se acumulan y se escriben antes del commit, en orden de clave")
+    void deltasAntesDelCommitOrdenados() {
+        ReflectionTestUtils.setField(repo, "batchSize", 500);
+        List<List<Long>> escritas = new ArrayList<>();
+        willAnswer(inv -> {
+            Collection<Map.Entry<List<Long>, BigDecimal[]>> filas = inv.getArgument(1);
+            filas.forEach(f -> escritas.add(f.getKey()));
+            return new int[0][];
+        }).given(jdbc).batchUpdate(anyString(), this.<Map.Entry<List<Long>, BigDecimal[]>>anyCollection(), anyInt(), anySetter());
+        TransactionSynchronizationManager.initSynchronization();
+
+        repo.sumar(List.of(detalle(2025, 3, 200L, 1L), detalle(2025, 1, 300L, 2L)));
+        repo.sumar(List.of(detalle(2025, 1, 100L, 2L), detalle(2025, 3, 200L, 1L)));
+        repo.restar(List.of(detalle(2024, 12, 900L, 1L)));
+        verify(jdbc, never()).batchUpdate(anyString(), this.<Map.Entry<List<Long>, BigDecimal[]>>anyCollection(), anyInt(), anySetter());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+
+        assertEquals(List.of(
+            List.of(2024L, 12L, 900L, 1L, 0L),
+            List.of(2025L, 1L, 100L, 2L, 0L),
+            List.of(2025L, 1L, 300L, 2L, 0L),
+            List.of(2025L, 3L, 200L, 1L, 0L)), escritas);
+        // Una sola escritura registrada para toda la transacción
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+    }
+
+    private <T> Collection<T> anyCollection() {
+        return org.mockito.ArgumentMatchers.anyCollection();
+    }
+
+    private static ParameterizedPreparedStatementSetter<Map.Entry<List<Long>, BigDecimal[]>> anySetter() {
+        return any();
+    }
+
+    private static VentaDetalle detalle(int anio, int mes, Long skuId, Long canalId) {
+        CanalVenta canal = new CanalVenta();
+        canal.setId(canalId);
+        Venta v = new Venta();
+        v.setFechaHora(LocalDateTime.of(anio, mes, 10, 12, 0));
+        v.setCanal(canal);
+        VarianteSku sku = new VarianteSku();
+        sku.setId(skuId);
+        VentaDetalle d = new VentaDetalle();
+        d.setVenta(v);
+        d.setSku(sku);
+        d.setCantidad(1);
+        d.setImporte(new BigDecimal("10.00"));
+        return d;
+    }
+}
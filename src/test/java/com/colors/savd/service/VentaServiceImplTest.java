@@ -1,5 +1,10 @@
 package com.colors.savd.service;
 
+import com.colors.savd.cache.CambioDatosReporte;
+import com.colors.savd.cache.CuboVentas;
+import com.colors.savd.cache.IndiceTemporadas;
+import com.colors.savd.dto.AnulacionMasivaDTO;
+import com.colors.savd.dto.AnulacionMasivaResultadoDTO;
 import com.colors.savd.dto.LineaVentaDTO;
 import com.colors.savd.dto.VentaManualDTO;
 import com.colors.savd.exception.BusinessException;
@@ -7,8 +12,10 @@ import com.colors.savd.model.CanalVenta;
 import com.colors.savd.model.TipoMovimiento;
 import com.colors.savd.model.Usuario;
 import com.colors.savd.model.VarianteSku;
+import com.colors.savd.model.Venta;
 import com.colors.savd.model.enums.EstadoVenta;
 import com.colors.savd.repository.*;
+import com.colors.savd.repository.projection.LineaVentaAfectada;
 import com.colors.savd.service.impl.VentaServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,6 +23,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -39,6 +47,11 @@ class VentaServiceImplTest {
     @Mock private KardexRepository kardexRepo;
     @Mock private TipoMovimientoRepository tipoMovRepo;
     @Mock private UsuarioRepository usuarioRepo;
+    @Mock private IndiceTemporadas indiceTemporadas;
+    @Mock private ApplicationEventPublisher publisher;
+    @Mock private CargaMasivaRepository cargaMasivaRepo;
+    @Mock private ResumenVentaMensualRepository resumenMensualRepo;
+    @Mock private CuboVentas cubo;
 
     @InjectMocks
     private VentaServiceImpl service;
@@ -90,7 +103,7 @@ class VentaServiceImplTest {
 
         given(canalRepo.findById(10L)).willReturn(Optional.of(canalOnline));
         given(ventaRepo.existsByFechaHoraAndCanal_IdAndReferenciaOrigen(any(), eq(10L), eq("REF-123"))).willReturn(false);
-        given(temporadaRepo.findActivaQueContenga(any(LocalDate.class))).willReturn(Optional.empty());
+        given(indiceTemporadas.idQueContenga(any(LocalDate.class))).willReturn(Optional.empty());
         given(tipoMovRepo.findByCodigo("VENTA")).willReturn(Optional.of(tipoVenta));
         given(usuarioRepo.findById(7L)).willReturn(Optional.of(usuario));
         given(skuRepo.findById(100L)).willReturn(Optional.of(sku1));
@@ -126,6 +139,7 @@ class VentaServiceImplTest {
         then(ventaDetRepo).should(times(1)).save(any());  // 1 línea en el DTO
         then(kardexRepo).should(times(1)).save(any());    // kardex por la línea
         then(kardexRepo).should().stockPorSkuHasta(anyCollection(), any(LocalDateTime.class)); // se checó stock
+        then(resumenMensualRepo).should().sumar(argThat(d -> d.size() == 1));    // resumen mensual al día
     }
 
     @Test
@@ -136,7 +150,7 @@ class VentaServiceImplTest {
 
         given(canalRepo.findById(10L)).willReturn(Optional.of(canalOnline));
         given(ventaRepo.existsByFechaHoraAndCanal_IdAndReferenciaOrigen(any(), eq(10L), eq("REF-456"))).willReturn(false);
-        given(temporadaRepo.findActivaQueContenga(any(LocalDate.class))).willReturn(Optional.empty());
+        given(indiceTemporadas.idQueContenga(any(LocalDate.class))).willReturn(Optional.empty());
         given(tipoMovRepo.findByCodigo("VENTA")).willReturn(Optional.of(tipoVenta));
         given(usuarioRepo.findById(7L)).willReturn(Optional.of(usuario));
         given(skuRepo.findById(100L)).willReturn(Optional.of(sku1));
@@ -154,7 +168,60 @@ class VentaServiceImplTest {
         then(ventaRepo).should(never()).save(any());
         then(ventaDetRepo).should(never()).save(any());
         then(kardexRepo).should(never()).save(any());
+        then(resumenMensualRepo).shouldHaveNoInteractions();
         // Sí debe haberse consultado stock
         then(kardexRepo).should(times(1)).stockPorSkuHasta(anyCollection(), any(LocalDateTime.class));
     }
+
+    @Test
+    @DisplayName("anularVentas: dedupe de ids, anulación por JDBC y un solo evento con lo que estaba ACTIVO")
+    void anularVentas_masivo() {
+        TipoMovimiento tipoAnul = new TipoMovimiento();
+        tipoAnul.setId(6L);
+        tipoAnul.setCodigo("ANULACION");
+        LineaVentaAfectada linea = mock(LineaVentaAfectada.class);
+        given(linea.getFechaHora()).willReturn(LocalDateTime.of(2025, 1, 15, 10, 0));
+        given(linea.getCanalId()).willReturn(10L);
+        given(linea.getSkuId()).willReturn(100L);
+
+        given(tipoMovRepo.findByCodigo("ANULACION")).willReturn(Optional.of(tipoAnul));
+        given(usuarioRepo.existsById(7L)).willReturn(true);
+        // La venta 2 ya la anuló otra transacción: no sale bloqueada como ACTIVA
+        given(cargaMasivaRepo.bloquearVentasActivas(Set.of(3L, 1L, 2L))).willReturn(List.of(1L, 3L));
+        given(ventaRepo.lineasActivas(List.of(1L, 3L))).willReturn(List.of(linea));
+        given(cargaMasivaRepo.anularVentas(eq(List.of(1L, 3L)), eq(6L), eq(7L), eq("Anulacion solicitada"),
+            any(LocalDateTime.class))).willReturn(2);
+
+        AnulacionMasivaResultadoDTO r = service.anularVentas(new AnulacionMasivaDTO(List.of(3L, 1L, 2L, 2L), " "), 7L);
+
+        assertEquals(4, r.getSolicitadas());
+        assertEquals(2, r.getAnuladas());
+        assertEquals(2, r.getOmitidas());
+        then(publisher).should(times(1)).publishEvent(any(CambioDatosReporte.class));
+        then(ventaRepo).should(never()).save(any());
+        then(kardexRepo).should(never()).save(any());
+        // Se bloquean primero; el resumen mensual y el cubo se descuentan solo de las bloqueadas, aún ACTIVAS
+        var orden = inOrder(resumenMensualRepo, cubo, cargaMasivaRepo);
+        orden.verify(cargaMasivaRepo).bloquearVentasActivas(any());
+        orden.verify(resumenMensualRepo).restarVentasActivas(List.of(1L, 3L));
+        orden.verify(cubo).restarVentasActivas(List.of(1L, 3L));
+        orden.verify(cargaMasivaRepo).anularVentas(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("anularVenta: lee la venta bloqueada; si otra anulación ganó, no resta del resumen ni del cubo")
+    void anularVenta_yaAnuladaPorOtra() {
+        Venta v = new Venta();
+        v.setId(1L);
+        v.setEstado(EstadoVenta.ANULADA);
+        given(ventaRepo.findByIdParaActualizar(1L)).willReturn(Optional.of(v));
+
+        service.anularVenta(1L, 7L, "duplicada");
+
+        then(ventaRepo).should(never()).findById(any());
+        then(resumenMensualRepo).shouldHaveNoInteractions();
+        then(cubo).shouldHaveNoInteractions();
+        then(kardexRepo).shouldHaveNoInteractions();
+        then(publisher).shouldHaveNoInteractions();
+    }
 }
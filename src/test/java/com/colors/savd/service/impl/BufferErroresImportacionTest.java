@@ -0,0 +1,57 @@
+package com.colors.savd.service.impl;
+
+import com.colors.savd.model.BitacoraCarga;
+import com.colors.savd.model.BitacoraError;
+import com.colors.savd.repository.CargaMasivaRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BufferErroresImportacionTest {
+
+    @Test
+    @DisplayName("Inserta errores por lotes con campo/valor y cuenta los suprimidos del log por tipo")
+    void lotesYSupresion() {
+        CargaMasivaRepository repo = mock(CargaMasivaRepository.class);
+        List<List<BitacoraError>> lotes = new ArrayList<>();
+        doAnswer(inv -> lotes.add(new ArrayList<>(inv.<List<BitacoraError>>getArgument(0))))
+            .when(repo).insertarErrores(anyList());
+        BitacoraCarga bit = new BitacoraCarga();
+        bit.setId(9L);
+
+        BufferErroresImportacion buffer = new BufferErroresImportacion(bit, repo, 4, 2);
+        for (int fila = 2; fila < 8; fila++) {
+            buffer.registrar(fila, new CampoInvalidoException("Cantidad", "-" + fila, "Cantidad inválida"));
+        }
+        buffer.registrar(20, new IllegalStateException("inesperado"));
+        assertEquals(1, lotes.size()); // 4 por lote: el segundo aún en memoria
+
+        buffer.cerrar();
+
+        assertEquals(List.of(4, 3), lotes.stream().map(List::size).toList());
+        assertEquals(7, buffer.getInsertados());
+        BitacoraError primero = lotes.get(0).get(0);
+        assertEquals("Cantidad", primero.getCampo());
+        assertEquals("-2", primero.getValorOriginal());
+        assertEquals(2, primero.getFilaOrigen());
+        assertEquals("GENERAL", lotes.get(1).get(2).getCampo());
+        assertEquals(Map.of("Cantidad/CampoInvalidoException", 4), buffer.suprimidos());
+    }
+
+    @Test
+    @DisplayName("Sin bitácora (dry-run) no escribe en BD")
+    void sinBitacora() {
+        CargaMasivaRepository repo = mock(CargaMasivaRepository.class);
+        BufferErroresImportacion buffer = new BufferErroresImportacion(null, repo, 1, 1);
+        buffer.registrar(2, new CampoInvalidoException("SKU", "X", "SKU no encontrado: X"));
+        buffer.cerrar();
+        verify(repo, never()).insertarErrores(anyList());
+    }
+}
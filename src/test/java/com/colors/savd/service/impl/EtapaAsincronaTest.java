@@ -0,0 +1,81 @@
+package com.colors.savd.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EtapaAsincronaTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void cerrar() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Entrega en orden y el productor no se adelanta más que la capacidad de la cola")
+    void ordenYBackpressure() throws Exception {
+        AtomicInteger producidos = new AtomicInteger();
+        MetricasEtapa prod = new MetricasEtapa("prod"), cons = new MetricasEtapa("cons");
+        List<Integer> recibidos = new ArrayList<>();
+        try (EtapaAsincrona<Integer> etapa = EtapaAsincrona.iniciar(executor, 2, prod, cons, salida -> {
+            for (int i = 0; i < 20; i++) {
+                salida.emitir(i, 3);
+                producidos.incrementAndGet();
+            }
+        })) {
+            Thread.sleep(100);
+            // 2 en cola + 1 esperando lugar (aún no cuenta como producido)
+            assertTrue(producidos.get() <= 2, "producidos=" + producidos.get());
+            while (etapa.hasNext()) recibidos.add(etapa.next());
+        }
+        assertEquals(20, recibidos.size());
+        assertEquals(0, recibidos.get(0));
+        assertEquals(19, recibidos.get(19));
+        assertEquals(60, prod.getElementos());
+        assertEquals(60, cons.getElementos());
+        assertTrue(prod.aDTO().getFinalizada());
+    }
+
+    @Test
+    @DisplayName("El error del productor se relanza en el consumidor después de lo ya entregado")
+    void errorDelProductor() {
+        try (EtapaAsincrona<String> etapa = EtapaAsincrona.iniciar(executor, 4, new MetricasEtapa("p"),
+            new MetricasEtapa("c"), salida -> {
+                salida.emitir("a", 1);
+                throw new IllegalArgumentException("archivo corrupto");
+            })) {
+            assertTrue(etapa.hasNext());
+            assertEquals("a", etapa.next());
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, etapa::hasNext);
+            assertEquals("archivo corrupto", e.getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("close() detiene un productor frenado por la cola y espera a que termine")
+    void cerrarDetieneProductor() {
+        AtomicBoolean terminoProductor = new AtomicBoolean();
+        EtapaAsincrona<Integer> etapa = EtapaAsincrona.iniciar(executor, 1, new MetricasEtapa("p"),
+            new MetricasEtapa("c"), salida -> {
+                try {
+                    for (int i = 0; ; i++) salida.emitir(i, 1);
+                } finally {
+                    terminoProductor.set(true);
+                }
+            });
+        assertEquals(0, etapa.next());
+        etapa.close();
+        assertTrue(terminoProductor.get());
+    }
+}
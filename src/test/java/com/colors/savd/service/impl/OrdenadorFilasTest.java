@@ -0,0 +1,63 @@
+package com.colors.savd.service.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrdenadorFilasTest {
+
+    @Test
+    @DisplayName("Con runs en disco la mezcla entrega lo mismo que ordenar todo en memoria, y se puede recorrer dos veces")
+    void mezclaDeRunsIgualAOrdenEnMemoria() {
+        List<FilaLeida> filas = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String ref = (i % 5 == 0) ? null : "T-" + (i % 7);
+            BigDecimal lista = (i % 3 == 0) ? null : new BigDecimal("25.90");
+            filas.add(new FilaLeida(i + 2, LocalDateTime.of(2025, 3, 1 + i % 4, 10, 0), (i % 2 == 0) ? "FISICO" : "ONLINE",
+                ref, "SKU-" + i, 1 + i % 3, new BigDecimal("19.90"), lista));
+        }
+        List<FilaLeida> esperado = new ArrayList<>(filas);
+        esperado.sort(FilaLeida.ORDEN_CABECERA);
+
+        try (OrdenadorFilas ordenador = new OrdenadorFilas(filas.get(0).bytesEstimados() * 40)) {
+            filas.forEach(ordenador::agregar);
+            assertTrue(ordenador.getRuns() >= 7);
+            assertEquals(300, ordenador.getTotal());
+            assertEquals(esperado, aLista(ordenador.recorrer()));
+            assertEquals(esperado, aLista(ordenador.recorrer()));
+        }
+    }
+
+    @Test
+    @DisplayName("Cerrar el ordenador con un recorrido a medias cierra los runs abiertos")
+    void cerrarConRecorridoAMedias() {
+        Iterator<FilaLeida> it;
+        FilaLeida muestra = fila(0);
+        try (OrdenadorFilas ordenador = new OrdenadorFilas(muestra.bytesEstimados() * 10)) {
+            for (int i = 0; i < 30; i++) ordenador.agregar(fila(i));
+            assertEquals(3, ordenador.getRuns());
+            it = ordenador.recorrer();
+            it.next();
+        }
+        // Solo quedan las cabezas que la mezcla ya había leído de cada run, no el resto de los archivos
+        assertTrue(aLista(it).size() <= 3);
+    }
+
+    private static FilaLeida fila(int i) {
+        return new FilaLeida(i + 2, LocalDateTime.of(2025, 3, 1, 10, 0), "FISICO", "T-" + (i % 10), "SKU-" + i, 1,
+            new BigDecimal("19.90"), null);
+    }
+
+    private static List<FilaLeida> aLista(Iterator<FilaLeida> it) {
+        List<FilaLeida> r = new ArrayList<>();
+        it.forEachRemaining(r::add);
+        return r;
+    }
+}
@@ -0,0 +1,67 @@
+package com.colors.savd.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.colors.savd.util.ConsultaKpi.Nivel;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsultaKpiTest {
+
+    @Test
+    @DisplayName("Solo se emiten los filtros informados, sin predicados IS NULL")
+    void soloFiltrosActivos() {
+        var t = TramosMensuales.de(LocalDateTime.of(2025, 1, 10, 0, 0), LocalDateTime.of(2025, 1, 20, 0, 0), true);
+        var q = ConsultaKpi.mensual(Nivel.PRODUCTO, t).filtros(3L, null, null, 7L, null);
+
+        String sql = q.sql();
+
+        assertThat(sql).doesNotContain("IS NULL")
+                .contains("v.canal_id = :canalId", "vs.talla_id = :tallaId")
+                .doesNotContain("temporada_id", "categoria", "color")
+                .contains("EXTRACT(YEAR_MONTH FROM v.fecha_hora)")
+                // sin meses completos no se lee el resumen
+                .doesNotContain("venta_resumen_mensual");
+        assertThat(q.parametros().getParameterNames())
+                .containsExactlyInAnyOrder("aDesde", "aCabezaHasta", "canalId", "tallaId");
+    }
+
+    @Test
+    @DisplayName("Meses completos del resumen como rangos de la clave por año")
+    void rangosPorAnio() {
+        var t = TramosMensuales.de(LocalDateTime.of(2024, 11, 1, 0, 0), LocalDateTime.of(2025, 2, 28, 23, 59, 59), true);
+        var q = ConsultaKpi.mensual(Nivel.SKU, t);
+
+        String sql = q.sql();
+
+        assertThat(sql).contains("(r.anio = 2024 AND r.mes BETWEEN 11 AND 12)",
+                        "(r.anio = 2025 AND r.mes BETWEEN 1 AND 2)")
+                // rango alineado a meses: no hace falta venta_detalle
+                .doesNotContain("venta_detalle")
+                .contains("LEFT JOIN talla", "LEFT JOIN color")
+                .doesNotContain("WHERE p.");
+        assertThat(q.parametros().getParameterNames()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Comparada: las tres ventanas en una sola consulta, marcadas por rama")
+    void comparada() {
+        var desde = LocalDateTime.of(2025, 3, 5, 0, 0);
+        var hasta = LocalDateTime.of(2025, 3, 25, 0, 0);
+        var q = ConsultaKpi.comparada(Nivel.CATEGORIA, TramosMensuales.de(desde, hasta, true),
+                TramosMensuales.de(desde.minusDays(20), desde, true),
+                TramosMensuales.de(desde.minusYears(1), hasta.minusYears(1), true))
+            .filtros(null, 2L, 4L, null, null);
+
+        String sql = q.sql();
+
+        assertThat(sql).contains("AS en_a", "AS en_p", "AS en_y", "ingresosAnterior", "ingresosYoY",
+                        "JOIN categoria c", "v.temporada_id = :temporadaId", "p.categoria_id = :categoriaId")
+                .doesNotContain("IS NULL", "canal_id =");
+        assertThat(q.parametros().getParameterNames())
+                .contains("aDesde", "pDesde", "yDesde", "temporadaId", "categoriaId");
+    }
+}
@@ -0,0 +1,65 @@
+package com.colors.savd.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LectorCsvTest {
+
+    @TempDir
+    Path tmp;
+
+    private static final String CONTENIDO = "﻿Fecha;Canal;Ref;SKU;Cant;P.Unit\n"
+        + "\n"
+        + "2025-03-15 10:30:00;FISICO;\"T;001\";SKU-1;2;12.50\n"
+        + "15/03/2025 11:00;ONLINE;;SKU-2;1;30\n";
+
+    @Test
+    @DisplayName("CSV con ';', BOM, comillas y línea vacía conserva numeración de filas")
+    void csvPuntoYComa() throws Exception {
+        Path archivo = tmp.resolve("ventas.csv");
+        Files.writeString(archivo, CONTENIDO, StandardCharsets.UTF_8);
+
+        List<String> filas = leer(new LectorCsv(archivo.toFile(), false));
+
+        assertEquals(List.of(
+            "0:[Fecha, Canal, Ref, SKU, Cant, P.Unit]",
+            "2:[2025-03-15 10:30:00, FISICO, T;001, SKU-1, 2, 12.50]",
+            "3:[15/03/2025 11:00, ONLINE, null, SKU-2, 1, 30]"), filas);
+        assertEquals(FormatoArchivo.CSV, FormatoArchivo.detectar(archivo.toFile(), "ventas.csv"));
+    }
+
+    @Test
+    @DisplayName("CSV gzip se detecta por firma y entrega las mismas filas")
+    void csvGzip() throws Exception {
+        Path plano = tmp.resolve("ventas.csv");
+        Files.writeString(plano, CONTENIDO, StandardCharsets.UTF_8);
+        Path gz = tmp.resolve("ventas.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz))) {
+            out.write(CONTENIDO.getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(FormatoArchivo.CSV_GZIP, FormatoArchivo.detectar(gz.toFile(), "sin-extension"));
+        assertEquals(leer(new LectorCsv(plano.toFile(), false)), leer(new LectorCsv(gz.toFile(), true)));
+    }
+
+    private List<String> leer(LectorFilas lector) throws IOException {
+        List<String> filas = new ArrayList<>();
+        try (lector) {
+            lector.recorrer((i, celdas, crudos) -> filas.add(i + ":" + Arrays.toString(celdas)));
+        }
+        return filas;
+    }
+}
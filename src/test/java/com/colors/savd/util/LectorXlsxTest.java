@@ -0,0 +1,136 @@
+package com.colors.savd.util;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LectorXlsxTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    @DisplayName("Lector SAX y lector DOM entregan las mismas filas (fechas ISO, números Locale.US)")
+    void streamingYCompletoCoinciden() throws Exception {
+        Path archivo = crearLibro();
+
+        List<String> completo = leer(new LectorXlsxCompleto(archivo.toFile()));
+        List<String> streaming = leer(new LectorXlsxStreaming(archivo.toFile()));
+
+        assertEquals(completo, streaming);
+        // Fila 0 vacía (título en fila 1), encabezado en fila 2
+        assertEquals("1:[Reporte de ventas]", completo.get(0));
+        assertEquals("2:[Fecha, Canal, Ref, SKU, Cant, P.Unit]", completo.get(1));
+        assertEquals("3:[2025-03-15 10:30:00, FISICO, T-001, SKU-1, 2, 12.5]", completo.get(2));
+        assertEquals("4:[2025-03-15 11:00:00, ONLINE, null, SKU-2, 1, 30]", completo.get(3));
+    }
+
+    @Test
+    @DisplayName("Números con formato visual (0.00, #,##0, moneda, %) se ven como en la hoja y su crudo sale sin formato en ambos lectores")
+    void numerosConFormatoSalenCrudos() throws Exception {
+        Path archivo = tmp.resolve("formatos.xlsx");
+        try (Workbook wb = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(archivo)) {
+            DataFormat df = wb.getCreationHelper().createDataFormat();
+            Row r = wb.createSheet("Ventas").createRow(0);
+            String[] formatos = {"0.00", "#,##0", "#,##0.00 \"S/\"", "#,##0.00;(#,##0.00)", "0%", "00000"};
+            double[] valores = {12.345, 1234.5, 1234.5, -1234.5, 0.125, 123};
+            for (int c = 0; c < formatos.length; c++) {
+                CellStyle st = wb.createCellStyle();
+                st.setDataFormat(df.getFormat(formatos[c]));
+                Cell cell = r.createCell(c);
+                cell.setCellValue(valores[c]);
+                cell.setCellStyle(st);
+            }
+            r.createCell(formatos.length).setCellValue("SKU-1");
+            wb.write(out);
+        }
+
+        List<String> completo = leer(new LectorXlsxCompleto(archivo.toFile()), true);
+        List<String> streaming = leer(new LectorXlsxStreaming(archivo.toFile()), true);
+
+        assertEquals(List.of("0:[12.345, 1234.5, 1234.5, -1234.5, 0.125, 123, SKU-1]"), completo);
+        assertEquals(completo, streaming);
+    }
+
+    @Test
+    @DisplayName("Códigos con formato de ceros a la izquierda conservan el texto visible en ambos lectores")
+    void codigosConservanTextoVisible() throws Exception {
+        Path archivo = tmp.resolve("codigos.xlsx");
+        try (Workbook wb = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(archivo)) {
+            CellStyle ceros = wb.createCellStyle();
+            ceros.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("00000"));
+            Row r = wb.createSheet("Ventas").createRow(0);
+            r.createCell(0).setCellValue(123);
+            r.getCell(0).setCellStyle(ceros);
+            r.createCell(1).setCellValue(7);
+            wb.write(out);
+        }
+
+        List<String> completo = leer(new LectorXlsxCompleto(archivo.toFile()));
+        List<String> streaming = leer(new LectorXlsxStreaming(archivo.toFile()));
+
+        assertEquals(List.of("0:[00123, 7]"), completo);
+        assertEquals(completo, streaming);
+    }
+
+    private Path crearLibro() throws IOException {
+        Path archivo = tmp.resolve("ventas.xlsx");
+        try (Workbook wb = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(archivo)) {
+            Sheet sh = wb.createSheet("Ventas");
+            CellStyle fecha = wb.createCellStyle();
+            fecha.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("dd/mm/yyyy hh:mm"));
+
+            sh.createRow(1).createCell(0).setCellValue("Reporte de ventas");
+            Row enc = sh.createRow(2);
+            String[] cols = {"Fecha", "Canal", "Ref", "SKU", "Cant", "P.Unit"};
+            for (int c = 0; c < cols.length; c++) enc.createCell(c).setCellValue(cols[c]);
+
+            Row r1 = sh.createRow(3);
+            r1.createCell(0).setCellValue(LocalDateTime.of(2025, 3, 15, 10, 30));
+            r1.getCell(0).setCellStyle(fecha);
+            r1.createCell(1).setCellValue("FISICO");
+            r1.createCell(2).setCellValue("T-001");
+            r1.createCell(3).setCellValue("SKU-1");
+            r1.createCell(4).setCellValue(2);
+            r1.createCell(5).setCellValue(12.5);
+
+            // Celda intermedia vacía (Ref) debe respetar la posición de columnas
+            Row r2 = sh.createRow(4);
+            r2.createCell(0).setCellValue(LocalDateTime.of(2025, 3, 15, 11, 0));
+            r2.getCell(0).setCellStyle(fecha);
+            r2.createCell(1).setCellValue("ONLINE");
+            r2.createCell(3).setCellValue("SKU-2");
+            r2.createCell(4).setCellValue(1);
+            r2.createCell(5).setCellFormula("10*3");
+            wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+
+            wb.write(out);
+        }
+        return archivo;
+    }
+
+    private List<String> leer(LectorFilas lector) throws IOException {
+        return leer(lector, false);
+    }
+
+    private List<String> leer(LectorFilas lector, boolean crudos) throws IOException {
+        List<String> filas = new ArrayList<>();
+        try (lector) {
+            lector.recorrer((i, celdas, valores) -> filas.add(i + ":" + Arrays.toString(crudos ? valores : celdas)));
+        }
+        return filas;
+    }
+}
@@ -0,0 +1,81 @@
+package com.colors.savd.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerfilColumnasTest {
+
+    private static final List<String> PATRONES = List.of(
+        "yyyy-MM-dd HH:mm:ss", "dd/MM/yyyy HH:mm:ss", "dd/MM/yyyy HH:mm", "yyyy-MM-dd'T'HH:mm:ss",
+        "dd-MM-yyyy HH:mm:ss", "dd-MM-yyyy HH:mm");
+
+    @Test
+    @DisplayName("Fechas: mismo resultado que los DateTimeFormatter de antes, incluido el ajuste SMART de fin de mes")
+    void fechasComoDateTimeFormatter() {
+        List<String> casos = List.of(
+            "2025-03-15 10:30:00", "15/03/2025 10:30:59", "15/03/2025 10:30", "2025-03-15T23:59:59",
+            "15-03-2025 00:00:00", "15-03-2025 08:05", "2025-03-15", "15/03/2025",
+            "2024-02-30 10:00:00", "31/04/2025", "2025-13-01 10:00:00", "2025-03-15 24:00:00", "31/12/2025 24:00", "2025-03-15 24:00:01",
+            "2025-3-15 10:00:00", "15/03/25", "15.03.2025", "abc", "2025-03-15 10:30:00.5");
+        PerfilColumnas perfil = new PerfilColumnas();
+        for (String c : casos) {
+            assertEquals(conFormatters(c), PerfilColumnas.parsearFechaHora(c), c);
+            assertEquals(conFormatters(c), perfil.fechaHora(0, c), c); // con formato recordado de la fila anterior
+        }
+    }
+
+    @Test
+    @DisplayName("Números: punto decimal por defecto; coma decimal aprendida de la muestra de la columna")
+    void separadorDecimalPorColumna() {
+        PerfilColumnas perfil = new PerfilColumnas();
+        for (String v : List.of("12,50", "1.234,5", "8", "1,200")) perfil.observar(1, v); // 2 comas vs 0 puntos
+        for (String v : List.of("12.50", "3", "1,200")) perfil.observar(2, v);
+        perfil.congelar();
+
+        assertTrue(perfil.isComaDecimal(1));
+        assertFalse(perfil.isComaDecimal(2));
+        assertEquals(new BigDecimal("1.200"), perfil.decimal(1, "1,200"));   // ambiguo: manda la columna
+        assertEquals(new BigDecimal("1200"), perfil.decimal(2, "1,200"));
+        assertEquals(new BigDecimal("1234.56"), perfil.decimal(2, "1.234,56")); // el valor delata su separador
+        assertEquals(new BigDecimal("12.5"), perfil.decimal(1, "S/ 12,5"));
+        assertEquals(3, perfil.entero(1, "2,5"));
+        assertNull(perfil.decimal(2, "12.50 PEN"));
+        assertNull(perfil.entero(2, "99999999999"));
+    }
+
+    @Test
+    @DisplayName("Sin contexto de columna se conserva la lectura anterior de ExcelUtil")
+    void decimalSinColumna() {
+        assertEquals(new BigDecimal("1200"), PerfilColumnas.parsearDecimal("1,200", false));
+        assertEquals(new BigDecimal("12.50"), PerfilColumnas.parsearDecimal("$12.50", false));
+        assertEquals(new BigDecimal("-3.5"), PerfilColumnas.parsearDecimal("-3.5", false));
+        assertEquals(new BigDecimal("1.5E+3"), PerfilColumnas.parsearDecimal("1.5E+3", false));
+        assertEquals(new BigDecimal("1234567"), PerfilColumnas.parsearDecimal("1 234 567", false));
+        assertNull(PerfilColumnas.parsearDecimal("12-3", false));
+        assertNull(PerfilColumnas.parsearDecimal("-", false));
+    }
+
+    /** Implementación anterior de ExcelUtil.parseFechaHoraTexto */
+    private static LocalDateTime conFormatters(String txt) {
+        for (String p : PATRONES) {
+            try {
+                return LocalDateTime.parse(txt, DateTimeFormatter.ofPattern(p));
+            } catch (DateTimeParseException ignored) {}
+        }
+        for (String p : List.of("yyyy-MM-dd", "dd/MM/yyyy")) {
+            try {
+                return LocalDate.parse(txt, DateTimeFormatter.ofPattern(p)).atStartOfDay();
+            } catch (DateTimeParseException ignored) {}
+        }
+        return null;
+    }
+}
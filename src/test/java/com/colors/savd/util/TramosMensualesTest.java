@@ -0,0 +1,48 @@
+package com.colors.savd.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TramosMensualesTest {
+
+    @Test
+    @DisplayName("Meses completos del resumen y extremos parciales desde venta_detalle")
+    void mesesCompletosYExtremos() {
+        var t = TramosMensuales.de(LocalDateTime.of(2024, 11, 15, 8, 0), LocalDateTime.of(2025, 3, 10, 18, 30), true);
+
+        assertEquals(202412, t.mesDesde());
+        assertEquals(202502, t.mesHasta());
+        assertEquals(LocalDateTime.of(2024, 11, 30, 23, 59, 59), t.cabezaHasta());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 0, 0), t.colaDesde());
+    }
+
+    @Test
+    @DisplayName("Rango alineado a meses: sin cabeza ni cola (tramos invertidos)")
+    void rangoAlineado() {
+        var desde = LocalDateTime.of(2025, 1, 1, 0, 0);
+        var hasta = LocalDateTime.of(2025, 2, 28, 23, 59, 59);
+        var t = TramosMensuales.de(desde, hasta, true);
+
+        assertEquals(202501, t.mesDesde());
+        assertEquals(202502, t.mesHasta());
+        assertTrue(t.cabezaHasta().isBefore(t.desde()));
+        assertTrue(t.colaDesde().isAfter(t.hasta()));
+    }
+
+    @Test
+    @DisplayName("Sin mes completo o con el resumen deshabilitado todo sale de venta_detalle")
+    void sinMesCompleto() {
+        var desde = LocalDateTime.of(2025, 1, 2, 0, 0);
+        var hasta = LocalDateTime.of(2025, 2, 27, 0, 0);
+        for (var t : new TramosMensuales[] { TramosMensuales.de(desde, hasta, true),
+                TramosMensuales.de(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 12, 31, 23, 59, 59), false) }) {
+            assertTrue(t.mesDesde() > t.mesHasta());
+            assertEquals(t.hasta(), t.cabezaHasta());
+            assertTrue(t.colaDesde().isAfter(t.hasta()));
+        }
+    }
+}